@@ -1,29 +1,23 @@
 package cuenen.raymond.gn;
 
-import java.util.concurrent.atomic.AtomicInteger;
-import org.pcap4j.core.PacketListener;
-import org.pcap4j.core.PcapHandle;
-import org.pcap4j.core.Pcaps;
-import org.pcap4j.packet.Packet;
+import cuenen.raymond.gn.io.CaptureFiles;
+import cuenen.raymond.gn.io.CapturedPacket;
+import cuenen.raymond.gn.io.PacketReader;
 
 public class ReadPacketFile {
 
     public static void main(String[] args) throws Exception {
-        final PcapHandle handle = Pcaps.openOffline("tx.pcap");
-        final AtomicInteger count = new AtomicInteger(0);
-        final PacketListener listener = new PacketListener() {
-
-            @Override
-            public void gotPacket(Packet packet) {
-                System.out.println(handle.getTimestamp());
-                System.out.println(count.incrementAndGet());
-                System.out.println(packet);
-            }
-        };
+        final PacketReader reader = CaptureFiles.open(args.length > 0 ? args[0] : "tx.pcap");
+        int count = 0;
         try {
-            handle.loop(-1, listener);
+            CapturedPacket packet;
+            while ((packet = reader.next()) != null) {
+                System.out.println(packet.getTimestamp());
+                System.out.println(++count);
+                System.out.println(packet.getPacket());
+            }
         } finally {
-            handle.close();
+            reader.close();
         }
     }
 }
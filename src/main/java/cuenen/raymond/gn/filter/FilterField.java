@@ -0,0 +1,383 @@
+package cuenen.raymond.gn.filter;
+
+import cuenen.raymond.gn.packet.GnPacketView;
+import cuenen.raymond.gn.packet.namednumber.GnPacketHeaderType;
+import cuenen.raymond.gn.packet.namednumber.GnTransportType;
+import cuenen.raymond.gn.packet.namednumber.ItsStationType;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The header fields a {@link FrameFilter} can test. Every field is read as a
+ * long in the unit of the header; constants in a filter are converted to that
+ * unit once, when the filter is compiled.
+ */
+enum FilterField {
+
+    VERSION("version") {
+
+        @Override
+        long read(GnPacketView view) {
+            return view.getVersion();
+        }
+    },
+    LT("lt") {
+
+        @Override
+        long read(GnPacketView view) {
+            return view.getLifetime() & 0xFF;
+        }
+    },
+    RHL("rhl") {
+
+        @Override
+        long read(GnPacketView view) {
+            return view.getRemainingHopLimit() & 0xFF;
+        }
+    },
+    SECURED("secured") {
+
+        @Override
+        long read(GnPacketView view) {
+            return view.hasSecureHeader() ? 1 : 0;
+        }
+    },
+    NH("nh", Symbols.TRANSPORT_TYPES) {
+
+        @Override
+        boolean isPresent(GnPacketView view) {
+            return view.hasCommonHeader();
+        }
+
+        @Override
+        long read(GnPacketView view) {
+            return view.getNextHeader();
+        }
+    },
+    HT("ht", Symbols.HEADER_TYPES) {
+
+        @Override
+        boolean isPresent(GnPacketView view) {
+            return view.hasCommonHeader();
+        }
+
+        @Override
+        long read(GnPacketView view) {
+            return view.getHeaderType();
+        }
+    },
+    HST("hst") {
+
+        @Override
+        boolean isPresent(GnPacketView view) {
+            return view.hasCommonHeader();
+        }
+
+        @Override
+        long read(GnPacketView view) {
+            return view.getHeaderSubtype();
+        }
+    },
+    TC("tc") {
+
+        @Override
+        boolean isPresent(GnPacketView view) {
+            return view.hasCommonHeader();
+        }
+
+        @Override
+        long read(GnPacketView view) {
+            return view.getTrafficClass() & 0xFF;
+        }
+    },
+    PL("pl") {
+
+        @Override
+        boolean isPresent(GnPacketView view) {
+            return view.hasCommonHeader();
+        }
+
+        @Override
+        long read(GnPacketView view) {
+            return view.getPayloadLength() & 0xFFFF;
+        }
+    },
+    MHL("mhl") {
+
+        @Override
+        boolean isPresent(GnPacketView view) {
+            return view.hasCommonHeader();
+        }
+
+        @Override
+        long read(GnPacketView view) {
+            return view.getMaximumHopLimit() & 0xFF;
+        }
+    },
+    SN("sn") {
+
+        @Override
+        boolean isPresent(GnPacketView view) {
+            return view.hasSequenceNumber();
+        }
+
+        @Override
+        long read(GnPacketView view) {
+            return view.getSequenceNumber() & 0xFFFF;
+        }
+    },
+    STATION_TYPE("station_type", Symbols.STATION_TYPES) {
+
+        @Override
+        boolean isPresent(GnPacketView view) {
+            return view.hasSourcePosition();
+        }
+
+        @Override
+        long read(GnPacketView view) {
+            return GnPacketView.getStationType(view.getSourceGnAddress());
+        }
+    },
+    COUNTRY("country") {
+
+        @Override
+        boolean isPresent(GnPacketView view) {
+            return view.hasSourcePosition();
+        }
+
+        @Override
+        long read(GnPacketView view) {
+            return GnPacketView.getCountryCode(view.getSourceGnAddress());
+        }
+    },
+    MID("mid") {
+
+        @Override
+        boolean isPresent(GnPacketView view) {
+            return view.hasSourcePosition();
+        }
+
+        @Override
+        long read(GnPacketView view) {
+            return GnPacketView.getLinkLayerAddress(view.getSourceGnAddress());
+        }
+    },
+    LAT("lat", Scale.TENTH_MICRODEGREE) {
+
+        @Override
+        boolean isPresent(GnPacketView view) {
+            return view.hasSourcePosition();
+        }
+
+        @Override
+        long read(GnPacketView view) {
+            return view.getSourceLatitude();
+        }
+    },
+    LON("lon", Scale.TENTH_MICRODEGREE) {
+
+        @Override
+        boolean isPresent(GnPacketView view) {
+            return view.hasSourcePosition();
+        }
+
+        @Override
+        long read(GnPacketView view) {
+            return view.getSourceLongitude();
+        }
+    },
+    SPEED("speed", Scale.CENTIMETRE_PER_SECOND) {
+
+        @Override
+        boolean isPresent(GnPacketView view) {
+            return view.hasSourcePosition();
+        }
+
+        @Override
+        long read(GnPacketView view) {
+            return view.getSourceSpeed();
+        }
+    },
+    HEADING("heading", Scale.DECIDEGREE) {
+
+        @Override
+        boolean isPresent(GnPacketView view) {
+            return view.hasSourcePosition();
+        }
+
+        @Override
+        long read(GnPacketView view) {
+            return view.getSourceHeading() & 0xFFFF;
+        }
+    },
+    DST_LAT("dst_lat", Scale.TENTH_MICRODEGREE) {
+
+        @Override
+        boolean isPresent(GnPacketView view) {
+            return view.hasDestinationPosition();
+        }
+
+        @Override
+        long read(GnPacketView view) {
+            return view.getDestinationLatitude();
+        }
+    },
+    DST_LON("dst_lon", Scale.TENTH_MICRODEGREE) {
+
+        @Override
+        boolean isPresent(GnPacketView view) {
+            return view.hasDestinationPosition();
+        }
+
+        @Override
+        long read(GnPacketView view) {
+            return view.getDestinationLongitude();
+        }
+    },
+    AREA_LAT("area_lat", Scale.TENTH_MICRODEGREE) {
+
+        @Override
+        boolean isPresent(GnPacketView view) {
+            return view.hasArea();
+        }
+
+        @Override
+        long read(GnPacketView view) {
+            return view.getAreaLatitude();
+        }
+    },
+    AREA_LON("area_lon", Scale.TENTH_MICRODEGREE) {
+
+        @Override
+        boolean isPresent(GnPacketView view) {
+            return view.hasArea();
+        }
+
+        @Override
+        long read(GnPacketView view) {
+            return view.getAreaLongitude();
+        }
+    };
+
+    private static final Map<String, FilterField> keywords = new HashMap<>();
+
+    static {
+        for (FilterField field : values()) {
+            keywords.put(field.keyword, field);
+        }
+    }
+
+    private final String keyword;
+    private final double scale;
+    private final Map<String, Long> symbols;
+
+    private FilterField(String keyword) {
+        this(keyword, 1.0, Collections.<String, Long>emptyMap());
+    }
+
+    private FilterField(String keyword, double scale) {
+        this(keyword, scale, Collections.<String, Long>emptyMap());
+    }
+
+    private FilterField(String keyword, Map<String, Long> symbols) {
+        this(keyword, 1.0, symbols);
+    }
+
+    private FilterField(String keyword, double scale, Map<String, Long> symbols) {
+        this.keyword = keyword;
+        this.scale = scale;
+        this.symbols = symbols;
+    }
+
+    /**
+     * @param keyword
+     * @return the field with the given name in a filter, or {@code null}.
+     */
+    static FilterField forKeyword(String keyword) {
+        return keywords.get(keyword);
+    }
+
+    String getKeyword() {
+        return keyword;
+    }
+
+    /**
+     * @return the number of header units in one unit of a filter constant,
+     * e.g. 10<sup>7</sup> for a latitude in degrees.
+     */
+    double getScale() {
+        return scale;
+    }
+
+    /**
+     * @param name
+     * @return the header value of a symbolic constant, or {@code null}.
+     */
+    Long getSymbol(String name) {
+        return symbols.get(name);
+    }
+
+    /**
+     * @param view a view on the Basic header and the headers that follow.
+     * @return {@code true} when the headers of the view hold this field.
+     */
+    boolean isPresent(GnPacketView view) {
+        return true;
+    }
+
+    /**
+     * Reads this field; only valid when {@link #isPresent(GnPacketView)}.
+     *
+     * @param view
+     * @return the value of the field in the unit of the header.
+     */
+    abstract long read(GnPacketView view);
+
+    private static final class Scale {
+
+        private static final double TENTH_MICRODEGREE = 1e7;
+        private static final double CENTIMETRE_PER_SECOND = 1e2;
+        private static final double DECIDEGREE = 1e1;
+    }
+
+    private static final class Symbols {
+
+        private static final Map<String, Long> TRANSPORT_TYPES = new HashMap<>();
+        private static final Map<String, Long> HEADER_TYPES = new HashMap<>();
+        private static final Map<String, Long> STATION_TYPES = new HashMap<>();
+
+        static {
+            put(TRANSPORT_TYPES, GnTransportType.ANY.value(), "ANY");
+            put(TRANSPORT_TYPES, GnTransportType.BTP_A.value(), "BTP_A");
+            put(TRANSPORT_TYPES, GnTransportType.BTP_B.value(), "BTP_B");
+            put(TRANSPORT_TYPES, GnTransportType.IPV6.value(), "IPV6");
+            put(HEADER_TYPES, GnPacketHeaderType.ANY.value(), "ANY");
+            put(HEADER_TYPES, GnPacketHeaderType.BEACON.value(), "BEACON");
+            put(HEADER_TYPES, GnPacketHeaderType.GEOUNICAST.value(), "GUC", "GEOUNICAST");
+            put(HEADER_TYPES, GnPacketHeaderType.GEOANYCAST.value(), "GAC", "GEOANYCAST");
+            put(HEADER_TYPES, GnPacketHeaderType.GEOBROADCAST.value(), "GBC", "GEOBROADCAST");
+            put(HEADER_TYPES, GnPacketHeaderType.TSB.value(), "TSB");
+            put(HEADER_TYPES, GnPacketHeaderType.LS.value(), "LS");
+            put(STATION_TYPES, ItsStationType.UNKNOWN.value(), "UNKNOWN");
+            put(STATION_TYPES, ItsStationType.PEDESTRIAN.value(), "PEDESTRIAN");
+            put(STATION_TYPES, ItsStationType.CYCLIST.value(), "CYCLIST");
+            put(STATION_TYPES, ItsStationType.MOPED.value(), "MOPED");
+            put(STATION_TYPES, ItsStationType.MOTERCYCLE.value(), "MOTORCYCLE");
+            put(STATION_TYPES, ItsStationType.PASSENGER_CAR.value(), "PASSENGER_CAR");
+            put(STATION_TYPES, ItsStationType.BUS.value(), "BUS");
+            put(STATION_TYPES, ItsStationType.LIGHT_TRUCK.value(), "LIGHT_TRUCK");
+            put(STATION_TYPES, ItsStationType.HEAVY_TRUCK.value(), "HEAVY_TRUCK");
+            put(STATION_TYPES, ItsStationType.TRAILER.value(), "TRAILER");
+            put(STATION_TYPES, ItsStationType.SPECIAL_VEHICLE.value(), "SPECIAL_VEHICLE");
+            put(STATION_TYPES, ItsStationType.TRAM.value(), "TRAM");
+            put(STATION_TYPES, ItsStationType.ROAD_SIDE_UNIT.value(), "ROAD_SIDE_UNIT", "RSU");
+        }
+
+        private static void put(Map<String, Long> symbols, Number value, String... names) {
+            for (String name : names) {
+                symbols.put(name, value.longValue());
+            }
+        }
+    }
+}
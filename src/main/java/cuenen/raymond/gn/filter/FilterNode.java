@@ -0,0 +1,196 @@
+package cuenen.raymond.gn.filter;
+
+import cuenen.raymond.gn.packet.GnPacketView;
+
+/**
+ * A node of a compiled {@link FrameFilter} expression. A test on a field that
+ * the headers do not hold is {@code false}. The string form of a node shows
+ * its constants in the unit of the header.
+ */
+abstract class FilterNode {
+
+    abstract boolean test(GnPacketView view);
+
+    enum Operator {
+
+        EQ("==") {
+
+            @Override
+            boolean apply(long value, long constant) {
+                return value == constant;
+            }
+        },
+        NE("!=") {
+
+            @Override
+            boolean apply(long value, long constant) {
+                return value != constant;
+            }
+        },
+        LT("<") {
+
+            @Override
+            boolean apply(long value, long constant) {
+                return value < constant;
+            }
+        },
+        LE("<=") {
+
+            @Override
+            boolean apply(long value, long constant) {
+                return value <= constant;
+            }
+        },
+        GT(">") {
+
+            @Override
+            boolean apply(long value, long constant) {
+                return value > constant;
+            }
+        },
+        GE(">=") {
+
+            @Override
+            boolean apply(long value, long constant) {
+                return value >= constant;
+            }
+        };
+
+        private final String symbol;
+
+        private Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        /**
+         * @param symbol
+         * @return the operator written as the given symbol, or {@code null}.
+         */
+        static Operator forSymbol(String symbol) {
+            for (Operator operator : values()) {
+                if (operator.symbol.equals(symbol)) {
+                    return operator;
+                }
+            }
+            return null;
+        }
+
+        abstract boolean apply(long value, long constant);
+
+        @Override
+        public String toString() {
+            return symbol;
+        }
+    }
+
+    static final class Comparison extends FilterNode {
+
+        private final FilterField field;
+        private final Operator operator;
+        private final long constant;
+
+        Comparison(FilterField field, Operator operator, long constant) {
+            this.field = field;
+            this.operator = operator;
+            this.constant = constant;
+        }
+
+        @Override
+        boolean test(GnPacketView view) {
+            return field.isPresent(view) && operator.apply(field.read(view), constant);
+        }
+
+        @Override
+        public String toString() {
+            return field.getKeyword() + " " + operator + " " + constant;
+        }
+    }
+
+    static final class Range extends FilterNode {
+
+        private final FilterField field;
+        private final long lower;
+        private final long upper;
+
+        Range(FilterField field, long lower, long upper) {
+            this.field = field;
+            this.lower = lower;
+            this.upper = upper;
+        }
+
+        @Override
+        boolean test(GnPacketView view) {
+            if (!field.isPresent(view)) {
+                return false;
+            }
+            final long value = field.read(view);
+            return value >= lower && value <= upper;
+        }
+
+        @Override
+        public String toString() {
+            return field.getKeyword() + " in [" + lower + ", " + upper + "]";
+        }
+    }
+
+    static final class And extends FilterNode {
+
+        private final FilterNode left;
+        private final FilterNode right;
+
+        And(FilterNode left, FilterNode right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        boolean test(GnPacketView view) {
+            return left.test(view) && right.test(view);
+        }
+
+        @Override
+        public String toString() {
+            return "(" + left + " && " + right + ")";
+        }
+    }
+
+    static final class Or extends FilterNode {
+
+        private final FilterNode left;
+        private final FilterNode right;
+
+        Or(FilterNode left, FilterNode right) {
+            this.left = left;
+            this.right = right;
+        }
+
+        @Override
+        boolean test(GnPacketView view) {
+            return left.test(view) || right.test(view);
+        }
+
+        @Override
+        public String toString() {
+            return "(" + left + " || " + right + ")";
+        }
+    }
+
+    static final class Not extends FilterNode {
+
+        private final FilterNode operand;
+
+        Not(FilterNode operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        boolean test(GnPacketView view) {
+            return !operand.test(view);
+        }
+
+        @Override
+        public String toString() {
+            return "!" + operand;
+        }
+    }
+}
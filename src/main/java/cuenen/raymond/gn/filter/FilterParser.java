@@ -0,0 +1,216 @@
+package cuenen.raymond.gn.filter;
+
+import cuenen.raymond.gn.filter.FilterNode.Operator;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.RoundingMode;
+
+/**
+ * A recursive-descent parser for the expressions of {@link FrameFilter}.
+ */
+final class FilterParser {
+
+    private final String expression;
+    private int position;
+
+    FilterParser(String expression) {
+        this.expression = expression;
+    }
+
+    FilterNode parse() {
+        final FilterNode node = parseOr();
+        skipWhitespace();
+        if (position < expression.length()) {
+            throw error("Unexpected '" + expression.charAt(position) + "'");
+        }
+        return node;
+    }
+
+    private FilterNode parseOr() {
+        FilterNode node = parseAnd();
+        while (accept("||")) {
+            node = new FilterNode.Or(node, parseAnd());
+        }
+        return node;
+    }
+
+    private FilterNode parseAnd() {
+        FilterNode node = parseNot();
+        while (accept("&&")) {
+            node = new FilterNode.And(node, parseNot());
+        }
+        return node;
+    }
+
+    private FilterNode parseNot() {
+        if (accept("!")) {
+            return new FilterNode.Not(parseNot());
+        }
+        if (accept("(")) {
+            final FilterNode node = parseOr();
+            expect(")");
+            return node;
+        }
+        return parseTest();
+    }
+
+    private FilterNode parseTest() {
+        final int start = skipWhitespace();
+        final String keyword = readWord();
+        final FilterField field = FilterField.forKeyword(keyword);
+        if (field == null) {
+            position = start;
+            throw error(keyword.isEmpty() ? "Expected a field" : "Unknown field '" + keyword + "'");
+        }
+        skipWhitespace();
+        final int operatorStart = position;
+        if (readWord().equals("in")) {
+            expect("[");
+            final long lower = toUnit(field, parseConstant(field), RoundingMode.CEILING);
+            expect(",");
+            final long upper = toUnit(field, parseConstant(field), RoundingMode.FLOOR);
+            expect("]");
+            return new FilterNode.Range(field, lower, upper);
+        }
+        position = operatorStart;
+        while (position < expression.length() && "=!<>".indexOf(expression.charAt(position)) >= 0) {
+            position++;
+        }
+        final Operator operator = Operator.forSymbol(expression.substring(operatorStart, position));
+        if (operator == null) {
+            position = operatorStart;
+            throw error("Expected a comparison or 'in' after '" + keyword + "'");
+        }
+        final Constant constant = parseConstant(field);
+        if (constant.isExact()) {
+            return new FilterNode.Comparison(field, operator, toUnit(field, constant, RoundingMode.UNNECESSARY));
+        }
+        switch (operator) {
+            case EQ:
+                position = constant.start;
+                throw error("'" + field.getKeyword() + "' cannot equal " + constant.text);
+            case NE:
+                return new FilterNode.Range(field, Long.MIN_VALUE, Long.MAX_VALUE);
+            case GT:
+            case GE:
+                return new FilterNode.Comparison(field, Operator.GE, toUnit(field, constant, RoundingMode.CEILING));
+            default:
+                return new FilterNode.Comparison(field, Operator.LE, toUnit(field, constant, RoundingMode.FLOOR));
+        }
+    }
+
+    /**
+     * Reads a number or a symbolic constant and converts it to the unit of the
+     * field. Hexadecimal numbers are scaled like decimal ones.
+     */
+    private Constant parseConstant(FilterField field) {
+        final int start = skipWhitespace();
+        if (position < expression.length() && Character.isLetter(expression.charAt(position))) {
+            final String name = readWord();
+            final Long value = field.getSymbol(name);
+            if (value == null) {
+                position = start;
+                throw error("Unknown constant '" + name + "' for '" + field.getKeyword() + "'");
+            }
+            return new Constant(BigDecimal.valueOf(value), start, name);
+        }
+        final boolean negative = position < expression.length() && expression.charAt(position) == '-';
+        if (position < expression.length() && (expression.charAt(position) == '-' || expression.charAt(position) == '+')) {
+            position++;
+        }
+        final int digits = position;
+        while (position < expression.length()
+                && (Character.isLetterOrDigit(expression.charAt(position)) || expression.charAt(position) == '.')) {
+            position++;
+        }
+        final String number = expression.substring(start, position);
+        final String magnitude = expression.substring(digits, position);
+        BigDecimal value;
+        try {
+            if (magnitude.startsWith("0x") || magnitude.startsWith("0X")) {
+                value = new BigDecimal(new BigInteger(magnitude.substring(2), 16));
+                if (negative) {
+                    value = value.negate();
+                }
+            } else {
+                value = new BigDecimal(number);
+            }
+        } catch (NumberFormatException e) {
+            position = start;
+            throw error(number.isEmpty() ? "Expected a constant" : "Illegal number '" + number + "'");
+        }
+        return new Constant(value.multiply(BigDecimal.valueOf(field.getScale())), start, number);
+    }
+
+    /**
+     * Rounds a constant to a whole number of header units.
+     *
+     * @param field
+     * @param constant
+     * @param mode {@link RoundingMode#UNNECESSARY} for an exact constant.
+     */
+    private long toUnit(FilterField field, Constant constant, RoundingMode mode) {
+        try {
+            return constant.value.setScale(0, mode).longValueExact();
+        } catch (ArithmeticException e) {
+            position = constant.start;
+            throw error("'" + field.getKeyword() + "' cannot hold " + constant.text);
+        }
+    }
+
+    private String readWord() {
+        final int start = position;
+        while (position < expression.length()
+                && (Character.isLetterOrDigit(expression.charAt(position)) || expression.charAt(position) == '_')) {
+            position++;
+        }
+        return expression.substring(start, position);
+    }
+
+    private boolean accept(String token) {
+        skipWhitespace();
+        if (expression.startsWith(token, position)) {
+            position += token.length();
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String token) {
+        if (!accept(token)) {
+            throw error("Expected '" + token + "'");
+        }
+    }
+
+    private int skipWhitespace() {
+        while (position < expression.length() && Character.isWhitespace(expression.charAt(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at position " + position + " of \"" + expression + "\"");
+    }
+
+    /**
+     * A constant in the unit of the header, before it is rounded to a whole
+     * number of units.
+     */
+    private static final class Constant {
+
+        private final BigDecimal value;
+        private final int start;
+        private final String text;
+
+        private Constant(BigDecimal value, int start, String text) {
+            this.value = value;
+            this.start = start;
+            this.text = text;
+        }
+
+        boolean isExact() {
+            return value.signum() == 0 || value.stripTrailingZeros().scale() <= 0;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package cuenen.raymond.gn.filter;
+
+import cuenen.raymond.gn.packet.GnPacketView;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+/**
+ * A filter that tests the GeoNetworking headers of a frame in place, before
+ * the frame is decoded. Readers only decode the frames a filter accepts.
+ * <p>
+ * A filter is written as a boolean expression, e.g.
+ * {@code ht == GBC && station_type == BUS && lat in [51.4, 51.5]}. Tests are
+ * combined with {@code &&}, {@code ||}, {@code !} and parentheses. A test
+ * compares a field with {@code ==}, {@code !=}, {@code <}, {@code <=},
+ * {@code >} or {@code >=}, or checks an inclusive range with
+ * {@code in [lower, upper]}. The fields are:
+ * </p>
+ * <ul>
+ * <li>{@code version}, {@code lt}, {@code rhl}: the Basic header fields;</li>
+ * <li>{@code secured}: 1 when a Secure header is present, 0 otherwise;</li>
+ * <li>{@code nh}: the transport type, {@code ANY}, {@code BTP_A},
+ * {@code BTP_B} or {@code IPV6};</li>
+ * <li>{@code ht}: the header type, {@code ANY}, {@code BEACON}, {@code GUC},
+ * {@code GAC}, {@code GBC}, {@code TSB} or {@code LS};</li>
+ * <li>{@code hst}, {@code tc}, {@code pl}, {@code mhl}: the other Common header
+ * fields;</li>
+ * <li>{@code sn}: the sequence number;</li>
+ * <li>{@code station_type}, {@code country}, {@code mid}: the parts of the
+ * source GN address, with the station types named as in
+ * {@code ItsStationType}, e.g. {@code BUS} or {@code ROAD_SIDE_UNIT};</li>
+ * <li>{@code lat}, {@code lon} (degrees), {@code speed} (m/s) and
+ * {@code heading} (degrees): the source position vector;</li>
+ * <li>{@code dst_lat}, {@code dst_lon}: the destination position;</li>
+ * <li>{@code area_lat}, {@code area_lon}: the centre of a GeoBroadcast or
+ * GeoAnycast area.</li>
+ * </ul>
+ * <p>
+ * Constants are converted to the unit of the header and rounded to a whole
+ * number of units towards the inside of the test, e.g. {@code speed > 13.891}
+ * tests for at least 1390 cm/s and both bounds of a range are rounded inwards.
+ * {@code ==} needs a constant that is a whole number of units. Hexadecimal
+ * constants are in the same unit as decimal ones.
+ * </p>
+ * <p>
+ * A test on a field that the packet does not hold, such as {@code sn} on a
+ * Beacon, is {@code false}. Frames that do not carry a GeoNetworking packet,
+ * or whose headers are truncated, are never accepted.
+ * </p>
+ */
+public final class FrameFilter {
+
+    private static final ThreadLocal<GnPacketView> views = new ThreadLocal<GnPacketView>() {
+
+        @Override
+        protected GnPacketView initialValue() {
+            return new GnPacketView();
+        }
+    };
+
+    private final String expression;
+    private final FilterNode root;
+
+    /**
+     * Compiles a filter expression.
+     *
+     * @param expression
+     * @return a new FrameFilter object.
+     * @throws IllegalArgumentException if the expression is malformed.
+     */
+    public static FrameFilter compile(String expression) {
+        if (expression == null) {
+            throw new NullPointerException("expression may not be null");
+        }
+        return new FrameFilter(expression, new FilterParser(expression).parse());
+    }
+
+    private FrameFilter(String expression, FilterNode root) {
+        this.expression = expression;
+        this.root = root;
+    }
+
+    /**
+     * Tests a captured frame. Cohda and Ethernet frames are supported.
+     *
+     * @param frame
+     * @param offset
+     * @param length
+     * @param dataLinkType the link type of the frame.
+     * @return {@code true} if the frame carries a GeoNetworking packet that
+     * this filter accepts.
+     */
+    public boolean matches(byte[] frame, int offset, int length, DataLinkType dataLinkType) {
+        final GnPacketView view = views.get();
+        return view.wrapFrame(frame, offset, length, dataLinkType) && root.test(view);
+    }
+
+    /**
+     * Tests a GeoNetworking packet, starting with its Basic header.
+     *
+     * @param data
+     * @param offset
+     * @param length
+     * @return {@code true} if this filter accepts the packet.
+     */
+    public boolean matches(byte[] data, int offset, int length) {
+        final GnPacketView view = views.get();
+        return view.wrap(data, offset, length) && root.test(view);
+    }
+
+    /**
+     * @param view a view on a GeoNetworking packet.
+     * @return {@code true} if this filter accepts the packet.
+     */
+    public boolean matches(GnPacketView view) {
+        return root.test(view);
+    }
+
+    @Override
+    public String toString() {
+        return expression;
+    }
+}
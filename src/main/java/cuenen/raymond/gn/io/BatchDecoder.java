@@ -0,0 +1,201 @@
+package cuenen.raymond.gn.io;
+
+import cuenen.raymond.gn.filter.FrameFilter;
+import cuenen.raymond.gn.io.BatchResult.FileResult;
+import cuenen.raymond.gn.packet.DecodeDepth;
+import cuenen.raymond.gn.packet.GeoNetworkingPacket;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+public final class BatchDecoder {
+
+    public static final int DEFAULT_MAX_OPEN_FILES = 64;
+
+    private static final String[] SUFFIXES = {".pcap", ".pcapng", ".cap", ".pcap.gz", ".pcapng.gz"};
+
+    private final int maxOpenFiles;
+    private volatile DecodeDepth decodeDepth = DecodeDepth.TRANSPORT;
+    private volatile FrameFilter filter;
+
+    public BatchDecoder() {
+        this(DEFAULT_MAX_OPEN_FILES);
+    }
+
+    /**
+     * @param maxOpenFiles the maximum number of captures decoded at the same
+     * time.
+     */
+    public BatchDecoder(int maxOpenFiles) {
+        if (maxOpenFiles <= 0) {
+            throw new IllegalArgumentException("maxOpenFiles: " + maxOpenFiles);
+        }
+        this.maxOpenFiles = maxOpenFiles;
+    }
+
+    /**
+     * Sets the deepest layer decoded; the remaining bytes of every record are
+     * left as an {@link org.pcap4j.packet.UnknownPacket}.
+     *
+     * @param depth
+     */
+    public void setDecodeDepth(DecodeDepth depth) {
+        if (depth == null) {
+            throw new NullPointerException("depth may not be null");
+        }
+        decodeDepth = depth;
+    }
+
+    /**
+     * Sets the filter that records are tested against before they are
+     * decoded. Rejected records are neither decoded nor counted.
+     *
+     * @param filter the filter, or {@code null} to decode every record.
+     */
+    public void setFilter(FrameFilter filter) {
+        this.filter = filter;
+    }
+
+    /**
+     * Decodes every capture file below a directory concurrently, one task per
+     * file. Tasks run on virtual threads when the runtime provides them and on
+     * a work-stealing pool otherwise.
+     *
+     * @param root
+     * @param listener receives the packets of all files, tagged with their
+     * path, from many threads at once; may be {@code null}.
+     * @return the per-file results, in path order.
+     * @throws IOException when the directory tree cannot be walked.
+     * @throws InterruptedException
+     */
+    public BatchResult decode(Path root, CapturedPacketListener listener) throws IOException, InterruptedException {
+        final List<Path> paths = findCaptures(root);
+        final Semaphore openFiles = new Semaphore(maxOpenFiles);
+        final ExecutorService executor = newExecutor();
+        final List<FileResult> results = new ArrayList<>(paths.size());
+        try {
+            final List<Future<FileResult>> futures = new ArrayList<>(paths.size());
+            for (Path path : paths) {
+                futures.add(executor.submit(new FileTask(path, openFiles, decodeDepth, filter, listener)));
+            }
+            for (Future<FileResult> future : futures) {
+                try {
+                    results.add(future.get());
+                } catch (ExecutionException e) {
+                    // Tasks record their own exceptions; only errors end the batch.
+                    final Throwable cause = e.getCause();
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return new BatchResult(results);
+    }
+
+    private static List<Path> findCaptures(Path root) throws IOException {
+        final List<Path> paths = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && isCapture(file)) {
+                    paths.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        Collections.sort(paths);
+        return paths;
+    }
+
+    private static boolean isCapture(Path file) {
+        final String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        for (String suffix : SUFFIXES) {
+            if (name.endsWith(suffix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return new ForkJoinPool();
+        }
+    }
+
+    private static final class FileTask implements Callable<FileResult> {
+
+        private final Path path;
+        private final Semaphore openFiles;
+        private final DecodeDepth decodeDepth;
+        private final FrameFilter filter;
+        private final CapturedPacketListener listener;
+
+        private FileTask(Path path, Semaphore openFiles, DecodeDepth decodeDepth, FrameFilter filter,
+                CapturedPacketListener listener) {
+            this.path = path;
+            this.openFiles = openFiles;
+            this.decodeDepth = decodeDepth;
+            this.filter = filter;
+            this.listener = listener;
+        }
+
+        @Override
+        public FileResult call() throws InterruptedException {
+            openFiles.acquire();
+            final long start = System.nanoTime();
+            final String source = path.toString();
+            long packets = 0;
+            long geoNetworkingPackets = 0;
+            long bytes = 0;
+            Exception failure = null;
+            try {
+                final PacketReader reader = CaptureFiles.open(path.toFile());
+                try {
+                    reader.setDecodeDepth(decodeDepth);
+                    reader.setFilter(filter);
+                    CapturedPacket packet;
+                    while ((packet = reader.next()) != null) {
+                        packets++;
+                        bytes += packet.getOriginalLength();
+                        if (packet.getPacket() != null && packet.getPacket().contains(GeoNetworkingPacket.class)) {
+                            geoNetworkingPackets++;
+                        }
+                        if (listener != null) {
+                            listener.gotPacket(new CapturedPacket(source, packet.getDataLinkType(),
+                                    packet.getTimestampNanos(), packet.getOriginalLength(), packet.getPacket()));
+                        }
+                    }
+                } finally {
+                    reader.close();
+                }
+            } catch (IOException | RuntimeException e) {
+                failure = e;
+            } finally {
+                openFiles.release();
+            }
+            return new FileResult(path, packets, geoNetworkingPackets, bytes, System.nanoTime() - start, failure);
+        }
+    }
+}
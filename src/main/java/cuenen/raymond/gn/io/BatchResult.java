@@ -0,0 +1,113 @@
+package cuenen.raymond.gn.io;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public final class BatchResult {
+
+    private final List<FileResult> files;
+
+    BatchResult(List<FileResult> files) {
+        this.files = Collections.unmodifiableList(files);
+    }
+
+    public List<FileResult> getFiles() {
+        return files;
+    }
+
+    public long getPacketCount() {
+        long count = 0;
+        for (FileResult file : files) {
+            count += file.packetCount;
+        }
+        return count;
+    }
+
+    public long getGeoNetworkingPacketCount() {
+        long count = 0;
+        for (FileResult file : files) {
+            count += file.geoNetworkingPacketCount;
+        }
+        return count;
+    }
+
+    public long getByteCount() {
+        long count = 0;
+        for (FileResult file : files) {
+            count += file.byteCount;
+        }
+        return count;
+    }
+
+    public List<FileResult> getFailures() {
+        final List<FileResult> failures = new ArrayList<>();
+        for (FileResult file : files) {
+            if (file.failure != null) {
+                failures.add(file);
+            }
+        }
+        return failures;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        final String ls = System.getProperty("line.separator");
+        sb.append("[Batch (").append(files.size()).append(" files)]").append(ls);
+        sb.append("  Packets: ").append(getPacketCount()).append(ls);
+        sb.append("  GeoNetworking Packets: ").append(getGeoNetworkingPacketCount()).append(ls);
+        sb.append("  Bytes: ").append(getByteCount()).append(ls);
+        sb.append("  Failures: ").append(getFailures().size()).append(ls);
+        return sb.toString();
+    }
+
+    public static final class FileResult {
+
+        private final Path path;
+        private final long packetCount;
+        private final long geoNetworkingPacketCount;
+        private final long byteCount;
+        private final long elapsedNanos;
+        private final Exception failure;
+
+        FileResult(Path path, long packetCount, long geoNetworkingPacketCount, long byteCount,
+                long elapsedNanos, Exception failure) {
+            this.path = path;
+            this.packetCount = packetCount;
+            this.geoNetworkingPacketCount = geoNetworkingPacketCount;
+            this.byteCount = byteCount;
+            this.elapsedNanos = elapsedNanos;
+            this.failure = failure;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public long getPacketCount() {
+            return packetCount;
+        }
+
+        public long getGeoNetworkingPacketCount() {
+            return geoNetworkingPacketCount;
+        }
+
+        public long getByteCount() {
+            return byteCount;
+        }
+
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * @return the I/O or runtime exception that ended decoding of this file
+         * early, or {@code null} when the whole file was decoded.
+         */
+        public Exception getFailure() {
+            return failure;
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package cuenen.raymond.gn.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.StandardOpenOption;
+
+public final class CaptureFiles {
+
+    private static final short GZIP_MAGIC = 0x1F8B;
+
+    /**
+     * Opens a pcap or pcapng capture file, depending on its magic number.
+     *
+     * @param path
+     * @return a new PacketReader object.
+     * @throws IOException
+     */
+    public static PacketReader open(String path) throws IOException {
+        return open(new File(path));
+    }
+
+    /**
+     * Opens a pcap or pcapng capture file, depending on its magic number.
+     * Uncompressed files are memory-mapped; gzip-compressed files are
+     * inflated on a read-ahead thread.
+     *
+     * @param file
+     * @return a new PacketReader object.
+     * @throws IOException
+     */
+    public static PacketReader open(File file) throws IOException {
+        final FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        final ByteBuffer magic = ByteBuffer.allocate(2);
+        try {
+            while (magic.hasRemaining() && channel.read(magic, magic.position()) > 0) {
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        if (!magic.hasRemaining() && magic.getShort(0) == GZIP_MAGIC) {
+            return open(new StreamCaptureInput(Channels.newInputStream(channel)));
+        }
+        return open(new MappedCaptureInput(channel));
+    }
+
+    /**
+     * Opens a pcap or pcapng capture read from a stream, such as a pipe. The
+     * stream is read, and inflated when it is gzip-compressed, on a dedicated
+     * read-ahead thread into reusable buffers.
+     *
+     * @param in
+     * @return a new PacketReader object.
+     * @throws IOException
+     */
+    public static PacketReader open(InputStream in) throws IOException {
+        return open(new StreamCaptureInput(in));
+    }
+
+    /**
+     * Opens a pcap or pcapng capture read from a channel.
+     *
+     * @param channel
+     * @return a new PacketReader object.
+     * @throws IOException
+     * @see #open(InputStream)
+     */
+    public static PacketReader open(ReadableByteChannel channel) throws IOException {
+        return open(Channels.newInputStream(channel));
+    }
+
+    /**
+     * Opens a pcap or pcapng capture written to the standard input, as in
+     * {@code tcpdump -w - | ...}.
+     *
+     * @return a new PacketReader object.
+     * @throws IOException
+     * @see #open(InputStream)
+     */
+    public static PacketReader openStandardInput() throws IOException {
+        return open(System.in);
+    }
+
+    static PacketReader open(CaptureInput input) throws IOException {
+        try {
+            final ByteBuffer magic = input.window(0, 4);
+            if (magic != null && magic.order(ByteOrder.BIG_ENDIAN).getInt(magic.position())
+                    == PcapNgReader.SECTION_HEADER_BLOCK) {
+                return new PcapNgReader(input);
+            }
+            return new PcapReader(input);
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    private CaptureFiles() {
+
+    }
+}
@@ -0,0 +1,20 @@
+package cuenen.raymond.gn.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+abstract class CaptureInput implements Closeable {
+
+    /**
+     * Returns a buffer whose position and limit delimit the requested range of
+     * the capture. The buffer is only valid until the next call.
+     *
+     * @param offset
+     * @param length
+     * @return the buffer, or {@code null} when the capture does not (yet) hold
+     * the requested range.
+     * @throws IOException
+     */
+    abstract ByteBuffer window(long offset, int length) throws IOException;
+}
@@ -0,0 +1,122 @@
+package cuenen.raymond.gn.io;
+
+public final class CaptureStatistics {
+
+    private final long intervalNanos;
+    private final long captured;
+    private final long filtered;
+    private final long decoded;
+    private final long ringDropped;
+    private final long pcapReceived;
+    private final long pcapDropped;
+    private final long interfaceDropped;
+    private final int backlog;
+
+    CaptureStatistics(long intervalNanos, long captured, long filtered, long decoded, long ringDropped,
+            long pcapReceived, long pcapDropped, long interfaceDropped, int backlog) {
+        this.intervalNanos = intervalNanos;
+        this.captured = captured;
+        this.filtered = filtered;
+        this.decoded = decoded;
+        this.ringDropped = ringDropped;
+        this.pcapReceived = pcapReceived;
+        this.pcapDropped = pcapDropped;
+        this.interfaceDropped = interfaceDropped;
+        this.backlog = backlog;
+    }
+
+    CaptureStatistics since(CaptureStatistics previous) {
+        return new CaptureStatistics(intervalNanos - previous.intervalNanos,
+                captured - previous.captured,
+                filtered - previous.filtered,
+                decoded - previous.decoded,
+                ringDropped - previous.ringDropped,
+                pcapReceived - previous.pcapReceived,
+                pcapDropped - previous.pcapDropped,
+                interfaceDropped - previous.interfaceDropped,
+                backlog);
+    }
+
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    /**
+     * @return the number of frames handed to the capture callback.
+     */
+    public long getCaptured() {
+        return captured;
+    }
+
+    /**
+     * @return the number of frames rejected by the filter, which are neither
+     * queued nor decoded.
+     */
+    public long getFiltered() {
+        return filtered;
+    }
+
+    /**
+     * @return the number of frames decoded and delivered by the workers.
+     */
+    public long getDecoded() {
+        return decoded;
+    }
+
+    /**
+     * @return the number of frames dropped because the ring buffer was full.
+     */
+    public long getRingDropped() {
+        return ringDropped;
+    }
+
+    /**
+     * @return the number of frames received by libpcap.
+     */
+    public long getPcapReceived() {
+        return pcapReceived;
+    }
+
+    /**
+     * @return the number of frames dropped by libpcap for lack of buffer
+     * space.
+     */
+    public long getPcapDropped() {
+        return pcapDropped;
+    }
+
+    /**
+     * @return the number of frames dropped by the network interface or its
+     * driver.
+     */
+    public long getInterfaceDropped() {
+        return interfaceDropped;
+    }
+
+    /**
+     * @return the number of frames waiting in the ring buffer.
+     */
+    public int getBacklog() {
+        return backlog;
+    }
+
+    public long getTotalDropped() {
+        return ringDropped + pcapDropped + interfaceDropped;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        final String ls = System.getProperty("line.separator");
+        sb.append("[Capture Statistics (").append(intervalNanos / 1000000).append(" ms)]").append(ls);
+        sb.append("  Captured: ").append(captured).append(ls);
+        sb.append("  Filtered: ").append(filtered).append(ls);
+        sb.append("  Decoded: ").append(decoded).append(ls);
+        sb.append("  Ring Dropped: ").append(ringDropped).append(ls);
+        sb.append("  Pcap Received: ").append(pcapReceived).append(ls);
+        sb.append("  Pcap Dropped: ").append(pcapDropped).append(ls);
+        sb.append("  Interface Dropped: ").append(interfaceDropped).append(ls);
+        sb.append("  Backlog: ").append(backlog).append(ls);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,10 @@
+package cuenen.raymond.gn.io;
+
+public interface CaptureStatisticsListener {
+
+    /**
+     * @param statistics the counters accumulated during the last reporting
+     * interval.
+     */
+    public void gotStatistics(CaptureStatistics statistics);
+}
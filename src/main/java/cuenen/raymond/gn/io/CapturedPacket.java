@@ -0,0 +1,88 @@
+package cuenen.raymond.gn.io;
+
+import java.sql.Timestamp;
+import org.pcap4j.packet.Packet;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+public final class CapturedPacket {
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private final String source;
+    private final DataLinkType dataLinkType;
+    private final long timestamp;
+    private final int originalLength;
+    private final Packet packet;
+
+    /**
+     * @param dataLinkType
+     * @param timestamp the capture time in nanoseconds since the epoch.
+     * @param originalLength
+     * @param packet
+     */
+    public CapturedPacket(DataLinkType dataLinkType, long timestamp, int originalLength, Packet packet) {
+        this(null, dataLinkType, timestamp, originalLength, packet);
+    }
+
+    /**
+     * @param source the name of the capture the packet was read from.
+     * @param dataLinkType
+     * @param timestamp the capture time in nanoseconds since the epoch.
+     * @param originalLength
+     * @param packet
+     */
+    public CapturedPacket(String source, DataLinkType dataLinkType, long timestamp, int originalLength,
+            Packet packet) {
+        this.source = source;
+        this.dataLinkType = dataLinkType;
+        this.timestamp = timestamp;
+        this.originalLength = originalLength;
+        this.packet = packet;
+    }
+
+    /**
+     * @return the name of the capture the packet was read from, or
+     * {@code null} when unknown.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    public DataLinkType getDataLinkType() {
+        return dataLinkType;
+    }
+
+    public long getTimestampNanos() {
+        return timestamp;
+    }
+
+    public Timestamp getTimestamp() {
+        final Timestamp ts = new Timestamp((timestamp / NANOS_PER_SECOND) * 1000);
+        ts.setNanos((int) (timestamp % NANOS_PER_SECOND));
+        return ts;
+    }
+
+    public int getOriginalLength() {
+        return originalLength;
+    }
+
+    public Packet getPacket() {
+        return packet;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder sb = new StringBuilder();
+        final String ls = System.getProperty("line.separator");
+        sb.append("[Captured ");
+        if (source != null) {
+            sb.append(source).append(' ');
+        }
+        sb.append(getTimestamp()).append(" (").append(originalLength);
+        sb.append(" bytes, ").append(dataLinkType).append(")]").append(ls);
+        if (packet != null) {
+            sb.append(packet);
+        }
+        return sb.toString();
+    }
+}
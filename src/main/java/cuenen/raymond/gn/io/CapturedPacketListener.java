@@ -0,0 +1,6 @@
+package cuenen.raymond.gn.io;
+
+public interface CapturedPacketListener {
+
+    public void gotPacket(CapturedPacket packet);
+}
@@ -0,0 +1,45 @@
+package cuenen.raymond.gn.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+final class FileCaptureInput extends CaptureInput {
+
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocate(DEFAULT_BUFFER_SIZE);
+    private long bufferOffset;
+    private int bufferLength;
+
+    FileCaptureInput(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    @Override
+    ByteBuffer window(long offset, int length) throws IOException {
+        if (offset < bufferOffset || offset + length > bufferOffset + bufferLength) {
+            if (length > buffer.capacity()) {
+                buffer = ByteBuffer.allocate(length);
+            }
+            buffer.clear();
+            while (buffer.hasRemaining() && channel.read(buffer, offset + buffer.position()) > 0) {
+            }
+            bufferOffset = offset;
+            bufferLength = buffer.position();
+            if (bufferLength < length) {
+                return null;
+            }
+        }
+        final int position = (int) (offset - bufferOffset);
+        buffer.limit(position + length);
+        buffer.position(position);
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
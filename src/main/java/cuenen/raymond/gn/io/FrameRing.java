@@ -0,0 +1,121 @@
+package cuenen.raymond.gn.io;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bounded lock-free ring of preallocated frame slots. Every slot carries a
+ * sequence number that tells producers and consumers whose turn it is, so the
+ * only shared writes are the two cursors and the slot sequence.
+ */
+final class FrameRing {
+
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final byte[][] frames;
+    private final int[] lengths;
+    private final int[] originalLengths;
+    private final long[] timestamps;
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * @param capacity the number of slots, rounded up to a power of two.
+     * @param frameSize the size of a single slot in bytes.
+     */
+    FrameRing(int capacity, int frameSize) {
+        final int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        mask = size - 1;
+        sequences = new AtomicLongArray(size);
+        frames = new byte[size][frameSize];
+        lengths = new int[size];
+        originalLengths = new int[size];
+        timestamps = new long[size];
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+
+    int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    /**
+     * Copies a frame into the next free slot, truncated to the slot size.
+     *
+     * @param data
+     * @param timestamp
+     * @return {@code false} when the ring is full and the frame was dropped.
+     */
+    boolean offer(byte[] data, long timestamp) {
+        long position = tail.get();
+        for (;;) {
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - position;
+            if (difference == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    final int length = Math.min(data.length, frames[index].length);
+                    System.arraycopy(data, 0, frames[index], 0, length);
+                    lengths[index] = length;
+                    originalLengths[index] = data.length;
+                    timestamps[index] = timestamp;
+                    sequences.lazySet(index, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (difference < 0) {
+                return false;
+            } else {
+                position = tail.get();
+            }
+        }
+    }
+
+    /**
+     * Claims the oldest filled slot. The slot stays owned by the caller, and
+     * its contents stay valid, until it is passed to {@link #release(long)}.
+     *
+     * @return the claimed position, or {@code -1} when the ring is empty.
+     */
+    long claim() {
+        long position = head.get();
+        for (;;) {
+            final int index = (int) position & mask;
+            final long difference = sequences.get(index) - (position + 1);
+            if (difference == 0) {
+                if (head.compareAndSet(position, position + 1)) {
+                    return position;
+                }
+                position = head.get();
+            } else if (difference < 0) {
+                return -1;
+            } else {
+                position = head.get();
+            }
+        }
+    }
+
+    byte[] frame(long position) {
+        return frames[(int) position & mask];
+    }
+
+    int length(long position) {
+        return lengths[(int) position & mask];
+    }
+
+    int originalLength(long position) {
+        return originalLengths[(int) position & mask];
+    }
+
+    long timestamp(long position) {
+        return timestamps[(int) position & mask];
+    }
+
+    void release(long position) {
+        sequences.lazySet((int) position & mask, position + mask + 1);
+    }
+}
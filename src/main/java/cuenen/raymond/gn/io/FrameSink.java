@@ -0,0 +1,115 @@
+package cuenen.raymond.gn.io;
+
+import cuenen.raymond.gn.packet.DecodeDepth;
+import cuenen.raymond.gn.packet.GnColumns;
+import cuenen.raymond.gn.packet.PooledGnPacket;
+import cuenen.raymond.gn.packet.factory.GnEtherTypePacketFactory;
+import org.pcap4j.packet.Packet;
+import org.pcap4j.packet.factory.PacketFactories;
+import org.pcap4j.packet.factory.PacketFactory;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+/**
+ * Takes the frames a reader walks over, after the filter of the reader. The
+ * frame is only valid during the call.
+ */
+interface FrameSink {
+
+    /**
+     * @param frame
+     * @param offset
+     * @param length
+     * @param dataLinkType the link type of the frame.
+     * @param timestamp the capture time in nanoseconds since the epoch.
+     * @param originalLength the length of the frame on the wire.
+     * @return {@code true} to stop the walk after this frame.
+     */
+    boolean accept(byte[] frame, int offset, int length, DataLinkType dataLinkType, long timestamp,
+            int originalLength);
+
+    /**
+     * Decodes the frame and stops the walk.
+     */
+    static final class Decoder implements FrameSink {
+
+        private final PacketFactory<Packet, DataLinkType> factory = PacketFactories
+                .getFactory(Packet.class, DataLinkType.class);
+        private DecodeDepth decodeDepth = DecodeDepth.TRANSPORT;
+        private CapturedPacket packet;
+
+        void setDecodeDepth(DecodeDepth depth) {
+            if (depth == null) {
+                throw new NullPointerException("depth may not be null");
+            }
+            decodeDepth = depth;
+        }
+
+        @Override
+        public boolean accept(byte[] frame, int offset, int length, DataLinkType dataLinkType, long timestamp,
+                int originalLength) {
+            final Packet decoded;
+            final DecodeDepth previous = DecodeDepth.set(decodeDepth);
+            final boolean copy = GnEtherTypePacketFactory.setCopyRawData(true);
+            try {
+                decoded = factory.newInstance(frame, offset, length, dataLinkType);
+            } finally {
+                GnEtherTypePacketFactory.setCopyRawData(copy);
+                DecodeDepth.set(previous);
+            }
+            packet = new CapturedPacket(dataLinkType, timestamp, originalLength, decoded);
+            return true;
+        }
+
+        /**
+         * @return the packet decoded last, or {@code null}; the packet is
+         * handed out once.
+         */
+        CapturedPacket take() {
+            final CapturedPacket taken = packet;
+            packet = null;
+            return taken;
+        }
+    }
+
+    /**
+     * Adds a row per frame to columns and stops the walk once they are full.
+     */
+    static final class Projector implements FrameSink {
+
+        private final GnColumns columns;
+
+        Projector(GnColumns columns) {
+            this.columns = columns;
+        }
+
+        @Override
+        public boolean accept(byte[] frame, int offset, int length, DataLinkType dataLinkType, long timestamp,
+                int originalLength) {
+            columns.add(frame, offset, length, dataLinkType, timestamp);
+            return columns.isFull();
+        }
+    }
+
+    /**
+     * Copies the GeoNetworking packet of a frame into a pooled packet and
+     * stops the walk, unless the frame does not carry one.
+     */
+    static final class Pooler implements FrameSink {
+
+        private PooledGnPacket packet;
+
+        /**
+         * @param packet the packet to copy into, or {@code null} to drop the
+         * packet set before.
+         */
+        void fill(PooledGnPacket packet) {
+            this.packet = packet;
+        }
+
+        @Override
+        public boolean accept(byte[] frame, int offset, int length, DataLinkType dataLinkType, long timestamp,
+                int originalLength) {
+            return packet.setFrame(frame, offset, length, dataLinkType, timestamp);
+        }
+    }
+}
@@ -0,0 +1,334 @@
+package cuenen.raymond.gn.io;
+
+import cuenen.raymond.gn.filter.FrameFilter;
+import cuenen.raymond.gn.packet.DecodeDepth;
+import cuenen.raymond.gn.packet.factory.GnEtherTypePacketFactory;
+import java.io.Closeable;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import org.pcap4j.core.NotOpenException;
+import org.pcap4j.core.PcapHandle;
+import org.pcap4j.core.PcapNativeException;
+import org.pcap4j.core.PcapStat;
+import org.pcap4j.core.RawPacketListener;
+import org.pcap4j.packet.Packet;
+import org.pcap4j.packet.factory.PacketFactories;
+import org.pcap4j.packet.factory.PacketFactory;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+/**
+ * Decodes frames from a live {@link PcapHandle}. The capture callback only
+ * copies frames into a preallocated ring buffer, decoding is done by a set of
+ * worker threads. Frames that arrive while the ring is full are dropped and
+ * counted instead of stalling the capture.
+ */
+public final class LiveCapture implements Closeable {
+
+    public static final int DEFAULT_RING_SIZE = 8 * 1024;
+    public static final int DEFAULT_FRAME_SIZE = 4 * 1024;
+    public static final long DEFAULT_REPORT_INTERVAL = 1000;
+
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final PcapHandle handle;
+    private final FrameRing ring;
+    private final int workerCount;
+    private final DataLinkType dataLinkType;
+    private final PacketFactory<Packet, DataLinkType> factory = PacketFactories.getFactory(Packet.class, DataLinkType.class);
+    private final AtomicLong captured = new AtomicLong();
+    private final AtomicLong filtered = new AtomicLong();
+    private final AtomicLong decoded = new AtomicLong();
+    private final AtomicLong ringDropped = new AtomicLong();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final List<Thread> workers = new ArrayList<>();
+    private Thread captureThread;
+    private Thread statisticsThread;
+    private volatile DecodeDepth decodeDepth = DecodeDepth.TRANSPORT;
+    private volatile FrameFilter filter;
+    private volatile boolean capturing;
+    private volatile boolean running;
+    private long startNanos;
+    private CaptureStatisticsListener statisticsListener;
+    private long reportInterval = DEFAULT_REPORT_INTERVAL;
+
+    public LiveCapture(PcapHandle handle) throws NotOpenException {
+        this(handle, DEFAULT_RING_SIZE, DEFAULT_FRAME_SIZE, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+    }
+
+    /**
+     * @param handle an open handle, typically on a Cohda interface.
+     * @param ringSize the number of frames that can wait for decoding.
+     * @param frameSize the size of a ring slot; longer frames are truncated.
+     * @param workerCount the number of decoding threads.
+     * @throws NotOpenException
+     */
+    public LiveCapture(PcapHandle handle, int ringSize, int frameSize, int workerCount) throws NotOpenException {
+        if (ringSize <= 0) {
+            throw new IllegalArgumentException("ringSize: " + ringSize);
+        }
+        if (frameSize <= 0) {
+            throw new IllegalArgumentException("frameSize: " + frameSize);
+        }
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("workerCount: " + workerCount);
+        }
+        this.handle = handle;
+        this.workerCount = workerCount;
+        ring = new FrameRing(ringSize, Math.min(frameSize, handle.getSnapshot()));
+        dataLinkType = PcapReader.toDataLinkType(handle.getDlt().value());
+    }
+
+    /**
+     * @param listener receives the statistics of every reporting interval on
+     * the reporting thread; may be {@code null}.
+     * @param reportInterval the reporting interval in milliseconds.
+     */
+    public void setStatisticsListener(CaptureStatisticsListener listener, long reportInterval) {
+        if (reportInterval <= 0) {
+            throw new IllegalArgumentException("reportInterval: " + reportInterval);
+        }
+        checkNotStarted();
+        this.statisticsListener = listener;
+        this.reportInterval = reportInterval;
+    }
+
+    /**
+     * Sets the deepest layer decoded; the remaining bytes of every frame are
+     * left as an {@link org.pcap4j.packet.UnknownPacket}.
+     *
+     * @param depth
+     */
+    public void setDecodeDepth(DecodeDepth depth) {
+        if (depth == null) {
+            throw new NullPointerException("depth may not be null");
+        }
+        decodeDepth = depth;
+    }
+
+    /**
+     * Sets the filter that frames are tested against on the capture thread.
+     * Rejected frames are counted but neither queued nor decoded.
+     *
+     * @param filter the filter, or {@code null} to decode every frame.
+     */
+    public void setFilter(FrameFilter filter) {
+        this.filter = filter;
+    }
+
+    public DataLinkType getDataLinkType() {
+        return dataLinkType;
+    }
+
+    /**
+     * Starts capturing on a dedicated thread and decoding on the worker
+     * threads.
+     *
+     * @param listener receives the decoded packets from the worker threads; it
+     * must be thread-safe.
+     */
+    public void start(final CapturedPacketListener listener) {
+        checkNotStarted();
+        running = true;
+        capturing = true;
+        startNanos = System.nanoTime();
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    work(listener);
+                }
+            }, "gnpcap-decode-" + i));
+        }
+        captureThread = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                capture();
+            }
+        }, "gnpcap-capture");
+        if (statisticsListener != null) {
+            statisticsThread = new Thread(new Runnable() {
+
+                @Override
+                public void run() {
+                    report();
+                }
+            }, "gnpcap-statistics");
+        }
+        for (Thread worker : workers) {
+            start(worker);
+        }
+        start(captureThread);
+        if (statisticsThread != null) {
+            start(statisticsThread);
+        }
+    }
+
+    private static void start(Thread thread) {
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return the counters accumulated since the capture was started.
+     */
+    public CaptureStatistics getStatistics() {
+        long received = 0;
+        long dropped = 0;
+        long droppedByInterface = 0;
+        if (handle.isOpen()) {
+            try {
+                final PcapStat stat = handle.getStats();
+                received = stat.getNumPacketsReceived();
+                dropped = stat.getNumPacketsDropped();
+                droppedByInterface = stat.getNumPacketsDroppedByIf();
+            } catch (PcapNativeException | NotOpenException e) {
+                // Not every platform and handle type provides statistics.
+            }
+        }
+        final long elapsed = startNanos == 0 ? 0 : System.nanoTime() - startNanos;
+        return new CaptureStatistics(elapsed, captured.get(), filtered.get(), decoded.get(), ringDropped.get(),
+                received, dropped, droppedByInterface, ring.size());
+    }
+
+    /**
+     * @return the first exception thrown by the capture loop or by the packet
+     * listener, or {@code null}.
+     */
+    public Throwable getFailure() {
+        return failure.get();
+    }
+
+    /**
+     * Stops the capture, lets the workers decode the frames that are still in
+     * the ring and waits for all threads to finish. The handle is not closed.
+     */
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        capturing = false;
+        try {
+            handle.breakLoop();
+        } catch (NotOpenException e) {
+            // The loop is over already.
+        }
+        boolean interrupted = join(captureThread);
+        running = false;
+        if (statisticsThread != null) {
+            statisticsThread.interrupt();
+            interrupted |= join(statisticsThread);
+        }
+        for (Thread worker : workers) {
+            interrupted |= join(worker);
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkNotStarted() {
+        if (captureThread != null) {
+            throw new IllegalStateException("The capture has been started already");
+        }
+    }
+
+    private static boolean join(Thread thread) {
+        boolean interrupted = false;
+        for (;;) {
+            try {
+                thread.join();
+                return interrupted;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+    }
+
+    private void capture() {
+        final RawPacketListener callback = new RawPacketListener() {
+
+            @Override
+            public void gotPacket(byte[] frame) {
+                captured.incrementAndGet();
+                final FrameFilter currentFilter = filter;
+                if (currentFilter != null && !currentFilter.matches(frame, 0, frame.length, dataLinkType)) {
+                    filtered.incrementAndGet();
+                    return;
+                }
+                if (!ring.offer(frame, toNanos(handle.getTimestamp()))) {
+                    ringDropped.incrementAndGet();
+                }
+            }
+        };
+        try {
+            while (capturing) {
+                handle.loop(-1, callback);
+            }
+        } catch (InterruptedException e) {
+            // breakLoop() was called.
+        } catch (PcapNativeException | NotOpenException | RuntimeException e) {
+            failure.compareAndSet(null, e);
+        } finally {
+            capturing = false;
+        }
+    }
+
+    private void work(CapturedPacketListener listener) {
+        for (;;) {
+            final long position = ring.claim();
+            if (position < 0) {
+                if (!running) {
+                    return;
+                }
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+                continue;
+            }
+            try {
+                final int length = ring.length(position);
+                final Packet packet;
+                final DecodeDepth previous = DecodeDepth.set(decodeDepth);
+                final boolean copy = GnEtherTypePacketFactory.setCopyRawData(true);
+                try {
+                    packet = factory.newInstance(ring.frame(position), 0, length, dataLinkType);
+                } finally {
+                    GnEtherTypePacketFactory.setCopyRawData(copy);
+                    DecodeDepth.set(previous);
+                }
+                decoded.incrementAndGet();
+                listener.gotPacket(new CapturedPacket(dataLinkType, ring.timestamp(position),
+                        ring.originalLength(position), packet));
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                ring.release(position);
+            }
+        }
+    }
+
+    private void report() {
+        CaptureStatistics previous = getStatistics();
+        try {
+            while (running) {
+                Thread.sleep(reportInterval);
+                final CaptureStatistics current = getStatistics();
+                statisticsListener.gotStatistics(current.since(previous));
+                previous = current;
+            }
+        } catch (InterruptedException e) {
+            // Closed.
+        }
+    }
+
+    private static long toNanos(Timestamp timestamp) {
+        final long seconds = timestamp.getTime() / 1000 - (timestamp.getTime() % 1000 < 0 ? 1 : 0);
+        return seconds * 1000000000L + timestamp.getNanos();
+    }
+}
@@ -0,0 +1,47 @@
+package cuenen.raymond.gn.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+final class MappedCaptureInput extends CaptureInput {
+
+    private static final long MAX_MAPPING_SIZE = 1 << 28;
+
+    private final FileChannel channel;
+    private MappedByteBuffer mapping;
+    private long mappingOffset;
+    private long size;
+
+    MappedCaptureInput(FileChannel channel) throws IOException {
+        this.channel = channel;
+        size = channel.size();
+    }
+
+    @Override
+    ByteBuffer window(long offset, int length) throws IOException {
+        final long end = offset + length;
+        if (mapping == null || offset < mappingOffset || end > mappingOffset + mapping.capacity()) {
+            if (end > size) {
+                size = channel.size();
+                if (end > size) {
+                    return null;
+                }
+            }
+            final long mappingSize = Math.min(Math.max(MAX_MAPPING_SIZE, length), size - offset);
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, offset, mappingSize);
+            mappingOffset = offset;
+        }
+        final int position = (int) (offset - mappingOffset);
+        mapping.limit(position + length);
+        mapping.position(position);
+        return mapping;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mapping = null;
+        channel.close();
+    }
+}
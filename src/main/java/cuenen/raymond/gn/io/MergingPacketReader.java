@@ -0,0 +1,178 @@
+package cuenen.raymond.gn.io;
+
+import cuenen.raymond.gn.filter.FrameFilter;
+import cuenen.raymond.gn.packet.DecodeDepth;
+import cuenen.raymond.gn.packet.GnColumns;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+public final class MergingPacketReader implements PacketReader {
+
+    private final List<Cursor> cursors = new ArrayList<>();
+    private final PriorityQueue<Cursor> heap;
+    private boolean primed;
+
+    /**
+     * A static factory method. Every capture is opened with
+     * {@link CaptureFiles#open(File)} and tagged with its path.
+     *
+     * @param files
+     * @return a new MergingPacketReader object.
+     * @throws IOException
+     */
+    public static MergingPacketReader open(List<File> files) throws IOException {
+        final Map<String, PacketReader> readers = new LinkedHashMap<>();
+        try {
+            for (File file : files) {
+                readers.put(file.getPath(), CaptureFiles.open(file));
+            }
+        } catch (IOException e) {
+            for (PacketReader reader : readers.values()) {
+                reader.close();
+            }
+            throw e;
+        }
+        return new MergingPacketReader(readers);
+    }
+
+    /**
+     * @param readers the inputs to merge, keyed by the source name their
+     * packets are tagged with. Packets with equal timestamps are returned in
+     * the iteration order of this map.
+     */
+    public MergingPacketReader(Map<String, ? extends PacketReader> readers) {
+        for (Map.Entry<String, ? extends PacketReader> entry : readers.entrySet()) {
+            cursors.add(new Cursor(cursors.size(), entry.getKey(), entry.getValue()));
+        }
+        heap = new PriorityQueue<>(Math.max(1, cursors.size()));
+    }
+
+    /**
+     * Returns the packet with the lowest timestamp among the look-ahead
+     * packets of all inputs. An input is exhausted as soon as its reader
+     * returns {@code null}.
+     *
+     * @return the next packet, or {@code null} when all inputs are exhausted.
+     * @throws IOException
+     */
+    @Override
+    public CapturedPacket next() throws IOException {
+        if (!primed) {
+            for (Cursor cursor : cursors) {
+                if (cursor.advance()) {
+                    heap.add(cursor);
+                }
+            }
+            primed = true;
+        }
+        final Cursor cursor = heap.poll();
+        if (cursor == null) {
+            return null;
+        }
+        final CapturedPacket head = cursor.head;
+        if (cursor.advance()) {
+            heap.add(cursor);
+        }
+        return new CapturedPacket(cursor.source, head.getDataLinkType(), head.getTimestampNanos(),
+                head.getOriginalLength(), head.getPacket());
+    }
+
+    /**
+     * Adds the rows in merged order. The inputs are decoded to be merged, so
+     * this saves no decoding over {@link #next()}.
+     *
+     * @param columns
+     * @return the number of rows added, 0 if the columns are full already, or
+     * -1 when all inputs are exhausted.
+     * @throws IOException
+     */
+    @Override
+    public int read(GnColumns columns) throws IOException {
+        if (columns.isFull()) {
+            return 0;
+        }
+        final int start = columns.size();
+        CapturedPacket packet = null;
+        while (!columns.isFull() && (packet = next()) != null) {
+            final byte[] frame = packet.getPacket().getRawData();
+            columns.add(frame, 0, frame.length, packet.getDataLinkType(), packet.getTimestampNanos());
+        }
+        return packet == null && columns.size() == start ? -1 : columns.size() - start;
+    }
+
+    /**
+     * Sets the decode depth of every input.
+     *
+     * @param depth
+     */
+    @Override
+    public void setDecodeDepth(DecodeDepth depth) {
+        for (Cursor cursor : cursors) {
+            cursor.reader.setDecodeDepth(depth);
+        }
+    }
+
+    /**
+     * Sets the filter of every input.
+     *
+     * @param filter
+     */
+    @Override
+    public void setFilter(FrameFilter filter) {
+        for (Cursor cursor : cursors) {
+            cursor.reader.setFilter(filter);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (Cursor cursor : cursors) {
+            try {
+                cursor.reader.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        heap.clear();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static final class Cursor implements Comparable<Cursor> {
+
+        private final int order;
+        private final String source;
+        private final PacketReader reader;
+        private CapturedPacket head;
+
+        private Cursor(int order, String source, PacketReader reader) {
+            this.order = order;
+            this.source = source;
+            this.reader = reader;
+        }
+
+        private boolean advance() throws IOException {
+            head = reader.next();
+            return head != null;
+        }
+
+        @Override
+        public int compareTo(Cursor o) {
+            final long a = head.getTimestampNanos();
+            final long b = o.head.getTimestampNanos();
+            if (a != b) {
+                return a < b ? -1 : 1;
+            }
+            return order < o.order ? -1 : (order == o.order ? 0 : 1);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package cuenen.raymond.gn.io;
+
+import cuenen.raymond.gn.filter.FrameFilter;
+import cuenen.raymond.gn.packet.DecodeDepth;
+import cuenen.raymond.gn.packet.GnColumns;
+import java.io.Closeable;
+import java.io.IOException;
+
+public interface PacketReader extends Closeable {
+
+    /**
+     * Reads and decodes the next record of the capture.
+     *
+     * @return the next packet, or {@code null} when no complete record is
+     * available.
+     * @throws IOException
+     */
+    public CapturedPacket next() throws IOException;
+
+    /**
+     * Projects the following records into columns without decoding them into
+     * packets, until the columns are full or no complete record is available.
+     * Records the filter rejects and records without a GeoNetworking packet
+     * are skipped.
+     *
+     * @param columns
+     * @return the number of rows added, 0 if the columns are full already, or
+     * -1 when no row is added because no complete record is available.
+     * @throws IOException
+     */
+    public int read(GnColumns columns) throws IOException;
+
+    /**
+     * Sets the deepest layer decoded by {@link #next()}; the remaining bytes
+     * of every record are left as an {@link org.pcap4j.packet.UnknownPacket}.
+     *
+     * @param depth
+     */
+    public void setDecodeDepth(DecodeDepth depth);
+
+    /**
+     * Sets the filter that records are tested against before they are
+     * decoded. Records the filter rejects are skipped by {@link #next()}.
+     *
+     * @param filter the filter, or {@code null} to return every record.
+     */
+    public void setFilter(FrameFilter filter);
+}
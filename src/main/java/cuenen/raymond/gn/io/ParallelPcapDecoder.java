@@ -0,0 +1,166 @@
+package cuenen.raymond.gn.io;
+
+import cuenen.raymond.gn.packet.DecodeDepth;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+public final class ParallelPcapDecoder {
+
+    public static final int DEFAULT_CHUNK_SIZE = 4 * PcapIndex.DEFAULT_INTERVAL;
+
+    public static enum Delivery {
+
+        /**
+         * Packets are handed to the listener by the worker threads as soon as
+         * they are decoded. The listener must be thread-safe.
+         */
+        UNORDERED,
+        /**
+         * Packets are handed to the listener by the calling thread, in the
+         * order in which they appear in the capture.
+         */
+        ORDERED
+    }
+
+    private final PcapIndex index;
+    private final int entriesPerChunk;
+    private volatile DecodeDepth decodeDepth = DecodeDepth.TRANSPORT;
+
+    public ParallelPcapDecoder(File capture) throws IOException {
+        this(PcapIndex.forCapture(capture), DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * @param index
+     * @param chunkSize the number of records decoded by a single task, rounded
+     * to a multiple of the index interval.
+     */
+    public ParallelPcapDecoder(PcapIndex index, int chunkSize) {
+        this.index = index;
+        entriesPerChunk = Math.max(1, chunkSize / index.getInterval());
+    }
+
+    /**
+     * Sets the deepest layer decoded; the remaining bytes of every record are
+     * left as an {@link org.pcap4j.packet.UnknownPacket}.
+     *
+     * @param depth
+     */
+    public void setDecodeDepth(DecodeDepth depth) {
+        if (depth == null) {
+            throw new NullPointerException("depth may not be null");
+        }
+        decodeDepth = depth;
+    }
+
+    /**
+     * Decodes the capture on a new pool with one worker per available
+     * processor.
+     *
+     * @param listener
+     * @param delivery
+     * @return the number of decoded packets.
+     * @throws IOException
+     * @throws InterruptedException
+     */
+    public long decode(CapturedPacketListener listener, Delivery delivery) throws IOException, InterruptedException {
+        final ForkJoinPool pool = new ForkJoinPool();
+        try {
+            return decode(pool, listener, delivery);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public long decode(ForkJoinPool pool, CapturedPacketListener listener, Delivery delivery)
+            throws IOException, InterruptedException {
+        final int chunks = (index.entryCount() + entriesPerChunk - 1) / entriesPerChunk;
+        final int window = delivery == Delivery.ORDERED ? 2 * pool.getParallelism() : chunks;
+        final Deque<Chunk> inFlight = new ArrayDeque<>();
+        long count = 0;
+        try {
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                if (inFlight.size() >= window) {
+                    count += complete(inFlight.removeFirst(), listener);
+                }
+                final Chunk task = new Chunk(chunk * entriesPerChunk, delivery == Delivery.ORDERED ? null : listener);
+                inFlight.addLast(task);
+                pool.execute(task);
+            }
+            while (!inFlight.isEmpty()) {
+                count += complete(inFlight.removeFirst(), listener);
+            }
+        } finally {
+            for (Chunk task : inFlight) {
+                task.cancel(false);
+            }
+        }
+        return count;
+    }
+
+    private long complete(Chunk task, CapturedPacketListener listener) throws IOException, InterruptedException {
+        if (Thread.interrupted()) {
+            throw new InterruptedException();
+        }
+        task.join();
+        if (task.failure != null) {
+            throw task.failure;
+        }
+        if (task.packets != null) {
+            for (CapturedPacket packet : task.packets) {
+                listener.gotPacket(packet);
+            }
+        }
+        return task.count;
+    }
+
+    private final class Chunk extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int entry;
+        private final CapturedPacketListener listener;
+        private List<CapturedPacket> packets;
+        private IOException failure;
+        private long count;
+
+        private Chunk(int entry, CapturedPacketListener listener) {
+            this.entry = entry;
+            this.listener = listener;
+        }
+
+        @Override
+        protected void compute() {
+            final long records = (long) entriesPerChunk * index.getInterval();
+            if (listener == null) {
+                packets = new ArrayList<>();
+            }
+            try {
+                final PcapReader reader = PcapReader.open(index.getCapture());
+                try {
+                    reader.setDecodeDepth(decodeDepth);
+                    reader.seek(index.offset(entry));
+                    CapturedPacket packet;
+                    while (count < records && (packet = reader.next()) != null) {
+                        if (listener == null) {
+                            packets.add(packet);
+                        } else {
+                            listener.gotPacket(packet);
+                        }
+                        count++;
+                    }
+                } finally {
+                    reader.close();
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,241 @@
+package cuenen.raymond.gn.io;
+
+import cuenen.raymond.gn.filter.FrameFilter;
+import cuenen.raymond.gn.packet.DecodeDepth;
+import cuenen.raymond.gn.packet.GnColumns;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+public final class PcapFollower implements PacketReader {
+
+    public static final long DEFAULT_POLL_INTERVAL = 500;
+
+    private final Path path;
+    private final long pollInterval;
+    private final WatchService watcher;
+    private PcapReader reader;
+    private Object fileKey;
+    private long resumeOffset;
+    private DecodeDepth decodeDepth = DecodeDepth.TRANSPORT;
+    private FrameFilter filter;
+    private volatile boolean closed;
+
+    /**
+     * A static factory method. The capture is followed from its first record.
+     *
+     * @param file
+     * @return a new PcapFollower object.
+     * @throws IOException
+     */
+    public static PcapFollower open(File file) throws IOException {
+        return open(file, 0, DEFAULT_POLL_INTERVAL);
+    }
+
+    /**
+     * A static factory method.
+     *
+     * @param file
+     * @param offset the offset of the record to resume from, as returned by
+     * {@link #getOffset()}, or 0 to start at the first record.
+     * @param pollInterval the maximum time, in milliseconds, between two checks
+     * for appended data.
+     * @return a new PcapFollower object.
+     * @throws IOException
+     */
+    public static PcapFollower open(File file, long offset, long pollInterval) throws IOException {
+        final Path path = file.getAbsoluteFile().toPath();
+        WatchService watcher = null;
+        try {
+            watcher = path.getFileSystem().newWatchService();
+            path.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | UnsupportedOperationException e) {
+            if (watcher != null) {
+                watcher.close();
+            }
+            watcher = null;
+        }
+        return new PcapFollower(path, offset, pollInterval, watcher);
+    }
+
+    private PcapFollower(Path path, long offset, long pollInterval, WatchService watcher) {
+        this.path = path;
+        this.resumeOffset = offset;
+        this.pollInterval = pollInterval;
+        this.watcher = watcher;
+    }
+
+    /**
+     * @return the offset just past the last record returned, from which a new
+     * follower can resume.
+     */
+    public long getOffset() {
+        final PcapReader current = reader;
+        return current == null ? resumeOffset : current.position();
+    }
+
+    /**
+     * Blocks until the next record has been appended completely.
+     *
+     * @return the next packet, or {@code null} once this follower is closed.
+     * @throws IOException
+     */
+    @Override
+    public CapturedPacket next() throws IOException {
+        while (!closed) {
+            if (reader == null) {
+                reader = tryOpen();
+            }
+            if (reader != null) {
+                final CapturedPacket packet = reader.next();
+                if (packet != null) {
+                    return packet;
+                }
+                if (isReplaced()) {
+                    reader.close();
+                    reader = null;
+                    resumeOffset = 0;
+                    continue;
+                }
+            }
+            await();
+        }
+        return null;
+    }
+
+    /**
+     * Blocks until at least one row is added, or the columns are full.
+     *
+     * @param columns
+     * @return the number of rows added, 0 if the columns are full already, or
+     * -1 once this follower is closed.
+     * @throws IOException
+     */
+    @Override
+    public int read(GnColumns columns) throws IOException {
+        while (!closed) {
+            if (reader == null) {
+                reader = tryOpen();
+            }
+            if (reader != null) {
+                final int rows = reader.read(columns);
+                if (rows >= 0) {
+                    return rows;
+                }
+                if (isReplaced()) {
+                    reader.close();
+                    reader = null;
+                    resumeOffset = 0;
+                    continue;
+                }
+            }
+            await();
+        }
+        return -1;
+    }
+
+    private PcapReader tryOpen() throws IOException {
+        final BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (resumeOffset > attributes.size()) {
+            resumeOffset = 0;
+        }
+        final CaptureInput input = new FileCaptureInput(FileChannel.open(path, StandardOpenOption.READ));
+        try {
+            final PcapReader opened = new PcapReader(input);
+            opened.setDecodeDepth(decodeDepth);
+            opened.setFilter(filter);
+            if (resumeOffset > 0) {
+                opened.seek(resumeOffset);
+            }
+            fileKey = attributes.fileKey();
+            return opened;
+        } catch (EOFException e) {
+            input.close();
+            return null;
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    private boolean isReplaced() throws IOException {
+        final BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return true;
+        }
+        return attributes.size() < reader.position()
+                || (fileKey != null && !fileKey.equals(attributes.fileKey()));
+    }
+
+    private void await() throws IOException {
+        try {
+            if (watcher == null) {
+                Thread.sleep(pollInterval);
+                return;
+            }
+            final WatchKey key = watcher.poll(pollInterval, TimeUnit.MILLISECONDS);
+            if (key != null) {
+                key.pollEvents();
+                key.reset();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ClosedWatchServiceException e) {
+            // Closed while waiting.
+        }
+    }
+
+    @Override
+    public void setDecodeDepth(DecodeDepth depth) {
+        if (depth == null) {
+            throw new NullPointerException("depth may not be null");
+        }
+        decodeDepth = depth;
+        if (reader != null) {
+            reader.setDecodeDepth(depth);
+        }
+    }
+
+    @Override
+    public void setFilter(FrameFilter filter) {
+        this.filter = filter;
+        if (reader != null) {
+            reader.setFilter(filter);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        try {
+            if (watcher != null) {
+                watcher.close();
+            }
+        } finally {
+            if (reader != null) {
+                reader.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package cuenen.raymond.gn.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+public final class PcapIndex {
+
+    public static final String SUFFIX = ".gnidx";
+    public static final int DEFAULT_INTERVAL = 1024;
+
+    private static final int MAGIC = 0x474E4958;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 40;
+    private static final int ENTRY_SIZE = 16;
+
+    private final File capture;
+    private final long captureSize;
+    private final long captureModified;
+    private final int interval;
+    private final long packetCount;
+    private final long[] offsets;
+    private final long[] timestamps;
+
+    /**
+     * Returns the index of a capture file, reading it from its sidecar file
+     * when that is still up to date and (re)building it otherwise.
+     *
+     * @param capture
+     * @return the PcapIndex of the capture.
+     * @throws IOException
+     */
+    public static PcapIndex forCapture(File capture) throws IOException {
+        return forCapture(capture, DEFAULT_INTERVAL);
+    }
+
+    /**
+     * Returns the index of a capture file, reading it from its sidecar file
+     * when that is still up to date and (re)building it otherwise. A sidecar
+     * that can not be read, because it is truncated or corrupt, is treated as
+     * out of date and overwritten.
+     *
+     * @param capture
+     * @param interval the number of records between two index entries.
+     * @return the PcapIndex of the capture.
+     * @throws IOException
+     */
+    public static PcapIndex forCapture(File capture, int interval) throws IOException {
+        final File sidecar = sidecarOf(capture);
+        if (sidecar.isFile()) {
+            PcapIndex index;
+            try {
+                index = read(capture, sidecar);
+            } catch (IOException e) {
+                index = null;
+            }
+            if (index != null && index.interval == interval) {
+                return index;
+            }
+        }
+        final PcapIndex index = build(capture, interval);
+        try {
+            index.write(sidecar);
+        } catch (IOException e) {
+            // An index that cannot be persisted is still usable for this run.
+        }
+        return index;
+    }
+
+    /**
+     * Builds the index of a capture file in a single pass over its record
+     * headers. Nothing is decoded.
+     *
+     * @param capture
+     * @param interval the number of records between two index entries.
+     * @return a new PcapIndex object.
+     * @throws IOException
+     */
+    public static PcapIndex build(File capture, int interval) throws IOException {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("interval: " + interval);
+        }
+        final long size = capture.length();
+        final long modified = capture.lastModified();
+        long[] offsets = new long[16];
+        long[] timestamps = new long[16];
+        int entries = 0;
+        long count = 0;
+        final PcapReader reader = PcapReader.open(capture);
+        try {
+            long position = reader.position();
+            while (reader.skip()) {
+                if (count % interval == 0) {
+                    if (entries == offsets.length) {
+                        offsets = Arrays.copyOf(offsets, entries * 2);
+                        timestamps = Arrays.copyOf(timestamps, entries * 2);
+                    }
+                    offsets[entries] = position;
+                    timestamps[entries] = reader.timestamp();
+                    entries++;
+                }
+                count++;
+                position = reader.position();
+            }
+        } finally {
+            reader.close();
+        }
+        return new PcapIndex(capture, size, modified, interval, count,
+                Arrays.copyOf(offsets, entries), Arrays.copyOf(timestamps, entries));
+    }
+
+    public static File sidecarOf(File capture) {
+        return new File(capture.getPath() + SUFFIX);
+    }
+
+    /**
+     * @return the index in the sidecar, or {@code null} if the sidecar is out
+     * of date or its header is inconsistent.
+     */
+    private static PcapIndex read(File capture, File sidecar) throws IOException {
+        final long sidecarSize = sidecar.length();
+        final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(sidecar)));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            final long size = in.readLong();
+            final long modified = in.readLong();
+            if (size != capture.length() || modified != capture.lastModified()) {
+                return null;
+            }
+            final int interval = in.readInt();
+            final long count = in.readLong();
+            final int entries = in.readInt();
+            if (interval <= 0 || count < 0 || entries < 0 || entries != (count + interval - 1) / interval
+                    || sidecarSize != HEADER_SIZE + (long) entries * ENTRY_SIZE) {
+                return null;
+            }
+            final long[] offsets = new long[entries];
+            final long[] timestamps = new long[entries];
+            for (int i = 0; i < entries; i++) {
+                offsets[i] = in.readLong();
+                timestamps[i] = in.readLong();
+                if (offsets[i] < 0 || offsets[i] >= size || (i > 0 && offsets[i] <= offsets[i - 1])) {
+                    return null;
+                }
+            }
+            return new PcapIndex(capture, size, modified, interval, count, offsets, timestamps);
+        } finally {
+            in.close();
+        }
+    }
+
+    private PcapIndex(File capture, long captureSize, long captureModified, int interval, long packetCount,
+            long[] offsets, long[] timestamps) {
+        this.capture = capture;
+        this.captureSize = captureSize;
+        this.captureModified = captureModified;
+        this.interval = interval;
+        this.packetCount = packetCount;
+        this.offsets = offsets;
+        this.timestamps = timestamps;
+    }
+
+    public void write(File sidecar) throws IOException {
+        final File temp = new File(sidecar.getPath() + ".tmp");
+        final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(captureSize);
+            out.writeLong(captureModified);
+            out.writeInt(interval);
+            out.writeLong(packetCount);
+            out.writeInt(offsets.length);
+            for (int i = 0; i < offsets.length; i++) {
+                out.writeLong(offsets[i]);
+                out.writeLong(timestamps[i]);
+            }
+        } finally {
+            out.close();
+        }
+        Files.move(temp.toPath(), sidecar.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    public File getCapture() {
+        return capture;
+    }
+
+    public int getInterval() {
+        return interval;
+    }
+
+    public long getPacketCount() {
+        return packetCount;
+    }
+
+    int entryCount() {
+        return offsets.length;
+    }
+
+    long offset(int entry) {
+        return offsets[entry];
+    }
+
+    /**
+     * Opens the capture positioned at the given record.
+     *
+     * @param packetNumber the zero-based number of the first record to read.
+     * @return a new PcapReader object.
+     * @throws IOException
+     */
+    public PcapReader openAt(long packetNumber) throws IOException {
+        if (packetNumber < 0) {
+            throw new IllegalArgumentException("packetNumber: " + packetNumber);
+        }
+        final int entry = (int) Math.min(packetNumber / interval, offsets.length - 1);
+        final PcapReader reader = PcapReader.open(capture);
+        if (entry < 0) {
+            return reader;
+        }
+        reader.seek(offsets[entry]);
+        long skip = packetNumber - (long) entry * interval;
+        try {
+            while (skip-- > 0 && reader.skip()) {
+            }
+        } catch (IOException e) {
+            reader.close();
+            throw e;
+        }
+        return reader;
+    }
+
+    /**
+     * Opens the capture positioned at the first record captured at or after
+     * the given time. Records are assumed to be stored in capture order.
+     *
+     * @param timestamp the time in nanoseconds since the epoch.
+     * @return a new PcapReader object.
+     * @throws IOException
+     */
+    public PcapReader openAtTime(long timestamp) throws IOException {
+        // The last entry strictly before the time: records captured at the
+        // time itself may precede an entry that carries the same time.
+        int low = 0;
+        int high = offsets.length - 1;
+        int entry = -1;
+        while (low <= high) {
+            final int mid = (low + high) >>> 1;
+            if (timestamps[mid] < timestamp) {
+                entry = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        final PcapReader reader = PcapReader.open(capture);
+        if (entry < 0) {
+            return reader;
+        }
+        try {
+            reader.seek(offsets[entry]);
+            long position = reader.position();
+            while (reader.skip()) {
+                if (reader.timestamp() >= timestamp) {
+                    break;
+                }
+                position = reader.position();
+            }
+            reader.seek(position);
+        } catch (IOException e) {
+            reader.close();
+            throw e;
+        }
+        return reader;
+    }
+}
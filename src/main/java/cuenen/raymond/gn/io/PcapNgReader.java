@@ -0,0 +1,359 @@
+package cuenen.raymond.gn.io;
+
+import cuenen.raymond.gn.filter.FrameFilter;
+import cuenen.raymond.gn.packet.DecodeDepth;
+import cuenen.raymond.gn.packet.GnColumns;
+import cuenen.raymond.gn.packet.GnPacketPool;
+import cuenen.raymond.gn.packet.PooledGnPacket;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.pcap4j.packet.namednumber.DataLinkType;
+import static org.pcap4j.util.ByteArrays.*;
+
+public final class PcapNgReader implements PacketReader {
+
+    static final int SECTION_HEADER_BLOCK = 0x0A0D0D0A;
+    private static final int INTERFACE_DESCRIPTION_BLOCK = 0x00000001;
+    private static final int PACKET_BLOCK = 0x00000002;
+    private static final int SIMPLE_PACKET_BLOCK = 0x00000003;
+    private static final int ENHANCED_PACKET_BLOCK = 0x00000006;
+    private static final int BYTE_ORDER_MAGIC = 0x1A2B3C4D;
+    private static final int BLOCK_TYPE_OFFSET = 0;
+    private static final int BLOCK_TYPE_SIZE = INT_SIZE_IN_BYTES;
+    private static final int BLOCK_LENGTH_OFFSET = BLOCK_TYPE_OFFSET + BLOCK_TYPE_SIZE;
+    private static final int BLOCK_LENGTH_SIZE = INT_SIZE_IN_BYTES;
+    private static final int BLOCK_BODY_OFFSET = BLOCK_LENGTH_OFFSET + BLOCK_LENGTH_SIZE;
+    private static final int BLOCK_TRAILER_SIZE = INT_SIZE_IN_BYTES;
+    private static final int MIN_BLOCK_SIZE = BLOCK_BODY_OFFSET + BLOCK_TRAILER_SIZE;
+    private static final int BOM_OFFSET = BLOCK_BODY_OFFSET;
+    private static final int BOM_SIZE = INT_SIZE_IN_BYTES;
+    private static final int IDB_LINKTYPE_OFFSET = BLOCK_BODY_OFFSET;
+    private static final int IDB_LINKTYPE_SIZE = SHORT_SIZE_IN_BYTES;
+    private static final int IDB_RESERVED_SIZE = SHORT_SIZE_IN_BYTES;
+    private static final int IDB_SNAPLEN_OFFSET = IDB_LINKTYPE_OFFSET + IDB_LINKTYPE_SIZE + IDB_RESERVED_SIZE;
+    private static final int IDB_SNAPLEN_SIZE = INT_SIZE_IN_BYTES;
+    private static final int IDB_OPTIONS_OFFSET = IDB_SNAPLEN_OFFSET + IDB_SNAPLEN_SIZE;
+    private static final int EPB_INTERFACE_OFFSET = BLOCK_BODY_OFFSET;
+    private static final int EPB_INTERFACE_SIZE = INT_SIZE_IN_BYTES;
+    private static final int EPB_TS_HIGH_OFFSET = EPB_INTERFACE_OFFSET + EPB_INTERFACE_SIZE;
+    private static final int EPB_TS_HIGH_SIZE = INT_SIZE_IN_BYTES;
+    private static final int EPB_TS_LOW_OFFSET = EPB_TS_HIGH_OFFSET + EPB_TS_HIGH_SIZE;
+    private static final int EPB_TS_LOW_SIZE = INT_SIZE_IN_BYTES;
+    private static final int EPB_CAPLEN_OFFSET = EPB_TS_LOW_OFFSET + EPB_TS_LOW_SIZE;
+    private static final int EPB_CAPLEN_SIZE = INT_SIZE_IN_BYTES;
+    private static final int EPB_ORIGLEN_OFFSET = EPB_CAPLEN_OFFSET + EPB_CAPLEN_SIZE;
+    private static final int EPB_ORIGLEN_SIZE = INT_SIZE_IN_BYTES;
+    private static final int EPB_DATA_OFFSET = EPB_ORIGLEN_OFFSET + EPB_ORIGLEN_SIZE;
+    private static final int PB_INTERFACE_OFFSET = BLOCK_BODY_OFFSET;
+    private static final int PB_INTERFACE_SIZE = SHORT_SIZE_IN_BYTES;
+    private static final int PB_DROPS_SIZE = SHORT_SIZE_IN_BYTES;
+    private static final int PB_TS_HIGH_OFFSET = PB_INTERFACE_OFFSET + PB_INTERFACE_SIZE + PB_DROPS_SIZE;
+    private static final int SPB_ORIGLEN_OFFSET = BLOCK_BODY_OFFSET;
+    private static final int SPB_ORIGLEN_SIZE = INT_SIZE_IN_BYTES;
+    private static final int SPB_DATA_OFFSET = SPB_ORIGLEN_OFFSET + SPB_ORIGLEN_SIZE;
+    private static final int OPTION_HEADER_SIZE = 2 * SHORT_SIZE_IN_BYTES;
+    private static final int OPT_ENDOFOPT = 0;
+    private static final int OPT_IF_TSRESOL = 9;
+    private static final int OPT_IF_TSOFFSET = 14;
+    private static final int MAX_BLOCK_SIZE = 0x1000000;
+
+    private final CaptureInput input;
+    private final List<Interface> interfaces = new ArrayList<>();
+    private final FrameSink.Decoder decoder = new FrameSink.Decoder();
+    private final FrameSink.Pooler pooler = new FrameSink.Pooler();
+    private ByteOrder byteOrder = ByteOrder.BIG_ENDIAN;
+    private byte[] frame = new byte[0];
+    private FrameFilter filter;
+    private long offset;
+
+    /**
+     * A static factory method. The capture file is memory-mapped and decoded
+     * without going through libpcap.
+     *
+     * @param file
+     * @return a new PcapNgReader object.
+     * @throws IOException
+     */
+    public static PcapNgReader open(File file) throws IOException {
+        final CaptureInput input = new MappedCaptureInput(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+        try {
+            return new PcapNgReader(input);
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    PcapNgReader(CaptureInput input) throws IOException {
+        this.input = input;
+        final ByteBuffer header = input.window(0, BLOCK_TYPE_SIZE);
+        if (header == null || header.order(ByteOrder.BIG_ENDIAN).getInt(header.position()) != SECTION_HEADER_BLOCK) {
+            throw new IOException("Not a pcapng capture");
+        }
+    }
+
+    /**
+     * @return the link types of the interfaces described so far in the
+     * current section, indexed by interface id.
+     */
+    public List<DataLinkType> getDataLinkTypes() {
+        final List<DataLinkType> types = new ArrayList<>(interfaces.size());
+        for (Interface itf : interfaces) {
+            types.add(itf.dataLinkType);
+        }
+        return types;
+    }
+
+    @Override
+    public CapturedPacket next() throws IOException {
+        return walk(decoder) ? decoder.take() : null;
+    }
+
+    @Override
+    public int read(GnColumns columns) throws IOException {
+        if (columns.isFull()) {
+            return 0;
+        }
+        final int start = columns.size();
+        if (!walk(new FrameSink.Projector(columns)) && columns.size() == start) {
+            return -1;
+        }
+        return columns.size() - start;
+    }
+
+    /**
+     * Copies the GeoNetworking packet of the next packet block into a packet
+     * from the pool of the current thread, without decoding it. Packets the
+     * filter rejects and packets without a GeoNetworking packet are skipped.
+     * The caller releases the packet when done with it.
+     *
+     * @return the next packet, or {@code null} when no complete block is
+     * available.
+     * @throws IOException
+     */
+    public PooledGnPacket nextPooled() throws IOException {
+        final PooledGnPacket packet = GnPacketPool.current().acquire();
+        boolean filled = false;
+        pooler.fill(packet);
+        try {
+            filled = walk(pooler);
+        } finally {
+            pooler.fill(null);
+            if (!filled) {
+                packet.release();
+            }
+        }
+        return filled ? packet : null;
+    }
+
+    /**
+     * Walks the following blocks, taking in the interface descriptions and
+     * passing the packets that the filter accepts to the sink, until the sink
+     * stops the walk.
+     *
+     * @return {@code false} when no complete block is available.
+     */
+    private boolean walk(FrameSink sink) throws IOException {
+        for (;;) {
+            ByteBuffer block = input.window(offset, BOM_OFFSET + BOM_SIZE);
+            if (block == null) {
+                return false;
+            }
+            int base = block.position();
+            final int type = block.order(ByteOrder.BIG_ENDIAN).getInt(BLOCK_TYPE_OFFSET + base);
+            if (type == SECTION_HEADER_BLOCK) {
+                final int bom = block.getInt(BOM_OFFSET + base);
+                if (bom == BYTE_ORDER_MAGIC) {
+                    byteOrder = ByteOrder.BIG_ENDIAN;
+                } else if (Integer.reverseBytes(bom) == BYTE_ORDER_MAGIC) {
+                    byteOrder = ByteOrder.LITTLE_ENDIAN;
+                } else {
+                    throw new IOException("Illegal byte-order magic 0x" + Integer.toHexString(bom) + " at offset " + offset);
+                }
+            }
+            final int length = block.order(byteOrder).getInt(BLOCK_LENGTH_OFFSET + base);
+            if (length < MIN_BLOCK_SIZE || length > MAX_BLOCK_SIZE || (length & 3) != 0) {
+                throw new IOException("Illegal block length " + length + " at offset " + offset);
+            }
+            block = input.window(offset, length);
+            if (block == null) {
+                return false;
+            }
+            block.order(byteOrder);
+            base = block.position();
+            final long blockOffset = offset;
+            offset += length;
+            boolean stop = false;
+            switch (block.getInt(BLOCK_TYPE_OFFSET + base)) {
+                case SECTION_HEADER_BLOCK:
+                    interfaces.clear();
+                    break;
+                case INTERFACE_DESCRIPTION_BLOCK:
+                    interfaces.add(readInterface(block, base, length));
+                    break;
+                case ENHANCED_PACKET_BLOCK:
+                    stop = readPacket(sink, block, base, length, block.getInt(EPB_INTERFACE_OFFSET + base),
+                            EPB_TS_HIGH_OFFSET, blockOffset);
+                    break;
+                case PACKET_BLOCK:
+                    stop = readPacket(sink, block, base, length, block.getShort(PB_INTERFACE_OFFSET + base) & 0xFFFF,
+                            PB_TS_HIGH_OFFSET, blockOffset);
+                    break;
+                case SIMPLE_PACKET_BLOCK:
+                    stop = readSimplePacket(sink, block, base, length, blockOffset);
+                    break;
+                default:
+                    break;
+            }
+            if (stop) {
+                return true;
+            }
+        }
+    }
+
+    private Interface readInterface(ByteBuffer block, int base, int length) {
+        final DataLinkType dataLinkType = PcapReader.toDataLinkType(block.getShort(IDB_LINKTYPE_OFFSET + base) & 0xFFFF);
+        final int snapshotLength = block.getInt(IDB_SNAPLEN_OFFSET + base);
+        byte resolution = 6;
+        long tsOffset = 0;
+        int option = IDB_OPTIONS_OFFSET;
+        while (option + OPTION_HEADER_SIZE <= length - BLOCK_TRAILER_SIZE) {
+            final int code = block.getShort(option + base) & 0xFFFF;
+            final int size = block.getShort(option + SHORT_SIZE_IN_BYTES + base) & 0xFFFF;
+            final int value = option + OPTION_HEADER_SIZE;
+            if (code == OPT_ENDOFOPT || value + size > length - BLOCK_TRAILER_SIZE) {
+                break;
+            }
+            if (code == OPT_IF_TSRESOL && size >= BYTE_SIZE_IN_BYTES) {
+                resolution = block.get(value + base);
+            } else if (code == OPT_IF_TSOFFSET && size >= LONG_SIZE_IN_BYTES) {
+                tsOffset = block.getLong(value + base);
+            }
+            option = value + ((size + 3) & ~3);
+        }
+        return new Interface(dataLinkType, snapshotLength, resolution, tsOffset);
+    }
+
+    private boolean readPacket(FrameSink sink, ByteBuffer block, int base, int length, int interfaceId,
+            int timestampOffset, long blockOffset) throws IOException {
+        final Interface itf = getInterface(interfaceId, blockOffset);
+        final long timestamp = ((block.getInt(timestampOffset + base) & 0xFFFFFFFFL) << 32)
+                | (block.getInt(timestampOffset + INT_SIZE_IN_BYTES + base) & 0xFFFFFFFFL);
+        final int capturedLength = block.getInt(EPB_CAPLEN_OFFSET + base);
+        final int originalLength = block.getInt(EPB_ORIGLEN_OFFSET + base);
+        if (capturedLength < 0 || EPB_DATA_OFFSET + capturedLength > length - BLOCK_TRAILER_SIZE) {
+            throw new IOException("Illegal captured length " + capturedLength + " at offset " + blockOffset);
+        }
+        block.position(EPB_DATA_OFFSET + base);
+        return deliver(sink, block, capturedLength, itf.dataLinkType, itf.toNanos(timestamp), originalLength);
+    }
+
+    private boolean readSimplePacket(FrameSink sink, ByteBuffer block, int base, int length, long blockOffset)
+            throws IOException {
+        final Interface itf = getInterface(0, blockOffset);
+        final int originalLength = block.getInt(SPB_ORIGLEN_OFFSET + base);
+        int capturedLength = Math.min(originalLength, length - SPB_DATA_OFFSET - BLOCK_TRAILER_SIZE);
+        if (itf.snapshotLength > 0) {
+            capturedLength = Math.min(capturedLength, itf.snapshotLength);
+        }
+        block.position(SPB_DATA_OFFSET + base);
+        return deliver(sink, block, Math.max(capturedLength, 0), itf.dataLinkType, 0L, originalLength);
+    }
+
+    private Interface getInterface(int interfaceId, long blockOffset) throws IOException {
+        if (interfaceId < 0 || interfaceId >= interfaces.size()) {
+            throw new IOException("Unknown interface " + interfaceId + " at offset " + blockOffset);
+        }
+        return interfaces.get(interfaceId);
+    }
+
+    /**
+     * Passes the packet at the position of the data to the sink, unless the
+     * filter rejects it.
+     *
+     * @return {@code true} if the sink stops the walk.
+     */
+    private boolean deliver(FrameSink sink, ByteBuffer data, int length, DataLinkType dataLinkType, long timestamp,
+            int originalLength) {
+        final byte[] array;
+        final int arrayOffset;
+        if (data.hasArray()) {
+            array = data.array();
+            arrayOffset = data.arrayOffset() + data.position();
+        } else {
+            if (frame.length < length) {
+                frame = new byte[length];
+            }
+            data.get(frame, 0, length);
+            array = frame;
+            arrayOffset = 0;
+        }
+        return (filter == null || filter.matches(array, arrayOffset, length, dataLinkType))
+                && sink.accept(array, arrayOffset, length, dataLinkType, timestamp, originalLength);
+    }
+
+    @Override
+    public void setDecodeDepth(DecodeDepth depth) {
+        decoder.setDecodeDepth(depth);
+    }
+
+    @Override
+    public void setFilter(FrameFilter filter) {
+        this.filter = filter;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    private static final class Interface {
+
+        private static final long NANOS_PER_SECOND = 1000000000L;
+
+        private final DataLinkType dataLinkType;
+        private final int snapshotLength;
+        private final boolean binary;
+        private final int exponent;
+        private final long offset;
+
+        private Interface(DataLinkType dataLinkType, int snapshotLength, byte resolution, long offset) {
+            this.dataLinkType = dataLinkType;
+            this.snapshotLength = snapshotLength;
+            this.binary = (resolution & 0x80) != 0;
+            this.exponent = resolution & 0x7F;
+            this.offset = offset * NANOS_PER_SECOND;
+        }
+
+        private long toNanos(long timestamp) {
+            if (binary) {
+                final long seconds = timestamp >>> exponent;
+                long fraction = timestamp & ((1L << exponent) - 1);
+                int shift = exponent;
+                if (shift > 30) {
+                    fraction >>>= shift - 30;
+                    shift = 30;
+                }
+                return offset + seconds * NANOS_PER_SECOND + ((fraction * NANOS_PER_SECOND) >>> shift);
+            }
+            if (exponent <= 9) {
+                return offset + timestamp * pow10(9 - exponent);
+            }
+            return offset + timestamp / pow10(exponent - 9);
+        }
+
+        private static long pow10(int exponent) {
+            long value = 1;
+            for (int i = 0; i < exponent && i < 18; i++) {
+                value *= 10;
+            }
+            return value;
+        }
+    }
+}
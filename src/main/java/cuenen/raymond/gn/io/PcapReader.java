@@ -0,0 +1,272 @@
+package cuenen.raymond.gn.io;
+
+import cuenen.raymond.gn.filter.FrameFilter;
+import cuenen.raymond.gn.packet.DecodeDepth;
+import cuenen.raymond.gn.packet.GnColumns;
+import cuenen.raymond.gn.packet.GnPacketPool;
+import cuenen.raymond.gn.packet.PooledGnPacket;
+import cuenen.raymond.gn.packet.namednumber.NamedNumberTypes;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import org.pcap4j.packet.namednumber.DataLinkType;
+import static org.pcap4j.util.ByteArrays.*;
+
+public final class PcapReader implements PacketReader {
+
+    private static final int MAGIC_MICROSECONDS = 0xA1B2C3D4;
+    private static final int MAGIC_NANOSECONDS = 0xA1B23C4D;
+    private static final int MAGIC_OFFSET = 0;
+    private static final int MAGIC_SIZE = INT_SIZE_IN_BYTES;
+    private static final int VERSION_OFFSET = MAGIC_OFFSET + MAGIC_SIZE;
+    private static final int VERSION_SIZE = 2 * SHORT_SIZE_IN_BYTES;
+    private static final int THISZONE_OFFSET = VERSION_OFFSET + VERSION_SIZE;
+    private static final int THISZONE_SIZE = INT_SIZE_IN_BYTES;
+    private static final int SIGFIGS_OFFSET = THISZONE_OFFSET + THISZONE_SIZE;
+    private static final int SIGFIGS_SIZE = INT_SIZE_IN_BYTES;
+    private static final int SNAPLEN_OFFSET = SIGFIGS_OFFSET + SIGFIGS_SIZE;
+    private static final int SNAPLEN_SIZE = INT_SIZE_IN_BYTES;
+    private static final int LINKTYPE_OFFSET = SNAPLEN_OFFSET + SNAPLEN_SIZE;
+    private static final int LINKTYPE_SIZE = INT_SIZE_IN_BYTES;
+    private static final int GLOBAL_HEADER_SIZE = LINKTYPE_OFFSET + LINKTYPE_SIZE;
+    private static final int TS_SEC_OFFSET = 0;
+    private static final int TS_SEC_SIZE = INT_SIZE_IN_BYTES;
+    private static final int TS_FRAC_OFFSET = TS_SEC_OFFSET + TS_SEC_SIZE;
+    private static final int TS_FRAC_SIZE = INT_SIZE_IN_BYTES;
+    private static final int INCL_LEN_OFFSET = TS_FRAC_OFFSET + TS_FRAC_SIZE;
+    private static final int INCL_LEN_SIZE = INT_SIZE_IN_BYTES;
+    private static final int ORIG_LEN_OFFSET = INCL_LEN_OFFSET + INCL_LEN_SIZE;
+    private static final int ORIG_LEN_SIZE = INT_SIZE_IN_BYTES;
+    private static final int RECORD_HEADER_SIZE = ORIG_LEN_OFFSET + ORIG_LEN_SIZE;
+    private static final int MAX_RECORD_SIZE = 0x1000000;
+
+    private final CaptureInput input;
+    private final ByteOrder byteOrder;
+    private final long fractionToNanos;
+    private final int snapshotLength;
+    private final DataLinkType dataLinkType;
+    private final FrameSink.Decoder decoder = new FrameSink.Decoder();
+    private final FrameSink.Pooler pooler = new FrameSink.Pooler();
+    private byte[] frame = new byte[0];
+    private FrameFilter filter;
+    private long offset = GLOBAL_HEADER_SIZE;
+    private long timestamp;
+    private int capturedLength;
+    private int originalLength;
+
+    /**
+     * A static factory method. The capture file is memory-mapped and decoded
+     * without going through libpcap.
+     *
+     * @param path
+     * @return a new PcapReader object.
+     * @throws IOException
+     */
+    public static PcapReader open(String path) throws IOException {
+        return open(new File(path));
+    }
+
+    /**
+     * A static factory method. The capture file is memory-mapped and decoded
+     * without going through libpcap.
+     *
+     * @param file
+     * @return a new PcapReader object.
+     * @throws IOException
+     */
+    public static PcapReader open(File file) throws IOException {
+        final CaptureInput input = new MappedCaptureInput(FileChannel.open(file.toPath(), StandardOpenOption.READ));
+        try {
+            return new PcapReader(input);
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    PcapReader(CaptureInput input) throws IOException {
+        this.input = input;
+        final ByteBuffer header = input.window(0, GLOBAL_HEADER_SIZE);
+        if (header == null) {
+            throw new EOFException("The data is too short to hold a pcap global header");
+        }
+        final int base = header.position();
+        final int magic = header.order(ByteOrder.BIG_ENDIAN).getInt(MAGIC_OFFSET + base);
+        if (magic == MAGIC_MICROSECONDS || magic == MAGIC_NANOSECONDS) {
+            byteOrder = ByteOrder.BIG_ENDIAN;
+        } else if (Integer.reverseBytes(magic) == MAGIC_MICROSECONDS
+                || Integer.reverseBytes(magic) == MAGIC_NANOSECONDS) {
+            byteOrder = ByteOrder.LITTLE_ENDIAN;
+        } else {
+            throw new IOException("Not a pcap capture (magic 0x" + Integer.toHexString(magic) + ")");
+        }
+        header.order(byteOrder);
+        fractionToNanos = header.getInt(MAGIC_OFFSET + base) == MAGIC_NANOSECONDS ? 1L : 1000L;
+        snapshotLength = header.getInt(SNAPLEN_OFFSET + base);
+        dataLinkType = toDataLinkType(header.getInt(LINKTYPE_OFFSET + base));
+    }
+
+    public DataLinkType getDataLinkType() {
+        return dataLinkType;
+    }
+
+    public int getSnapshotLength() {
+        return snapshotLength;
+    }
+
+    @Override
+    public CapturedPacket next() throws IOException {
+        return walk(decoder) ? decoder.take() : null;
+    }
+
+    long position() {
+        return offset;
+    }
+
+    void seek(long position) {
+        offset = position;
+    }
+
+    /**
+     * Advances past the next record without decoding it.
+     *
+     * @return {@code false} when no complete record is available.
+     * @throws IOException
+     */
+    boolean skip() throws IOException {
+        if (!readRecordHeader() || input.window(offset + RECORD_HEADER_SIZE, capturedLength) == null) {
+            return false;
+        }
+        offset += RECORD_HEADER_SIZE + capturedLength;
+        return true;
+    }
+
+    /**
+     * @return the timestamp, in nanoseconds since the epoch, of the record
+     * last read or skipped.
+     */
+    long timestamp() {
+        return timestamp;
+    }
+
+    private boolean readRecordHeader() throws IOException {
+        final ByteBuffer record = input.window(offset, RECORD_HEADER_SIZE);
+        if (record == null) {
+            return false;
+        }
+        record.order(byteOrder);
+        final int base = record.position();
+        final long seconds = record.getInt(TS_SEC_OFFSET + base) & 0xFFFFFFFFL;
+        final long fraction = record.getInt(TS_FRAC_OFFSET + base) & 0xFFFFFFFFL;
+        capturedLength = record.getInt(INCL_LEN_OFFSET + base);
+        originalLength = record.getInt(ORIG_LEN_OFFSET + base);
+        if (capturedLength < 0 || capturedLength > MAX_RECORD_SIZE) {
+            throw new IOException("Illegal record length " + capturedLength + " at offset " + offset);
+        }
+        timestamp = seconds * 1000000000L + fraction * fractionToNanos;
+        return true;
+    }
+
+    @Override
+    public int read(GnColumns columns) throws IOException {
+        if (columns.isFull()) {
+            return 0;
+        }
+        final int start = columns.size();
+        if (!walk(new FrameSink.Projector(columns)) && columns.size() == start) {
+            return -1;
+        }
+        return columns.size() - start;
+    }
+
+    /**
+     * Copies the GeoNetworking packet of the next record into a packet from
+     * the pool of the current thread, without decoding it. Records the filter
+     * rejects and records without a GeoNetworking packet are skipped. The
+     * caller releases the packet when done with it.
+     *
+     * @return the next packet, or {@code null} when no complete record is
+     * available.
+     * @throws IOException
+     */
+    public PooledGnPacket nextPooled() throws IOException {
+        final PooledGnPacket packet = GnPacketPool.current().acquire();
+        boolean filled = false;
+        pooler.fill(packet);
+        try {
+            filled = walk(pooler);
+        } finally {
+            pooler.fill(null);
+            if (!filled) {
+                packet.release();
+            }
+        }
+        return filled ? packet : null;
+    }
+
+    /**
+     * Passes the following records that the filter accepts to the sink, until
+     * the sink stops the walk.
+     *
+     * @return {@code false} when no complete record is available.
+     */
+    private boolean walk(FrameSink sink) throws IOException {
+        while (readRecordHeader()) {
+            final ByteBuffer data = input.window(offset + RECORD_HEADER_SIZE, capturedLength);
+            if (data == null) {
+                return false;
+            }
+            final byte[] array = toArray(data, capturedLength);
+            final int arrayOffset = data.hasArray() ? data.arrayOffset() + data.position() : 0;
+            offset += RECORD_HEADER_SIZE + capturedLength;
+            if ((filter == null || filter.matches(array, arrayOffset, capturedLength, dataLinkType))
+                    && sink.accept(array, arrayOffset, capturedLength, dataLinkType, timestamp, originalLength)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the backing array of the data, or the data copied to the frame
+     * buffer if it has none.
+     */
+    private byte[] toArray(ByteBuffer data, int length) {
+        if (data.hasArray()) {
+            return data.array();
+        }
+        if (frame.length < length) {
+            frame = new byte[Math.max(length, Math.min(snapshotLength, MAX_RECORD_SIZE))];
+        }
+        data.get(frame, 0, length);
+        return frame;
+    }
+
+    @Override
+    public void setDecodeDepth(DecodeDepth depth) {
+        decoder.setDecodeDepth(depth);
+    }
+
+    @Override
+    public void setFilter(FrameFilter filter) {
+        this.filter = filter;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+
+    static DataLinkType toDataLinkType(int value) {
+        if (value == NamedNumberTypes.COHDA_WIRELESS_TX.value()) {
+            return NamedNumberTypes.COHDA_WIRELESS_TX;
+        } else if (value == NamedNumberTypes.COHDA_WIRELESS_RX.value()) {
+            return NamedNumberTypes.COHDA_WIRELESS_RX;
+        }
+        return DataLinkType.getInstance(value);
+    }
+}
@@ -0,0 +1,175 @@
+package cuenen.raymond.gn.io;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+final class StreamCaptureInput extends CaptureInput {
+
+    private static final int CHUNK_SIZE = 1 << 20;
+    private static final int CHUNK_COUNT = 4;
+    private static final int GZIP_MAGIC = 0x1F8B;
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(CHUNK_COUNT);
+    private final BlockingQueue<ByteBuffer> filled = new ArrayBlockingQueue<>(CHUNK_COUNT + 1);
+    private final InputStream source;
+    private final Thread readAhead;
+    private volatile IOException failure;
+    private ByteBuffer current;
+    private long currentOffset;
+    private int currentLength;
+    private ByteBuffer staging = ByteBuffer.allocate(0);
+    private long stagingOffset;
+    private int stagingLength;
+    private boolean ended;
+
+    /**
+     * @param source the stream to read, which is transparently inflated when
+     * it starts with a gzip header.
+     */
+    StreamCaptureInput(InputStream source) {
+        this.source = source;
+        for (int i = 0; i < CHUNK_COUNT; i++) {
+            free.add(ByteBuffer.allocate(CHUNK_SIZE));
+        }
+        readAhead = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                readAhead();
+            }
+        }, "gnpcap-read-ahead");
+        readAhead.setDaemon(true);
+        readAhead.start();
+    }
+
+    private void readAhead() {
+        try {
+            final InputStream in = open(source);
+            boolean eof = false;
+            while (!eof) {
+                final ByteBuffer chunk = free.take();
+                final byte[] array = chunk.array();
+                int length = 0;
+                while (length < array.length) {
+                    final int read = in.read(array, length, array.length - length);
+                    if (read < 0) {
+                        eof = true;
+                        break;
+                    }
+                    length += read;
+                    if (in.available() <= 0) {
+                        break;
+                    }
+                }
+                chunk.clear();
+                chunk.limit(length);
+                if (length > 0) {
+                    filled.put(chunk);
+                } else {
+                    free.put(chunk);
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            // Closed.
+        } finally {
+            filled.offer(END);
+        }
+    }
+
+    private static InputStream open(InputStream source) throws IOException {
+        final BufferedInputStream in = new BufferedInputStream(source, CHUNK_SIZE / 16);
+        in.mark(2);
+        final int magic = (in.read() << 8) | in.read();
+        in.reset();
+        return magic == GZIP_MAGIC ? new GZIPInputStream(in, CHUNK_SIZE / 16) : in;
+    }
+
+    @Override
+    ByteBuffer window(long offset, int length) throws IOException {
+        if (current != null && offset >= currentOffset && offset + length <= currentOffset + currentLength) {
+            return slice(current, (int) (offset - currentOffset), length);
+        }
+        if (offset >= stagingOffset && offset + length <= stagingOffset + stagingLength) {
+            return slice(staging, (int) (offset - stagingOffset), length);
+        }
+        int staged = 0;
+        long position = offset;
+        if (offset >= stagingOffset && offset < stagingOffset + stagingLength) {
+            staged = (int) (stagingOffset + stagingLength - offset);
+            System.arraycopy(staging.array(), (int) (offset - stagingOffset), staging.array(), 0, staged);
+            position += staged;
+        }
+        if (staging.capacity() < length) {
+            final ByteBuffer grown = ByteBuffer.allocate(Math.max(length, 2 * staging.capacity()));
+            System.arraycopy(staging.array(), 0, grown.array(), 0, staged);
+            staging = grown;
+        }
+        while (staged < length) {
+            if (current == null || position >= currentOffset + currentLength) {
+                if (!advance()) {
+                    break;
+                }
+                continue;
+            }
+            if (position < currentOffset) {
+                throw new IOException("Cannot move back to offset " + offset + " in a stream");
+            }
+            final int available = (int) (currentOffset + currentLength - position);
+            final int count = Math.min(length - staged, available);
+            System.arraycopy(current.array(), (int) (position - currentOffset), staging.array(), staged, count);
+            staged += count;
+            position += count;
+        }
+        stagingOffset = offset;
+        stagingLength = staged;
+        return staged < length ? null : slice(staging, 0, length);
+    }
+
+    private boolean advance() throws IOException {
+        if (ended) {
+            return false;
+        }
+        final ByteBuffer next;
+        try {
+            next = filled.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        }
+        if (next == END) {
+            ended = true;
+            if (failure != null) {
+                throw failure;
+            }
+            return false;
+        }
+        if (current != null) {
+            currentOffset += currentLength;
+            free.offer(current);
+        }
+        current = next;
+        currentLength = next.limit();
+        return true;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int position, int length) {
+        buffer.limit(position + length);
+        buffer.position(position);
+        return buffer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        readAhead.interrupt();
+        source.close();
+    }
+}
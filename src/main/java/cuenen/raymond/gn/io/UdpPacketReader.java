@@ -0,0 +1,261 @@
+package cuenen.raymond.gn.io;
+
+import cuenen.raymond.gn.filter.FrameFilter;
+import cuenen.raymond.gn.packet.DecodeDepth;
+import cuenen.raymond.gn.packet.GnColumns;
+import cuenen.raymond.gn.packet.factory.GnEtherTypePacketFactory;
+import cuenen.raymond.gn.packet.namednumber.NamedNumberTypes;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.pcap4j.packet.Packet;
+import org.pcap4j.packet.factory.PacketFactories;
+import org.pcap4j.packet.factory.PacketFactory;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+/**
+ * Reads frames that are forwarded as UDP datagrams, one frame per datagram,
+ * by default with the Cohda Rx header that the RSUs prepend. Datagrams are
+ * received in batches into a pool of buffers and decoded straight from the
+ * buffer they were received into.
+ */
+public final class UdpPacketReader implements PacketReader {
+
+    public static final int DEFAULT_BATCH_SIZE = 64;
+    public static final int MAX_DATAGRAM_SIZE = 0xFFFF;
+
+    /**
+     * The number of sender names kept for reuse; the least recently used one
+     * is dropped when a new sender arrives.
+     */
+    private static final int SENDER_NAME_CACHE_SIZE = 256;
+
+    private final DatagramChannel channel;
+    private final Selector selector;
+    private final DataLinkType dataLinkType;
+    private final PacketFactory<Packet, DataLinkType> factory = PacketFactories.getFactory(Packet.class, DataLinkType.class);
+    private final ByteBuffer[] buffers;
+    private final long[] timestamps;
+    private final String[] senders;
+    private final Map<SocketAddress, String> senderNames = new LinkedHashMap<SocketAddress, String>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<SocketAddress, String> eldest) {
+            return size() > SENDER_NAME_CACHE_SIZE;
+        }
+    };
+    private DecodeDepth decodeDepth = DecodeDepth.TRANSPORT;
+    private FrameFilter filter;
+    private int received;
+    private int delivered;
+    private volatile boolean closed;
+
+    /**
+     * A static factory method. Receives Cohda Rx frames on all local
+     * addresses.
+     *
+     * @param port
+     * @return a new UdpPacketReader object.
+     * @throws IOException
+     */
+    public static UdpPacketReader open(int port) throws IOException {
+        return open(new InetSocketAddress(port), NamedNumberTypes.COHDA_WIRELESS_RX, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * A static factory method.
+     *
+     * @param local the address to bind to; port 0 picks a free port.
+     * @param dataLinkType the link type of the forwarded frames.
+     * @param batchSize the maximum number of datagrams received at once.
+     * @return a new UdpPacketReader object.
+     * @throws IOException
+     */
+    public static UdpPacketReader open(SocketAddress local, DataLinkType dataLinkType, int batchSize) throws IOException {
+        final DatagramChannel channel = DatagramChannel.open();
+        try {
+            channel.bind(local);
+            return new UdpPacketReader(channel, dataLinkType, batchSize);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param channel a bound channel, which is switched to non-blocking mode
+     * and closed together with this reader.
+     * @param dataLinkType the link type of the forwarded frames.
+     * @param batchSize the maximum number of datagrams received at once.
+     * @throws IOException
+     */
+    public UdpPacketReader(DatagramChannel channel, DataLinkType dataLinkType, int batchSize) throws IOException {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize: " + batchSize);
+        }
+        this.channel = channel;
+        this.dataLinkType = dataLinkType;
+        buffers = new ByteBuffer[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            buffers[i] = ByteBuffer.allocate(MAX_DATAGRAM_SIZE);
+        }
+        timestamps = new long[batchSize];
+        senders = new String[batchSize];
+        selector = Selector.open();
+        try {
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ);
+        } catch (IOException | RuntimeException e) {
+            selector.close();
+            throw e;
+        }
+    }
+
+    public SocketAddress getLocalAddress() throws IOException {
+        return channel.getLocalAddress();
+    }
+
+    public DataLinkType getDataLinkType() {
+        return dataLinkType;
+    }
+
+    /**
+     * Waits for the next datagram. The packet source is the address of the
+     * sender and the timestamp is the time of reception.
+     *
+     * @return the next packet, or {@code null} once the reader is closed.
+     * @throws IOException
+     */
+    @Override
+    public CapturedPacket next() throws IOException {
+        int index;
+        ByteBuffer buffer;
+        do {
+            while (delivered == received) {
+                if (closed || !receive()) {
+                    return null;
+                }
+            }
+            index = delivered++;
+            buffer = buffers[index];
+        } while (filter != null && !filter.matches(buffer.array(), buffer.arrayOffset(), buffer.position(), dataLinkType));
+        final Packet packet;
+        final DecodeDepth previous = DecodeDepth.set(decodeDepth);
+        final boolean copy = GnEtherTypePacketFactory.setCopyRawData(true);
+        try {
+            packet = factory.newInstance(buffer.array(), buffer.arrayOffset(), buffer.position(), dataLinkType);
+        } finally {
+            GnEtherTypePacketFactory.setCopyRawData(copy);
+            DecodeDepth.set(previous);
+        }
+        return new CapturedPacket(senders[index], dataLinkType, timestamps[index], buffer.position(), packet);
+    }
+
+    /**
+     * Adds a row for every datagram received at once, blocking until at least
+     * one row is added or the columns are full.
+     *
+     * @param columns
+     * @return the number of rows added, 0 if the columns are full already, or
+     * -1 once the reader is closed.
+     * @throws IOException
+     */
+    @Override
+    public int read(GnColumns columns) throws IOException {
+        final int start = columns.size();
+        while (!columns.isFull()) {
+            if (delivered == received) {
+                if (columns.size() > start) {
+                    break;
+                }
+                if (closed || !receive()) {
+                    return -1;
+                }
+            }
+            final int index = delivered++;
+            final ByteBuffer buffer = buffers[index];
+            if (filter == null || filter.matches(buffer.array(), buffer.arrayOffset(), buffer.position(), dataLinkType)) {
+                columns.add(buffer.array(), buffer.arrayOffset(), buffer.position(), dataLinkType, timestamps[index]);
+            }
+        }
+        return columns.size() - start;
+    }
+
+    /**
+     * Blocks until at least one datagram is available and receives as many
+     * waiting datagrams as the pool holds.
+     */
+    private boolean receive() throws IOException {
+        received = 0;
+        delivered = 0;
+        try {
+            while (received == 0) {
+                selector.select();
+                selector.selectedKeys().clear();
+                if (closed) {
+                    return false;
+                }
+                while (received < buffers.length) {
+                    final ByteBuffer buffer = buffers[received];
+                    buffer.clear();
+                    final SocketAddress sender = channel.receive(buffer);
+                    if (sender == null) {
+                        break;
+                    }
+                    timestamps[received] = System.currentTimeMillis() * 1000000L;
+                    senders[received] = senderName(sender);
+                    received++;
+                }
+            }
+        } catch (ClosedChannelException | ClosedSelectorException e) {
+            if (closed) {
+                return false;
+            }
+            throw e;
+        }
+        return true;
+    }
+
+    private String senderName(SocketAddress sender) {
+        String name = senderNames.get(sender);
+        if (name == null) {
+            name = sender.toString();
+            senderNames.put(sender, name);
+        }
+        return name;
+    }
+
+    @Override
+    public void setDecodeDepth(DecodeDepth depth) {
+        if (depth == null) {
+            throw new NullPointerException("depth may not be null");
+        }
+        decodeDepth = depth;
+    }
+
+    @Override
+    public void setFilter(FrameFilter filter) {
+        this.filter = filter;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        selector.wakeup();
+        try {
+            channel.close();
+        } finally {
+            selector.close();
+        }
+    }
+}
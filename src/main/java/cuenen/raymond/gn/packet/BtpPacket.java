@@ -1,6 +1,9 @@
 package cuenen.raymond.gn.packet;
 
 import cuenen.raymond.gn.packet.namednumber.GnTransportType;
+import cuenen.raymond.gn.util.ByteBuffers;
+import cuenen.raymond.gn.util.HeaderLayout;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.List;
 import org.pcap4j.packet.AbstractPacket;
@@ -11,11 +14,14 @@ import static org.pcap4j.util.ByteArrays.SHORT_SIZE_IN_BYTES;
 
 public final class BtpPacket extends AbstractPacket {
 
-    private static final int DESTINATION_PORT_OFFSET = 0;
-    private static final int DESTINATION_PORT_SIZE = SHORT_SIZE_IN_BYTES;
-    private static final int PORT_INFO_OFFSET = DESTINATION_PORT_OFFSET + DESTINATION_PORT_SIZE;
-    private static final int PORT_INFO_SIZE = SHORT_SIZE_IN_BYTES;
-    private static final int BTP_HEADER_SIZE = PORT_INFO_OFFSET + PORT_INFO_SIZE;
+    public static final HeaderLayout HEADER_LAYOUT = HeaderLayout.builder("Basic Transport Protocol")
+            .field("Destination Port", SHORT_SIZE_IN_BYTES)
+            .field("Port Info", SHORT_SIZE_IN_BYTES)
+            .build();
+    private static final int DESTINATION_PORT_OFFSET = HEADER_LAYOUT.offsetOf("Destination Port");
+    private static final int PORT_INFO_OFFSET = HEADER_LAYOUT.offsetOf("Port Info");
+    private static final int BTP_HEADER_SIZE = HEADER_LAYOUT.length();
+    public static final int HEADER_SIZE_IN_BYTES = BTP_HEADER_SIZE;
 
     private final BtpHeader header;
     private final Packet payload;
@@ -35,11 +41,31 @@ public final class BtpPacket extends AbstractPacket {
     public static BtpPacket newPacket(GnTransportType type, byte[] rawData, int offset, int length)
             throws IllegalRawDataException {
         ByteArrays.validateBounds(rawData, offset, length);
-        return new BtpPacket(type, rawData, offset, length);
+        return new BtpPacket(type, ByteBuffers.view(rawData), offset, length);
     }
 
-    private BtpPacket(GnTransportType type, byte[] rawData, int offset, int length) throws IllegalRawDataException {
-        header = new BtpHeader(type, rawData, offset, length);
+    /**
+     * A static factory method that decodes from a buffer, which may be direct
+     * or mapped. The offset is an absolute index in the buffer. This method
+     * validates the arguments by
+     * {@link ByteBuffers#validateBounds(ByteBuffer, int, int)}, which may throw
+     * exceptions undocumented here.
+     *
+     * @param type
+     * @param buffer
+     * @param offset
+     * @param length
+     * @return a new BtpPacket object.
+     * @throws IllegalRawDataException
+     */
+    public static BtpPacket newPacket(GnTransportType type, ByteBuffer buffer, int offset, int length)
+            throws IllegalRawDataException {
+        ByteBuffers.validateBounds(buffer, offset, length);
+        return new BtpPacket(type, buffer, offset, length);
+    }
+
+    private BtpPacket(GnTransportType type, ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+        header = new BtpHeader(type, buffer, offset, length);
         final int payloadLength = length - header.length();
         if (payloadLength > 0) {
             final int payloadOffset = offset + header.length();
@@ -136,13 +162,13 @@ public final class BtpPacket extends AbstractPacket {
         private final short destinationPort;
         private final short portInfo;
 
-        private BtpHeader(GnTransportType type, byte[] rawData, int offset, int length) throws IllegalRawDataException {
+        private BtpHeader(GnTransportType type, ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
             if (length < BTP_HEADER_SIZE) {
                 throw new IllegalRawDataException("The data is too short to build a BTP header");
             }
             this.type = type;
-            destinationPort = ByteArrays.getShort(rawData, DESTINATION_PORT_OFFSET + offset);
-            portInfo = ByteArrays.getByte(rawData, PORT_INFO_OFFSET + offset);
+            destinationPort = ByteBuffers.getShort(buffer, DESTINATION_PORT_OFFSET + offset);
+            portInfo = ByteBuffers.getShort(buffer, PORT_INFO_OFFSET + offset);
         }
 
         private BtpHeader(Builder builder) {
@@ -159,6 +185,18 @@ public final class BtpPacket extends AbstractPacket {
             return portInfo;
         }
 
+        /**
+         * Writes the header into the buffer at an absolute index; the
+         * position and limit of the buffer are left alone.
+         *
+         * @param buffer
+         * @param offset
+         */
+        public void writeTo(ByteBuffer buffer, int offset) {
+            ByteBuffers.putShort(buffer, DESTINATION_PORT_OFFSET + offset, destinationPort);
+            ByteBuffers.putShort(buffer, PORT_INFO_OFFSET + offset, portInfo);
+        }
+
         @Override
         public int length() {
             return BTP_HEADER_SIZE;
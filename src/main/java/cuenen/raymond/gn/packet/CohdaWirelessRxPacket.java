@@ -1,6 +1,10 @@
 package cuenen.raymond.gn.packet;
 
+import cuenen.raymond.gn.packet.factory.BufferPacketFactories;
+import cuenen.raymond.gn.util.ByteBuffers;
+import cuenen.raymond.gn.util.HeaderLayout;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.text.NumberFormat;
 import java.util.ArrayList;
@@ -15,6 +19,8 @@ import static org.pcap4j.util.ByteArrays.*;
 
 public final class CohdaWirelessRxPacket extends AbstractPacket {
 
+    public static final int HEADER_SIZE_IN_BYTES = CohdaWirelessRxHeader.COHDA_WIRELESS_RX_HEADER_SIZE;
+
     private final CohdaWirelessRxHeader header;
     private final Packet payload;
 
@@ -35,8 +41,28 @@ public final class CohdaWirelessRxPacket extends AbstractPacket {
         return new CohdaWirelessRxPacket(rawData, offset, length);
     }
 
+    /**
+     * A static factory method that decodes from a buffer, which may be direct
+     * or mapped. The offset is an absolute index in the buffer. The Ethernet
+     * payload is decoded from the array behind a heap buffer, or from a copy
+     * of the payload bytes of a direct buffer. This method validates the
+     * arguments by {@link ByteBuffers#validateBounds(ByteBuffer, int, int)},
+     * which may throw exceptions undocumented here.
+     *
+     * @param buffer
+     * @param offset
+     * @param length
+     * @return a new CohdaWirelessRxPacket object.
+     * @throws IllegalRawDataException
+     */
+    public static CohdaWirelessRxPacket newPacket(ByteBuffer buffer, int offset, int length)
+            throws IllegalRawDataException {
+        ByteBuffers.validateBounds(buffer, offset, length);
+        return new CohdaWirelessRxPacket(buffer, offset, length);
+    }
+
     private CohdaWirelessRxPacket(byte[] rawData, int offset, int length) throws IllegalRawDataException {
-        header = new CohdaWirelessRxHeader(rawData, offset, length);
+        header = new CohdaWirelessRxHeader(ByteBuffers.view(rawData), offset, length);
         final int payloadLength = length - header.length();
         if (payloadLength > 0) {
             final int payloadOffset = offset + header.length();
@@ -47,6 +73,18 @@ public final class CohdaWirelessRxPacket extends AbstractPacket {
         }
     }
 
+    private CohdaWirelessRxPacket(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+        header = new CohdaWirelessRxHeader(buffer, offset, length);
+        final int payloadLength = length - header.length();
+        if (payloadLength > 0) {
+            final int payloadOffset = offset + header.length();
+            payload = BufferPacketFactories.newInstance(PacketFactories.getFactory(Packet.class, DataLinkType.class),
+                    buffer, payloadOffset, payloadLength, DataLinkType.EN10MB);
+        } else {
+            payload = null;
+        }
+    }
+
     private CohdaWirelessRxPacket(Builder builder) {
         payload = builder.payloadBuilder == null ? null : builder.payloadBuilder.build();
         header = new CohdaWirelessRxHeader(builder);
@@ -212,37 +250,40 @@ public final class CohdaWirelessRxPacket extends AbstractPacket {
 
     public static final class CohdaWirelessRxHeader extends AbstractHeader {
 
-        private static final int CHANNEL_NUMBER_OFFSET = 0;
-        private static final int CHANNEL_NUMBER_SIZE = BYTE_SIZE_IN_BYTES;
-        private static final int PRIORITY_OFFSET = CHANNEL_NUMBER_OFFSET + CHANNEL_NUMBER_SIZE;
-        private static final int PRIORITY_SIZE = BYTE_SIZE_IN_BYTES;
-        private static final int SERVICE_OFFSET = PRIORITY_OFFSET + PRIORITY_SIZE;
-        private static final int SERVICE_SIZE = BYTE_SIZE_IN_BYTES;
-        private static final int MCS_OFFSET = SERVICE_OFFSET + SERVICE_SIZE;
-        private static final int MCS_SIZE = BYTE_SIZE_IN_BYTES;
-        private static final int RX_POWER_A_OFFSET = MCS_OFFSET + MCS_SIZE;
-        private static final int RX_POWER_A_SIZE = SHORT_SIZE_IN_BYTES;
-        private static final int RX_POWER_B_OFFSET = RX_POWER_A_OFFSET + RX_POWER_A_SIZE;
-        private static final int RX_POWER_B_SIZE = SHORT_SIZE_IN_BYTES;
-        private static final int RX_NOISE_A_OFFSET = RX_POWER_B_OFFSET + RX_POWER_B_SIZE;
-        private static final int RX_NOISE_A_SIZE = SHORT_SIZE_IN_BYTES;
-        private static final int RX_NOISE_B_OFFSET = RX_NOISE_A_OFFSET + RX_NOISE_A_SIZE;
-        private static final int RX_NOISE_B_SIZE = SHORT_SIZE_IN_BYTES;
-        private static final int RESERVED_OFFSET = RX_NOISE_B_OFFSET + RX_NOISE_B_SIZE;
-        private static final int RESERVED_SIZE = INT_SIZE_IN_BYTES;
-        private static final int TSF_OFFSET = RESERVED_OFFSET + RESERVED_SIZE;
-        private static final int TSF_SIZE = LONG_SIZE_IN_BYTES;
-        private static final int IDLE_POWER_OFFSET = TSF_OFFSET + TSF_SIZE;
-        private static final int IDLE_POWER_SIZE = BYTE_SIZE_IN_BYTES;
-        private static final int CH_UTIL_OFFSET = IDLE_POWER_OFFSET + IDLE_POWER_SIZE;
-        private static final int CH_UTIL_SIZE = BYTE_SIZE_IN_BYTES;
-        private static final int CH_UTIL_PER_OFFSET = CH_UTIL_OFFSET + CH_UTIL_SIZE;
-        private static final int CH_UTIL_PER_SIZE = SHORT_SIZE_IN_BYTES;
-        private static final int TRICE_OFFSET = CH_UTIL_PER_OFFSET + CH_UTIL_PER_SIZE;
-        private static final int TRICE_SIZE = BYTE_SIZE_IN_BYTES;
-        private static final int FINE_FREQ_OFFSET = TRICE_OFFSET + TRICE_SIZE;
-        private static final int FINE_FREQ_SIZE = INT_SIZE_IN_BYTES - TRICE_SIZE;
-        private static final int COHDA_WIRELESS_RX_HEADER_SIZE = FINE_FREQ_OFFSET + FINE_FREQ_SIZE;
+        public static final HeaderLayout LAYOUT = HeaderLayout.builder("Cohda Rx Header")
+                .field("Channel Number", BYTE_SIZE_IN_BYTES)
+                .field("Priority", BYTE_SIZE_IN_BYTES)
+                .field("Service", BYTE_SIZE_IN_BYTES)
+                .field("MCS", BYTE_SIZE_IN_BYTES)
+                .field("Rx Power A", SHORT_SIZE_IN_BYTES)
+                .field("Rx Power B", SHORT_SIZE_IN_BYTES)
+                .field("Rx Noise A", SHORT_SIZE_IN_BYTES)
+                .field("Rx Noise B", SHORT_SIZE_IN_BYTES)
+                .field("Reserved", INT_SIZE_IN_BYTES)
+                .field("TSF", LONG_SIZE_IN_BYTES)
+                .field("Idle Power", BYTE_SIZE_IN_BYTES)
+                .field("Channel Utilisation", BYTE_SIZE_IN_BYTES)
+                .field("Channel Utilisation Period", SHORT_SIZE_IN_BYTES)
+                .field("Trice", BYTE_SIZE_IN_BYTES)
+                .field("Fine Frequency", INT_SIZE_IN_BYTES - BYTE_SIZE_IN_BYTES)
+                .build();
+        private static final int CHANNEL_NUMBER_OFFSET = LAYOUT.offsetOf("Channel Number");
+        private static final int PRIORITY_OFFSET = LAYOUT.offsetOf("Priority");
+        private static final int SERVICE_OFFSET = LAYOUT.offsetOf("Service");
+        private static final int MCS_OFFSET = LAYOUT.offsetOf("MCS");
+        private static final int RX_POWER_A_OFFSET = LAYOUT.offsetOf("Rx Power A");
+        private static final int RX_POWER_B_OFFSET = LAYOUT.offsetOf("Rx Power B");
+        private static final int RX_NOISE_A_OFFSET = LAYOUT.offsetOf("Rx Noise A");
+        private static final int RX_NOISE_B_OFFSET = LAYOUT.offsetOf("Rx Noise B");
+        private static final int RESERVED_OFFSET = LAYOUT.offsetOf("Reserved");
+        private static final int TSF_OFFSET = LAYOUT.offsetOf("TSF");
+        private static final int IDLE_POWER_OFFSET = LAYOUT.offsetOf("Idle Power");
+        private static final int CH_UTIL_OFFSET = LAYOUT.offsetOf("Channel Utilisation");
+        private static final int CH_UTIL_PER_OFFSET = LAYOUT.offsetOf("Channel Utilisation Period");
+        private static final int TRICE_OFFSET = LAYOUT.offsetOf("Trice");
+        private static final int FINE_FREQ_OFFSET = LAYOUT.offsetOf("Fine Frequency");
+        private static final int FINE_FREQ_SIZE = LAYOUT.sizeOf("Fine Frequency");
+        private static final int COHDA_WIRELESS_RX_HEADER_SIZE = LAYOUT.length();
 
         private final byte channelNumber;
         private final byte priority;
@@ -260,25 +301,25 @@ public final class CohdaWirelessRxPacket extends AbstractPacket {
         private final byte trice;
         private final int fineFreq;
 
-        private CohdaWirelessRxHeader(byte[] rawData, int offset, int length) throws IllegalRawDataException {
+        private CohdaWirelessRxHeader(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
             if (length < COHDA_WIRELESS_RX_HEADER_SIZE) {
                 throw new IllegalRawDataException("The data is too short to build a Cohda Wireless proprietary header");
             }
-            channelNumber = ByteArrays.getByte(rawData, CHANNEL_NUMBER_OFFSET + offset);
-            priority = ByteArrays.getByte(rawData, PRIORITY_OFFSET + offset);
-            service = ByteArrays.getByte(rawData, SERVICE_OFFSET + offset);
-            mcs = ByteArrays.getByte(rawData, MCS_OFFSET + offset);
-            rxPowerA = ByteArrays.getShort(rawData, RX_POWER_A_OFFSET + offset, ByteOrder.LITTLE_ENDIAN);
-            rxPowerB = ByteArrays.getShort(rawData, RX_POWER_B_OFFSET + offset, ByteOrder.LITTLE_ENDIAN);
-            rxNoiseA = ByteArrays.getShort(rawData, RX_NOISE_A_OFFSET + offset, ByteOrder.LITTLE_ENDIAN);
-            rxNoiseB = ByteArrays.getShort(rawData, RX_NOISE_B_OFFSET + offset, ByteOrder.LITTLE_ENDIAN);
-            reserved = ByteArrays.getInt(rawData, RESERVED_OFFSET + offset, ByteOrder.LITTLE_ENDIAN);
-            tsf = ByteArrays.getLong(rawData, TSF_OFFSET + offset, ByteOrder.LITTLE_ENDIAN);
-            idlePower = ByteArrays.getByte(rawData, IDLE_POWER_OFFSET + offset);
-            chUtil = ByteArrays.getByte(rawData, CH_UTIL_OFFSET + offset);
-            chUtilPer = ByteArrays.getShort(rawData, CH_UTIL_PER_OFFSET + offset, ByteOrder.LITTLE_ENDIAN);
-            trice = ByteArrays.getByte(rawData, TRICE_OFFSET + offset);
-            fineFreq = ByteArrays.getInt(rawData, FINE_FREQ_OFFSET + offset, FINE_FREQ_SIZE, ByteOrder.LITTLE_ENDIAN);
+            channelNumber = ByteBuffers.getByte(buffer, CHANNEL_NUMBER_OFFSET + offset);
+            priority = ByteBuffers.getByte(buffer, PRIORITY_OFFSET + offset);
+            service = ByteBuffers.getByte(buffer, SERVICE_OFFSET + offset);
+            mcs = ByteBuffers.getByte(buffer, MCS_OFFSET + offset);
+            rxPowerA = ByteBuffers.getShort(buffer, RX_POWER_A_OFFSET + offset, ByteOrder.LITTLE_ENDIAN);
+            rxPowerB = ByteBuffers.getShort(buffer, RX_POWER_B_OFFSET + offset, ByteOrder.LITTLE_ENDIAN);
+            rxNoiseA = ByteBuffers.getShort(buffer, RX_NOISE_A_OFFSET + offset, ByteOrder.LITTLE_ENDIAN);
+            rxNoiseB = ByteBuffers.getShort(buffer, RX_NOISE_B_OFFSET + offset, ByteOrder.LITTLE_ENDIAN);
+            reserved = ByteBuffers.getInt(buffer, RESERVED_OFFSET + offset, ByteOrder.LITTLE_ENDIAN);
+            tsf = ByteBuffers.getLong(buffer, TSF_OFFSET + offset, ByteOrder.LITTLE_ENDIAN);
+            idlePower = ByteBuffers.getByte(buffer, IDLE_POWER_OFFSET + offset);
+            chUtil = ByteBuffers.getByte(buffer, CH_UTIL_OFFSET + offset);
+            chUtilPer = ByteBuffers.getShort(buffer, CH_UTIL_PER_OFFSET + offset, ByteOrder.LITTLE_ENDIAN);
+            trice = ByteBuffers.getByte(buffer, TRICE_OFFSET + offset);
+            fineFreq = ByteBuffers.getInt(buffer, FINE_FREQ_OFFSET + offset, FINE_FREQ_SIZE, ByteOrder.LITTLE_ENDIAN);
         }
 
         private CohdaWirelessRxHeader(Builder builder) {
@@ -376,10 +417,38 @@ public final class CohdaWirelessRxPacket extends AbstractPacket {
             rawFields.add(ByteArrays.toByteArray(chUtil));
             rawFields.add(ByteArrays.toByteArray(chUtilPer, ByteOrder.LITTLE_ENDIAN));
             rawFields.add(ByteArrays.toByteArray(trice));
-            rawFields.add(ByteArrays.toByteArray(fineFreq, 3, ByteOrder.LITTLE_ENDIAN));
+            rawFields.add(ByteArrays.toByteArray(fineFreq, FINE_FREQ_SIZE, ByteOrder.LITTLE_ENDIAN));
             return rawFields;
         }
 
+        /**
+         * Writes the header into the buffer at an absolute index, in the
+         * little-endian order of the capture; the position and limit of the
+         * buffer are left alone.
+         *
+         * @param buffer
+         * @param offset
+         */
+        public void writeTo(ByteBuffer buffer, int offset) {
+            ByteBuffers.putByte(buffer, CHANNEL_NUMBER_OFFSET + offset, channelNumber);
+            ByteBuffers.putByte(buffer, PRIORITY_OFFSET + offset, priority);
+            ByteBuffers.putByte(buffer, SERVICE_OFFSET + offset, service);
+            ByteBuffers.putByte(buffer, MCS_OFFSET + offset, mcs);
+            ByteBuffers.putShort(buffer, RX_POWER_A_OFFSET + offset, rxPowerA, ByteOrder.LITTLE_ENDIAN);
+            ByteBuffers.putShort(buffer, RX_POWER_B_OFFSET + offset, rxPowerB, ByteOrder.LITTLE_ENDIAN);
+            ByteBuffers.putShort(buffer, RX_NOISE_A_OFFSET + offset, rxNoiseA, ByteOrder.LITTLE_ENDIAN);
+            ByteBuffers.putShort(buffer, RX_NOISE_B_OFFSET + offset, rxNoiseB, ByteOrder.LITTLE_ENDIAN);
+            ByteBuffers.putInt(buffer, RESERVED_OFFSET + offset, reserved, ByteOrder.LITTLE_ENDIAN);
+            ByteBuffers.putLong(buffer, TSF_OFFSET + offset, tsf, ByteOrder.LITTLE_ENDIAN);
+            ByteBuffers.putByte(buffer, IDLE_POWER_OFFSET + offset, idlePower);
+            ByteBuffers.putByte(buffer, CH_UTIL_OFFSET + offset, chUtil);
+            ByteBuffers.putShort(buffer, CH_UTIL_PER_OFFSET + offset, chUtilPer, ByteOrder.LITTLE_ENDIAN);
+            ByteBuffers.putByte(buffer, TRICE_OFFSET + offset, trice);
+            for (int i = 0; i < FINE_FREQ_SIZE; i++) {
+                ByteBuffers.putByte(buffer, FINE_FREQ_OFFSET + i + offset, (byte) (fineFreq >> (i * 8)));
+            }
+        }
+
         @Override
         public int length() {
             return COHDA_WIRELESS_RX_HEADER_SIZE;
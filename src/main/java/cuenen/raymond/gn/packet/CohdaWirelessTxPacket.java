@@ -1,7 +1,11 @@
 package cuenen.raymond.gn.packet;
 
+import cuenen.raymond.gn.packet.factory.BufferPacketFactories;
+import cuenen.raymond.gn.util.ByteBuffers;
+import cuenen.raymond.gn.util.HeaderLayout;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.text.NumberFormat;
 import java.util.ArrayList;
@@ -16,6 +20,8 @@ import static org.pcap4j.util.ByteArrays.*;
 
 public final class CohdaWirelessTxPacket extends AbstractPacket {
 
+    public static final int HEADER_SIZE_IN_BYTES = CohdaWirelessTxHeader.COHDA_WIRELESS_TX_HEADER_SIZE;
+
     private final CohdaWirelessTxHeader header;
     private final Packet payload;
 
@@ -36,8 +42,28 @@ public final class CohdaWirelessTxPacket extends AbstractPacket {
         return new CohdaWirelessTxPacket(rawData, offset, length);
     }
 
+    /**
+     * A static factory method that decodes from a buffer, which may be direct
+     * or mapped. The offset is an absolute index in the buffer. The Ethernet
+     * payload is decoded from the array behind a heap buffer, or from a copy
+     * of the payload bytes of a direct buffer. This method validates the
+     * arguments by {@link ByteBuffers#validateBounds(ByteBuffer, int, int)},
+     * which may throw exceptions undocumented here.
+     *
+     * @param buffer
+     * @param offset
+     * @param length
+     * @return a new CohdaWirelessTxPacket object.
+     * @throws IllegalRawDataException
+     */
+    public static CohdaWirelessTxPacket newPacket(ByteBuffer buffer, int offset, int length)
+            throws IllegalRawDataException {
+        ByteBuffers.validateBounds(buffer, offset, length);
+        return new CohdaWirelessTxPacket(buffer, offset, length);
+    }
+
     private CohdaWirelessTxPacket(byte[] rawData, int offset, int length) throws IllegalRawDataException {
-        header = new CohdaWirelessTxHeader(rawData, offset, length);
+        header = new CohdaWirelessTxHeader(ByteBuffers.view(rawData), offset, length);
         final int payloadLength = length - header.length();
         if (payloadLength > 0) {
             final int payloadOffset = offset + header.length();
@@ -48,6 +74,18 @@ public final class CohdaWirelessTxPacket extends AbstractPacket {
         }
     }
 
+    private CohdaWirelessTxPacket(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+        header = new CohdaWirelessTxHeader(buffer, offset, length);
+        final int payloadLength = length - header.length();
+        if (payloadLength > 0) {
+            final int payloadOffset = offset + header.length();
+            payload = BufferPacketFactories.newInstance(PacketFactories.getFactory(Packet.class, DataLinkType.class),
+                    buffer, payloadOffset, payloadLength, DataLinkType.EN10MB);
+        } else {
+            payload = null;
+        }
+    }
+
     private CohdaWirelessTxPacket(Builder builder) {
         payload = builder.payloadBuilder == null ? null : builder.payloadBuilder.build();
         header = new CohdaWirelessTxHeader(builder);
@@ -158,21 +196,26 @@ public final class CohdaWirelessTxPacket extends AbstractPacket {
 
     public static final class CohdaWirelessTxHeader extends AbstractHeader {
 
-        private static final int CHANNEL_NUMBER_OFFSET = 0;
-        private static final int CHANNEL_NUMBER_SIZE = BYTE_SIZE_IN_BYTES;
-        private static final int PRIORITY_OFFSET = CHANNEL_NUMBER_OFFSET + CHANNEL_NUMBER_SIZE;
-        private static final int PRIORITY_SIZE = BYTE_SIZE_IN_BYTES;
-        private static final int SERVICE_OFFSET = PRIORITY_OFFSET + PRIORITY_SIZE;
-        private static final int SERVICE_SIZE = BYTE_SIZE_IN_BYTES;
-        private static final int MCS_OFFSET = SERVICE_OFFSET + SERVICE_SIZE;
-        private static final int MCS_SIZE = BYTE_SIZE_IN_BYTES;
-        private static final int MAN_POWER_OFFSET = MCS_OFFSET + MCS_SIZE + 1;
-        private static final int MAN_POWER_SIZE = SHORT_SIZE_IN_BYTES;
-        private static final int ANTENNA_OFFSET = MAN_POWER_OFFSET + MAN_POWER_SIZE;
-        private static final int ANTENNA_SIZE = BYTE_SIZE_IN_BYTES;
-        private static final int EXPIRY_OFFSET = ANTENNA_OFFSET + ANTENNA_SIZE;
-        private static final int EXPIRY_SIZE = LONG_SIZE_IN_BYTES;
-        private static final int COHDA_WIRELESS_TX_HEADER_SIZE = EXPIRY_OFFSET + EXPIRY_SIZE;
+        public static final HeaderLayout LAYOUT = HeaderLayout.builder("Cohda Tx Header")
+                .field("Channel Number", BYTE_SIZE_IN_BYTES)
+                .field("Priority", BYTE_SIZE_IN_BYTES)
+                .field("Service", BYTE_SIZE_IN_BYTES)
+                .field("MCS", BYTE_SIZE_IN_BYTES)
+                .field("Padding", BYTE_SIZE_IN_BYTES)
+                .field("Manual Power", SHORT_SIZE_IN_BYTES)
+                .field("Antenna", BYTE_SIZE_IN_BYTES)
+                .field("Expiry", LONG_SIZE_IN_BYTES)
+                .build();
+        private static final int CHANNEL_NUMBER_OFFSET = LAYOUT.offsetOf("Channel Number");
+        private static final int PRIORITY_OFFSET = LAYOUT.offsetOf("Priority");
+        private static final int SERVICE_OFFSET = LAYOUT.offsetOf("Service");
+        private static final int MCS_OFFSET = LAYOUT.offsetOf("MCS");
+        private static final int PADDING_OFFSET = LAYOUT.offsetOf("Padding");
+        private static final int PADDING_SIZE = LAYOUT.sizeOf("Padding");
+        private static final int MAN_POWER_OFFSET = LAYOUT.offsetOf("Manual Power");
+        private static final int ANTENNA_OFFSET = LAYOUT.offsetOf("Antenna");
+        private static final int EXPIRY_OFFSET = LAYOUT.offsetOf("Expiry");
+        private static final int COHDA_WIRELESS_TX_HEADER_SIZE = LAYOUT.length();
 
         private final byte channelNumber;
         private final byte priority;
@@ -182,17 +225,17 @@ public final class CohdaWirelessTxPacket extends AbstractPacket {
         private final byte antenna; // NamedNumber?
         private final long expiry;
 
-        private CohdaWirelessTxHeader(byte[] rawData, int offset, int length) throws IllegalRawDataException {
+        private CohdaWirelessTxHeader(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
             if (length < COHDA_WIRELESS_TX_HEADER_SIZE) {
                 throw new IllegalRawDataException("The data is too short to build a Cohda Wireless proprietary header");
             }
-            channelNumber = ByteArrays.getByte(rawData, CHANNEL_NUMBER_OFFSET + offset);
-            priority = ByteArrays.getByte(rawData, PRIORITY_OFFSET + offset);
-            service = ByteArrays.getByte(rawData, SERVICE_OFFSET + offset);
-            mcs = ByteArrays.getByte(rawData, MCS_OFFSET + offset);
-            manPower = ByteArrays.getShort(rawData, MAN_POWER_OFFSET + offset, ByteOrder.LITTLE_ENDIAN);
-            antenna = ByteArrays.getByte(rawData, ANTENNA_OFFSET + offset);
-            expiry = ByteArrays.getLong(rawData, EXPIRY_OFFSET + offset, ByteOrder.LITTLE_ENDIAN);
+            channelNumber = ByteBuffers.getByte(buffer, CHANNEL_NUMBER_OFFSET + offset);
+            priority = ByteBuffers.getByte(buffer, PRIORITY_OFFSET + offset);
+            service = ByteBuffers.getByte(buffer, SERVICE_OFFSET + offset);
+            mcs = ByteBuffers.getByte(buffer, MCS_OFFSET + offset);
+            manPower = ByteBuffers.getShort(buffer, MAN_POWER_OFFSET + offset, ByteOrder.LITTLE_ENDIAN);
+            antenna = ByteBuffers.getByte(buffer, ANTENNA_OFFSET + offset);
+            expiry = ByteBuffers.getLong(buffer, EXPIRY_OFFSET + offset, ByteOrder.LITTLE_ENDIAN);
         }
 
         private CohdaWirelessTxHeader(Builder builder) {
@@ -240,12 +283,34 @@ public final class CohdaWirelessTxPacket extends AbstractPacket {
             rawFields.add(ByteArrays.toByteArray(priority));
             rawFields.add(ByteArrays.toByteArray(service));
             rawFields.add(ByteArrays.toByteArray(mcs));
+            rawFields.add(new byte[PADDING_SIZE]);
             rawFields.add(ByteArrays.toByteArray(manPower, ByteOrder.LITTLE_ENDIAN));
             rawFields.add(ByteArrays.toByteArray(antenna));
             rawFields.add(ByteArrays.toByteArray(expiry, ByteOrder.LITTLE_ENDIAN));
             return rawFields;
         }
 
+        /**
+         * Writes the header into the buffer at an absolute index, in the
+         * little-endian order of the capture; the position and limit of the
+         * buffer are left alone.
+         *
+         * @param buffer
+         * @param offset
+         */
+        public void writeTo(ByteBuffer buffer, int offset) {
+            ByteBuffers.putByte(buffer, CHANNEL_NUMBER_OFFSET + offset, channelNumber);
+            ByteBuffers.putByte(buffer, PRIORITY_OFFSET + offset, priority);
+            ByteBuffers.putByte(buffer, SERVICE_OFFSET + offset, service);
+            ByteBuffers.putByte(buffer, MCS_OFFSET + offset, mcs);
+            for (int i = 0; i < PADDING_SIZE; i++) {
+                ByteBuffers.putByte(buffer, PADDING_OFFSET + i + offset, (byte) 0);
+            }
+            ByteBuffers.putShort(buffer, MAN_POWER_OFFSET + offset, manPower, ByteOrder.LITTLE_ENDIAN);
+            ByteBuffers.putByte(buffer, ANTENNA_OFFSET + offset, antenna);
+            ByteBuffers.putLong(buffer, EXPIRY_OFFSET + offset, expiry, ByteOrder.LITTLE_ENDIAN);
+        }
+
         @Override
         public int length() {
             return COHDA_WIRELESS_TX_HEADER_SIZE;
@@ -0,0 +1,72 @@
+package cuenen.raymond.gn.packet;
+
+/**
+ * The deepest layer that is decoded. Everything below it is left as an
+ * {@link org.pcap4j.packet.UnknownPacket} holding the raw bytes.
+ * <p>
+ * The packet factories are shared, so the depth is set per thread; readers
+ * set it around every record they decode.
+ * </p>
+ */
+public enum DecodeDepth {
+
+    /**
+     * The link-layer headers only: the Cohda header and the Ethernet header.
+     */
+    LINK,
+    /**
+     * Up to and including the GeoNetworking Basic header.
+     */
+    BASIC,
+    /**
+     * Up to and including the GeoNetworking Common header, and the Secure
+     * header when present.
+     */
+    COMMON,
+    /**
+     * Up to and including the GeoNetworking extended header.
+     */
+    EXTENDED,
+    /**
+     * Everything, including the transport header.
+     */
+    TRANSPORT;
+
+    private static final ThreadLocal<DecodeDepth> current = new ThreadLocal<DecodeDepth>() {
+
+        @Override
+        protected DecodeDepth initialValue() {
+            return TRANSPORT;
+        }
+    };
+
+    /**
+     * @return the decode depth of the current thread, {@link #TRANSPORT}
+     * unless set otherwise.
+     */
+    public static DecodeDepth current() {
+        return current.get();
+    }
+
+    /**
+     * Sets the decode depth of the current thread.
+     *
+     * @param depth
+     * @return the previous decode depth, to be restored afterwards.
+     */
+    public static DecodeDepth set(DecodeDepth depth) {
+        final DecodeDepth previous = current.get();
+        if (previous != depth) {
+            current.set(depth);
+        }
+        return previous;
+    }
+
+    /**
+     * @param layer
+     * @return {@code true} when this depth decodes the given layer.
+     */
+    public boolean includes(DecodeDepth layer) {
+        return compareTo(layer) >= 0;
+    }
+}
@@ -1,81 +1,596 @@
 package cuenen.raymond.gn.packet;
 
+import cuenen.raymond.gn.packet.factory.BufferPacketFactories;
 import cuenen.raymond.gn.packet.namednumber.GnExtendedHeaderType;
 import cuenen.raymond.gn.packet.namednumber.GnHeaderType;
 import cuenen.raymond.gn.packet.namednumber.GnTransportType;
+import cuenen.raymond.gn.util.ByteBuffers;
 import cuenen.raymond.gn.util.LongPositionVector;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Objects;
 import org.pcap4j.packet.AbstractPacket;
 import org.pcap4j.packet.IllegalRawDataException;
 import org.pcap4j.packet.Packet;
+import org.pcap4j.packet.UnknownPacket;
 import org.pcap4j.packet.factory.PacketFactories;
+import org.pcap4j.packet.factory.PacketFactory;
 import org.pcap4j.util.ByteArrays;
 
 public final class GeoNetworkingPacket extends AbstractPacket {
 
-    private final GeoNetworkingHeader header;
-    private final Packet payload;
+    private transient ByteBuffer data;
+    private transient int offset;
+    private transient int dataLength;
+    private final boolean lazy;
+    private final int headerLength;
+    private GeoNetworkingHeader header;
+    private Packet payload;
+    private boolean payloadDecoded;
+    private GnBasicHeader basicHeader;
+    private GnCommonHeader commonHeader;
+    private GnPacketHeader extendedHeader;
+
+    /**
+     * A static factory method that refers to the given bytes rather than
+     * copying them, as by {@link #newPacket(byte[], int, int, boolean)}.
+     *
+     * @param rawData
+     * @param offset
+     * @param length
+     * @return a new GeoNetworkingPacket object.
+     * @throws IllegalRawDataException
+     */
+    public static GeoNetworkingPacket newPacket(byte[] rawData, int offset, int length)
+            throws IllegalRawDataException {
+        return newPacket(rawData, offset, length, false);
+    }
 
     /**
      * A static factory method. This method validates the arguments by
      * {@link ByteArrays#validateBounds(byte[], int, int)}, which may throw
-     * exceptions undocumented here.
+     * exceptions undocumented here. Headers are decoded down to the
+     * {@link DecodeDepth#current() current decode depth}; the remaining bytes
+     * become the payload as an {@link UnknownPacket}.
+     * <p>
+     * The packet keeps the bytes it was decoded from, from which
+     * {@link #getRawData()}, the raw data of its header and the hash codes of
+     * both are taken without encoding the headers again. Unless it copies
+     * them, the packet refers to the array of the caller, which must not
+     * change while the packet is in use; readers that reuse their frame
+     * buffer copy.
+     * </p>
      *
      * @param rawData
      * @param offset
      * @param length
+     * @param copy {@code true} to keep a copy of the bytes instead of a
+     * reference to the array.
      * @return a new GeoNetworkingPacket object.
      * @throws IllegalRawDataException
      */
-    public static GeoNetworkingPacket newPacket(byte[] rawData, int offset, int length)
+    public static GeoNetworkingPacket newPacket(byte[] rawData, int offset, int length, boolean copy)
             throws IllegalRawDataException {
         ByteArrays.validateBounds(rawData, offset, length);
-        return new GeoNetworkingPacket(rawData, offset, length);
+        if (copy) {
+            return new GeoNetworkingPacket(ByteBuffer.wrap(ByteArrays.getSubArray(rawData, offset, length)), 0, length);
+        }
+        return new GeoNetworkingPacket(ByteBuffer.wrap(rawData), offset, length);
     }
 
-    private GeoNetworkingPacket(byte[] rawData, int offset, int length) throws IllegalRawDataException {
-        header = new GeoNetworkingHeader(rawData, offset, length);
-        final int payloadLength = length - header.length();
-        GnTransportType type = null;
-        for (GnHeader hdr : header.getStructure()) {
-            if (hdr instanceof GnCommonHeader) {
-                type = ((GnCommonHeader) hdr).getNextHeader();
+    /**
+     * A static factory method that decodes from a buffer, which may be direct
+     * or mapped, and refers to it rather than copying it, as by
+     * {@link #newPacket(ByteBuffer, int, int, boolean)}.
+     *
+     * @param buffer
+     * @param offset
+     * @param length
+     * @return a new GeoNetworkingPacket object.
+     * @throws IllegalRawDataException
+     */
+    public static GeoNetworkingPacket newPacket(ByteBuffer buffer, int offset, int length)
+            throws IllegalRawDataException {
+        return newPacket(buffer, offset, length, false);
+    }
+
+    /**
+     * A static factory method that decodes from a buffer, which may be direct
+     * or mapped. The offset is an absolute index in the buffer. This method
+     * validates the arguments by
+     * {@link ByteBuffers#validateBounds(ByteBuffer, int, int)}, which may throw
+     * exceptions undocumented here. The packet is decoded as by
+     * {@link #newPacket(byte[], int, int, boolean)}; unless it copies the
+     * bytes to the heap, it refers to the buffer, whose contents must not
+     * change while the packet is in use.
+     *
+     * @param buffer
+     * @param offset
+     * @param length
+     * @param copy {@code true} to keep a copy of the bytes instead of a
+     * reference to the buffer.
+     * @return a new GeoNetworkingPacket object.
+     * @throws IllegalRawDataException
+     */
+    public static GeoNetworkingPacket newPacket(ByteBuffer buffer, int offset, int length, boolean copy)
+            throws IllegalRawDataException {
+        ByteBuffers.validateBounds(buffer, offset, length);
+        if (copy) {
+            return new GeoNetworkingPacket(ByteBuffer.wrap(ByteBuffers.getSubArray(buffer, offset, length)), 0, length);
+        }
+        return new GeoNetworkingPacket(buffer, offset, length);
+    }
+
+    /**
+     * A static factory method that only validates the header lengths and
+     * refers to the given bytes rather than copying them, as by
+     * {@link #newLazyPacket(byte[], int, int, boolean)}.
+     *
+     * @param rawData
+     * @param offset
+     * @param length
+     * @return a new GeoNetworkingPacket object.
+     * @throws IllegalRawDataException
+     */
+    public static GeoNetworkingPacket newLazyPacket(byte[] rawData, int offset, int length)
+            throws IllegalRawDataException {
+        return newLazyPacket(rawData, offset, length, false);
+    }
+
+    /**
+     * A static factory method that only validates the header lengths. The
+     * headers and the payload are decoded when they are first accessed. Packets
+     * with a Secure header, or whose headers do not fit the data, and packets
+     * decoded with a {@link DecodeDepth} short of the transport layer, are
+     * decoded at once as by {@link #newPacket(byte[], int, int, boolean)}.
+     * <p>
+     * A lazy packet decodes from the bytes it keeps, so unless it copies them
+     * the array of the caller must not change while the packet is in use. The
+     * payload is decoded when it or the length of this packet is first needed,
+     * so an enclosing packet that takes the length of its payload, as an
+     * Ethernet packet does to find its pad, has it decoded right away. When a
+     * lazy packet is shared between threads a header may be decoded more than
+     * once.
+     * </p>
+     *
+     * @param rawData
+     * @param offset
+     * @param length
+     * @param copy {@code true} to keep a copy of the bytes instead of a
+     * reference to the array.
+     * @return a new GeoNetworkingPacket object.
+     * @throws IllegalRawDataException
+     */
+    public static GeoNetworkingPacket newLazyPacket(byte[] rawData, int offset, int length, boolean copy)
+            throws IllegalRawDataException {
+        ByteArrays.validateBounds(rawData, offset, length);
+        if (copy) {
+            return lazyPacket(ByteBuffer.wrap(ByteArrays.getSubArray(rawData, offset, length)), 0, length);
+        }
+        return lazyPacket(ByteBuffer.wrap(rawData), offset, length);
+    }
+
+    /**
+     * The buffer counterpart of {@link #newLazyPacket(byte[], int, int)}: the
+     * packet refers to the buffer rather than copying it.
+     *
+     * @param buffer
+     * @param offset
+     * @param length
+     * @return a new GeoNetworkingPacket object.
+     * @throws IllegalRawDataException
+     */
+    public static GeoNetworkingPacket newLazyPacket(ByteBuffer buffer, int offset, int length)
+            throws IllegalRawDataException {
+        return newLazyPacket(buffer, offset, length, false);
+    }
+
+    /**
+     * The buffer counterpart of
+     * {@link #newLazyPacket(byte[], int, int, boolean)}. The offset is an
+     * absolute index in the buffer; unless the packet copies the bytes to the
+     * heap, the contents of the buffer must not change while it is in use.
+     *
+     * @param buffer
+     * @param offset
+     * @param length
+     * @param copy {@code true} to keep a copy of the bytes instead of a
+     * reference to the buffer.
+     * @return a new GeoNetworkingPacket object.
+     * @throws IllegalRawDataException
+     */
+    public static GeoNetworkingPacket newLazyPacket(ByteBuffer buffer, int offset, int length, boolean copy)
+            throws IllegalRawDataException {
+        ByteBuffers.validateBounds(buffer, offset, length);
+        if (copy) {
+            return lazyPacket(ByteBuffer.wrap(ByteBuffers.getSubArray(buffer, offset, length)), 0, length);
+        }
+        return lazyPacket(buffer, offset, length);
+    }
+
+    private static GeoNetworkingPacket lazyPacket(ByteBuffer data, int offset, int length)
+            throws IllegalRawDataException {
+        final int headerLength = lazyHeaderLength(data, offset, length);
+        if (headerLength < 0 || DecodeDepth.current() != DecodeDepth.TRANSPORT) {
+            return new GeoNetworkingPacket(data, offset, length);
+        }
+        return new GeoNetworkingPacket(data, offset, length, headerLength);
+    }
+
+    /**
+     * Checks that every header of a GeoNetworking packet fits the data, up to
+     * and including the transport header, without decoding anything and
+     * without throwing.
+     *
+     * @param rawData
+     * @param offset
+     * @param length
+     * @return {@link GnStatus#OK}, the first header that does not fit, or why
+     * the data can not be checked.
+     */
+    public static GnStatus validate(byte[] rawData, int offset, int length) {
+        if (rawData == null || offset < 0 || length < 0 || offset > rawData.length - length) {
+            return GnStatus.INVALID_BOUNDS;
+        }
+        if (length < GnBasicHeader.SIZE_IN_BYTES) {
+            return GnStatus.TRUNCATED_BASIC_HEADER;
+        }
+        int size = GnBasicHeader.SIZE_IN_BYTES;
+        final GnHeaderType nextHeader = GnBasicHeader.nextHeaderOf(rawData, offset);
+        if (nextHeader.equals(GnHeaderType.SECURE_HEADER)) {
+            final int secureLength = GnSecureHeader.lengthOf(rawData, offset + size, length - size);
+            if (secureLength < 0) {
+                return GnStatus.TRUNCATED_SECURE_HEADER;
             }
+            size += secureLength;
+        } else if (!nextHeader.equals(GnHeaderType.COMMON_HEADER)) {
+            return GnStatus.UNKNOWN_NEXT_HEADER;
+        }
+        if (length - size < GnCommonHeader.SIZE_IN_BYTES) {
+            return GnStatus.TRUNCATED_COMMON_HEADER;
         }
-        if (payloadLength > 0 && type != null) {
-            final int payloadOffset = offset + header.length();
-            payload = PacketFactories.getFactory(Packet.class, GnTransportType.class)
-                    .newInstance(rawData, payloadOffset, payloadLength, type);
+        final GnExtendedHeaderType type = GnCommonHeader.extendedHeaderOf(rawData, offset + size);
+        final GnTransportType transport = GnCommonHeader.nextHeaderOf(rawData, offset + size);
+        size += GnCommonHeader.SIZE_IN_BYTES;
+        final int extendedLength = extendedHeaderLength(PacketFactories
+                .getFactory(GnPacketHeader.class, GnExtendedHeaderType.class).getTargetClass(type));
+        if (length - size < extendedLength) {
+            return GnStatus.TRUNCATED_EXTENDED_HEADER;
+        }
+        size += Math.max(0, extendedLength);
+        final int payloadLength = length - size;
+        if (payloadLength > 0 && payloadLength < BtpPacket.HEADER_SIZE_IN_BYTES
+                && PacketFactories.getFactory(Packet.class, GnTransportType.class)
+                .getTargetClass(transport) == BtpPacket.class) {
+            return GnStatus.TRUNCATED_TRANSPORT_HEADER;
+        }
+        return GnStatus.OK;
+    }
+
+    private static int lazyHeaderLength(ByteBuffer data, int offset, int length) {
+        final int commonOffset = GnBasicHeader.SIZE_IN_BYTES;
+        final int extendedOffset = commonOffset + GnCommonHeader.SIZE_IN_BYTES;
+        if (length < extendedOffset
+                || !GnBasicHeader.nextHeaderOf(data, offset).equals(GnHeaderType.COMMON_HEADER)) {
+            return -1;
+        }
+        final GnExtendedHeaderType type = GnCommonHeader.extendedHeaderOf(data, offset + commonOffset);
+        final Class<? extends GnPacketHeader> target = PacketFactories
+                .getFactory(GnPacketHeader.class, GnExtendedHeaderType.class).getTargetClass(type);
+        final int size = extendedHeaderLength(target);
+        if (size < 0 || length - extendedOffset < size) {
+            return -1;
+        }
+        return extendedOffset + size;
+    }
+
+    private static int extendedHeaderLength(Class<? extends GnPacketHeader> target) {
+        if (target == GnBeaconPacketHeader.class) {
+            return GnBeaconPacketHeader.SIZE_IN_BYTES;
+        } else if (target == GnGUCPacketHeader.class) {
+            return GnGUCPacketHeader.SIZE_IN_BYTES;
+        } else if (target == GnGBCPacketHeader.class) {
+            return GnGBCPacketHeader.SIZE_IN_BYTES;
+        } else if (target == GnTSBPacketHeader.class) {
+            return GnTSBPacketHeader.SIZE_IN_BYTES;
+        } else if (target == GnSHBPacketHeader.class) {
+            return GnSHBPacketHeader.SIZE_IN_BYTES;
+        } else if (target == GnLSRequestPacketHeader.class) {
+            return GnLSRequestPacketHeader.SIZE_IN_BYTES;
+        } else if (target == GnLSReplyPacketHeader.class) {
+            return GnLSReplyPacketHeader.SIZE_IN_BYTES;
+        } else if (target == GnEmptyHeader.class) {
+            return 0;
+        }
+        return -1;
+    }
+
+    private GeoNetworkingPacket(ByteBuffer data, int offset, int length) throws IllegalRawDataException {
+        this.data = data;
+        this.offset = offset;
+        dataLength = length;
+        lazy = false;
+        final DecodeDepth depth = DecodeDepth.current();
+        header = new GeoNetworkingHeader(data, offset, length, depth);
+        headerLength = header.length();
+        final int payloadLength = length - header.length();
+        final GnCommonHeader common = header.getCommonHeader();
+        final GnTransportType type = common == null ? null : common.getNextHeader();
+        if (payloadLength > 0 && !depth.includes(DecodeDepth.TRANSPORT)) {
+            payload = BufferPacketFactories.newUnknownPacket(data, offset + header.length(), payloadLength);
+        } else if (payloadLength > 0 && type != null) {
+            payload = BufferPacketFactories.newInstance(PacketFactories.getFactory(Packet.class, GnTransportType.class),
+                    data, offset + header.length(), payloadLength, type);
         } else {
             payload = null;
         }
+        payloadDecoded = true;
+    }
+
+    private GeoNetworkingPacket(ByteBuffer data, int offset, int length, int headerLength) {
+        this.data = data;
+        this.offset = offset;
+        dataLength = length;
+        lazy = true;
+        this.headerLength = headerLength;
     }
 
     private GeoNetworkingPacket(Builder builder) {
+        data = null;
+        lazy = false;
         payload = builder.payloadBuilder == null ? null : builder.payloadBuilder.build();
+        payloadDecoded = true;
         header = new GeoNetworkingHeader(builder);
+        headerLength = header.length();
+    }
+
+    /**
+     * @return {@code true} when this packet decodes its headers on first
+     * access.
+     */
+    public boolean isLazy() {
+        return lazy;
     }
 
     @Override
     public GeoNetworkingHeader getHeader() {
-        return header;
+        GeoNetworkingHeader hdr = header;
+        if (hdr == null) {
+            final GnCommonHeader common = getCommonHeader();
+            if (common == null) {
+                try {
+                    hdr = new GeoNetworkingHeader(data, offset, dataLength, DecodeDepth.TRANSPORT);
+                } catch (IllegalRawDataException e) {
+                    throw new IllegalStateException("The Basic header has been validated", e);
+                }
+            } else {
+                hdr = new GeoNetworkingHeader(getBasicHeader(), null, common, null, getExtendedHeader(),
+                        data, offset, headerLength);
+            }
+            header = hdr;
+        }
+        return hdr;
     }
 
     @Override
     public Packet getPayload() {
+        if (!payloadDecoded) {
+            final int payloadLength = dataLength - headerLength;
+            if (payloadLength > 0) {
+                payload = BufferPacketFactories.newInstance(PacketFactories.getFactory(Packet.class, GnTransportType.class),
+                        data, offset + headerLength, payloadLength, getNextHeader());
+            }
+            payloadDecoded = true;
+        }
         return payload;
     }
 
+    public GnBasicHeader getBasicHeader() {
+        if (!lazy) {
+            return header.getBasicHeader();
+        }
+        GnBasicHeader hdr = basicHeader;
+        if (hdr == null) {
+            try {
+                hdr = GnBasicHeader.newInstance(data, offset, dataLength);
+            } catch (IllegalRawDataException e) {
+                throw new IllegalStateException("The Basic header has been validated", e);
+            }
+            basicHeader = hdr;
+        }
+        return hdr;
+    }
+
+    /**
+     * @return the Common header, or {@code null} if the packet has none.
+     */
+    public GnCommonHeader getCommonHeader() {
+        if (!lazy) {
+            return header.getCommonHeader();
+        }
+        GnCommonHeader hdr = commonHeader;
+        if (hdr == null) {
+            final int commonOffset = GnBasicHeader.SIZE_IN_BYTES;
+            final GnHeader next = BufferPacketFactories.newInstance(PacketFactories
+                    .getFactory(GnHeader.class, GnHeaderType.class),
+                    data, offset + commonOffset, dataLength - commonOffset, GnHeaderType.COMMON_HEADER);
+            if (!(next instanceof GnCommonHeader)) {
+                return null;
+            }
+            hdr = (GnCommonHeader) next;
+            commonHeader = hdr;
+        }
+        return hdr;
+    }
+
+    /**
+     * @return the extended header, or {@code null} if the packet has none.
+     */
+    public GnPacketHeader getExtendedHeader() {
+        if (!lazy) {
+            return header.getExtendedHeader();
+        }
+        GnPacketHeader hdr = extendedHeader;
+        if (hdr == null) {
+            if (getCommonHeader() == null) {
+                return null;
+            }
+            final int commonOffset = GnBasicHeader.SIZE_IN_BYTES;
+            final int extendedOffset = commonOffset + GnCommonHeader.SIZE_IN_BYTES;
+            hdr = BufferPacketFactories.newInstance(PacketFactories
+                    .getFactory(GnPacketHeader.class, GnExtendedHeaderType.class),
+                    data, offset + extendedOffset, dataLength - extendedOffset,
+                    GnCommonHeader.extendedHeaderOf(data, offset + commonOffset));
+            extendedHeader = hdr;
+        }
+        return hdr;
+    }
+
+    /**
+     * @return the type of the payload, or {@code null} if the packet has no
+     * Common header.
+     */
+    public GnTransportType getNextHeader() {
+        if (lazy && commonHeader == null) {
+            return GnCommonHeader.nextHeaderOf(data, offset + GnBasicHeader.SIZE_IN_BYTES);
+        }
+        final GnCommonHeader hdr = getCommonHeader();
+        return hdr == null ? null : hdr.getNextHeader();
+    }
+
+    /**
+     * @return the source position vector of the extended header, or
+     * {@code null} if the packet has none.
+     */
+    public LongPositionVector getSourcePosition() {
+        final GnPacketHeader hdr = getExtendedHeader();
+        return hdr == null ? null : hdr.sourcePosition();
+    }
+
+    @Override
+    protected int calcLength() {
+        if (!lazy) {
+            return super.calcLength();
+        }
+        final Packet pl = getPayload();
+        return pl == null ? headerLength : headerLength + pl.length();
+    }
+
+    /**
+     * A decoded packet returns the bytes it was decoded from, which
+     * {@link #getRawData()} copies; bytes that are not part of the headers or
+     * the payload are left out. A built packet is encoded in one pass by
+     * {@link GnPacketEncoder}.
+     */
+    @Override
+    protected byte[] buildRawData() {
+        final int length = length();
+        if (data == null) {
+            final byte[] rawData = new byte[length];
+            GnPacketEncoder.encode(this, rawData, 0);
+            return rawData;
+        }
+        return rawArrayOf(data, offset, length);
+    }
+
+    /**
+     * Copies the bytes a decoded packet was decoded from into the buffer, so
+     * that its headers and payload need not be encoded again.
+     *
+     * @param buffer
+     * @param offset
+     * @return {@code false} if this packet was built rather than decoded, in
+     * which case nothing is written.
+     */
+    boolean writeRawData(ByteBuffer buffer, int offset) {
+        if (data == null) {
+            return false;
+        }
+        ByteBuffers.putBytes(buffer, offset, data, this.offset, length());
+        return true;
+    }
+
+    /**
+     * The hash code of the raw data, taken from the bytes a decoded packet was
+     * decoded from, so that the headers need not be encoded or decoded.
+     */
+    @Override
+    protected int calcHashCode() {
+        return data == null ? Arrays.hashCode(getRawData()) : hashOf(data, offset, length());
+    }
+
+    /**
+     * @param data
+     * @param offset
+     * @param length
+     * @return the array behind the data when it holds exactly these bytes, as
+     * it does for a packet that copied them, or else a copy of them.
+     */
+    private static byte[] rawArrayOf(ByteBuffer data, int offset, int length) {
+        if (data.hasArray() && data.arrayOffset() + offset == 0 && data.array().length == length) {
+            return data.array();
+        }
+        return ByteBuffers.getSubArray(data, offset, length);
+    }
+
+    /**
+     * @param data
+     * @param offset
+     * @param length
+     * @return the hash code of {@code length} bytes of the data, starting at
+     * absolute index {@code offset}, as {@link Arrays#hashCode(byte[])} would
+     * return for a copy of them.
+     */
+    private static int hashOf(ByteBuffer data, int offset, int length) {
+        int hash = 1;
+        if (data.hasArray()) {
+            final byte[] array = data.array();
+            final int start = data.arrayOffset() + offset;
+            for (int i = start; i < start + length; i++) {
+                hash = 31 * hash + array[i];
+            }
+        } else {
+            for (int i = offset; i < offset + length; i++) {
+                hash = 31 * hash + data.get(i);
+            }
+        }
+        return hash;
+    }
+
+    /**
+     * Writes the bytes a decoded packet was decoded from as an array, since a
+     * buffer can not be serialized.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(data == null ? null : ByteBuffers.getSubArray(data, offset, dataLength));
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        final byte[] rawData = (byte[]) in.readObject();
+        data = rawData == null ? null : ByteBuffer.wrap(rawData);
+        offset = 0;
+        dataLength = rawData == null ? 0 : rawData.length;
+    }
+
     @Override
     protected String buildString() {
         final StringBuilder sb = new StringBuilder();
         final String ls = System.getProperty("line.separator");
-        sb.append("[GeoNetworking Header (").append(header.length()).append(" bytes)]").append(ls);
-        sb.append(header);
-        if (payload != null) {
-            sb.append(payload);
+        final GeoNetworkingHeader hdr = getHeader();
+        sb.append("[GeoNetworking Header (").append(hdr.length()).append(" bytes)]").append(ls);
+        sb.append(hdr);
+        final Packet pl = getPayload();
+        if (pl != null) {
+            sb.append(pl);
         }
         return sb.toString();
     }
@@ -87,20 +602,79 @@ public final class GeoNetworkingPacket extends AbstractPacket {
 
     public static final class Builder extends AbstractBuilder {
 
-        private final List<GnHeader> structure = new ArrayList<>();
+        private GnBasicHeader basicHeader;
+        private GnSecureHeader secureHeader;
+        private GnCommonHeader commonHeader;
+        private GnHeader undecodedHeader;
+        private GnPacketHeader extendedHeader;
         private Packet.Builder payloadBuilder;
 
         public Builder() {
         }
 
         public Builder(GeoNetworkingPacket packet) {
-            structure.addAll(packet.header.structure);
-            payloadBuilder = packet.payload == null ? null : packet.payload.getBuilder();
+            final GeoNetworkingHeader header = packet.getHeader();
+            basicHeader = header.basicHeader;
+            secureHeader = header.secureHeader;
+            commonHeader = header.commonHeader;
+            undecodedHeader = header.undecodedHeader;
+            extendedHeader = header.extendedHeader;
+            final Packet payload = packet.getPayload();
+            payloadBuilder = payload == null ? null : payload.getBuilder();
+        }
+
+        public Builder basicHeader(GnBasicHeader basicHeader) {
+            this.basicHeader = basicHeader;
+            return this;
+        }
+
+        public Builder secureHeader(GnSecureHeader secureHeader) {
+            this.secureHeader = secureHeader;
+            return this;
         }
 
+        public Builder commonHeader(GnCommonHeader commonHeader) {
+            this.commonHeader = commonHeader;
+            return this;
+        }
+
+        public Builder extendedHeader(GnPacketHeader extendedHeader) {
+            this.extendedHeader = extendedHeader;
+            return this;
+        }
+
+        /**
+         * Sets all headers from a list in wire order, as returned by
+         * {@link GeoNetworkingHeader#getStructure()}. A malformed or empty
+         * header before the Common header takes the place of the Secure or
+         * Common header.
+         *
+         * @param structure
+         * @return this builder.
+         * @throws IllegalArgumentException if a header is of an unknown type.
+         */
         public Builder structure(List<GnHeader> structure) {
-            this.structure.clear();
-            this.structure.addAll(structure);
+            basicHeader = null;
+            secureHeader = null;
+            commonHeader = null;
+            undecodedHeader = null;
+            extendedHeader = null;
+            for (GnHeader header : structure) {
+                if (header instanceof GnBasicHeader) {
+                    basicHeader = (GnBasicHeader) header;
+                } else if (header instanceof GnSecureHeader) {
+                    secureHeader = (GnSecureHeader) header;
+                } else if (header instanceof GnCommonHeader) {
+                    commonHeader = (GnCommonHeader) header;
+                } else if (commonHeader == null
+                        && (header instanceof GnMalformedHeader || header instanceof GnEmptyHeader)) {
+                    undecodedHeader = header;
+                } else if (header instanceof GnPacketHeader) {
+                    extendedHeader = (GnPacketHeader) header;
+                } else {
+                    throw new IllegalArgumentException("Unknown header type " + header.getClass().getName());
+                }
+            }
             return this;
         }
 
@@ -123,49 +697,203 @@ public final class GeoNetworkingPacket extends AbstractPacket {
 
     public static final class GeoNetworkingHeader extends AbstractHeader {
 
-        private final List<GnHeader> structure = new ArrayList<>();
+        /**
+         * Set in {@link #getPresence()} when the header holds a Basic header.
+         */
+        public static final byte BASIC_HEADER_PRESENT = 0x01;
+        /**
+         * Set in {@link #getPresence()} when the header holds a Secure header.
+         */
+        public static final byte SECURE_HEADER_PRESENT = 0x02;
+        /**
+         * Set in {@link #getPresence()} when the header holds a Common header.
+         */
+        public static final byte COMMON_HEADER_PRESENT = 0x04;
+        /**
+         * Set in {@link #getPresence()} when a malformed or empty header takes
+         * the place of the Secure or Common header.
+         */
+        public static final byte UNDECODED_HEADER_PRESENT = 0x08;
+        /**
+         * Set in {@link #getPresence()} when the header holds an extended
+         * header.
+         */
+        public static final byte EXTENDED_HEADER_PRESENT = 0x10;
+
+        private final GnBasicHeader basicHeader;
+        private final GnSecureHeader secureHeader;
+        private final GnCommonHeader commonHeader;
+        private final GnHeader undecodedHeader;
+        private final GnPacketHeader extendedHeader;
+        private final byte presence;
+        private transient ByteBuffer data;
+        private transient int offset;
         private final int length;
 
-        private GeoNetworkingHeader(byte[] rawData, int offset, int length) throws IllegalRawDataException {
-            final GnBasicHeader basicHeader = GnBasicHeader.newInstance(rawData, offset, length);
-            structure.add(basicHeader);
+        private GeoNetworkingHeader(ByteBuffer data, int offset, int length, DecodeDepth depth)
+                throws IllegalRawDataException {
+            this.data = data;
+            this.offset = offset;
+            basicHeader = GnBasicHeader.newInstance(data, offset, length);
             int size = basicHeader.length();
-            GnHeader nextHeader = PacketFactories.getFactory(GnHeader.class, GnHeaderType.class)
-                    .newInstance(rawData, offset + size, length - size, basicHeader.getNextHeader());
-            structure.add(nextHeader);
-            size += nextHeader.length();
-            if (nextHeader instanceof GnSecureHeader) {
-                nextHeader = PacketFactories.getFactory(GnHeader.class, GnHeaderType.class)
-                        .newInstance(rawData, offset + size, length - size, GnHeaderType.COMMON_HEADER);
-                structure.add(nextHeader);
-                size += nextHeader.length();
-            }
-            if (nextHeader instanceof GnCommonHeader) {
-                nextHeader = PacketFactories.getFactory(GnPacketHeader.class, GnExtendedHeaderType.class)
-                        .newInstance(rawData, offset + size, length - size, ((GnCommonHeader) nextHeader).getExtendedHeader());
-                structure.add(nextHeader);
+            GnSecureHeader secure = null;
+            GnCommonHeader common = null;
+            GnHeader undecoded = null;
+            GnPacketHeader extended = null;
+            if (depth.includes(DecodeDepth.COMMON)) {
+                final PacketFactory<GnHeader, GnHeaderType> factory = PacketFactories
+                        .getFactory(GnHeader.class, GnHeaderType.class);
+                GnHeader nextHeader = BufferPacketFactories.newInstance(factory,
+                        data, offset + size, length - size, basicHeader.getNextHeader());
                 size += nextHeader.length();
+                if (nextHeader instanceof GnSecureHeader) {
+                    secure = (GnSecureHeader) nextHeader;
+                    nextHeader = BufferPacketFactories.newInstance(factory,
+                            data, offset + size, length - size, GnHeaderType.COMMON_HEADER);
+                    size += nextHeader.length();
+                }
+                if (nextHeader instanceof GnCommonHeader) {
+                    common = (GnCommonHeader) nextHeader;
+                } else {
+                    undecoded = nextHeader;
+                }
+                if (common != null && depth.includes(DecodeDepth.EXTENDED)) {
+                    extended = BufferPacketFactories.newInstance(PacketFactories
+                            .getFactory(GnPacketHeader.class, GnExtendedHeaderType.class),
+                            data, offset + size, length - size, common.getExtendedHeader());
+                    size += extended.length();
+                }
             }
+            secureHeader = secure;
+            commonHeader = common;
+            undecodedHeader = undecoded;
+            extendedHeader = extended;
+            presence = presenceOf(basicHeader, secure, common, undecoded, extended);
             this.length = size;
         }
 
+        private GeoNetworkingHeader(GnBasicHeader basicHeader, GnSecureHeader secureHeader,
+                GnCommonHeader commonHeader, GnHeader undecodedHeader, GnPacketHeader extendedHeader,
+                ByteBuffer data, int offset, int length) {
+            this.basicHeader = basicHeader;
+            this.secureHeader = secureHeader;
+            this.commonHeader = commonHeader;
+            this.undecodedHeader = undecodedHeader;
+            this.extendedHeader = extendedHeader;
+            this.data = data;
+            this.offset = offset;
+            this.length = length;
+            presence = presenceOf(basicHeader, secureHeader, commonHeader, undecodedHeader, extendedHeader);
+        }
+
         private GeoNetworkingHeader(Builder builder) {
-            structure.addAll(builder.structure);
-            int size = 0;
-            for (GnHeader header : structure) {
-                size += header.length();
+            this(builder.basicHeader, builder.secureHeader, builder.commonHeader, builder.undecodedHeader,
+                    builder.extendedHeader, null, 0, lengthOf(builder.basicHeader) + lengthOf(builder.secureHeader)
+                    + lengthOf(builder.commonHeader) + lengthOf(builder.undecodedHeader)
+                    + lengthOf(builder.extendedHeader));
+        }
+
+        private static byte presenceOf(GnBasicHeader basicHeader, GnSecureHeader secureHeader,
+                GnCommonHeader commonHeader, GnHeader undecodedHeader, GnPacketHeader extendedHeader) {
+            int presence = 0;
+            if (basicHeader != null) {
+                presence |= BASIC_HEADER_PRESENT;
+            }
+            if (secureHeader != null) {
+                presence |= SECURE_HEADER_PRESENT;
             }
-            length = size;
+            if (commonHeader != null) {
+                presence |= COMMON_HEADER_PRESENT;
+            }
+            if (undecodedHeader != null) {
+                presence |= UNDECODED_HEADER_PRESENT;
+            }
+            if (extendedHeader != null) {
+                presence |= EXTENDED_HEADER_PRESENT;
+            }
+            return (byte) presence;
+        }
+
+        private static int lengthOf(GnHeader header) {
+            return header == null ? 0 : header.length();
+        }
+
+        /**
+         * @return the headers present, as a combination of the
+         * {@code *_PRESENT} flags of this class.
+         */
+        public byte getPresence() {
+            return presence;
         }
 
+        /**
+         * @return the Basic header, or {@code null} if a built header has
+         * none.
+         */
+        public GnBasicHeader getBasicHeader() {
+            return basicHeader;
+        }
+
+        /**
+         * @return the Secure header, or {@code null} if the packet is not
+         * secured.
+         */
+        public GnSecureHeader getSecureHeader() {
+            return secureHeader;
+        }
+
+        /**
+         * @return the Common header, or {@code null} if the packet has none or
+         * it was not decoded.
+         */
+        public GnCommonHeader getCommonHeader() {
+            return commonHeader;
+        }
+
+        /**
+         * @return the malformed or empty header in place of the Secure or
+         * Common header, or {@code null}.
+         */
+        public GnHeader getUndecodedHeader() {
+            return undecodedHeader;
+        }
+
+        /**
+         * @return the extended header, or {@code null} if the packet has none
+         * or it was not decoded.
+         */
+        public GnPacketHeader getExtendedHeader() {
+            return extendedHeader;
+        }
+
+        /**
+         * @return the headers present in wire order, as a new unmodifiable
+         * list; the typed getters read a header without creating one.
+         */
         public List<GnHeader> getStructure() {
-            return structure;
+            final List<GnHeader> structure = new ArrayList<>(4);
+            if (basicHeader != null) {
+                structure.add(basicHeader);
+            }
+            if (secureHeader != null) {
+                structure.add(secureHeader);
+            }
+            if (commonHeader != null) {
+                structure.add(commonHeader);
+            }
+            if (undecodedHeader != null) {
+                structure.add(undecodedHeader);
+            }
+            if (extendedHeader != null) {
+                structure.add(extendedHeader);
+            }
+            return Collections.unmodifiableList(structure);
         }
 
         @Override
         protected List<byte[]> getRawFields() {
             final List<byte[]> rawFields = new ArrayList<>();
-            for (GnHeader header : structure) {
+            for (GnHeader header : getStructure()) {
                 rawFields.add(header.rawData());
             }
             return rawFields;
@@ -176,10 +904,43 @@ public final class GeoNetworkingPacket extends AbstractPacket {
             return length;
         }
 
+        /**
+         * Writes the headers into the buffer at an absolute index; the
+         * position and limit of the buffer are left alone.
+         *
+         * @param buffer
+         * @param offset
+         */
+        public void writeTo(ByteBuffer buffer, int offset) {
+            offset = write(basicHeader, buffer, offset);
+            offset = write(secureHeader, buffer, offset);
+            offset = write(commonHeader, buffer, offset);
+            offset = write(undecodedHeader, buffer, offset);
+            write(extendedHeader, buffer, offset);
+        }
+
+        private static int write(GnHeader header, ByteBuffer buffer, int offset) {
+            if (header == null) {
+                return offset;
+            }
+            header.writeTo(buffer, offset);
+            return offset + header.length();
+        }
+
+        @Override
+        protected byte[] buildRawData() {
+            if (data != null) {
+                return ByteBuffers.getSubArray(data, offset, length);
+            }
+            final ByteBuffer buffer = ByteBuffer.allocate(length);
+            writeTo(buffer, 0);
+            return buffer.array();
+        }
+
         @Override
         protected String buildString() {
             final StringBuilder sb = new StringBuilder();
-            for (GnHeader header : structure) {
+            for (GnHeader header : getStructure()) {
                 sb.append(header);
             }
             return sb.toString();
@@ -189,14 +950,39 @@ public final class GeoNetworkingPacket extends AbstractPacket {
         public boolean equals(Object obj) {
             if (obj instanceof GeoNetworkingHeader) {
                 GeoNetworkingHeader that = (GeoNetworkingHeader) obj;
-                return this.structure.equals(that.structure);
+                return this.presence == that.presence
+                        && Objects.equals(this.basicHeader, that.basicHeader)
+                        && Objects.equals(this.secureHeader, that.secureHeader)
+                        && Objects.equals(this.commonHeader, that.commonHeader)
+                        && Objects.equals(this.undecodedHeader, that.undecodedHeader)
+                        && Objects.equals(this.extendedHeader, that.extendedHeader);
             }
             return false;
         }
 
+        /**
+         * The hash code of the raw data, so that a decoded header need not be
+         * encoded again; equal headers encode to equal raw data.
+         */
         @Override
         protected int calcHashCode() {
-            return 41 + structure.hashCode();
+            return data == null ? Arrays.hashCode(getRawData()) : hashOf(data, offset, length);
+        }
+
+        /**
+         * Writes the bytes a decoded header was decoded from as an array,
+         * since a buffer can not be serialized.
+         */
+        private void writeObject(ObjectOutputStream out) throws IOException {
+            out.defaultWriteObject();
+            out.writeObject(data == null ? null : ByteBuffers.getSubArray(data, offset, length));
+        }
+
+        private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+            in.defaultReadObject();
+            final byte[] rawData = (byte[]) in.readObject();
+            data = rawData == null ? null : ByteBuffer.wrap(rawData);
+            offset = 0;
         }
     }
 
@@ -205,6 +991,15 @@ public final class GeoNetworkingPacket extends AbstractPacket {
         public int length();
 
         public byte[] rawData();
+
+        /**
+         * Writes the header into the buffer at an absolute index; the
+         * position and limit of the buffer are left alone.
+         *
+         * @param buffer
+         * @param offset
+         */
+        public void writeTo(ByteBuffer buffer, int offset);
     }
 
     public static interface GnPacketHeader extends GnHeader {
@@ -3,21 +3,27 @@ package cuenen.raymond.gn.packet;
 import cuenen.raymond.gn.packet.GeoNetworkingPacket.GnHeader;
 import cuenen.raymond.gn.packet.namednumber.GnHeaderType;
 import cuenen.raymond.gn.util.BitValues;
+import cuenen.raymond.gn.util.ByteBuffers;
+import cuenen.raymond.gn.util.HeaderLayout;
+import java.nio.ByteBuffer;
 import org.pcap4j.packet.IllegalRawDataException;
 import org.pcap4j.util.ByteArrays;
 import static org.pcap4j.util.ByteArrays.BYTE_SIZE_IN_BYTES;
 
 public final class GnBasicHeader implements GnHeader {
 
-    private static final int VERSION_NH_OFFSET = 0;
-    private static final int VERSION_NH_SIZE = BYTE_SIZE_IN_BYTES;
-    private static final int RESERVED_OFFSET = VERSION_NH_OFFSET + VERSION_NH_SIZE;
-    private static final int RESERVED_SIZE = BYTE_SIZE_IN_BYTES;
-    private static final int LT_OFFSET = RESERVED_OFFSET + RESERVED_SIZE;
-    private static final int LT_SIZE = BYTE_SIZE_IN_BYTES;
-    private static final int RHL_OFFSET = LT_OFFSET + LT_SIZE;
-    private static final int RHL_SIZE = BYTE_SIZE_IN_BYTES;
-    private static final int BASIC_HEADER_SIZE = RHL_OFFSET + RHL_SIZE;
+    public static final HeaderLayout LAYOUT = HeaderLayout.builder("Basic Header")
+            .field("Version and Next Header", BYTE_SIZE_IN_BYTES)
+            .field("Reserved", BYTE_SIZE_IN_BYTES)
+            .field("Lifetime", BYTE_SIZE_IN_BYTES)
+            .field("Remaining Hop Limit", BYTE_SIZE_IN_BYTES)
+            .build();
+    private static final int VERSION_NH_OFFSET = LAYOUT.offsetOf("Version and Next Header");
+    private static final int RESERVED_OFFSET = LAYOUT.offsetOf("Reserved");
+    private static final int LT_OFFSET = LAYOUT.offsetOf("Lifetime");
+    private static final int RHL_OFFSET = LAYOUT.offsetOf("Remaining Hop Limit");
+    private static final int BASIC_HEADER_SIZE = LAYOUT.length();
+    public static final int SIZE_IN_BYTES = BASIC_HEADER_SIZE;
 
     private final byte version;
     private final GnHeaderType nextHeader;
@@ -38,19 +44,53 @@ public final class GnBasicHeader implements GnHeader {
      */
     public static GnBasicHeader newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
         ByteArrays.validateBounds(rawData, offset, length);
-        return new GnBasicHeader(rawData, offset, length);
+        return new GnBasicHeader(ByteBuffers.view(rawData), offset, length);
     }
 
-    private GnBasicHeader(byte[] rawData, int offset, int length) throws IllegalRawDataException {
+    /**
+     * A static factory method that decodes from a buffer, which may be direct
+     * or mapped. The offset is an absolute index in the buffer. This method
+     * validates the arguments by
+     * {@link ByteBuffers#validateBounds(ByteBuffer, int, int)}, which may throw
+     * exceptions undocumented here.
+     *
+     * @param buffer
+     * @param offset
+     * @param length
+     * @return a new GnBasicHeader object.
+     * @throws org.pcap4j.packet.IllegalRawDataException
+     */
+    public static GnBasicHeader newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+        ByteBuffers.validateBounds(buffer, offset, length);
+        return new GnBasicHeader(buffer, offset, length);
+    }
+
+    private GnBasicHeader(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
         if (length < BASIC_HEADER_SIZE) {
             throw new IllegalRawDataException("The data is too short to build a Basic header");
         }
-        final byte versionNH = ByteArrays.getByte(rawData, VERSION_NH_OFFSET + offset);
+        final byte versionNH = ByteBuffers.getByte(buffer, VERSION_NH_OFFSET + offset);
         version = (byte) ((versionNH >> 4) & 0x0F);
         nextHeader = GnHeaderType.getInstance((byte) (versionNH & 0x0F));
-        reserved = ByteArrays.getByte(rawData, RESERVED_OFFSET + offset);
-        lifetime = ByteArrays.getByte(rawData, LT_OFFSET + offset);
-        remainingHopLimit = ByteArrays.getByte(rawData, RHL_OFFSET + offset);
+        reserved = ByteBuffers.getByte(buffer, RESERVED_OFFSET + offset);
+        lifetime = ByteBuffers.getByte(buffer, LT_OFFSET + offset);
+        remainingHopLimit = ByteBuffers.getByte(buffer, RHL_OFFSET + offset);
+    }
+
+    private GnBasicHeader(Builder builder) {
+        version = builder.version;
+        nextHeader = builder.nextHeader;
+        reserved = builder.reserved;
+        lifetime = builder.lifetime;
+        remainingHopLimit = builder.remainingHopLimit;
+    }
+
+    static GnHeaderType nextHeaderOf(byte[] rawData, int offset) {
+        return GnHeaderType.getInstance((byte) (ByteArrays.getByte(rawData, VERSION_NH_OFFSET + offset) & 0x0F));
+    }
+
+    static GnHeaderType nextHeaderOf(ByteBuffer buffer, int offset) {
+        return GnHeaderType.getInstance((byte) (ByteBuffers.getByte(buffer, VERSION_NH_OFFSET + offset) & 0x0F));
     }
 
     public byte getVersion() {
@@ -73,6 +113,10 @@ public final class GnBasicHeader implements GnHeader {
         return remainingHopLimit;
     }
 
+    public Builder getBuilder() {
+        return new Builder(this);
+    }
+
     @Override
     public int length() {
         return BASIC_HEADER_SIZE;
@@ -80,12 +124,17 @@ public final class GnBasicHeader implements GnHeader {
 
     @Override
     public byte[] rawData() {
-        final byte[] rawData = new byte[BASIC_HEADER_SIZE];
-        rawData[VERSION_NH_OFFSET] = (byte) ((version << 4) | nextHeader.value());
-        rawData[RESERVED_OFFSET] = reserved;
-        rawData[LT_OFFSET] = lifetime;
-        rawData[RHL_OFFSET] = remainingHopLimit;
-        return rawData;
+        final ByteBuffer buffer = ByteBuffer.allocate(BASIC_HEADER_SIZE);
+        writeTo(buffer, 0);
+        return buffer.array();
+    }
+
+    @Override
+    public void writeTo(ByteBuffer buffer, int offset) {
+        ByteBuffers.putByte(buffer, VERSION_NH_OFFSET + offset, (byte) ((version << 4) | nextHeader.value()));
+        ByteBuffers.putByte(buffer, RESERVED_OFFSET + offset, reserved);
+        ByteBuffers.putByte(buffer, LT_OFFSET + offset, lifetime);
+        ByteBuffers.putByte(buffer, RHL_OFFSET + offset, remainingHopLimit);
     }
 
     @Override
@@ -130,4 +179,64 @@ public final class GnBasicHeader implements GnHeader {
         hash = hash * 41 + remainingHopLimit;
         return hash;
     }
+
+    public static final class Builder {
+
+        private byte version;
+        private GnHeaderType nextHeader;
+        private byte reserved;
+        private byte lifetime;
+        private byte remainingHopLimit;
+
+        public Builder() {
+        }
+
+        public Builder(GnBasicHeader header) {
+            version = header.version;
+            nextHeader = header.nextHeader;
+            reserved = header.reserved;
+            lifetime = header.lifetime;
+            remainingHopLimit = header.remainingHopLimit;
+        }
+
+        public Builder version(byte version) {
+            this.version = version;
+            return this;
+        }
+
+        public Builder nextHeader(GnHeaderType nextHeader) {
+            this.nextHeader = nextHeader;
+            return this;
+        }
+
+        public Builder reserved(byte reserved) {
+            this.reserved = reserved;
+            return this;
+        }
+
+        public Builder lifetime(byte lifetime) {
+            this.lifetime = lifetime;
+            return this;
+        }
+
+        public Builder remainingHopLimit(byte remainingHopLimit) {
+            this.remainingHopLimit = remainingHopLimit;
+            return this;
+        }
+
+        /**
+         * @return a new GnBasicHeader object.
+         * @throws NullPointerException if the next header is not set.
+         * @throws IllegalArgumentException if the version does not fit in 4 bits.
+         */
+        public GnBasicHeader build() {
+            if (nextHeader == null) {
+                throw new NullPointerException("nextHeader may not be null");
+            }
+            if ((version & 0xF0) != 0) {
+                throw new IllegalArgumentException("version does not fit in 4 bits: " + version);
+            }
+            return new GnBasicHeader(this);
+        }
+    }
 }
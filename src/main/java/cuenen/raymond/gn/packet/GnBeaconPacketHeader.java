@@ -1,14 +1,21 @@
 package cuenen.raymond.gn.packet;
 
 import cuenen.raymond.gn.packet.GeoNetworkingPacket.GnPacketHeader;
+import cuenen.raymond.gn.util.ByteBuffers;
+import cuenen.raymond.gn.util.HeaderLayout;
 import cuenen.raymond.gn.util.LongPositionVector;
+import java.nio.ByteBuffer;
 import org.pcap4j.packet.IllegalRawDataException;
 import org.pcap4j.util.ByteArrays;
 
 public class GnBeaconPacketHeader implements GnPacketHeader {
 
-    private static final int SO_PV_OFFSET = 0;
-    private static final int BEACON_PACKET_HEADER_SIZE = SO_PV_OFFSET + LongPositionVector.SIZE_IN_BYTES;
+    public static final HeaderLayout LAYOUT = HeaderLayout.builder("Beacon")
+            .field("Source Position Vector", LongPositionVector.LAYOUT)
+            .build();
+    private static final int SO_PV_OFFSET = LAYOUT.offsetOf("Source Position Vector");
+    private static final int BEACON_PACKET_HEADER_SIZE = LAYOUT.length();
+    public static final int SIZE_IN_BYTES = BEACON_PACKET_HEADER_SIZE;
 
     private final LongPositionVector source;
 
@@ -25,14 +32,36 @@ public class GnBeaconPacketHeader implements GnPacketHeader {
      */
     public static GnBeaconPacketHeader newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
         ByteArrays.validateBounds(rawData, offset, length);
-        return new GnBeaconPacketHeader(rawData, offset, length);
+        return new GnBeaconPacketHeader(ByteBuffers.view(rawData), offset, length);
     }
 
-    private GnBeaconPacketHeader(byte[] rawData, int offset, int length) throws IllegalRawDataException {
+    /**
+     * A static factory method that decodes from a buffer, which may be direct
+     * or mapped. The offset is an absolute index in the buffer. This method
+     * validates the arguments by
+     * {@link ByteBuffers#validateBounds(ByteBuffer, int, int)}, which may throw
+     * exceptions undocumented here.
+     *
+     * @param buffer
+     * @param offset
+     * @param length
+     * @return a new GnBeaconPacketHeader object.
+     * @throws org.pcap4j.packet.IllegalRawDataException
+     */
+    public static GnBeaconPacketHeader newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+        ByteBuffers.validateBounds(buffer, offset, length);
+        return new GnBeaconPacketHeader(buffer, offset, length);
+    }
+
+    private GnBeaconPacketHeader(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
         if (length < BEACON_PACKET_HEADER_SIZE) {
             throw new IllegalRawDataException("The data is too short to build a GUC packet header");
         }
-        source = LongPositionVector.newInstance(rawData, SO_PV_OFFSET + offset, length - SO_PV_OFFSET);
+        source = LongPositionVector.newInstance(buffer, SO_PV_OFFSET + offset, length - SO_PV_OFFSET);
+    }
+
+    private GnBeaconPacketHeader(Builder builder) {
+        source = builder.source;
     }
 
     @Override
@@ -40,6 +69,10 @@ public class GnBeaconPacketHeader implements GnPacketHeader {
         return source;
     }
 
+    public Builder getBuilder() {
+        return new Builder(this);
+    }
+
     @Override
     public int length() {
         return BEACON_PACKET_HEADER_SIZE;
@@ -47,9 +80,14 @@ public class GnBeaconPacketHeader implements GnPacketHeader {
 
     @Override
     public byte[] rawData() {
-        final byte[] rawData = new byte[BEACON_PACKET_HEADER_SIZE];
-        source.writeTo(rawData, SO_PV_OFFSET);
-        return rawData;
+        final ByteBuffer buffer = ByteBuffer.allocate(BEACON_PACKET_HEADER_SIZE);
+        writeTo(buffer, 0);
+        return buffer.array();
+    }
+
+    @Override
+    public void writeTo(ByteBuffer buffer, int offset) {
+        source.writeTo(buffer, SO_PV_OFFSET + offset);
     }
 
     @Override
@@ -75,4 +113,32 @@ public class GnBeaconPacketHeader implements GnPacketHeader {
     public int hashCode() {
         return 41 + source.hashCode();
     }
+
+    public static final class Builder {
+
+        private LongPositionVector source;
+
+        public Builder() {
+        }
+
+        public Builder(GnBeaconPacketHeader header) {
+            source = header.source;
+        }
+
+        public Builder source(LongPositionVector source) {
+            this.source = source;
+            return this;
+        }
+
+        /**
+         * @return a new GnBeaconPacketHeader object.
+         * @throws NullPointerException if the source position vector is not set.
+         */
+        public GnBeaconPacketHeader build() {
+            if (source == null) {
+                throw new NullPointerException("source may not be null");
+            }
+            return new GnBeaconPacketHeader(this);
+        }
+    }
 }
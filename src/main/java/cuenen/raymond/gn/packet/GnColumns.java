@@ -0,0 +1,255 @@
+package cuenen.raymond.gn.packet;
+
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+/**
+ * A batch of GeoNetworking header fields stored as one primitive array per
+ * field. Frames are projected straight from their bytes with a
+ * {@link GnPacketView}, without decoding them into packet objects; row
+ * {@code i} of every column belongs to the {@code i}-th frame added.
+ * <p>
+ * The column getters return the backing arrays, which hold {@link #size()}
+ * valid rows. Fields that a packet does not hold are 0, see
+ * {@link #getPresence()}. A batch is not thread-safe.
+ * </p>
+ */
+public final class GnColumns {
+
+    /**
+     * Set in {@link #getPresence()} when the packet has a sequence number.
+     */
+    public static final byte SEQUENCE_NUMBER_PRESENT = 0x01;
+    /**
+     * Set in {@link #getPresence()} when the packet has a source position
+     * vector.
+     */
+    public static final byte SOURCE_POSITION_PRESENT = 0x02;
+    /**
+     * Set in {@link #getPresence()} when the packet has a Secure header.
+     */
+    public static final byte SECURED = 0x04;
+
+    private final GnPacketView view = new GnPacketView();
+    private final long[] timestamps;
+    private final byte[] presence;
+    private final byte[] remainingHopLimits;
+    private final byte[] nextHeaders;
+    private final byte[] headerTypes;
+    private final byte[] headerSubtypes;
+    private final byte[] trafficClasses;
+    private final short[] payloadLengths;
+    private final short[] sequenceNumbers;
+    private final long[] gnAddresses;
+    private final int[] tsts;
+    private final int[] latitudes;
+    private final int[] longitudes;
+    private final short[] speeds;
+    private final short[] headings;
+    private int size;
+
+    /**
+     * @param capacity the maximum number of rows.
+     */
+    public GnColumns(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity: " + capacity);
+        }
+        timestamps = new long[capacity];
+        presence = new byte[capacity];
+        remainingHopLimits = new byte[capacity];
+        nextHeaders = new byte[capacity];
+        headerTypes = new byte[capacity];
+        headerSubtypes = new byte[capacity];
+        trafficClasses = new byte[capacity];
+        payloadLengths = new short[capacity];
+        sequenceNumbers = new short[capacity];
+        gnAddresses = new long[capacity];
+        tsts = new int[capacity];
+        latitudes = new int[capacity];
+        longitudes = new int[capacity];
+        speeds = new short[capacity];
+        headings = new short[capacity];
+    }
+
+    /**
+     * Adds a row for the GeoNetworking packet in a captured frame.
+     *
+     * @param frame
+     * @param offset
+     * @param length
+     * @param dataLinkType the link type of the frame.
+     * @param timestamp the capture time in nanoseconds since the epoch.
+     * @return {@code false} if the batch is full, or if the frame does not
+     * carry a GeoNetworking packet with a Common header that fits the data.
+     */
+    public boolean add(byte[] frame, int offset, int length, DataLinkType dataLinkType, long timestamp) {
+        return !isFull() && view.wrapFrame(frame, offset, length, dataLinkType) && add(timestamp);
+    }
+
+    /**
+     * Adds a row for a GeoNetworking packet, starting with its Basic header.
+     *
+     * @param data
+     * @param offset
+     * @param length
+     * @param timestamp the capture time in nanoseconds since the epoch.
+     * @return {@code false} if the batch is full, or if the packet does not
+     * have a Common header that fits the data.
+     */
+    public boolean add(byte[] data, int offset, int length, long timestamp) {
+        return !isFull() && view.wrap(data, offset, length) && add(timestamp);
+    }
+
+    private boolean add(long timestamp) {
+        if (!view.hasCommonHeader()) {
+            return false;
+        }
+        final int row = size++;
+        byte flags = view.hasSecureHeader() ? SECURED : 0;
+        timestamps[row] = timestamp;
+        remainingHopLimits[row] = view.getRemainingHopLimit();
+        nextHeaders[row] = view.getNextHeader();
+        headerTypes[row] = view.getHeaderType();
+        headerSubtypes[row] = view.getHeaderSubtype();
+        trafficClasses[row] = view.getTrafficClass();
+        payloadLengths[row] = view.getPayloadLength();
+        if (view.hasSequenceNumber()) {
+            flags |= SEQUENCE_NUMBER_PRESENT;
+            sequenceNumbers[row] = view.getSequenceNumber();
+        } else {
+            sequenceNumbers[row] = 0;
+        }
+        if (view.hasSourcePosition()) {
+            flags |= SOURCE_POSITION_PRESENT;
+            gnAddresses[row] = view.getSourceGnAddress();
+            tsts[row] = view.getSourceTst();
+            latitudes[row] = view.getSourceLatitude();
+            longitudes[row] = view.getSourceLongitude();
+            speeds[row] = view.getSourceSpeed();
+            headings[row] = view.getSourceHeading();
+        } else {
+            gnAddresses[row] = 0;
+            tsts[row] = 0;
+            latitudes[row] = 0;
+            longitudes[row] = 0;
+            speeds[row] = 0;
+            headings[row] = 0;
+        }
+        presence[row] = flags;
+        return true;
+    }
+
+    /**
+     * Removes all rows; the columns are reused.
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return timestamps.length;
+    }
+
+    public boolean isFull() {
+        return size == timestamps.length;
+    }
+
+    /**
+     * @return the capture times in nanoseconds since the epoch.
+     */
+    public long[] getTimestamps() {
+        return timestamps;
+    }
+
+    /**
+     * @return the combination of {@link #SEQUENCE_NUMBER_PRESENT},
+     * {@link #SOURCE_POSITION_PRESENT} and {@link #SECURED} of every row.
+     */
+    public byte[] getPresence() {
+        return presence;
+    }
+
+    public byte[] getRemainingHopLimits() {
+        return remainingHopLimits;
+    }
+
+    /**
+     * @return the values of the {@code GnTransportType} of the payloads.
+     */
+    public byte[] getNextHeaders() {
+        return nextHeaders;
+    }
+
+    /**
+     * @return the values of the {@code GnPacketHeaderType}.
+     */
+    public byte[] getHeaderTypes() {
+        return headerTypes;
+    }
+
+    /**
+     * @return the values of the {@code GnPacketHeaderSubtype}.
+     */
+    public byte[] getHeaderSubtypes() {
+        return headerSubtypes;
+    }
+
+    public byte[] getTrafficClasses() {
+        return trafficClasses;
+    }
+
+    public short[] getPayloadLengths() {
+        return payloadLengths;
+    }
+
+    public short[] getSequenceNumbers() {
+        return sequenceNumbers;
+    }
+
+    /**
+     * @return the source GN addresses as big-endian longs, see the static
+     * helpers of {@link GnPacketView}.
+     */
+    public long[] getGnAddresses() {
+        return gnAddresses;
+    }
+
+    /**
+     * @return the source timestamps, in milliseconds modulo 2<sup>32</sup>.
+     */
+    public int[] getTsts() {
+        return tsts;
+    }
+
+    /**
+     * @return the source latitudes in 1/10 microdegree.
+     */
+    public int[] getLatitudes() {
+        return latitudes;
+    }
+
+    /**
+     * @return the source longitudes in 1/10 microdegree.
+     */
+    public int[] getLongitudes() {
+        return longitudes;
+    }
+
+    /**
+     * @return the source speeds in 0.01 m/s.
+     */
+    public short[] getSpeeds() {
+        return speeds;
+    }
+
+    /**
+     * @return the source headings in 0.1 degree.
+     */
+    public short[] getHeadings() {
+        return headings;
+    }
+}
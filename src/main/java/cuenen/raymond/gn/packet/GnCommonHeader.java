@@ -2,31 +2,35 @@ package cuenen.raymond.gn.packet;
 
 import cuenen.raymond.gn.packet.GeoNetworkingPacket.GnHeader;
 import cuenen.raymond.gn.packet.namednumber.GnExtendedHeaderType;
-import cuenen.raymond.gn.packet.namednumber.GnPacketHeaderSubtype;
-import cuenen.raymond.gn.packet.namednumber.GnPacketHeaderType;
 import cuenen.raymond.gn.packet.namednumber.GnTransportType;
 import cuenen.raymond.gn.util.BitValues;
+import cuenen.raymond.gn.util.ByteBuffers;
+import cuenen.raymond.gn.util.HeaderLayout;
+import java.nio.ByteBuffer;
 import org.pcap4j.packet.IllegalRawDataException;
 import org.pcap4j.util.ByteArrays;
 import static org.pcap4j.util.ByteArrays.*;
 
 public final class GnCommonHeader implements GnHeader {
 
-    private static final int NH_OFFSET = 0;
-    private static final int NH_SIZE = BYTE_SIZE_IN_BYTES;
-    private static final int HT_HST_OFFSET = NH_OFFSET + NH_SIZE;
-    private static final int HT_HST_SIZE = BYTE_SIZE_IN_BYTES;
-    private static final int TC_OFFSET = HT_HST_OFFSET + HT_HST_SIZE;
-    private static final int TC_SIZE = BYTE_SIZE_IN_BYTES;
-    private static final int FLAGS_OFFSET = TC_OFFSET + TC_SIZE;
-    private static final int FLAGS_SIZE = BYTE_SIZE_IN_BYTES;
-    private static final int PL_OFFSET = FLAGS_OFFSET + FLAGS_SIZE;
-    private static final int PL_SIZE = SHORT_SIZE_IN_BYTES;
-    private static final int MHL_OFFSET = PL_OFFSET + PL_SIZE;
-    private static final int MHL_SIZE = BYTE_SIZE_IN_BYTES;
-    private static final int RESERVED_OFFSET = MHL_OFFSET + MHL_SIZE;
-    private static final int RESERVED_SIZE = BYTE_SIZE_IN_BYTES;
-    private static final int COMMON_HEADER_SIZE = RESERVED_OFFSET + RESERVED_SIZE;
+    public static final HeaderLayout LAYOUT = HeaderLayout.builder("Common Header")
+            .field("Next Header", BYTE_SIZE_IN_BYTES)
+            .field("Header Type and Subtype", BYTE_SIZE_IN_BYTES)
+            .field("Traffic Class", BYTE_SIZE_IN_BYTES)
+            .field("Flags", BYTE_SIZE_IN_BYTES)
+            .field("Payload Length", SHORT_SIZE_IN_BYTES)
+            .field("Maximum Hop Limit", BYTE_SIZE_IN_BYTES)
+            .field("Reserved", BYTE_SIZE_IN_BYTES)
+            .build();
+    private static final int NH_OFFSET = LAYOUT.offsetOf("Next Header");
+    private static final int HT_HST_OFFSET = LAYOUT.offsetOf("Header Type and Subtype");
+    private static final int TC_OFFSET = LAYOUT.offsetOf("Traffic Class");
+    private static final int FLAGS_OFFSET = LAYOUT.offsetOf("Flags");
+    private static final int PL_OFFSET = LAYOUT.offsetOf("Payload Length");
+    private static final int MHL_OFFSET = LAYOUT.offsetOf("Maximum Hop Limit");
+    private static final int RESERVED_OFFSET = LAYOUT.offsetOf("Reserved");
+    private static final int COMMON_HEADER_SIZE = LAYOUT.length();
+    public static final int SIZE_IN_BYTES = COMMON_HEADER_SIZE;
 
     private final GnTransportType nextHeader;
     private final byte reserved1;
@@ -50,25 +54,67 @@ public final class GnCommonHeader implements GnHeader {
      */
     public static GnCommonHeader newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
         ByteArrays.validateBounds(rawData, offset, length);
-        return new GnCommonHeader(rawData, offset, length);
+        return new GnCommonHeader(ByteBuffers.view(rawData), offset, length);
     }
 
-    private GnCommonHeader(byte[] rawData, int offset, int length) throws IllegalRawDataException {
+    /**
+     * A static factory method that decodes from a buffer, which may be direct
+     * or mapped. The offset is an absolute index in the buffer. This method
+     * validates the arguments by
+     * {@link ByteBuffers#validateBounds(ByteBuffer, int, int)}, which may throw
+     * exceptions undocumented here.
+     *
+     * @param buffer
+     * @param offset
+     * @param length
+     * @return a new GnCommonHeader object.
+     * @throws org.pcap4j.packet.IllegalRawDataException
+     */
+    public static GnCommonHeader newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+        ByteBuffers.validateBounds(buffer, offset, length);
+        return new GnCommonHeader(buffer, offset, length);
+    }
+
+    private GnCommonHeader(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
         if (length < COMMON_HEADER_SIZE) {
             throw new IllegalRawDataException("The data is too short to build a Common header");
         }
-        byte val = ByteArrays.getByte(rawData, NH_OFFSET + offset);
+        byte val = ByteBuffers.getByte(buffer, NH_OFFSET + offset);
         nextHeader = GnTransportType.getInstance((byte) ((val >> 4) & 0x0F));
         reserved1 = (byte) (val & 0x0F);
-        val = ByteArrays.getByte(rawData, HT_HST_OFFSET + offset);
-        final GnPacketHeaderType ht = GnPacketHeaderType.getInstance((byte) ((val >> 4) & 0x0F));
-        final GnPacketHeaderSubtype hst = GnPacketHeaderSubtype.getInstance(ht, (byte) (val & 0x0F));
-        extendedHeader = GnExtendedHeaderType.newInstance(ht, hst);
-        trafficClass = ByteArrays.getByte(rawData, TC_OFFSET + offset);
-        flags = ByteArrays.getByte(rawData, FLAGS_OFFSET + offset);
-        payloadLength = ByteArrays.getShort(rawData, PL_OFFSET + offset);
-        maximumHopLimit = ByteArrays.getByte(rawData, MHL_OFFSET + offset);
-        reserved2 = ByteArrays.getByte(rawData, RESERVED_OFFSET + offset);
+        extendedHeader = GnExtendedHeaderType.getInstance(ByteBuffers.getByte(buffer, HT_HST_OFFSET + offset));
+        trafficClass = ByteBuffers.getByte(buffer, TC_OFFSET + offset);
+        flags = ByteBuffers.getByte(buffer, FLAGS_OFFSET + offset);
+        payloadLength = ByteBuffers.getShort(buffer, PL_OFFSET + offset);
+        maximumHopLimit = ByteBuffers.getByte(buffer, MHL_OFFSET + offset);
+        reserved2 = ByteBuffers.getByte(buffer, RESERVED_OFFSET + offset);
+    }
+
+    private GnCommonHeader(Builder builder) {
+        nextHeader = builder.nextHeader;
+        reserved1 = builder.reserved1;
+        extendedHeader = builder.extendedHeader;
+        trafficClass = builder.trafficClass;
+        flags = builder.flags;
+        payloadLength = builder.payloadLength;
+        maximumHopLimit = builder.maximumHopLimit;
+        reserved2 = builder.reserved2;
+    }
+
+    static GnTransportType nextHeaderOf(byte[] rawData, int offset) {
+        return GnTransportType.getInstance((byte) ((ByteArrays.getByte(rawData, NH_OFFSET + offset) >> 4) & 0x0F));
+    }
+
+    static GnExtendedHeaderType extendedHeaderOf(byte[] rawData, int offset) {
+        return GnExtendedHeaderType.getInstance(ByteArrays.getByte(rawData, HT_HST_OFFSET + offset));
+    }
+
+    static GnTransportType nextHeaderOf(ByteBuffer buffer, int offset) {
+        return GnTransportType.getInstance((byte) ((ByteBuffers.getByte(buffer, NH_OFFSET + offset) >> 4) & 0x0F));
+    }
+
+    static GnExtendedHeaderType extendedHeaderOf(ByteBuffer buffer, int offset) {
+        return GnExtendedHeaderType.getInstance(ByteBuffers.getByte(buffer, HT_HST_OFFSET + offset));
     }
 
     public GnTransportType getNextHeader() {
@@ -103,6 +149,10 @@ public final class GnCommonHeader implements GnHeader {
         return reserved2;
     }
 
+    public Builder getBuilder() {
+        return new Builder(this);
+    }
+
     @Override
     public int length() {
         return COMMON_HEADER_SIZE;
@@ -110,16 +160,20 @@ public final class GnCommonHeader implements GnHeader {
 
     @Override
     public byte[] rawData() {
-        final byte[] rawData = new byte[COMMON_HEADER_SIZE];
-        rawData[NH_OFFSET] = (byte) ((nextHeader.value() << 4) | reserved1);
-        rawData[HT_HST_OFFSET] = extendedHeader.value();
-        rawData[TC_OFFSET] = trafficClass;
-        rawData[FLAGS_OFFSET] = flags;
-        rawData[PL_OFFSET] = (byte) (payloadLength >> 8);
-        rawData[PL_OFFSET + 1] = (byte) payloadLength;
-        rawData[MHL_OFFSET] = maximumHopLimit;
-        rawData[RESERVED_OFFSET] = reserved2;
-        return rawData;
+        final ByteBuffer buffer = ByteBuffer.allocate(COMMON_HEADER_SIZE);
+        writeTo(buffer, 0);
+        return buffer.array();
+    }
+
+    @Override
+    public void writeTo(ByteBuffer buffer, int offset) {
+        ByteBuffers.putByte(buffer, NH_OFFSET + offset, (byte) ((nextHeader.value() << 4) | reserved1));
+        ByteBuffers.putByte(buffer, HT_HST_OFFSET + offset, extendedHeader.value());
+        ByteBuffers.putByte(buffer, TC_OFFSET + offset, trafficClass);
+        ByteBuffers.putByte(buffer, FLAGS_OFFSET + offset, flags);
+        ByteBuffers.putShort(buffer, PL_OFFSET + offset, payloadLength);
+        ByteBuffers.putByte(buffer, MHL_OFFSET + offset, maximumHopLimit);
+        ByteBuffers.putByte(buffer, RESERVED_OFFSET + offset, reserved2);
     }
 
     @Override
@@ -190,4 +244,89 @@ public final class GnCommonHeader implements GnHeader {
         hash = hash * 41 + reserved2;
         return hash;
     }
+
+    public static final class Builder {
+
+        private GnTransportType nextHeader;
+        private byte reserved1;
+        private GnExtendedHeaderType extendedHeader;
+        private byte trafficClass;
+        private byte flags;
+        private short payloadLength;
+        private byte maximumHopLimit;
+        private byte reserved2;
+
+        public Builder() {
+        }
+
+        public Builder(GnCommonHeader header) {
+            nextHeader = header.nextHeader;
+            reserved1 = header.reserved1;
+            extendedHeader = header.extendedHeader;
+            trafficClass = header.trafficClass;
+            flags = header.flags;
+            payloadLength = header.payloadLength;
+            maximumHopLimit = header.maximumHopLimit;
+            reserved2 = header.reserved2;
+        }
+
+        public Builder nextHeader(GnTransportType nextHeader) {
+            this.nextHeader = nextHeader;
+            return this;
+        }
+
+        public Builder reserved1(byte reserved1) {
+            this.reserved1 = reserved1;
+            return this;
+        }
+
+        public Builder extendedHeader(GnExtendedHeaderType extendedHeader) {
+            this.extendedHeader = extendedHeader;
+            return this;
+        }
+
+        public Builder trafficClass(byte trafficClass) {
+            this.trafficClass = trafficClass;
+            return this;
+        }
+
+        public Builder flags(byte flags) {
+            this.flags = flags;
+            return this;
+        }
+
+        public Builder payloadLength(short payloadLength) {
+            this.payloadLength = payloadLength;
+            return this;
+        }
+
+        public Builder maximumHopLimit(byte maximumHopLimit) {
+            this.maximumHopLimit = maximumHopLimit;
+            return this;
+        }
+
+        public Builder reserved2(byte reserved2) {
+            this.reserved2 = reserved2;
+            return this;
+        }
+
+        /**
+         * @return a new GnCommonHeader object.
+         * @throws NullPointerException if the next header or the extended header
+         * is not set.
+         * @throws IllegalArgumentException if reserved1 does not fit in 4 bits.
+         */
+        public GnCommonHeader build() {
+            if (nextHeader == null) {
+                throw new NullPointerException("nextHeader may not be null");
+            }
+            if (extendedHeader == null) {
+                throw new NullPointerException("extendedHeader may not be null");
+            }
+            if ((reserved1 & 0xF0) != 0) {
+                throw new IllegalArgumentException("reserved1 does not fit in 4 bits: " + reserved1);
+            }
+            return new GnCommonHeader(this);
+        }
+    }
 }
@@ -1,7 +1,9 @@
 package cuenen.raymond.gn.packet;
 
 import cuenen.raymond.gn.packet.GeoNetworkingPacket.GnPacketHeader;
+import cuenen.raymond.gn.util.ByteBuffers;
 import cuenen.raymond.gn.util.LongPositionVector;
+import java.nio.ByteBuffer;
 import org.pcap4j.util.ByteArrays;
 
 public final class GnEmptyHeader implements GnPacketHeader {
@@ -9,7 +11,8 @@ public final class GnEmptyHeader implements GnPacketHeader {
     /**
      * A static factory method. This method validates the arguments by
      * {@link ByteArrays#validateBounds(byte[], int, int)}, which may throw
-     * exceptions undocumented here.
+     * exceptions undocumented here. An empty range is accepted, for a header
+     * that is missing altogether.
      *
      * @param rawData
      * @param offset
@@ -17,11 +20,33 @@ public final class GnEmptyHeader implements GnPacketHeader {
      * @return a new GnEmptyHeader object.
      */
     public static GnEmptyHeader newInstance(byte[] rawData, int offset, int length) {
-        ByteArrays.validateBounds(rawData, offset, length);
-        return new GnEmptyHeader(rawData, offset, length);
+        if (length != 0) {
+            ByteArrays.validateBounds(rawData, offset, length);
+        }
+        return new GnEmptyHeader();
     }
 
-    private GnEmptyHeader(byte[] rawData, int offset, int length) {
+    /**
+     * A static factory method that decodes from a buffer, which may be direct
+     * or mapped. The offset is an absolute index in the buffer. This method
+     * validates the arguments by
+     * {@link ByteBuffers#validateBounds(ByteBuffer, int, int)}, which may throw
+     * exceptions undocumented here. An empty range is accepted, for a header
+     * that is missing altogether.
+     *
+     * @param buffer
+     * @param offset
+     * @param length
+     * @return a new GnEmptyHeader object.
+     */
+    public static GnEmptyHeader newInstance(ByteBuffer buffer, int offset, int length) {
+        if (length != 0) {
+            ByteBuffers.validateBounds(buffer, offset, length);
+        }
+        return new GnEmptyHeader();
+    }
+
+    private GnEmptyHeader() {
     }
 
     @Override
@@ -39,6 +64,10 @@ public final class GnEmptyHeader implements GnPacketHeader {
         return new byte[0];
     }
 
+    @Override
+    public void writeTo(ByteBuffer buffer, int offset) {
+    }
+
     @Override
     public String toString() {
         return "";
@@ -1,29 +1,37 @@
 package cuenen.raymond.gn.packet;
 
 import cuenen.raymond.gn.packet.GeoNetworkingPacket.GnPacketHeader;
+import cuenen.raymond.gn.util.ByteBuffers;
 import cuenen.raymond.gn.util.GeoPosition;
+import cuenen.raymond.gn.util.HeaderLayout;
 import cuenen.raymond.gn.util.LongPositionVector;
+import java.nio.ByteBuffer;
 import org.pcap4j.packet.IllegalRawDataException;
 import org.pcap4j.util.ByteArrays;
 import static org.pcap4j.util.ByteArrays.*;
 
 public class GnGBCPacketHeader implements GnPacketHeader {
 
-    private static final int SN_OFFSET = 0;
-    private static final int SN_SIZE = SHORT_SIZE_IN_BYTES;
-    private static final int RESERVED1_OFFSET = SN_OFFSET + SN_SIZE;
-    private static final int RESERVED1_SIZE = SHORT_SIZE_IN_BYTES;
-    private static final int SO_PV_OFFSET = RESERVED1_OFFSET + RESERVED1_SIZE;
-    private static final int GEO_AREA_POS_OFFSET = SO_PV_OFFSET + LongPositionVector.SIZE_IN_BYTES;
-    private static final int DISTANCE_A_OFFSET = GEO_AREA_POS_OFFSET + GeoPosition.SIZE_IN_BYTES;
-    private static final int DISTANCE_A_SIZE = SHORT_SIZE_IN_BYTES;
-    private static final int DISTANCE_B_OFFSET = DISTANCE_A_OFFSET + DISTANCE_A_SIZE;
-    private static final int DISTANCE_B_SIZE = SHORT_SIZE_IN_BYTES;
-    private static final int ANGLE_OFFSET = DISTANCE_B_OFFSET + DISTANCE_B_SIZE;
-    private static final int ANGLE_SIZE = SHORT_SIZE_IN_BYTES;
-    private static final int RESERVED2_OFFSET = ANGLE_OFFSET + ANGLE_SIZE;
-    private static final int RESERVED2_SIZE = SHORT_SIZE_IN_BYTES;
-    private static final int GBC_PACKET_HEADER_SIZE = RESERVED2_OFFSET + RESERVED2_SIZE;
+    public static final HeaderLayout LAYOUT = HeaderLayout.builder("GeoBroadcast")
+            .field("Sequence Number", SHORT_SIZE_IN_BYTES)
+            .field("Reserved 1", SHORT_SIZE_IN_BYTES)
+            .field("Source Position Vector", LongPositionVector.LAYOUT)
+            .field("Geo Area Position", GeoPosition.LAYOUT)
+            .field("Distance A", SHORT_SIZE_IN_BYTES)
+            .field("Distance B", SHORT_SIZE_IN_BYTES)
+            .field("Angle", SHORT_SIZE_IN_BYTES)
+            .field("Reserved 2", SHORT_SIZE_IN_BYTES)
+            .build();
+    private static final int SN_OFFSET = LAYOUT.offsetOf("Sequence Number");
+    private static final int RESERVED1_OFFSET = LAYOUT.offsetOf("Reserved 1");
+    private static final int SO_PV_OFFSET = LAYOUT.offsetOf("Source Position Vector");
+    private static final int GEO_AREA_POS_OFFSET = LAYOUT.offsetOf("Geo Area Position");
+    private static final int DISTANCE_A_OFFSET = LAYOUT.offsetOf("Distance A");
+    private static final int DISTANCE_B_OFFSET = LAYOUT.offsetOf("Distance B");
+    private static final int ANGLE_OFFSET = LAYOUT.offsetOf("Angle");
+    private static final int RESERVED2_OFFSET = LAYOUT.offsetOf("Reserved 2");
+    private static final int GBC_PACKET_HEADER_SIZE = LAYOUT.length();
+    public static final int SIZE_IN_BYTES = GBC_PACKET_HEADER_SIZE;
 
     private final short sequenceNumber;
     private final short reserved1;
@@ -47,21 +55,50 @@ public class GnGBCPacketHeader implements GnPacketHeader {
      */
     public static GnGBCPacketHeader newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
         ByteArrays.validateBounds(rawData, offset, length);
-        return new GnGBCPacketHeader(rawData, offset, length);
+        return new GnGBCPacketHeader(ByteBuffers.view(rawData), offset, length);
     }
 
-    private GnGBCPacketHeader(byte[] rawData, int offset, int length) throws IllegalRawDataException {
+    /**
+     * A static factory method that decodes from a buffer, which may be direct
+     * or mapped. The offset is an absolute index in the buffer. This method
+     * validates the arguments by
+     * {@link ByteBuffers#validateBounds(ByteBuffer, int, int)}, which may throw
+     * exceptions undocumented here.
+     *
+     * @param buffer
+     * @param offset
+     * @param length
+     * @return a new GnGBCPacketHeader object.
+     * @throws org.pcap4j.packet.IllegalRawDataException
+     */
+    public static GnGBCPacketHeader newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+        ByteBuffers.validateBounds(buffer, offset, length);
+        return new GnGBCPacketHeader(buffer, offset, length);
+    }
+
+    private GnGBCPacketHeader(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
         if (length < GBC_PACKET_HEADER_SIZE) {
             throw new IllegalRawDataException("The data is too short to build a GUC packet header");
         }
-        sequenceNumber = ByteArrays.getShort(rawData, SN_OFFSET + offset);
-        reserved1 = ByteArrays.getShort(rawData, RESERVED1_OFFSET + offset);
-        source = LongPositionVector.newInstance(rawData, SO_PV_OFFSET + offset, length - SO_PV_OFFSET);
-        position = GeoPosition.newInstance(rawData, GEO_AREA_POS_OFFSET + offset, length - GEO_AREA_POS_OFFSET);
-        distanceA = ByteArrays.getShort(rawData, DISTANCE_A_OFFSET + offset);
-        distanceB = ByteArrays.getShort(rawData, DISTANCE_B_OFFSET + offset);
-        angle = ByteArrays.getShort(rawData, ANGLE_OFFSET + offset);
-        reserved2 = ByteArrays.getShort(rawData, RESERVED2_OFFSET + offset);
+        sequenceNumber = ByteBuffers.getShort(buffer, SN_OFFSET + offset);
+        reserved1 = ByteBuffers.getShort(buffer, RESERVED1_OFFSET + offset);
+        source = LongPositionVector.newInstance(buffer, SO_PV_OFFSET + offset, length - SO_PV_OFFSET);
+        position = GeoPosition.newInstance(buffer, GEO_AREA_POS_OFFSET + offset, length - GEO_AREA_POS_OFFSET);
+        distanceA = ByteBuffers.getShort(buffer, DISTANCE_A_OFFSET + offset);
+        distanceB = ByteBuffers.getShort(buffer, DISTANCE_B_OFFSET + offset);
+        angle = ByteBuffers.getShort(buffer, ANGLE_OFFSET + offset);
+        reserved2 = ByteBuffers.getShort(buffer, RESERVED2_OFFSET + offset);
+    }
+
+    private GnGBCPacketHeader(Builder builder) {
+        sequenceNumber = builder.sequenceNumber;
+        reserved1 = builder.reserved1;
+        source = builder.source;
+        position = builder.position;
+        distanceA = builder.distanceA;
+        distanceB = builder.distanceB;
+        angle = builder.angle;
+        reserved2 = builder.reserved2;
     }
 
     public short getSequenceNumber() {
@@ -97,6 +134,10 @@ public class GnGBCPacketHeader implements GnPacketHeader {
         return reserved2;
     }
 
+    public Builder getBuilder() {
+        return new Builder(this);
+    }
+
     @Override
     public int length() {
         return GBC_PACKET_HEADER_SIZE;
@@ -104,22 +145,21 @@ public class GnGBCPacketHeader implements GnPacketHeader {
 
     @Override
     public byte[] rawData() {
-        final byte[] rawData = new byte[GBC_PACKET_HEADER_SIZE];
-        rawData[SN_OFFSET] = (byte) (sequenceNumber >> 8);
-        rawData[SN_OFFSET + 1] = (byte) sequenceNumber;
-        rawData[RESERVED1_OFFSET] = (byte) (reserved1 >> 8);
-        rawData[RESERVED1_OFFSET + 1] = (byte) reserved1;
-        source.writeTo(rawData, SO_PV_OFFSET);
-        position.writeTo(rawData, GEO_AREA_POS_OFFSET);
-        rawData[DISTANCE_A_OFFSET] = (byte) (distanceA >> 8);
-        rawData[DISTANCE_A_OFFSET + 1] = (byte) distanceA;
-        rawData[DISTANCE_B_OFFSET] = (byte) (distanceB >> 8);
-        rawData[DISTANCE_B_OFFSET + 1] = (byte) distanceB;
-        rawData[ANGLE_OFFSET] = (byte) (angle >> 8);
-        rawData[ANGLE_OFFSET + 1] = (byte) angle;
-        rawData[RESERVED2_OFFSET] = (byte) (reserved2 >> 8);
-        rawData[RESERVED2_OFFSET + 1] = (byte) reserved2;
-        return rawData;
+        final ByteBuffer buffer = ByteBuffer.allocate(GBC_PACKET_HEADER_SIZE);
+        writeTo(buffer, 0);
+        return buffer.array();
+    }
+
+    @Override
+    public void writeTo(ByteBuffer buffer, int offset) {
+        ByteBuffers.putShort(buffer, SN_OFFSET + offset, sequenceNumber);
+        ByteBuffers.putShort(buffer, RESERVED1_OFFSET + offset, reserved1);
+        source.writeTo(buffer, SO_PV_OFFSET + offset);
+        position.writeTo(buffer, GEO_AREA_POS_OFFSET + offset);
+        ByteBuffers.putShort(buffer, DISTANCE_A_OFFSET + offset, distanceA);
+        ByteBuffers.putShort(buffer, DISTANCE_B_OFFSET + offset, distanceB);
+        ByteBuffers.putShort(buffer, ANGLE_OFFSET + offset, angle);
+        ByteBuffers.putShort(buffer, RESERVED2_OFFSET + offset, reserved2);
     }
 
     @Override
@@ -147,7 +187,7 @@ public class GnGBCPacketHeader implements GnPacketHeader {
         if (obj instanceof GnGBCPacketHeader) {
             GnGBCPacketHeader that = (GnGBCPacketHeader) obj;
             return this.sequenceNumber == that.sequenceNumber
-                    && this.reserved1 == that.reserved2
+                    && this.reserved1 == that.reserved1
                     && this.source.equals(that.source)
                     && this.position.equals(that.position)
                     && this.distanceA == that.distanceA
@@ -171,4 +211,85 @@ public class GnGBCPacketHeader implements GnPacketHeader {
         hash = hash * 41 + reserved2;
         return hash;
     }
+
+    public static final class Builder {
+
+        private short sequenceNumber;
+        private short reserved1;
+        private LongPositionVector source;
+        private GeoPosition position;
+        private short distanceA;
+        private short distanceB;
+        private short angle;
+        private short reserved2;
+
+        public Builder() {
+        }
+
+        public Builder(GnGBCPacketHeader header) {
+            sequenceNumber = header.sequenceNumber;
+            reserved1 = header.reserved1;
+            source = header.source;
+            position = header.position;
+            distanceA = header.distanceA;
+            distanceB = header.distanceB;
+            angle = header.angle;
+            reserved2 = header.reserved2;
+        }
+
+        public Builder sequenceNumber(short sequenceNumber) {
+            this.sequenceNumber = sequenceNumber;
+            return this;
+        }
+
+        public Builder reserved1(short reserved1) {
+            this.reserved1 = reserved1;
+            return this;
+        }
+
+        public Builder source(LongPositionVector source) {
+            this.source = source;
+            return this;
+        }
+
+        public Builder position(GeoPosition position) {
+            this.position = position;
+            return this;
+        }
+
+        public Builder distanceA(short distanceA) {
+            this.distanceA = distanceA;
+            return this;
+        }
+
+        public Builder distanceB(short distanceB) {
+            this.distanceB = distanceB;
+            return this;
+        }
+
+        public Builder angle(short angle) {
+            this.angle = angle;
+            return this;
+        }
+
+        public Builder reserved2(short reserved2) {
+            this.reserved2 = reserved2;
+            return this;
+        }
+
+        /**
+         * @return a new GnGBCPacketHeader object.
+         * @throws NullPointerException if the source or the area position is not
+         * set.
+         */
+        public GnGBCPacketHeader build() {
+            if (source == null) {
+                throw new NullPointerException("source may not be null");
+            }
+            if (position == null) {
+                throw new NullPointerException("position may not be null");
+            }
+            return new GnGBCPacketHeader(this);
+        }
+    }
 }
@@ -1,21 +1,29 @@
 package cuenen.raymond.gn.packet;
 
+import cuenen.raymond.gn.util.ByteBuffers;
+import cuenen.raymond.gn.util.HeaderLayout;
 import cuenen.raymond.gn.util.LongPositionVector;
 import cuenen.raymond.gn.util.ShortPositionVector;
 import cuenen.raymond.gn.packet.GeoNetworkingPacket.GnPacketHeader;
+import java.nio.ByteBuffer;
 import org.pcap4j.packet.IllegalRawDataException;
 import org.pcap4j.util.ByteArrays;
 import static org.pcap4j.util.ByteArrays.SHORT_SIZE_IN_BYTES;
 
 public final class GnLSReplyPacketHeader implements GnPacketHeader {
 
-    private static final int SN_OFFSET = 0;
-    private static final int SN_SIZE = SHORT_SIZE_IN_BYTES;
-    private static final int RESERVED_OFFSET = SN_OFFSET + SN_SIZE;
-    private static final int RESERVED_SIZE = SHORT_SIZE_IN_BYTES;
-    private static final int SO_PV_OFFSET = RESERVED_OFFSET + RESERVED_SIZE;
-    private static final int DE_PV_OFFSET = SO_PV_OFFSET + LongPositionVector.SIZE_IN_BYTES;
-    private static final int LS_REPLY_PACKET_HEADER_SIZE = DE_PV_OFFSET + ShortPositionVector.SIZE_IN_BYTES;
+    public static final HeaderLayout LAYOUT = HeaderLayout.builder("Location Service Reply")
+            .field("Sequence Number", SHORT_SIZE_IN_BYTES)
+            .field("Reserved", SHORT_SIZE_IN_BYTES)
+            .field("Source Position Vector", LongPositionVector.LAYOUT)
+            .field("Destination Position Vector", ShortPositionVector.LAYOUT)
+            .build();
+    private static final int SN_OFFSET = LAYOUT.offsetOf("Sequence Number");
+    private static final int RESERVED_OFFSET = LAYOUT.offsetOf("Reserved");
+    private static final int SO_PV_OFFSET = LAYOUT.offsetOf("Source Position Vector");
+    private static final int DE_PV_OFFSET = LAYOUT.offsetOf("Destination Position Vector");
+    private static final int LS_REPLY_PACKET_HEADER_SIZE = LAYOUT.length();
+    public static final int SIZE_IN_BYTES = LS_REPLY_PACKET_HEADER_SIZE;
 
     private final short sequenceNumber;
     private final short reserved;
@@ -35,17 +43,42 @@ public final class GnLSReplyPacketHeader implements GnPacketHeader {
      */
     public static GnLSReplyPacketHeader newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
         ByteArrays.validateBounds(rawData, offset, length);
-        return new GnLSReplyPacketHeader(rawData, offset, length);
+        return new GnLSReplyPacketHeader(ByteBuffers.view(rawData), offset, length);
     }
 
-    private GnLSReplyPacketHeader(byte[] rawData, int offset, int length) throws IllegalRawDataException {
+    /**
+     * A static factory method that decodes from a buffer, which may be direct
+     * or mapped. The offset is an absolute index in the buffer. This method
+     * validates the arguments by
+     * {@link ByteBuffers#validateBounds(ByteBuffer, int, int)}, which may throw
+     * exceptions undocumented here.
+     *
+     * @param buffer
+     * @param offset
+     * @param length
+     * @return a new GnLSReplyPacketHeader object.
+     * @throws org.pcap4j.packet.IllegalRawDataException
+     */
+    public static GnLSReplyPacketHeader newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+        ByteBuffers.validateBounds(buffer, offset, length);
+        return new GnLSReplyPacketHeader(buffer, offset, length);
+    }
+
+    private GnLSReplyPacketHeader(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
         if (length < LS_REPLY_PACKET_HEADER_SIZE) {
             throw new IllegalRawDataException("The data is too short to build a GUC packet header");
         }
-        sequenceNumber = ByteArrays.getShort(rawData, SN_OFFSET + offset);
-        reserved = ByteArrays.getShort(rawData, RESERVED_OFFSET + offset);
-        source = LongPositionVector.newInstance(rawData, SO_PV_OFFSET + offset, length - SO_PV_OFFSET);
-        destination = ShortPositionVector.newInstance(rawData, DE_PV_OFFSET + offset, length - DE_PV_OFFSET);
+        sequenceNumber = ByteBuffers.getShort(buffer, SN_OFFSET + offset);
+        reserved = ByteBuffers.getShort(buffer, RESERVED_OFFSET + offset);
+        source = LongPositionVector.newInstance(buffer, SO_PV_OFFSET + offset, length - SO_PV_OFFSET);
+        destination = ShortPositionVector.newInstance(buffer, DE_PV_OFFSET + offset, length - DE_PV_OFFSET);
+    }
+
+    private GnLSReplyPacketHeader(Builder builder) {
+        sequenceNumber = builder.sequenceNumber;
+        reserved = builder.reserved;
+        source = builder.source;
+        destination = builder.destination;
     }
 
     public short getSequenceNumber() {
@@ -65,6 +98,10 @@ public final class GnLSReplyPacketHeader implements GnPacketHeader {
         return destination;
     }
 
+    public Builder getBuilder() {
+        return new Builder(this);
+    }
+
     @Override
     public int length() {
         return LS_REPLY_PACKET_HEADER_SIZE;
@@ -72,14 +109,17 @@ public final class GnLSReplyPacketHeader implements GnPacketHeader {
 
     @Override
     public byte[] rawData() {
-        final byte[] rawData = new byte[LS_REPLY_PACKET_HEADER_SIZE];
-        rawData[SN_OFFSET] = (byte) (sequenceNumber >> 8);
-        rawData[SN_OFFSET + 1] = (byte) sequenceNumber;
-        rawData[RESERVED_OFFSET] = (byte) (reserved >> 8);
-        rawData[RESERVED_OFFSET + 1] = (byte) reserved;
-        source.writeTo(rawData, SO_PV_OFFSET);
-        destination.writeTo(rawData, DE_PV_OFFSET);
-        return rawData;
+        final ByteBuffer buffer = ByteBuffer.allocate(LS_REPLY_PACKET_HEADER_SIZE);
+        writeTo(buffer, 0);
+        return buffer.array();
+    }
+
+    @Override
+    public void writeTo(ByteBuffer buffer, int offset) {
+        ByteBuffers.putShort(buffer, SN_OFFSET + offset, sequenceNumber);
+        ByteBuffers.putShort(buffer, RESERVED_OFFSET + offset, reserved);
+        source.writeTo(buffer, SO_PV_OFFSET + offset);
+        destination.writeTo(buffer, DE_PV_OFFSET + offset);
     }
 
     @Override
@@ -117,4 +157,56 @@ public final class GnLSReplyPacketHeader implements GnPacketHeader {
         hash = hash * 41 + destination.hashCode();
         return hash;
     }
+
+    public static final class Builder {
+
+        private short sequenceNumber;
+        private short reserved;
+        private LongPositionVector source;
+        private ShortPositionVector destination;
+
+        public Builder() {
+        }
+
+        public Builder(GnLSReplyPacketHeader header) {
+            sequenceNumber = header.sequenceNumber;
+            reserved = header.reserved;
+            source = header.source;
+            destination = header.destination;
+        }
+
+        public Builder sequenceNumber(short sequenceNumber) {
+            this.sequenceNumber = sequenceNumber;
+            return this;
+        }
+
+        public Builder reserved(short reserved) {
+            this.reserved = reserved;
+            return this;
+        }
+
+        public Builder source(LongPositionVector source) {
+            this.source = source;
+            return this;
+        }
+
+        public Builder destination(ShortPositionVector destination) {
+            this.destination = destination;
+            return this;
+        }
+
+        /**
+         * @return a new GnLSReplyPacketHeader object.
+         * @throws NullPointerException if a position vector is not set.
+         */
+        public GnLSReplyPacketHeader build() {
+            if (source == null) {
+                throw new NullPointerException("source may not be null");
+            }
+            if (destination == null) {
+                throw new NullPointerException("destination may not be null");
+            }
+            return new GnLSReplyPacketHeader(this);
+        }
+    }
 }
@@ -3,21 +3,29 @@ package cuenen.raymond.gn.packet;
 import cuenen.raymond.gn.packet.GeoNetworkingPacket.GnPacketHeader;
 import cuenen.raymond.gn.packet.namednumber.ItsStationType;
 import cuenen.raymond.gn.util.BitValues;
+import cuenen.raymond.gn.util.ByteBuffers;
 import cuenen.raymond.gn.util.GnAddress;
+import cuenen.raymond.gn.util.HeaderLayout;
 import cuenen.raymond.gn.util.LongPositionVector;
+import java.nio.ByteBuffer;
 import org.pcap4j.packet.IllegalRawDataException;
 import org.pcap4j.util.ByteArrays;
 import static org.pcap4j.util.ByteArrays.SHORT_SIZE_IN_BYTES;
 
 public class GnLSRequestPacketHeader implements GnPacketHeader {
 
-    private static final int SN_OFFSET = 0;
-    private static final int SN_SIZE = SHORT_SIZE_IN_BYTES;
-    private static final int RESERVED_OFFSET = SN_OFFSET + SN_SIZE;
-    private static final int RESERVED_SIZE = SHORT_SIZE_IN_BYTES;
-    private static final int SO_PV_OFFSET = RESERVED_OFFSET + RESERVED_SIZE;
-    private static final int REQUEST_GN_ADDRESS_OFFSET = SO_PV_OFFSET + LongPositionVector.SIZE_IN_BYTES;
-    private static final int LS_REQUEST_PACKET_HEADER_SIZE = REQUEST_GN_ADDRESS_OFFSET + GnAddress.SIZE_IN_BYTES;
+    public static final HeaderLayout LAYOUT = HeaderLayout.builder("Location Service Request")
+            .field("Sequence Number", SHORT_SIZE_IN_BYTES)
+            .field("Reserved", SHORT_SIZE_IN_BYTES)
+            .field("Source Position Vector", LongPositionVector.LAYOUT)
+            .field("Request GN Address", GnAddress.SIZE_IN_BYTES)
+            .build();
+    private static final int SN_OFFSET = LAYOUT.offsetOf("Sequence Number");
+    private static final int RESERVED_OFFSET = LAYOUT.offsetOf("Reserved");
+    private static final int SO_PV_OFFSET = LAYOUT.offsetOf("Source Position Vector");
+    private static final int REQUEST_GN_ADDRESS_OFFSET = LAYOUT.offsetOf("Request GN Address");
+    private static final int LS_REQUEST_PACKET_HEADER_SIZE = LAYOUT.length();
+    public static final int SIZE_IN_BYTES = LS_REQUEST_PACKET_HEADER_SIZE;
 
     private final short sequenceNumber;
     private final short reserved;
@@ -37,17 +45,42 @@ public class GnLSRequestPacketHeader implements GnPacketHeader {
      */
     public static GnLSRequestPacketHeader newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
         ByteArrays.validateBounds(rawData, offset, length);
-        return new GnLSRequestPacketHeader(rawData, offset, length);
+        return new GnLSRequestPacketHeader(ByteBuffers.view(rawData), offset, length);
     }
 
-    private GnLSRequestPacketHeader(byte[] rawData, int offset, int length) throws IllegalRawDataException {
+    /**
+     * A static factory method that decodes from a buffer, which may be direct
+     * or mapped. The offset is an absolute index in the buffer. This method
+     * validates the arguments by
+     * {@link ByteBuffers#validateBounds(ByteBuffer, int, int)}, which may throw
+     * exceptions undocumented here.
+     *
+     * @param buffer
+     * @param offset
+     * @param length
+     * @return a new GnBeaconPacketHeader object.
+     * @throws org.pcap4j.packet.IllegalRawDataException
+     */
+    public static GnLSRequestPacketHeader newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+        ByteBuffers.validateBounds(buffer, offset, length);
+        return new GnLSRequestPacketHeader(buffer, offset, length);
+    }
+
+    private GnLSRequestPacketHeader(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
         if (length < LS_REQUEST_PACKET_HEADER_SIZE) {
             throw new IllegalRawDataException("The data is too short to build a GUC packet header");
         }
-        sequenceNumber = ByteArrays.getShort(rawData, SN_OFFSET + offset);
-        reserved = ByteArrays.getShort(rawData, RESERVED_OFFSET + offset);
-        source = LongPositionVector.newInstance(rawData, SO_PV_OFFSET + offset, length - SO_PV_OFFSET);
-        requestAddress = GnAddress.getByAddress(ByteArrays.getSubArray(rawData, REQUEST_GN_ADDRESS_OFFSET + offset, GnAddress.SIZE_IN_BYTES));
+        sequenceNumber = ByteBuffers.getShort(buffer, SN_OFFSET + offset);
+        reserved = ByteBuffers.getShort(buffer, RESERVED_OFFSET + offset);
+        source = LongPositionVector.newInstance(buffer, SO_PV_OFFSET + offset, length - SO_PV_OFFSET);
+        requestAddress = GnAddress.getByValue(ByteBuffers.getLong(buffer, REQUEST_GN_ADDRESS_OFFSET + offset));
+    }
+
+    private GnLSRequestPacketHeader(Builder builder) {
+        sequenceNumber = builder.sequenceNumber;
+        reserved = builder.reserved;
+        source = builder.source;
+        requestAddress = builder.requestAddress;
     }
 
     public short getSequenceNumber() {
@@ -67,6 +100,10 @@ public class GnLSRequestPacketHeader implements GnPacketHeader {
         return requestAddress;
     }
 
+    public Builder getBuilder() {
+        return new Builder(this);
+    }
+
     @Override
     public int length() {
         return LS_REQUEST_PACKET_HEADER_SIZE;
@@ -74,14 +111,17 @@ public class GnLSRequestPacketHeader implements GnPacketHeader {
 
     @Override
     public byte[] rawData() {
-        final byte[] rawData = new byte[LS_REQUEST_PACKET_HEADER_SIZE];
-        rawData[SN_OFFSET] = (byte) (sequenceNumber >> 8);
-        rawData[SN_OFFSET + 1] = (byte) sequenceNumber;
-        rawData[RESERVED_OFFSET] = (byte) (reserved >> 8);
-        rawData[RESERVED_OFFSET + 1] = (byte) reserved;
-        source.writeTo(rawData, SO_PV_OFFSET);
-        System.arraycopy(requestAddress.getAddress(), 0, rawData, REQUEST_GN_ADDRESS_OFFSET, GnAddress.SIZE_IN_BYTES);
-        return rawData;
+        final ByteBuffer buffer = ByteBuffer.allocate(LS_REQUEST_PACKET_HEADER_SIZE);
+        writeTo(buffer, 0);
+        return buffer.array();
+    }
+
+    @Override
+    public void writeTo(ByteBuffer buffer, int offset) {
+        ByteBuffers.putShort(buffer, SN_OFFSET + offset, sequenceNumber);
+        ByteBuffers.putShort(buffer, RESERVED_OFFSET + offset, reserved);
+        source.writeTo(buffer, SO_PV_OFFSET + offset);
+        ByteBuffers.putLong(buffer, REQUEST_GN_ADDRESS_OFFSET + offset, requestAddress.getValue());
     }
 
     @Override
@@ -121,4 +161,57 @@ public class GnLSRequestPacketHeader implements GnPacketHeader {
     public int hashCode() {
         return 41 + source.hashCode();
     }
+
+    public static final class Builder {
+
+        private short sequenceNumber;
+        private short reserved;
+        private LongPositionVector source;
+        private GnAddress requestAddress;
+
+        public Builder() {
+        }
+
+        public Builder(GnLSRequestPacketHeader header) {
+            sequenceNumber = header.sequenceNumber;
+            reserved = header.reserved;
+            source = header.source;
+            requestAddress = header.requestAddress;
+        }
+
+        public Builder sequenceNumber(short sequenceNumber) {
+            this.sequenceNumber = sequenceNumber;
+            return this;
+        }
+
+        public Builder reserved(short reserved) {
+            this.reserved = reserved;
+            return this;
+        }
+
+        public Builder source(LongPositionVector source) {
+            this.source = source;
+            return this;
+        }
+
+        public Builder requestAddress(GnAddress requestAddress) {
+            this.requestAddress = requestAddress;
+            return this;
+        }
+
+        /**
+         * @return a new GnLSRequestPacketHeader object.
+         * @throws NullPointerException if the source or the request address is
+         * not set.
+         */
+        public GnLSRequestPacketHeader build() {
+            if (source == null) {
+                throw new NullPointerException("source may not be null");
+            }
+            if (requestAddress == null) {
+                throw new NullPointerException("requestAddress may not be null");
+            }
+            return new GnLSRequestPacketHeader(this);
+        }
+    }
 }
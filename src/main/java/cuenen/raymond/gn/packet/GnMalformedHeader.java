@@ -1,7 +1,9 @@
 package cuenen.raymond.gn.packet;
 
 import cuenen.raymond.gn.packet.GeoNetworkingPacket.GnPacketHeader;
+import cuenen.raymond.gn.util.ByteBuffers;
 import cuenen.raymond.gn.util.LongPositionVector;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import org.pcap4j.util.ByteArrays;
 
@@ -12,7 +14,8 @@ public final class GnMalformedHeader implements GnPacketHeader {
     /**
      * A static factory method. This method validates the arguments by
      * {@link ByteArrays#validateBounds(byte[], int, int)}, which may throw
-     * exceptions undocumented here.
+     * exceptions undocumented here. An empty range is accepted, for a header
+     * that is missing altogether.
      *
      * @param rawData
      * @param offset
@@ -20,12 +23,34 @@ public final class GnMalformedHeader implements GnPacketHeader {
      * @return a new GnMalformedHeader object.
      */
     public static GnMalformedHeader newInstance(byte[] rawData, int offset, int length) {
-        ByteArrays.validateBounds(rawData, offset, length);
-        return new GnMalformedHeader(rawData, offset, length);
+        if (length != 0) {
+            ByteArrays.validateBounds(rawData, offset, length);
+        }
+        return new GnMalformedHeader(length == 0 ? new byte[0] : ByteArrays.getSubArray(rawData, offset, length));
     }
 
-    private GnMalformedHeader(byte[] rawData, int offset, int length) {
-        data = ByteArrays.getSubArray(rawData, offset, length);
+    /**
+     * A static factory method that decodes from a buffer, which may be direct
+     * or mapped. The offset is an absolute index in the buffer. This method
+     * validates the arguments by
+     * {@link ByteBuffers#validateBounds(ByteBuffer, int, int)}, which may throw
+     * exceptions undocumented here. An empty range is accepted, for a header
+     * that is missing altogether.
+     *
+     * @param buffer
+     * @param offset
+     * @param length
+     * @return a new GnMalformedHeader object.
+     */
+    public static GnMalformedHeader newInstance(ByteBuffer buffer, int offset, int length) {
+        if (length != 0) {
+            ByteBuffers.validateBounds(buffer, offset, length);
+        }
+        return new GnMalformedHeader(ByteBuffers.getSubArray(buffer, offset, length));
+    }
+
+    private GnMalformedHeader(byte[] data) {
+        this.data = data;
     }
 
     @Override
@@ -43,6 +68,11 @@ public final class GnMalformedHeader implements GnPacketHeader {
         return ByteArrays.clone(data);
     }
 
+    @Override
+    public void writeTo(ByteBuffer buffer, int offset) {
+        ByteBuffers.putBytes(buffer, offset, data);
+    }
+
     @Override
     public String toString() {
         final StringBuilder sb = new StringBuilder();
@@ -0,0 +1,117 @@
+package cuenen.raymond.gn.packet;
+
+import cuenen.raymond.gn.packet.BtpPacket.BtpHeader;
+import cuenen.raymond.gn.packet.CohdaWirelessRxPacket.CohdaWirelessRxHeader;
+import cuenen.raymond.gn.packet.CohdaWirelessTxPacket.CohdaWirelessTxHeader;
+import cuenen.raymond.gn.packet.GeoNetworkingPacket.GeoNetworkingHeader;
+import cuenen.raymond.gn.util.ByteBuffers;
+import java.nio.ByteBuffer;
+import org.pcap4j.packet.EthernetPacket;
+import org.pcap4j.packet.EthernetPacket.EthernetHeader;
+import org.pcap4j.packet.Packet;
+import org.pcap4j.util.ByteArrays;
+
+/**
+ * Encodes a Cohda/Ethernet/GeoNetworking/BTP packet stack in one pass into a
+ * caller-supplied array or buffer, which can be reused from packet to packet.
+ * Every header is written in place at its final offset, so no intermediate
+ * arrays are built per layer as {@link Packet#getRawData()} does; a decoded
+ * GeoNetworking packet is copied from the bytes it was decoded from. Packets
+ * of any other type are written by their raw data.
+ */
+public final class GnPacketEncoder {
+
+    private GnPacketEncoder() {
+        throw new AssertionError();
+    }
+
+    /**
+     * This method validates the arguments by
+     * {@link ByteArrays#validateBounds(byte[], int, int)}, which may throw
+     * exceptions undocumented here.
+     *
+     * @param packet
+     * @param rawData the array to write to.
+     * @param offset
+     * @return the number of bytes written, which is the length of the packet.
+     */
+    public static int encode(Packet packet, byte[] rawData, int offset) {
+        if (packet == null) {
+            throw new NullPointerException("packet may not be null");
+        }
+        final int length = packet.length();
+        ByteArrays.validateBounds(rawData, offset, length);
+        write(packet, ByteBuffers.view(rawData), offset);
+        return length;
+    }
+
+    /**
+     * Encodes into a buffer, which may be direct or mapped. The offset is an
+     * absolute index in the buffer; its position and limit are left alone.
+     * This method validates the arguments by
+     * {@link ByteBuffers#validateBounds(ByteBuffer, int, int)}, which may throw
+     * exceptions undocumented here.
+     *
+     * @param packet
+     * @param buffer the buffer to write to.
+     * @param offset
+     * @return the number of bytes written, which is the length of the packet.
+     */
+    public static int encode(Packet packet, ByteBuffer buffer, int offset) {
+        if (packet == null) {
+            throw new NullPointerException("packet may not be null");
+        }
+        final int length = packet.length();
+        ByteBuffers.validateBounds(buffer, offset, length);
+        write(packet, buffer, offset);
+        return length;
+    }
+
+    /**
+     * @return the offset just past the packet.
+     */
+    private static int write(Packet packet, ByteBuffer buffer, int offset) {
+        if (packet == null) {
+            return offset;
+        }
+        if (packet instanceof GeoNetworkingPacket) {
+            final GeoNetworkingPacket gn = (GeoNetworkingPacket) packet;
+            if (gn.writeRawData(buffer, offset)) {
+                return offset + gn.length();
+            }
+            final GeoNetworkingHeader header = gn.getHeader();
+            header.writeTo(buffer, offset);
+            return write(gn.getPayload(), buffer, offset + header.length());
+        }
+        if (packet instanceof BtpPacket) {
+            final BtpHeader header = ((BtpPacket) packet).getHeader();
+            header.writeTo(buffer, offset);
+            return write(packet.getPayload(), buffer, offset + header.length());
+        }
+        if (packet instanceof EthernetPacket) {
+            final EthernetPacket ethernet = (EthernetPacket) packet;
+            final EthernetHeader header = ethernet.getHeader();
+            ByteBuffers.putBytes(buffer, offset, header.getDstAddr().getAddress());
+            ByteBuffers.putBytes(buffer, offset + header.getDstAddr().length(), header.getSrcAddr().getAddress());
+            ByteBuffers.putShort(buffer, offset + header.length() - ByteArrays.SHORT_SIZE_IN_BYTES,
+                    header.getType().value());
+            final int end = write(ethernet.getPayload(), buffer, offset + header.length());
+            final byte[] pad = ethernet.getPad();
+            ByteBuffers.putBytes(buffer, end, pad);
+            return end + pad.length;
+        }
+        if (packet instanceof CohdaWirelessTxPacket) {
+            final CohdaWirelessTxHeader header = ((CohdaWirelessTxPacket) packet).getHeader();
+            header.writeTo(buffer, offset);
+            return write(packet.getPayload(), buffer, offset + header.length());
+        }
+        if (packet instanceof CohdaWirelessRxPacket) {
+            final CohdaWirelessRxHeader header = ((CohdaWirelessRxPacket) packet).getHeader();
+            header.writeTo(buffer, offset);
+            return write(packet.getPayload(), buffer, offset + header.length());
+        }
+        final byte[] rawData = packet.getRawData();
+        ByteBuffers.putBytes(buffer, offset, rawData);
+        return offset + rawData.length;
+    }
+}
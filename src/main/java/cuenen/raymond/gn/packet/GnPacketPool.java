@@ -0,0 +1,102 @@
+package cuenen.raymond.gn.packet;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A per-thread pool of {@link PooledGnPacket} objects. A packet is given back
+ * to the pool it was acquired from, so a packet may be handed from a decoding
+ * thread to a consumer thread without the pools drifting apart. The owning
+ * thread keeps its idle packets without locking; packets released on other
+ * threads go through a lock-free queue that the owner drains when it runs
+ * out. Packets released while the pool is full are left to the garbage
+ * collector.
+ */
+public final class GnPacketPool {
+
+    public static final int DEFAULT_CAPACITY = 64;
+
+    private static final ThreadLocal<GnPacketPool> POOLS = new ThreadLocal<GnPacketPool>() {
+
+        @Override
+        protected GnPacketPool initialValue() {
+            return new GnPacketPool(DEFAULT_CAPACITY);
+        }
+    };
+
+    private final Thread owner = Thread.currentThread();
+    private final PooledGnPacket[] idle;
+    private int size;
+    private long created;
+    private final Queue<PooledGnPacket> returned = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger returnedCount = new AtomicInteger();
+
+    private GnPacketPool(int capacity) {
+        idle = new PooledGnPacket[capacity];
+    }
+
+    /**
+     * @return the pool of the current thread.
+     */
+    public static GnPacketPool current() {
+        return POOLS.get();
+    }
+
+    /**
+     * Must be called on the thread that owns this pool.
+     *
+     * @return an empty packet, recycled when the pool has one.
+     */
+    public PooledGnPacket acquire() {
+        if (size == 0) {
+            drainReturned();
+        }
+        final PooledGnPacket packet;
+        if (size > 0) {
+            packet = idle[--size];
+            idle[size] = null;
+        } else {
+            packet = new PooledGnPacket();
+            created++;
+        }
+        packet.lease(this);
+        return packet;
+    }
+
+    void recycle(PooledGnPacket packet) {
+        if (Thread.currentThread() != owner) {
+            if (returnedCount.incrementAndGet() <= idle.length) {
+                returned.offer(packet);
+            } else {
+                returnedCount.decrementAndGet();
+            }
+        } else if (size < idle.length) {
+            idle[size++] = packet;
+        }
+    }
+
+    private void drainReturned() {
+        PooledGnPacket packet;
+        while (size < idle.length && (packet = returned.poll()) != null) {
+            returnedCount.decrementAndGet();
+            idle[size++] = packet;
+        }
+    }
+
+    /**
+     * @return the number of packets waiting to be reused, including those
+     * given back by other threads.
+     */
+    public int size() {
+        return size + returnedCount.get();
+    }
+
+    /**
+     * @return the number of packets this pool had to create, a measure of
+     * how well packets are recycled.
+     */
+    public long getCreatedCount() {
+        return created;
+    }
+}
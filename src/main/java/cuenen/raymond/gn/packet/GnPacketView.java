@@ -0,0 +1,465 @@
+package cuenen.raymond.gn.packet;
+
+import cuenen.raymond.gn.packet.namednumber.GnHeaderType;
+import cuenen.raymond.gn.packet.namednumber.GnPacketHeaderSubtype;
+import cuenen.raymond.gn.packet.namednumber.GnPacketHeaderType;
+import cuenen.raymond.gn.packet.namednumber.NamedNumberTypes;
+import cuenen.raymond.gn.util.GeoPosition;
+import cuenen.raymond.gn.util.LongPositionVector;
+import cuenen.raymond.gn.util.ShortPositionVector;
+import org.pcap4j.packet.namednumber.DataLinkType;
+import org.pcap4j.util.ByteArrays;
+import org.pcap4j.util.MacAddress;
+import static org.pcap4j.util.ByteArrays.SHORT_SIZE_IN_BYTES;
+
+/**
+ * A reusable, allocation-free view on the headers of a GeoNetworking packet.
+ * The view is pointed at a packet with {@link #wrap(byte[], int, int)} and
+ * reads every field straight from the wrapped bytes, so the bytes must not
+ * change while the view is in use. Header and transport types are returned as
+ * the values of the corresponding named numbers, e.g.
+ * {@code view.getHeaderType() == GnPacketHeaderType.BEACON.value()}.
+ * <p>
+ * A view is not thread-safe; use one view per thread.
+ * </p>
+ */
+public final class GnPacketView {
+
+    private static final int ETHERNET_TYPE_OFFSET = 2 * MacAddress.SIZE_IN_BYTES;
+    private static final int ETHERNET_HEADER_SIZE = ETHERNET_TYPE_OFFSET + SHORT_SIZE_IN_BYTES;
+
+    private static final int BASIC_VERSION_NH_OFFSET = GnBasicHeader.LAYOUT.offsetOf("Version and Next Header");
+    private static final int BASIC_RESERVED_OFFSET = GnBasicHeader.LAYOUT.offsetOf("Reserved");
+    private static final int BASIC_LT_OFFSET = GnBasicHeader.LAYOUT.offsetOf("Lifetime");
+    private static final int BASIC_RHL_OFFSET = GnBasicHeader.LAYOUT.offsetOf("Remaining Hop Limit");
+
+    private static final int COMMON_NH_OFFSET = GnCommonHeader.LAYOUT.offsetOf("Next Header");
+    private static final int COMMON_HT_HST_OFFSET = GnCommonHeader.LAYOUT.offsetOf("Header Type and Subtype");
+    private static final int COMMON_TC_OFFSET = GnCommonHeader.LAYOUT.offsetOf("Traffic Class");
+    private static final int COMMON_FLAGS_OFFSET = GnCommonHeader.LAYOUT.offsetOf("Flags");
+    private static final int COMMON_PL_OFFSET = GnCommonHeader.LAYOUT.offsetOf("Payload Length");
+    private static final int COMMON_MHL_OFFSET = GnCommonHeader.LAYOUT.offsetOf("Maximum Hop Limit");
+    private static final int COMMON_RESERVED_OFFSET = GnCommonHeader.LAYOUT.offsetOf("Reserved");
+
+    private static final int BEACON_SO_PV_OFFSET = GnBeaconPacketHeader.LAYOUT.offsetOf("Source Position Vector");
+    private static final int GUC_SN_OFFSET = GnGUCPacketHeader.LAYOUT.offsetOf("Sequence Number");
+    private static final int GUC_SO_PV_OFFSET = GnGUCPacketHeader.LAYOUT.offsetOf("Source Position Vector");
+    private static final int GUC_DE_PV_OFFSET = GnGUCPacketHeader.LAYOUT.offsetOf("Destination Position Vector");
+    private static final int GBC_SN_OFFSET = GnGBCPacketHeader.LAYOUT.offsetOf("Sequence Number");
+    private static final int GBC_SO_PV_OFFSET = GnGBCPacketHeader.LAYOUT.offsetOf("Source Position Vector");
+    private static final int TSB_SN_OFFSET = GnTSBPacketHeader.LAYOUT.offsetOf("Sequence Number");
+    private static final int TSB_SO_PV_OFFSET = GnTSBPacketHeader.LAYOUT.offsetOf("Source Position Vector");
+    private static final int SHB_SO_PV_OFFSET = GnSHBPacketHeader.LAYOUT.offsetOf("Source Position Vector");
+    private static final int LS_REQUEST_SN_OFFSET = GnLSRequestPacketHeader.LAYOUT.offsetOf("Sequence Number");
+    private static final int LS_REQUEST_SO_PV_OFFSET = GnLSRequestPacketHeader.LAYOUT
+            .offsetOf("Source Position Vector");
+    private static final int LS_REPLY_SN_OFFSET = GnLSReplyPacketHeader.LAYOUT.offsetOf("Sequence Number");
+    private static final int LS_REPLY_SO_PV_OFFSET = GnLSReplyPacketHeader.LAYOUT.offsetOf("Source Position Vector");
+    private static final int LS_REPLY_DE_PV_OFFSET = GnLSReplyPacketHeader.LAYOUT
+            .offsetOf("Destination Position Vector");
+    private static final int GEO_AREA_LAT_OFFSET = GnGBCPacketHeader.LAYOUT.offsetOf("Geo Area Position")
+            + GeoPosition.LAYOUT.offsetOf("Latitude");
+    private static final int GEO_AREA_LONG_OFFSET = GnGBCPacketHeader.LAYOUT.offsetOf("Geo Area Position")
+            + GeoPosition.LAYOUT.offsetOf("Longitude");
+    private static final int DISTANCE_A_OFFSET = GnGBCPacketHeader.LAYOUT.offsetOf("Distance A");
+    private static final int DISTANCE_B_OFFSET = GnGBCPacketHeader.LAYOUT.offsetOf("Distance B");
+    private static final int ANGLE_OFFSET = GnGBCPacketHeader.LAYOUT.offsetOf("Angle");
+    private static final int REQUEST_GN_ADDRESS_OFFSET = GnLSRequestPacketHeader.LAYOUT
+            .offsetOf("Request GN Address");
+
+    private static final int PV_GN_ADDR_OFFSET = ShortPositionVector.LAYOUT.offsetOf("GN Address");
+    private static final int PV_TST_OFFSET = ShortPositionVector.LAYOUT.offsetOf("Timestamp");
+    private static final int PV_LAT_OFFSET = ShortPositionVector.LAYOUT.offsetOf("Position")
+            + GeoPosition.LAYOUT.offsetOf("Latitude");
+    private static final int PV_LONG_OFFSET = ShortPositionVector.LAYOUT.offsetOf("Position")
+            + GeoPosition.LAYOUT.offsetOf("Longitude");
+    private static final int PV_PAI_S_OFFSET = LongPositionVector.LAYOUT.offsetOf("PAI and Speed");
+    private static final int PV_H_OFFSET = LongPositionVector.LAYOUT.offsetOf("Heading");
+
+    private byte[] data;
+    private int offset;
+    private int length;
+    private int secureOffset;
+    private int commonOffset;
+    private int extendedOffset;
+    private int extendedLength;
+    private int sequenceOffset;
+    private int sourceOffset;
+    private int destinationOffset;
+    private int payloadOffset;
+
+    /**
+     * Points this view at the GeoNetworking packet in a captured frame. Cohda
+     * and Ethernet frames are supported.
+     *
+     * @param frame
+     * @param offset
+     * @param length
+     * @param dataLinkType the link type of the frame.
+     * @return {@code false} if the frame does not carry a GeoNetworking packet
+     * or its headers do not fit the data, in which case the accessors of this
+     * view must not be used.
+     */
+    public boolean wrapFrame(byte[] frame, int offset, int length, DataLinkType dataLinkType) {
+        final int linkHeaderLength;
+        if (NamedNumberTypes.COHDA_WIRELESS_TX.equals(dataLinkType)) {
+            linkHeaderLength = CohdaWirelessTxPacket.HEADER_SIZE_IN_BYTES;
+        } else if (NamedNumberTypes.COHDA_WIRELESS_RX.equals(dataLinkType)) {
+            linkHeaderLength = CohdaWirelessRxPacket.HEADER_SIZE_IN_BYTES;
+        } else if (DataLinkType.EN10MB.equals(dataLinkType)) {
+            linkHeaderLength = 0;
+        } else {
+            return false;
+        }
+        final int headerLength = linkHeaderLength + ETHERNET_HEADER_SIZE;
+        if (frame == null || offset < 0 || length < headerLength || offset + length > frame.length
+                || ByteArrays.getShort(frame, offset + linkHeaderLength + ETHERNET_TYPE_OFFSET)
+                != NamedNumberTypes.ETSI_TC_ITS.value()) {
+            return false;
+        }
+        return wrap(frame, offset + headerLength, length - headerLength);
+    }
+
+    /**
+     * Points this view at a GeoNetworking packet, starting with its Basic
+     * header.
+     *
+     * @param data
+     * @param offset
+     * @param length
+     * @return {@code false} if the headers do not fit the data or the Basic
+     * header is followed by neither a Common nor a Secure header, as
+     * {@link GeoNetworkingPacket#validate(byte[], int, int)} reports; the
+     * accessors of this view must not be used then.
+     */
+    public boolean wrap(byte[] data, int offset, int length) {
+        this.data = data;
+        this.offset = offset;
+        this.length = length;
+        secureOffset = -1;
+        commonOffset = -1;
+        extendedOffset = -1;
+        extendedLength = 0;
+        sequenceOffset = -1;
+        sourceOffset = -1;
+        destinationOffset = -1;
+        if (data == null || offset < 0 || length < GnBasicHeader.SIZE_IN_BYTES || offset + length > data.length) {
+            return false;
+        }
+        final int end = offset + length;
+        int position = offset + GnBasicHeader.SIZE_IN_BYTES;
+        final byte nextHeader = getBasicNextHeader();
+        if (nextHeader == GnHeaderType.SECURE_HEADER.value()) {
+            final int secureLength = GnSecureHeader.lengthOf(data, position, end - position);
+            if (secureLength < 0) {
+                return false;
+            }
+            secureOffset = position;
+            position += secureLength;
+        } else if (nextHeader != GnHeaderType.COMMON_HEADER.value()) {
+            return false;
+        }
+        if (end - position < GnCommonHeader.SIZE_IN_BYTES) {
+            return false;
+        }
+        commonOffset = position;
+        position += GnCommonHeader.SIZE_IN_BYTES;
+        extendedOffset = position;
+        final byte type = getHeaderType();
+        final byte subtype = getHeaderSubtype();
+        if (type == GnPacketHeaderType.BEACON.value()) {
+            locate(GnBeaconPacketHeader.SIZE_IN_BYTES, -1, BEACON_SO_PV_OFFSET, -1);
+        } else if (type == GnPacketHeaderType.GEOUNICAST.value()) {
+            locate(GnGUCPacketHeader.SIZE_IN_BYTES, GUC_SN_OFFSET, GUC_SO_PV_OFFSET, GUC_DE_PV_OFFSET);
+        } else if (type == GnPacketHeaderType.GEOANYCAST.value()
+                || type == GnPacketHeaderType.GEOBROADCAST.value()) {
+            locate(GnGBCPacketHeader.SIZE_IN_BYTES, GBC_SN_OFFSET, GBC_SO_PV_OFFSET, -1);
+        } else if (type == GnPacketHeaderType.TSB.value()) {
+            if (subtype == GnPacketHeaderSubtype.SINGLE_HOP.value()) {
+                locate(GnSHBPacketHeader.SIZE_IN_BYTES, -1, SHB_SO_PV_OFFSET, -1);
+            } else {
+                locate(GnTSBPacketHeader.SIZE_IN_BYTES, TSB_SN_OFFSET, TSB_SO_PV_OFFSET, -1);
+            }
+        } else if (type == GnPacketHeaderType.LS.value()) {
+            if (subtype == GnPacketHeaderSubtype.REQUEST.value()) {
+                locate(GnLSRequestPacketHeader.SIZE_IN_BYTES, LS_REQUEST_SN_OFFSET, LS_REQUEST_SO_PV_OFFSET, -1);
+            } else if (subtype == GnPacketHeaderSubtype.REPLY.value()) {
+                locate(GnLSReplyPacketHeader.SIZE_IN_BYTES, LS_REPLY_SN_OFFSET, LS_REPLY_SO_PV_OFFSET,
+                        LS_REPLY_DE_PV_OFFSET);
+            }
+        }
+        if (end - position < extendedLength) {
+            return false;
+        }
+        position += extendedLength;
+        payloadOffset = position;
+        return true;
+    }
+
+    /**
+     * Places the fields of the extended header; the offsets are relative to
+     * the header, or -1 for a field the header does not have.
+     */
+    private void locate(int length, int sequence, int source, int destination) {
+        extendedLength = length;
+        sequenceOffset = sequence < 0 ? -1 : extendedOffset + sequence;
+        sourceOffset = source < 0 ? -1 : extendedOffset + source;
+        destinationOffset = destination < 0 ? -1 : extendedOffset + destination;
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public int getOffset() {
+        return offset;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return the length of all GeoNetworking headers.
+     */
+    public int getHeaderLength() {
+        return payloadOffset - offset;
+    }
+
+    public byte getVersion() {
+        return (byte) ((data[offset + BASIC_VERSION_NH_OFFSET] >> 4) & 0x0F);
+    }
+
+    /**
+     * @return the value of the {@code GnHeaderType} that follows the Basic
+     * header.
+     */
+    public byte getBasicNextHeader() {
+        return (byte) (data[offset + BASIC_VERSION_NH_OFFSET] & 0x0F);
+    }
+
+    public byte getBasicReserved() {
+        return data[offset + BASIC_RESERVED_OFFSET];
+    }
+
+    public byte getLifetime() {
+        return data[offset + BASIC_LT_OFFSET];
+    }
+
+    public byte getRemainingHopLimit() {
+        return data[offset + BASIC_RHL_OFFSET];
+    }
+
+    public boolean hasSecureHeader() {
+        return secureOffset >= 0;
+    }
+
+    /**
+     * @return the offset of the Secure header in the wrapped data, or -1.
+     */
+    public int getSecureHeaderOffset() {
+        return secureOffset;
+    }
+
+    public boolean hasCommonHeader() {
+        return commonOffset >= 0;
+    }
+
+    /**
+     * @return the value of the {@code GnTransportType} of the payload.
+     */
+    public byte getNextHeader() {
+        return (byte) ((data[commonOffset + COMMON_NH_OFFSET] >> 4) & 0x0F);
+    }
+
+    public byte getCommonReserved1() {
+        return (byte) (data[commonOffset + COMMON_NH_OFFSET] & 0x0F);
+    }
+
+    /**
+     * @return the value of the {@code GnPacketHeaderType}.
+     */
+    public byte getHeaderType() {
+        return (byte) ((data[commonOffset + COMMON_HT_HST_OFFSET] >> 4) & 0x0F);
+    }
+
+    /**
+     * @return the value of the {@code GnPacketHeaderSubtype}.
+     */
+    public byte getHeaderSubtype() {
+        return (byte) (data[commonOffset + COMMON_HT_HST_OFFSET] & 0x0F);
+    }
+
+    public byte getTrafficClass() {
+        return data[commonOffset + COMMON_TC_OFFSET];
+    }
+
+    public byte getFlags() {
+        return data[commonOffset + COMMON_FLAGS_OFFSET];
+    }
+
+    public boolean isMobile() {
+        return (getFlags() & 0x80) != 0;
+    }
+
+    public short getPayloadLength() {
+        return ByteArrays.getShort(data, commonOffset + COMMON_PL_OFFSET);
+    }
+
+    public byte getMaximumHopLimit() {
+        return data[commonOffset + COMMON_MHL_OFFSET];
+    }
+
+    public byte getCommonReserved2() {
+        return data[commonOffset + COMMON_RESERVED_OFFSET];
+    }
+
+    /**
+     * @return the length of the extended header, 0 when it is absent or of an
+     * unknown type.
+     */
+    public int getExtendedHeaderLength() {
+        return extendedLength;
+    }
+
+    public boolean hasSequenceNumber() {
+        return sequenceOffset >= 0;
+    }
+
+    public short getSequenceNumber() {
+        return ByteArrays.getShort(data, sequenceOffset);
+    }
+
+    public boolean hasSourcePosition() {
+        return sourceOffset >= 0;
+    }
+
+    /**
+     * @return the source GN address as a big-endian long.
+     */
+    public long getSourceGnAddress() {
+        return ByteArrays.getLong(data, sourceOffset + PV_GN_ADDR_OFFSET);
+    }
+
+    public int getSourceTst() {
+        return ByteArrays.getInt(data, sourceOffset + PV_TST_OFFSET);
+    }
+
+    public int getSourceLatitude() {
+        return ByteArrays.getInt(data, sourceOffset + PV_LAT_OFFSET);
+    }
+
+    public int getSourceLongitude() {
+        return ByteArrays.getInt(data, sourceOffset + PV_LONG_OFFSET);
+    }
+
+    public byte getSourcePai() {
+        return (byte) ((data[sourceOffset + PV_PAI_S_OFFSET] >> 7) & 0x01);
+    }
+
+    public short getSourceSpeed() {
+        return (short) (ByteArrays.getShort(data, sourceOffset + PV_PAI_S_OFFSET) & 0x7FFF);
+    }
+
+    public short getSourceHeading() {
+        return ByteArrays.getShort(data, sourceOffset + PV_H_OFFSET);
+    }
+
+    public boolean hasDestinationPosition() {
+        return destinationOffset >= 0;
+    }
+
+    /**
+     * @return the destination GN address as a big-endian long.
+     */
+    public long getDestinationGnAddress() {
+        return ByteArrays.getLong(data, destinationOffset + PV_GN_ADDR_OFFSET);
+    }
+
+    public int getDestinationTst() {
+        return ByteArrays.getInt(data, destinationOffset + PV_TST_OFFSET);
+    }
+
+    public int getDestinationLatitude() {
+        return ByteArrays.getInt(data, destinationOffset + PV_LAT_OFFSET);
+    }
+
+    public int getDestinationLongitude() {
+        return ByteArrays.getInt(data, destinationOffset + PV_LONG_OFFSET);
+    }
+
+    public boolean hasArea() {
+        return commonOffset >= 0 && (getHeaderType() == GnPacketHeaderType.GEOANYCAST.value()
+                || getHeaderType() == GnPacketHeaderType.GEOBROADCAST.value());
+    }
+
+    public int getAreaLatitude() {
+        return ByteArrays.getInt(data, extendedOffset + GEO_AREA_LAT_OFFSET);
+    }
+
+    public int getAreaLongitude() {
+        return ByteArrays.getInt(data, extendedOffset + GEO_AREA_LONG_OFFSET);
+    }
+
+    public short getDistanceA() {
+        return ByteArrays.getShort(data, extendedOffset + DISTANCE_A_OFFSET);
+    }
+
+    public short getDistanceB() {
+        return ByteArrays.getShort(data, extendedOffset + DISTANCE_B_OFFSET);
+    }
+
+    public short getAngle() {
+        return ByteArrays.getShort(data, extendedOffset + ANGLE_OFFSET);
+    }
+
+    public boolean hasRequestGnAddress() {
+        return commonOffset >= 0 && getHeaderType() == GnPacketHeaderType.LS.value()
+                && getHeaderSubtype() == GnPacketHeaderSubtype.REQUEST.value();
+    }
+
+    /**
+     * @return the requested GN address of an LS Request as a big-endian long.
+     */
+    public long getRequestGnAddress() {
+        return ByteArrays.getLong(data, extendedOffset + REQUEST_GN_ADDRESS_OFFSET);
+    }
+
+    /**
+     * @return the offset of the payload in the wrapped data.
+     */
+    public int getPayloadOffset() {
+        return payloadOffset;
+    }
+
+    /**
+     * @return the number of wrapped bytes that follow the headers.
+     */
+    public int getRemainingLength() {
+        return offset + length - payloadOffset;
+    }
+
+    public static boolean isManuallyConfigured(long gnAddress) {
+        return gnAddress < 0;
+    }
+
+    /**
+     * @param gnAddress
+     * @return the value of the {@code ItsStationType}.
+     */
+    public static int getStationType(long gnAddress) {
+        return (int) (gnAddress >>> 58) & 0x1F;
+    }
+
+    public static int getCountryCode(long gnAddress) {
+        return (int) (gnAddress >>> 48) & 0x3FF;
+    }
+
+    /**
+     * @param gnAddress
+     * @return the link-layer address as the low 48 bits of a long.
+     */
+    public static long getLinkLayerAddress(long gnAddress) {
+        return gnAddress & 0xFFFFFFFFFFFFL;
+    }
+}
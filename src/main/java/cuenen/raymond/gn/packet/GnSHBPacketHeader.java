@@ -1,17 +1,24 @@
 package cuenen.raymond.gn.packet;
 
 import cuenen.raymond.gn.packet.GeoNetworkingPacket.GnPacketHeader;
+import cuenen.raymond.gn.util.ByteBuffers;
+import cuenen.raymond.gn.util.HeaderLayout;
 import cuenen.raymond.gn.util.LongPositionVector;
+import java.nio.ByteBuffer;
 import org.pcap4j.packet.IllegalRawDataException;
 import org.pcap4j.util.ByteArrays;
 import static org.pcap4j.util.ByteArrays.INT_SIZE_IN_BYTES;
 
 public final class GnSHBPacketHeader implements GnPacketHeader {
 
-    private static final int SO_PV_OFFSET = 0;
-    private static final int RESERVED_OFFSET = SO_PV_OFFSET + LongPositionVector.SIZE_IN_BYTES;
-    private static final int RESERVED_SIZE = INT_SIZE_IN_BYTES;
-    private static final int SHB_PACKET_HEADER_SIZE = RESERVED_OFFSET + RESERVED_SIZE;
+    public static final HeaderLayout LAYOUT = HeaderLayout.builder("Single-Hop Broadcast")
+            .field("Source Position Vector", LongPositionVector.LAYOUT)
+            .field("Reserved", INT_SIZE_IN_BYTES)
+            .build();
+    private static final int SO_PV_OFFSET = LAYOUT.offsetOf("Source Position Vector");
+    private static final int RESERVED_OFFSET = LAYOUT.offsetOf("Reserved");
+    private static final int SHB_PACKET_HEADER_SIZE = LAYOUT.length();
+    public static final int SIZE_IN_BYTES = SHB_PACKET_HEADER_SIZE;
 
     private final LongPositionVector source;
     private final int reserved;
@@ -29,15 +36,38 @@ public final class GnSHBPacketHeader implements GnPacketHeader {
      */
     public static GnSHBPacketHeader newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
         ByteArrays.validateBounds(rawData, offset, length);
-        return new GnSHBPacketHeader(rawData, offset, length);
+        return new GnSHBPacketHeader(ByteBuffers.view(rawData), offset, length);
     }
 
-    private GnSHBPacketHeader(byte[] rawData, int offset, int length) throws IllegalRawDataException {
+    /**
+     * A static factory method that decodes from a buffer, which may be direct
+     * or mapped. The offset is an absolute index in the buffer. This method
+     * validates the arguments by
+     * {@link ByteBuffers#validateBounds(ByteBuffer, int, int)}, which may throw
+     * exceptions undocumented here.
+     *
+     * @param buffer
+     * @param offset
+     * @param length
+     * @return a new GnSHBPacketHeader object.
+     * @throws org.pcap4j.packet.IllegalRawDataException
+     */
+    public static GnSHBPacketHeader newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+        ByteBuffers.validateBounds(buffer, offset, length);
+        return new GnSHBPacketHeader(buffer, offset, length);
+    }
+
+    private GnSHBPacketHeader(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
         if (length < SHB_PACKET_HEADER_SIZE) {
             throw new IllegalRawDataException("The data is too short to build a TSB packet header");
         }
-        source = LongPositionVector.newInstance(rawData, SO_PV_OFFSET + offset, length - SO_PV_OFFSET);
-        reserved = ByteArrays.getInt(rawData, RESERVED_OFFSET + offset);
+        source = LongPositionVector.newInstance(buffer, SO_PV_OFFSET + offset, length - SO_PV_OFFSET);
+        reserved = ByteBuffers.getInt(buffer, RESERVED_OFFSET + offset);
+    }
+
+    private GnSHBPacketHeader(Builder builder) {
+        source = builder.source;
+        reserved = builder.reserved;
     }
 
     @Override
@@ -49,6 +79,10 @@ public final class GnSHBPacketHeader implements GnPacketHeader {
         return reserved;
     }
 
+    public Builder getBuilder() {
+        return new Builder(this);
+    }
+
     @Override
     public int length() {
         return SHB_PACKET_HEADER_SIZE;
@@ -56,13 +90,15 @@ public final class GnSHBPacketHeader implements GnPacketHeader {
 
     @Override
     public byte[] rawData() {
-        final byte[] rawData = new byte[SHB_PACKET_HEADER_SIZE];
-        source.writeTo(rawData, SO_PV_OFFSET);
-        rawData[RESERVED_OFFSET] = (byte) (reserved >> 24);
-        rawData[RESERVED_OFFSET + 1] = (byte) (reserved >> 16);
-        rawData[RESERVED_OFFSET + 2] = (byte) (reserved >> 8);
-        rawData[RESERVED_OFFSET + 3] = (byte) reserved;
-        return rawData;
+        final ByteBuffer buffer = ByteBuffer.allocate(SHB_PACKET_HEADER_SIZE);
+        writeTo(buffer, 0);
+        return buffer.array();
+    }
+
+    @Override
+    public void writeTo(ByteBuffer buffer, int offset) {
+        source.writeTo(buffer, SO_PV_OFFSET + offset);
+        ByteBuffers.putInt(buffer, RESERVED_OFFSET + offset, reserved);
     }
 
     @Override
@@ -93,4 +129,39 @@ public final class GnSHBPacketHeader implements GnPacketHeader {
         hash = hash * 41 + reserved;
         return hash;
     }
+
+    public static final class Builder {
+
+        private LongPositionVector source;
+        private int reserved;
+
+        public Builder() {
+        }
+
+        public Builder(GnSHBPacketHeader header) {
+            source = header.source;
+            reserved = header.reserved;
+        }
+
+        public Builder source(LongPositionVector source) {
+            this.source = source;
+            return this;
+        }
+
+        public Builder reserved(int reserved) {
+            this.reserved = reserved;
+            return this;
+        }
+
+        /**
+         * @return a new GnSHBPacketHeader object.
+         * @throws NullPointerException if the source position vector is not set.
+         */
+        public GnSHBPacketHeader build() {
+            if (source == null) {
+                throw new NullPointerException("source may not be null");
+            }
+            return new GnSHBPacketHeader(this);
+        }
+    }
 }
@@ -6,6 +6,8 @@
 package cuenen.raymond.gn.packet;
 
 import cuenen.raymond.gn.packet.GeoNetworkingPacket.GnHeader;
+import cuenen.raymond.gn.util.ByteBuffers;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 import org.pcap4j.packet.IllegalRawDataException;
 import org.pcap4j.util.ByteArrays;
@@ -25,6 +27,7 @@ public class GnSecureHeader implements GnHeader {
     private static final int PAYLOAD_DATA_LENGTH_SIZE = SHORT_SIZE_IN_BYTES;
     private static final int SECURE_HEADER_MIN_SIZE = HEADER_FIELDS_OFFSET + PAYLOAD_LENGTH_SIZE
             + PAYLOAD_TYPE_SIZE + PAYLOAD_DATA_LENGTH_SIZE;
+    public static final int MIN_SIZE_IN_BYTES = SECURE_HEADER_MIN_SIZE;
 
     private final byte protocolVersion;
     private final byte securityProfile; // NamedNumber?
@@ -47,22 +50,75 @@ public class GnSecureHeader implements GnHeader {
      */
     public static GnSecureHeader newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
         ByteArrays.validateBounds(rawData, offset, length);
-        return new GnSecureHeader(rawData, offset, length);
+        return new GnSecureHeader(ByteBuffers.view(rawData), offset, length);
     }
 
-    private GnSecureHeader(byte[] rawData, int offset, int length) throws IllegalRawDataException {
+    /**
+     * A static factory method that decodes from a buffer, which may be direct
+     * or mapped. The offset is an absolute index in the buffer. This method
+     * validates the arguments by
+     * {@link ByteBuffers#validateBounds(ByteBuffer, int, int)}, which may throw
+     * exceptions undocumented here.
+     *
+     * @param buffer
+     * @param offset
+     * @param length
+     * @return a new GnSecureHeader object.
+     * @throws org.pcap4j.packet.IllegalRawDataException
+     */
+    public static GnSecureHeader newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+        ByteBuffers.validateBounds(buffer, offset, length);
+        return new GnSecureHeader(buffer, offset, length);
+    }
+
+    /**
+     * Determines the length of a Secure header without building it.
+     *
+     * @param rawData
+     * @param offset
+     * @param length
+     * @return the length of the Secure header, or -1 if the data is too short
+     * to hold it.
+     */
+    public static int lengthOf(byte[] rawData, int offset, int length) {
         if (length < SECURE_HEADER_MIN_SIZE) {
+            return -1;
+        }
+        final int size = SECURE_HEADER_MIN_SIZE + (ByteArrays.getByte(rawData, HEADER_LENGTH_OFFSET + offset) & 0xFF);
+        return size > length ? -1 : size;
+    }
+
+    /**
+     * Determines the length of a Secure header in a buffer without building
+     * it.
+     *
+     * @param buffer
+     * @param offset the absolute index of the header in the buffer.
+     * @param length
+     * @return the length of the Secure header, or -1 if the data is too short
+     * to hold it.
+     */
+    public static int lengthOf(ByteBuffer buffer, int offset, int length) {
+        if (length < SECURE_HEADER_MIN_SIZE) {
+            return -1;
+        }
+        final int size = SECURE_HEADER_MIN_SIZE + (ByteBuffers.getByte(buffer, HEADER_LENGTH_OFFSET + offset) & 0xFF);
+        return size > length ? -1 : size;
+    }
+
+    private GnSecureHeader(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+        if (lengthOf(buffer, offset, length) < 0) {
             throw new IllegalRawDataException("The data is too short to build a Secure header");
         }
-        protocolVersion = ByteArrays.getByte(rawData, PROTOCOL_VERSION_OFFSET + offset);
-        securityProfile = ByteArrays.getByte(rawData, SECURITY_PROFILE_OFFSET + offset);
-        headerLength = ByteArrays.getByte(rawData, HEADER_LENGTH_OFFSET + offset);
+        protocolVersion = ByteBuffers.getByte(buffer, PROTOCOL_VERSION_OFFSET + offset);
+        securityProfile = ByteBuffers.getByte(buffer, SECURITY_PROFILE_OFFSET + offset);
+        headerLength = ByteBuffers.getByte(buffer, HEADER_LENGTH_OFFSET + offset);
         int headers = headerLength & 0xFF;
-        headerFields = ByteArrays.getSubArray(rawData, HEADER_FIELDS_OFFSET + offset, headers);
-        payloadLength = ByteArrays.getShort(rawData, HEADER_FIELDS_OFFSET + headers + offset);
-        payloadType = ByteArrays.getByte(rawData, HEADER_FIELDS_OFFSET + PAYLOAD_LENGTH_SIZE
+        headerFields = ByteBuffers.getSubArray(buffer, HEADER_FIELDS_OFFSET + offset, headers);
+        payloadLength = ByteBuffers.getShort(buffer, HEADER_FIELDS_OFFSET + headers + offset);
+        payloadType = ByteBuffers.getByte(buffer, HEADER_FIELDS_OFFSET + PAYLOAD_LENGTH_SIZE
                 + headers + offset);
-        payloadDataLength = ByteArrays.getShort(rawData, HEADER_FIELDS_OFFSET
+        payloadDataLength = ByteBuffers.getShort(buffer, HEADER_FIELDS_OFFSET
                 + PAYLOAD_LENGTH_SIZE + PAYLOAD_TYPE_SIZE + headers + offset);
     }
 
@@ -101,19 +157,23 @@ public class GnSecureHeader implements GnHeader {
 
     @Override
     public byte[] rawData() {
-        final byte[] rawData = new byte[SECURE_HEADER_MIN_SIZE + headerFields.length];
-        rawData[PROTOCOL_VERSION_OFFSET] = protocolVersion;
-        rawData[SECURITY_PROFILE_OFFSET] = securityProfile;
-        rawData[HEADER_LENGTH_OFFSET] = headerLength;
-        System.arraycopy(headerFields, 0, rawData, HEADER_FIELDS_OFFSET, headerFields.length);
-        rawData[HEADER_FIELDS_OFFSET + headerFields.length] = (byte) (payloadLength >> 8);
-        rawData[HEADER_FIELDS_OFFSET + headerFields.length + 1] = (byte) payloadLength;
-        rawData[HEADER_FIELDS_OFFSET + PAYLOAD_LENGTH_SIZE + headerFields.length] = payloadType;
-        rawData[HEADER_FIELDS_OFFSET + PAYLOAD_LENGTH_SIZE
-                + PAYLOAD_TYPE_SIZE + headerFields.length] = (byte) (payloadDataLength >> 8);
-        rawData[HEADER_FIELDS_OFFSET + PAYLOAD_LENGTH_SIZE
-                + PAYLOAD_TYPE_SIZE + headerFields.length + 1] = (byte) payloadDataLength;
-        return rawData;
+        final ByteBuffer buffer = ByteBuffer.allocate(length());
+        writeTo(buffer, 0);
+        return buffer.array();
+    }
+
+    @Override
+    public void writeTo(ByteBuffer buffer, int offset) {
+        final int headers = headerFields.length;
+        ByteBuffers.putByte(buffer, PROTOCOL_VERSION_OFFSET + offset, protocolVersion);
+        ByteBuffers.putByte(buffer, SECURITY_PROFILE_OFFSET + offset, securityProfile);
+        ByteBuffers.putByte(buffer, HEADER_LENGTH_OFFSET + offset, headerLength);
+        ByteBuffers.putBytes(buffer, HEADER_FIELDS_OFFSET + offset, headerFields);
+        ByteBuffers.putShort(buffer, HEADER_FIELDS_OFFSET + headers + offset, payloadLength);
+        ByteBuffers.putByte(buffer, HEADER_FIELDS_OFFSET + PAYLOAD_LENGTH_SIZE
+                + headers + offset, payloadType);
+        ByteBuffers.putShort(buffer, HEADER_FIELDS_OFFSET
+                + PAYLOAD_LENGTH_SIZE + PAYLOAD_TYPE_SIZE + headers + offset, payloadDataLength);
     }
 
     @Override
@@ -0,0 +1,30 @@
+package cuenen.raymond.gn.packet;
+
+/**
+ * The outcome of validating GeoNetworking data without decoding it.
+ */
+public enum GnStatus {
+
+    OK("Valid"),
+    INVALID_BOUNDS("The offset and length do not lie within the data"),
+    TRUNCATED_BASIC_HEADER("The data is too short to hold a Basic header"),
+    UNKNOWN_NEXT_HEADER("The Basic header is followed by an unknown header"),
+    TRUNCATED_SECURE_HEADER("The data is too short to hold the Secure header"),
+    TRUNCATED_COMMON_HEADER("The data is too short to hold a Common header"),
+    TRUNCATED_EXTENDED_HEADER("The data is too short to hold the extended header"),
+    TRUNCATED_TRANSPORT_HEADER("The data is too short to hold the transport header");
+
+    private final String description;
+
+    private GnStatus(String description) {
+        this.description = description;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    public boolean isValid() {
+        return this == OK;
+    }
+}
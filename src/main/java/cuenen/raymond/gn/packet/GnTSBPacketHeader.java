@@ -1,19 +1,26 @@
 package cuenen.raymond.gn.packet;
 
 import cuenen.raymond.gn.packet.GeoNetworkingPacket.GnPacketHeader;
+import cuenen.raymond.gn.util.ByteBuffers;
+import cuenen.raymond.gn.util.HeaderLayout;
 import cuenen.raymond.gn.util.LongPositionVector;
+import java.nio.ByteBuffer;
 import org.pcap4j.packet.IllegalRawDataException;
 import org.pcap4j.util.ByteArrays;
 import static org.pcap4j.util.ByteArrays.SHORT_SIZE_IN_BYTES;
 
 public final class GnTSBPacketHeader implements GnPacketHeader {
 
-    private static final int SN_OFFSET = 0;
-    private static final int SN_SIZE = SHORT_SIZE_IN_BYTES;
-    private static final int RESERVED_OFFSET = SN_OFFSET + SN_SIZE;
-    private static final int RESERVED_SIZE = SHORT_SIZE_IN_BYTES;
-    private static final int SO_PV_OFFSET = RESERVED_OFFSET + RESERVED_SIZE;
-    private static final int TSB_PACKET_HEADER_SIZE = SO_PV_OFFSET + LongPositionVector.SIZE_IN_BYTES;
+    public static final HeaderLayout LAYOUT = HeaderLayout.builder("Topology-Scoped Broadcast")
+            .field("Sequence Number", SHORT_SIZE_IN_BYTES)
+            .field("Reserved", SHORT_SIZE_IN_BYTES)
+            .field("Source Position Vector", LongPositionVector.LAYOUT)
+            .build();
+    private static final int SN_OFFSET = LAYOUT.offsetOf("Sequence Number");
+    private static final int RESERVED_OFFSET = LAYOUT.offsetOf("Reserved");
+    private static final int SO_PV_OFFSET = LAYOUT.offsetOf("Source Position Vector");
+    private static final int TSB_PACKET_HEADER_SIZE = LAYOUT.length();
+    public static final int SIZE_IN_BYTES = TSB_PACKET_HEADER_SIZE;
 
     private final short sequenceNumber;
     private final short reserved;
@@ -32,16 +39,40 @@ public final class GnTSBPacketHeader implements GnPacketHeader {
      */
     public static GnTSBPacketHeader newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
         ByteArrays.validateBounds(rawData, offset, length);
-        return new GnTSBPacketHeader(rawData, offset, length);
+        return new GnTSBPacketHeader(ByteBuffers.view(rawData), offset, length);
     }
 
-    private GnTSBPacketHeader(byte[] rawData, int offset, int length) throws IllegalRawDataException {
+    /**
+     * A static factory method that decodes from a buffer, which may be direct
+     * or mapped. The offset is an absolute index in the buffer. This method
+     * validates the arguments by
+     * {@link ByteBuffers#validateBounds(ByteBuffer, int, int)}, which may throw
+     * exceptions undocumented here.
+     *
+     * @param buffer
+     * @param offset
+     * @param length
+     * @return a new GnTSBPacketHeader object.
+     * @throws org.pcap4j.packet.IllegalRawDataException
+     */
+    public static GnTSBPacketHeader newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+        ByteBuffers.validateBounds(buffer, offset, length);
+        return new GnTSBPacketHeader(buffer, offset, length);
+    }
+
+    private GnTSBPacketHeader(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
         if (length < TSB_PACKET_HEADER_SIZE) {
             throw new IllegalRawDataException("The data is too short to build a TSB packet header");
         }
-        sequenceNumber = ByteArrays.getShort(rawData, SN_OFFSET + offset);
-        reserved = ByteArrays.getShort(rawData, RESERVED_OFFSET + offset);
-        source = LongPositionVector.newInstance(rawData, SO_PV_OFFSET + offset, length - SO_PV_OFFSET);
+        sequenceNumber = ByteBuffers.getShort(buffer, SN_OFFSET + offset);
+        reserved = ByteBuffers.getShort(buffer, RESERVED_OFFSET + offset);
+        source = LongPositionVector.newInstance(buffer, SO_PV_OFFSET + offset, length - SO_PV_OFFSET);
+    }
+
+    private GnTSBPacketHeader(Builder builder) {
+        sequenceNumber = builder.sequenceNumber;
+        reserved = builder.reserved;
+        source = builder.source;
     }
 
     public short getSequenceNumber() {
@@ -57,6 +88,10 @@ public final class GnTSBPacketHeader implements GnPacketHeader {
         return source;
     }
 
+    public Builder getBuilder() {
+        return new Builder(this);
+    }
+
     @Override
     public int length() {
         return TSB_PACKET_HEADER_SIZE;
@@ -64,13 +99,16 @@ public final class GnTSBPacketHeader implements GnPacketHeader {
 
     @Override
     public byte[] rawData() {
-        final byte[] rawData = new byte[TSB_PACKET_HEADER_SIZE];
-        rawData[SN_OFFSET] = (byte) (sequenceNumber >> 8);
-        rawData[SN_OFFSET + 1] = (byte) sequenceNumber;
-        rawData[RESERVED_OFFSET] = (byte) (reserved >> 8);
-        rawData[RESERVED_OFFSET + 1] = (byte) reserved;
-        source.writeTo(rawData, SO_PV_OFFSET);
-        return rawData;
+        final ByteBuffer buffer = ByteBuffer.allocate(TSB_PACKET_HEADER_SIZE);
+        writeTo(buffer, 0);
+        return buffer.array();
+    }
+
+    @Override
+    public void writeTo(ByteBuffer buffer, int offset) {
+        ByteBuffers.putShort(buffer, SN_OFFSET + offset, sequenceNumber);
+        ByteBuffers.putShort(buffer, RESERVED_OFFSET + offset, reserved);
+        source.writeTo(buffer, SO_PV_OFFSET + offset);
     }
 
     @Override
@@ -104,4 +142,46 @@ public final class GnTSBPacketHeader implements GnPacketHeader {
         hash = hash * 41 + source.hashCode();
         return hash;
     }
+
+    public static final class Builder {
+
+        private short sequenceNumber;
+        private short reserved;
+        private LongPositionVector source;
+
+        public Builder() {
+        }
+
+        public Builder(GnTSBPacketHeader header) {
+            sequenceNumber = header.sequenceNumber;
+            reserved = header.reserved;
+            source = header.source;
+        }
+
+        public Builder sequenceNumber(short sequenceNumber) {
+            this.sequenceNumber = sequenceNumber;
+            return this;
+        }
+
+        public Builder reserved(short reserved) {
+            this.reserved = reserved;
+            return this;
+        }
+
+        public Builder source(LongPositionVector source) {
+            this.source = source;
+            return this;
+        }
+
+        /**
+         * @return a new GnTSBPacketHeader object.
+         * @throws NullPointerException if the source position vector is not set.
+         */
+        public GnTSBPacketHeader build() {
+            if (source == null) {
+                throw new NullPointerException("source may not be null");
+            }
+            return new GnTSBPacketHeader(this);
+        }
+    }
 }
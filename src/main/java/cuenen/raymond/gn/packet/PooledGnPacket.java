@@ -0,0 +1,176 @@
+package cuenen.raymond.gn.packet;
+
+import org.pcap4j.packet.IllegalRawDataException;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+/**
+ * A recyclable GeoNetworking packet for streaming analyses, in which a packet
+ * only lives for one callback. Instead of a header list, header objects and
+ * position vectors, a pooled packet holds a copy of the packet bytes in a
+ * buffer it reuses, and its header fields are read through a
+ * {@link GnPacketView} on that copy. Packets are taken from the
+ * {@link GnPacketPool} of the current thread and must be given back with
+ * {@link #release()} once the consumer is done, on any thread; a consumer that needs to keep
+ * the packet longer takes an immutable copy with {@link #toPacket()}.
+ * <p>
+ * Using a packet after its release throws an {@link IllegalStateException}.
+ * When the system property {@link #CHECKS_KEY} is {@code true} a released
+ * packet is never reused: the exception then also catches references kept
+ * past the release, the views handed out are detached from the bytes and the
+ * exception tells where the packet was released. A packet is not thread-safe.
+ * </p>
+ */
+public final class PooledGnPacket {
+
+    /**
+     * When this system property is {@code true}, use after release is
+     * checked at the cost of recycling.
+     */
+    public static final String CHECKS_KEY = PooledGnPacket.class.getName() + ".checks";
+
+    private static final boolean CHECKS = Boolean.getBoolean(CHECKS_KEY);
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private final GnPacketView view = new GnPacketView();
+    private byte[] data = new byte[INITIAL_CAPACITY];
+    private int length;
+    private long timestamp;
+    private GnPacketPool pool;
+    private boolean released = true;
+    private Throwable releaseSite;
+
+    PooledGnPacket() {
+    }
+
+    /**
+     * @return a packet from the pool of the current thread, as by
+     * {@link GnPacketPool#acquire()}.
+     */
+    public static PooledGnPacket acquire() {
+        return GnPacketPool.current().acquire();
+    }
+
+    void lease(GnPacketPool pool) {
+        this.pool = pool;
+        released = false;
+        length = 0;
+        timestamp = 0L;
+    }
+
+    /**
+     * Copies the GeoNetworking packet in a captured frame into this packet.
+     * Cohda and Ethernet frames are supported.
+     *
+     * @param frame
+     * @param offset
+     * @param length
+     * @param dataLinkType the link type of the frame.
+     * @param timestamp the capture time in nanoseconds since the epoch.
+     * @return {@code false} if the frame does not carry a GeoNetworking packet
+     * or its headers do not fit the data, in which case this packet is empty.
+     */
+    public boolean setFrame(byte[] frame, int offset, int length, DataLinkType dataLinkType, long timestamp) {
+        checkNotReleased();
+        if (!view.wrapFrame(frame, offset, length, dataLinkType)) {
+            this.length = 0;
+            return false;
+        }
+        return set(frame, view.getOffset(), view.getLength(), timestamp);
+    }
+
+    /**
+     * Copies a GeoNetworking packet, starting with its Basic header, into
+     * this packet.
+     *
+     * @param rawData
+     * @param offset
+     * @param length
+     * @param timestamp the capture time in nanoseconds since the epoch.
+     * @return {@code false} if the headers do not fit the data, in which case
+     * this packet is empty.
+     */
+    public boolean set(byte[] rawData, int offset, int length, long timestamp) {
+        checkNotReleased();
+        if (rawData == null || offset < 0 || length < 0 || offset + length > rawData.length) {
+            this.length = 0;
+            return false;
+        }
+        if (data.length < length) {
+            data = new byte[Math.max(length, 2 * data.length)];
+        }
+        System.arraycopy(rawData, offset, data, 0, length);
+        this.timestamp = timestamp;
+        if (!view.wrap(data, 0, length)) {
+            this.length = 0;
+            return false;
+        }
+        this.length = length;
+        return true;
+    }
+
+    /**
+     * @return the view on the headers of this packet, which is only valid
+     * until the packet is released or set again.
+     */
+    public GnPacketView getView() {
+        checkNotReleased();
+        return view;
+    }
+
+    /**
+     * @return the length of this packet, 0 when it is empty.
+     */
+    public int length() {
+        checkNotReleased();
+        return length;
+    }
+
+    public long getTimestampNanos() {
+        checkNotReleased();
+        return timestamp;
+    }
+
+    /**
+     * Decodes this packet into an immutable packet that outlives the release
+     * of this one.
+     *
+     * @return a new GeoNetworkingPacket object.
+     * @throws IllegalRawDataException
+     */
+    public GeoNetworkingPacket toPacket() throws IllegalRawDataException {
+        checkNotReleased();
+        if (length == 0) {
+            throw new IllegalStateException("The packet is empty");
+        }
+        return GeoNetworkingPacket.newPacket(data, 0, length, true);
+    }
+
+    public boolean isReleased() {
+        return released;
+    }
+
+    /**
+     * Gives this packet back to the pool it was acquired from, which may
+     * belong to another thread. The packet, and any view taken from it, must
+     * not be used afterwards.
+     *
+     * @throws IllegalStateException if the packet is already released.
+     */
+    public void release() {
+        checkNotReleased();
+        released = true;
+        if (CHECKS) {
+            releaseSite = new Throwable("Released here");
+            view.wrap(null, 0, 0);
+            return;
+        }
+        pool.recycle(this);
+    }
+
+    private void checkNotReleased() {
+        if (released) {
+            throw new IllegalStateException("The packet is used after its release", releaseSite);
+        }
+    }
+}
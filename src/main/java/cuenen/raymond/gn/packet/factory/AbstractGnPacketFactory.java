@@ -1,15 +1,16 @@
 package cuenen.raymond.gn.packet.factory;
 
+import cuenen.raymond.gn.util.ByteBuffers;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.Map;
 import org.pcap4j.packet.IllegalPacket;
 import org.pcap4j.packet.IllegalRawDataException;
 import org.pcap4j.packet.Packet;
 import org.pcap4j.packet.UnknownPacket;
-import org.pcap4j.packet.factory.PacketFactory;
 import org.pcap4j.packet.namednumber.NamedNumber;
 
-public abstract class AbstractGnPacketFactory<N extends NamedNumber<?, ?>> implements PacketFactory<Packet, N> {
+public abstract class AbstractGnPacketFactory<N extends NamedNumber<? extends Number, ?>> implements BufferPacketFactory<Packet, N> {
 
     public static interface PacketInstantiater {
 
@@ -18,14 +19,67 @@ public abstract class AbstractGnPacketFactory<N extends NamedNumber<?, ?>> imple
         public Class<? extends Packet> getTargetClass();
     }
 
-    protected final Map<N, PacketInstantiater> instantiaters = new HashMap<>();
+    /**
+     * An instantiater that can also decode from a {@link ByteBuffer}. Other
+     * instantiaters get the backing array of a heap buffer, or a copy of the
+     * bytes of a direct buffer.
+     */
+    public static interface BufferPacketInstantiater extends PacketInstantiater {
+
+        public Packet newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException;
+    }
+
+    /**
+     * Instantiaters indexed by the low byte of their number. Numbers that
+     * share a low byte with a number already in the table go to the overflow
+     * map.
+     */
+    private final Entry[] table = new Entry[1 << Byte.SIZE];
+    private final Map<N, Entry> overflow = new HashMap<>();
+
+    protected final void register(N number, PacketInstantiater instantiater) {
+        register(number, 0, instantiater);
+    }
+
+    /**
+     * @param number
+     * @param minimumLength data shorter than this becomes an
+     * {@link IllegalPacket} without calling the instantiater, so truncated
+     * frames do not cost an exception.
+     * @param instantiater
+     */
+    protected final void register(N number, int minimumLength, PacketInstantiater instantiater) {
+        final int index = index(number);
+        final Entry current = table[index];
+        final Entry entry = new Entry(number, minimumLength, instantiater);
+        if (current == null || current.number.equals(number)) {
+            table[index] = entry;
+        } else {
+            overflow.put(number, entry);
+        }
+    }
+
+    private Entry entry(N number) {
+        final Entry entry = table[index(number)];
+        if (entry != null && entry.number.equals(number)) {
+            return entry;
+        }
+        return overflow.isEmpty() ? null : overflow.get(number);
+    }
+
+    private static int index(NamedNumber<? extends Number, ?> number) {
+        return number.value().intValue() & 0xFF;
+    }
 
     @Override
     public Packet newInstance(byte[] rawData, int offset, int length, N number) {
-        PacketInstantiater instantiater = instantiaters.get(number);
-        if (instantiater != null) {
+        final Entry entry = entry(number);
+        if (entry != null) {
+            if (length < entry.minimumLength) {
+                return IllegalPacket.newPacket(rawData, offset, length);
+            }
             try {
-                return instantiater.newInstance(rawData, offset, length);
+                return entry.instantiater.newInstance(rawData, offset, length);
             } catch (IllegalRawDataException e) {
                 return IllegalPacket.newPacket(rawData, offset, length);
             }
@@ -38,14 +92,53 @@ public abstract class AbstractGnPacketFactory<N extends NamedNumber<?, ?>> imple
         return UnknownPacket.newPacket(rawData, offset, length);
     }
 
+    @Override
+    public Packet newInstance(ByteBuffer buffer, int offset, int length, N number) {
+        final Entry entry = entry(number);
+        if (entry != null) {
+            if (length < entry.minimumLength) {
+                return BufferPacketFactories.newIllegalPacket(buffer, offset, length);
+            }
+            try {
+                if (entry.instantiater instanceof BufferPacketInstantiater) {
+                    return ((BufferPacketInstantiater) entry.instantiater).newInstance(buffer, offset, length);
+                } else if (buffer.hasArray()) {
+                    return entry.instantiater.newInstance(buffer.array(), buffer.arrayOffset() + offset, length);
+                }
+                return entry.instantiater.newInstance(ByteBuffers.getSubArray(buffer, offset, length), 0, length);
+            } catch (IllegalRawDataException e) {
+                return BufferPacketFactories.newIllegalPacket(buffer, offset, length);
+            }
+        }
+        return newInstance(buffer, offset, length);
+    }
+
+    @Override
+    public Packet newInstance(ByteBuffer buffer, int offset, int length) {
+        return BufferPacketFactories.newUnknownPacket(buffer, offset, length);
+    }
+
     @Override
     public Class<? extends Packet> getTargetClass(N number) {
-        final PacketInstantiater pi = instantiaters.get(number);
-        return pi == null ? getTargetClass() : pi.getTargetClass();
+        final Entry entry = entry(number);
+        return entry == null ? getTargetClass() : entry.instantiater.getTargetClass();
     }
 
     @Override
     public Class<? extends Packet> getTargetClass() {
         return UnknownPacket.class;
     }
+
+    private static final class Entry {
+
+        private final NamedNumber<?, ?> number;
+        private final int minimumLength;
+        private final PacketInstantiater instantiater;
+
+        private Entry(NamedNumber<?, ?> number, int minimumLength, PacketInstantiater instantiater) {
+            this.number = number;
+            this.minimumLength = minimumLength;
+            this.instantiater = instantiater;
+        }
+    }
 }
@@ -0,0 +1,58 @@
+package cuenen.raymond.gn.packet.factory;
+
+import cuenen.raymond.gn.util.ByteBuffers;
+import java.nio.ByteBuffer;
+import org.pcap4j.packet.IllegalPacket;
+import org.pcap4j.packet.Packet;
+import org.pcap4j.packet.UnknownPacket;
+import org.pcap4j.packet.factory.PacketFactory;
+import org.pcap4j.packet.namednumber.NamedNumber;
+
+/**
+ * Decodes a {@link ByteBuffer} with any {@link PacketFactory}. A
+ * {@link BufferPacketFactory} reads the buffer itself; any other factory gets
+ * the backing array of a heap buffer, or a copy of the bytes of a direct
+ * buffer.
+ */
+public final class BufferPacketFactories {
+
+    private BufferPacketFactories() {
+        throw new AssertionError();
+    }
+
+    public static <T, N extends NamedNumber<?, ?>> T newInstance(PacketFactory<T, N> factory,
+            ByteBuffer buffer, int offset, int length, N number) {
+        if (factory instanceof BufferPacketFactory) {
+            return ((BufferPacketFactory<T, N>) factory).newInstance(buffer, offset, length, number);
+        }
+        if (buffer.hasArray()) {
+            return factory.newInstance(buffer.array(), buffer.arrayOffset() + offset, length, number);
+        }
+        return factory.newInstance(ByteBuffers.getSubArray(buffer, offset, length), 0, length, number);
+    }
+
+    public static <T, N extends NamedNumber<?, ?>> T newInstance(PacketFactory<T, N> factory,
+            ByteBuffer buffer, int offset, int length) {
+        if (factory instanceof BufferPacketFactory) {
+            return ((BufferPacketFactory<T, N>) factory).newInstance(buffer, offset, length);
+        }
+        if (buffer.hasArray()) {
+            return factory.newInstance(buffer.array(), buffer.arrayOffset() + offset, length);
+        }
+        return factory.newInstance(ByteBuffers.getSubArray(buffer, offset, length), 0, length);
+    }
+
+    public static Packet newUnknownPacket(ByteBuffer buffer, int offset, int length) {
+        if (buffer.hasArray()) {
+            return UnknownPacket.newPacket(buffer.array(), buffer.arrayOffset() + offset, length);
+        }
+        return UnknownPacket.newPacket(ByteBuffers.getSubArray(buffer, offset, length), 0, length);
+    }
+
+    public static Packet newIllegalPacket(ByteBuffer buffer, int offset, int length) {
+        if (buffer.hasArray()) {
+            return IllegalPacket.newPacket(buffer.array(), buffer.arrayOffset() + offset, length);
+        }
+        return IllegalPacket.newPacket(ByteBuffers.getSubArray(buffer, offset, length), 0, length);
+    }
+}
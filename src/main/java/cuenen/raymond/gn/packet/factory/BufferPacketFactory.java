@@ -0,0 +1,22 @@
+package cuenen.raymond.gn.packet.factory;
+
+import java.nio.ByteBuffer;
+import org.pcap4j.packet.factory.PacketFactory;
+import org.pcap4j.packet.namednumber.NamedNumber;
+
+/**
+ * A {@link PacketFactory} that can also decode from a {@link ByteBuffer},
+ * which may be direct or mapped, without copying it to an array first. The
+ * offset is an absolute index in the buffer; its position and limit are left
+ * alone.
+ *
+ * @param <T> the type of the objects this factory creates.
+ * @param <N> the type of the numbers that select what to create.
+ * @see BufferPacketFactories
+ */
+public interface BufferPacketFactory<T, N extends NamedNumber<?, ?>> extends PacketFactory<T, N> {
+
+    public T newInstance(ByteBuffer buffer, int offset, int length, N number);
+
+    public T newInstance(ByteBuffer buffer, int offset, int length);
+}
@@ -3,6 +3,7 @@ package cuenen.raymond.gn.packet.factory;
 import cuenen.raymond.gn.packet.CohdaWirelessRxPacket;
 import cuenen.raymond.gn.packet.CohdaWirelessTxPacket;
 import cuenen.raymond.gn.packet.namednumber.NamedNumberTypes;
+import java.nio.ByteBuffer;
 import org.pcap4j.packet.EthernetPacket;
 import org.pcap4j.packet.IllegalRawDataException;
 import org.pcap4j.packet.Packet;
@@ -10,34 +11,45 @@ import org.pcap4j.packet.namednumber.DataLinkType;
 
 public final class GnDataLinkTypePacketFactory extends AbstractGnPacketFactory<DataLinkType> {
 
+    private static final int ETHERNET_HEADER_SIZE = 14;
     private static final GnDataLinkTypePacketFactory INSTANCE = new GnDataLinkTypePacketFactory();
 
     private GnDataLinkTypePacketFactory() {
-        instantiaters.put(NamedNumberTypes.COHDA_WIRELESS_TX, new PacketInstantiater() {
+        register(NamedNumberTypes.COHDA_WIRELESS_TX, CohdaWirelessTxPacket.HEADER_SIZE_IN_BYTES, new BufferPacketInstantiater() {
 
             @Override
             public Packet newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
                 return CohdaWirelessTxPacket.newPacket(rawData, offset, length);
             }
 
+            @Override
+            public Packet newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+                return CohdaWirelessTxPacket.newPacket(buffer, offset, length);
+            }
+
             @Override
             public Class<? extends Packet> getTargetClass() {
                 return CohdaWirelessTxPacket.class;
             }
         });
-        instantiaters.put(NamedNumberTypes.COHDA_WIRELESS_RX, new PacketInstantiater() {
+        register(NamedNumberTypes.COHDA_WIRELESS_RX, CohdaWirelessRxPacket.HEADER_SIZE_IN_BYTES, new BufferPacketInstantiater() {
 
             @Override
             public Packet newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
                 return CohdaWirelessRxPacket.newPacket(rawData, offset, length);
             }
 
+            @Override
+            public Packet newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+                return CohdaWirelessRxPacket.newPacket(buffer, offset, length);
+            }
+
             @Override
             public Class<? extends Packet> getTargetClass() {
                 return CohdaWirelessRxPacket.class;
             }
         });
-        instantiaters.put(DataLinkType.EN10MB, new PacketInstantiater() {
+        register(DataLinkType.EN10MB, ETHERNET_HEADER_SIZE, new PacketInstantiater() {
             @Override
             public Packet newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
                 return EthernetPacket.newPacket(rawData, offset, length);
@@ -1,21 +1,56 @@
 package cuenen.raymond.gn.packet.factory;
 
+import cuenen.raymond.gn.packet.DecodeDepth;
 import cuenen.raymond.gn.packet.GeoNetworkingPacket;
+import cuenen.raymond.gn.packet.GnBasicHeader;
 import cuenen.raymond.gn.packet.namednumber.NamedNumberTypes;
+import java.nio.ByteBuffer;
 import org.pcap4j.packet.IllegalRawDataException;
 import org.pcap4j.packet.Packet;
+import org.pcap4j.packet.UnknownPacket;
 import org.pcap4j.packet.namednumber.EtherType;
 
 public final class GnEtherTypePacketFactory extends AbstractGnPacketFactory<EtherType> {
 
+    /**
+     * When this system property is {@code true} GeoNetworking packets are
+     * created by {@link GeoNetworkingPacket#newLazyPacket(byte[], int, int, boolean)}.
+     */
+    public static final String LAZY_DECODING_KEY = GeoNetworkingPacket.class.getName() + ".lazy";
+
     private static final GnEtherTypePacketFactory INSTANCE = new GnEtherTypePacketFactory();
+    private static final boolean LAZY_DECODING = Boolean.getBoolean(LAZY_DECODING_KEY);
+    private static final ThreadLocal<Boolean> COPY_RAW_DATA = new ThreadLocal<Boolean>() {
+
+        @Override
+        protected Boolean initialValue() {
+            return Boolean.FALSE;
+        }
+    };
 
     private GnEtherTypePacketFactory() {
-        instantiaters.put(NamedNumberTypes.ETSI_TC_ITS, new PacketInstantiater() {
+        register(NamedNumberTypes.ETSI_TC_ITS, GnBasicHeader.SIZE_IN_BYTES, new BufferPacketInstantiater() {
 
             @Override
             public Packet newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
-                return GeoNetworkingPacket.newPacket(rawData, offset, length);
+                if (!DecodeDepth.current().includes(DecodeDepth.BASIC)) {
+                    return UnknownPacket.newPacket(rawData, offset, length);
+                }
+                final boolean copy = COPY_RAW_DATA.get();
+                return LAZY_DECODING
+                        ? GeoNetworkingPacket.newLazyPacket(rawData, offset, length, copy)
+                        : GeoNetworkingPacket.newPacket(rawData, offset, length, copy);
+            }
+
+            @Override
+            public Packet newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+                if (!DecodeDepth.current().includes(DecodeDepth.BASIC)) {
+                    return BufferPacketFactories.newUnknownPacket(buffer, offset, length);
+                }
+                final boolean copy = COPY_RAW_DATA.get();
+                return LAZY_DECODING
+                        ? GeoNetworkingPacket.newLazyPacket(buffer, offset, length, copy)
+                        : GeoNetworkingPacket.newPacket(buffer, offset, length, copy);
             }
 
             @Override
@@ -28,4 +63,21 @@ public final class GnEtherTypePacketFactory extends AbstractGnPacketFactory<Ethe
     public static GnEtherTypePacketFactory getInstance() {
         return INSTANCE;
     }
+
+    /**
+     * Sets whether the GeoNetworking packets created on the current thread
+     * keep a copy of the bytes they are decoded from, rather than a reference
+     * to them. Readers that reuse their frame buffer set this around every
+     * record they decode, the way they set the {@link DecodeDepth}.
+     *
+     * @param copy
+     * @return the previous setting, to be restored afterwards.
+     */
+    public static boolean setCopyRawData(boolean copy) {
+        final boolean previous = COPY_RAW_DATA.get();
+        if (previous != copy) {
+            COPY_RAW_DATA.set(copy);
+        }
+        return previous;
+    }
 }
@@ -13,15 +13,188 @@ import cuenen.raymond.gn.packet.GnTSBPacketHeader;
 import cuenen.raymond.gn.packet.namednumber.GnExtendedHeaderType;
 import cuenen.raymond.gn.packet.namednumber.GnPacketHeaderSubtype;
 import cuenen.raymond.gn.packet.namednumber.GnPacketHeaderType;
+import java.nio.ByteBuffer;
 import org.pcap4j.packet.IllegalRawDataException;
-import org.pcap4j.packet.factory.PacketFactory;
 
-public class GnExtendedHeaderTypeFactory implements PacketFactory<GnPacketHeader, GnExtendedHeaderType> {
+public class GnExtendedHeaderTypeFactory implements BufferPacketFactory<GnPacketHeader, GnExtendedHeaderType> {
 
     private static final GnExtendedHeaderTypeFactory INSTANCE = new GnExtendedHeaderTypeFactory();
 
+    /**
+     * Instantiaters indexed by the combined header type and subtype byte of
+     * the Common header; {@code null} entries decode to an empty header.
+     */
+    private final Instantiater[] instantiaters = new Instantiater[1 << Byte.SIZE];
+
     private GnExtendedHeaderTypeFactory() {
+        final Instantiater beacon = new Instantiater() {
+
+            @Override
+            public GnPacketHeader newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
+                return GnBeaconPacketHeader.newInstance(rawData, offset, length);
+            }
+
+            @Override
+            public GnPacketHeader newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+                return GnBeaconPacketHeader.newInstance(buffer, offset, length);
+            }
+
+            @Override
+            public int getMinimumLength() {
+                return GnBeaconPacketHeader.SIZE_IN_BYTES;
+            }
+
+            @Override
+            public Class<? extends GnPacketHeader> getTargetClass() {
+                return GnBeaconPacketHeader.class;
+            }
+        };
+        final Instantiater guc = new Instantiater() {
+
+            @Override
+            public GnPacketHeader newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
+                return GnGUCPacketHeader.newInstance(rawData, offset, length);
+            }
+
+            @Override
+            public GnPacketHeader newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+                return GnGUCPacketHeader.newInstance(buffer, offset, length);
+            }
+
+            @Override
+            public int getMinimumLength() {
+                return GnGUCPacketHeader.SIZE_IN_BYTES;
+            }
+
+            @Override
+            public Class<? extends GnPacketHeader> getTargetClass() {
+                return GnGUCPacketHeader.class;
+            }
+        };
+        final Instantiater gbc = new Instantiater() {
+
+            @Override
+            public GnPacketHeader newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
+                return GnGBCPacketHeader.newInstance(rawData, offset, length);
+            }
 
+            @Override
+            public GnPacketHeader newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+                return GnGBCPacketHeader.newInstance(buffer, offset, length);
+            }
+
+            @Override
+            public int getMinimumLength() {
+                return GnGBCPacketHeader.SIZE_IN_BYTES;
+            }
+
+            @Override
+            public Class<? extends GnPacketHeader> getTargetClass() {
+                return GnGBCPacketHeader.class;
+            }
+        };
+        final Instantiater shb = new Instantiater() {
+
+            @Override
+            public GnPacketHeader newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
+                return GnSHBPacketHeader.newInstance(rawData, offset, length);
+            }
+
+            @Override
+            public GnPacketHeader newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+                return GnSHBPacketHeader.newInstance(buffer, offset, length);
+            }
+
+            @Override
+            public int getMinimumLength() {
+                return GnSHBPacketHeader.SIZE_IN_BYTES;
+            }
+
+            @Override
+            public Class<? extends GnPacketHeader> getTargetClass() {
+                return GnSHBPacketHeader.class;
+            }
+        };
+        final Instantiater tsb = new Instantiater() {
+
+            @Override
+            public GnPacketHeader newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
+                return GnTSBPacketHeader.newInstance(rawData, offset, length);
+            }
+
+            @Override
+            public GnPacketHeader newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+                return GnTSBPacketHeader.newInstance(buffer, offset, length);
+            }
+
+            @Override
+            public int getMinimumLength() {
+                return GnTSBPacketHeader.SIZE_IN_BYTES;
+            }
+
+            @Override
+            public Class<? extends GnPacketHeader> getTargetClass() {
+                return GnTSBPacketHeader.class;
+            }
+        };
+        final Instantiater lsRequest = new Instantiater() {
+
+            @Override
+            public GnPacketHeader newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
+                return GnLSRequestPacketHeader.newInstance(rawData, offset, length);
+            }
+
+            @Override
+            public GnPacketHeader newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+                return GnLSRequestPacketHeader.newInstance(buffer, offset, length);
+            }
+
+            @Override
+            public int getMinimumLength() {
+                return GnLSRequestPacketHeader.SIZE_IN_BYTES;
+            }
+
+            @Override
+            public Class<? extends GnPacketHeader> getTargetClass() {
+                return GnLSRequestPacketHeader.class;
+            }
+        };
+        final Instantiater lsReply = new Instantiater() {
+
+            @Override
+            public GnPacketHeader newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
+                return GnLSReplyPacketHeader.newInstance(rawData, offset, length);
+            }
+
+            @Override
+            public GnPacketHeader newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+                return GnLSReplyPacketHeader.newInstance(buffer, offset, length);
+            }
+
+            @Override
+            public int getMinimumLength() {
+                return GnLSReplyPacketHeader.SIZE_IN_BYTES;
+            }
+
+            @Override
+            public Class<? extends GnPacketHeader> getTargetClass() {
+                return GnLSReplyPacketHeader.class;
+            }
+        };
+        for (int subtype = 0; subtype <= 0x0F; subtype++) {
+            put(GnPacketHeaderType.BEACON, subtype, beacon);
+            put(GnPacketHeaderType.GEOUNICAST, subtype, guc);
+            put(GnPacketHeaderType.GEOANYCAST, subtype, gbc);
+            put(GnPacketHeaderType.GEOBROADCAST, subtype, gbc);
+            put(GnPacketHeaderType.TSB, subtype, tsb);
+        }
+        put(GnPacketHeaderType.TSB, GnPacketHeaderSubtype.SINGLE_HOP.value(), shb);
+        put(GnPacketHeaderType.LS, GnPacketHeaderSubtype.REQUEST.value(), lsRequest);
+        put(GnPacketHeaderType.LS, GnPacketHeaderSubtype.REPLY.value(), lsReply);
+    }
+
+    private void put(GnPacketHeaderType headerType, int headerSubtype, Instantiater instantiater) {
+        instantiaters[(headerType.value() << 4) | headerSubtype] = instantiater;
     }
 
     public static GnExtendedHeaderTypeFactory getInstance() {
@@ -30,30 +203,16 @@ public class GnExtendedHeaderTypeFactory implements PacketFactory<GnPacketHeader
 
     @Override
     public GnPacketHeader newInstance(byte[] rawData, int offset, int length, GnExtendedHeaderType number) {
-        final GnPacketHeaderType headerType = number.getHeaderType();
-        try {
-            if (headerType.equals(GnPacketHeaderType.BEACON)) {
-                return GnBeaconPacketHeader.newInstance(rawData, offset, length);
-            } else if (headerType.equals(GnPacketHeaderType.GEOANYCAST)) {
-                return GnGUCPacketHeader.newInstance(rawData, offset, length);
-            } else if (headerType.equals(GnPacketHeaderType.GEOANYCAST)
-                    || headerType.equals(GnPacketHeaderType.GEOBROADCAST)) {
-                return GnGBCPacketHeader.newInstance(rawData, offset, length);
-            } else if (headerType.equals(GnPacketHeaderType.TSB)) {
-                if (number.getHeaderSubtype().equals(GnPacketHeaderSubtype.SINGLE_HOP)) {
-                    return GnSHBPacketHeader.newInstance(rawData, offset, length);
-                }
-                return GnTSBPacketHeader.newInstance(rawData, offset, length);
-            } else if (headerType.equals(GnPacketHeaderType.LS)) {
-                final GnPacketHeaderSubtype subtype = number.getHeaderSubtype();
-                if (subtype.equals(GnPacketHeaderSubtype.REQUEST)) {
-                    return GnLSRequestPacketHeader.newInstance(rawData, offset, length);
-                } else if (subtype.equals(GnPacketHeaderSubtype.REPLY)) {
-                    return GnLSReplyPacketHeader.newInstance(rawData, offset, length);
-                }
-            }
-        } catch (IllegalRawDataException ex) {
-            return GnMalformedHeader.newInstance(rawData, offset, length);
+        final Instantiater instantiater = instantiaters[number.value() & 0xFF];
+        if (instantiater != null) {
+            if (length < instantiater.getMinimumLength()) {
+                return GnMalformedHeader.newInstance(rawData, offset, length);
+            }
+            try {
+                return instantiater.newInstance(rawData, offset, length);
+            } catch (IllegalRawDataException ex) {
+                return GnMalformedHeader.newInstance(rawData, offset, length);
+            }
         }
         return newInstance(rawData, offset, length);
     }
@@ -64,29 +223,30 @@ public class GnExtendedHeaderTypeFactory implements PacketFactory<GnPacketHeader
     }
 
     @Override
-    public Class<? extends GnPacketHeader> getTargetClass(GnExtendedHeaderType number) {
-        final GnPacketHeaderType headerType = number.getHeaderType();
-        if (headerType.equals(GnPacketHeaderType.BEACON)) {
-            return GnBeaconPacketHeader.class;
-        } else if (headerType.equals(GnPacketHeaderType.GEOANYCAST)) {
-            return GnGUCPacketHeader.class;
-        } else if (headerType.equals(GnPacketHeaderType.GEOANYCAST)
-                || headerType.equals(GnPacketHeaderType.GEOBROADCAST)) {
-            return GnGBCPacketHeader.class;
-        } else if (headerType.equals(GnPacketHeaderType.TSB)) {
-            if (number.getHeaderSubtype().equals(GnPacketHeaderSubtype.SINGLE_HOP)) {
-                return GnSHBPacketHeader.class;
+    public GnPacketHeader newInstance(ByteBuffer buffer, int offset, int length, GnExtendedHeaderType number) {
+        final Instantiater instantiater = instantiaters[number.value() & 0xFF];
+        if (instantiater != null) {
+            if (length < instantiater.getMinimumLength()) {
+                return GnMalformedHeader.newInstance(buffer, offset, length);
             }
-            return GnTSBPacketHeader.class;
-        } else if (headerType.equals(GnPacketHeaderType.LS)) {
-            final GnPacketHeaderSubtype subtype = number.getHeaderSubtype();
-            if (subtype.equals(GnPacketHeaderSubtype.REQUEST)) {
-                return GnLSRequestPacketHeader.class;
-            } else if (subtype.equals(GnPacketHeaderSubtype.REPLY)) {
-                return GnLSReplyPacketHeader.class;
+            try {
+                return instantiater.newInstance(buffer, offset, length);
+            } catch (IllegalRawDataException ex) {
+                return GnMalformedHeader.newInstance(buffer, offset, length);
             }
         }
-        return getTargetClass();
+        return newInstance(buffer, offset, length);
+    }
+
+    @Override
+    public GnPacketHeader newInstance(ByteBuffer buffer, int offset, int length) {
+        return GnEmptyHeader.newInstance(buffer, offset, length);
+    }
+
+    @Override
+    public Class<? extends GnPacketHeader> getTargetClass(GnExtendedHeaderType number) {
+        final Instantiater instantiater = instantiaters[number.value() & 0xFF];
+        return instantiater == null ? getTargetClass() : instantiater.getTargetClass();
     }
 
     @Override
@@ -98,6 +258,10 @@ public class GnExtendedHeaderTypeFactory implements PacketFactory<GnPacketHeader
 
         public GnPacketHeader newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException;
 
+        public GnPacketHeader newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException;
+
+        public int getMinimumLength();
+
         public Class<? extends GnPacketHeader> getTargetClass();
 
     }
@@ -6,41 +6,69 @@ import cuenen.raymond.gn.packet.GnEmptyHeader;
 import cuenen.raymond.gn.packet.GnMalformedHeader;
 import cuenen.raymond.gn.packet.GnSecureHeader;
 import cuenen.raymond.gn.packet.namednumber.GnHeaderType;
-import java.util.HashMap;
-import java.util.Map;
+import java.nio.ByteBuffer;
 import org.pcap4j.packet.IllegalRawDataException;
-import org.pcap4j.packet.factory.PacketFactory;
 
-public final class GnHeaderTypeFactory implements PacketFactory<GnHeader, GnHeaderType> {
+public final class GnHeaderTypeFactory implements BufferPacketFactory<GnHeader, GnHeaderType> {
 
     private static final GnHeaderTypeFactory INSTANCE = new GnHeaderTypeFactory();
-    private final Map<GnHeaderType, Instantiater> instantiaters = new HashMap<>();
+    private final Instantiater[] instantiaters = new Instantiater[1 << Byte.SIZE];
 
     private GnHeaderTypeFactory() {
-        instantiaters.put(GnHeaderType.COMMON_HEADER, new Instantiater() {
+        instantiaters[GnHeaderType.COMMON_HEADER.value()] = new Instantiater() {
 
             @Override
             public GnHeader newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
                 return GnCommonHeader.newInstance(rawData, offset, length);
             }
 
+            @Override
+            public boolean fits(byte[] rawData, int offset, int length) {
+                return length >= GnCommonHeader.SIZE_IN_BYTES;
+            }
+
+            @Override
+            public GnHeader newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+                return GnCommonHeader.newInstance(buffer, offset, length);
+            }
+
+            @Override
+            public boolean fits(ByteBuffer buffer, int offset, int length) {
+                return length >= GnCommonHeader.SIZE_IN_BYTES;
+            }
+
             @Override
             public Class<? extends GnHeader> getTargetClass() {
                 return GnCommonHeader.class;
             }
-        });
-        instantiaters.put(GnHeaderType.SECURE_HEADER, new Instantiater() {
+        };
+        instantiaters[GnHeaderType.SECURE_HEADER.value()] = new Instantiater() {
 
             @Override
             public GnHeader newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
                 return GnSecureHeader.newInstance(rawData, offset, length);
             }
 
+            @Override
+            public boolean fits(byte[] rawData, int offset, int length) {
+                return GnSecureHeader.lengthOf(rawData, offset, length) >= 0;
+            }
+
+            @Override
+            public GnHeader newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+                return GnSecureHeader.newInstance(buffer, offset, length);
+            }
+
+            @Override
+            public boolean fits(ByteBuffer buffer, int offset, int length) {
+                return GnSecureHeader.lengthOf(buffer, offset, length) >= 0;
+            }
+
             @Override
             public Class<? extends GnHeader> getTargetClass() {
                 return GnSecureHeader.class;
             }
-        });
+        };
     }
 
     public static GnHeaderTypeFactory getInstance() {
@@ -50,8 +78,11 @@ public final class GnHeaderTypeFactory implements PacketFactory<GnHeader, GnHead
     @Override
     public GnHeader newInstance(byte[] rawData, int offset, int length, GnHeaderType number) {
         try {
-            Instantiater instantiater = instantiaters.get(number);
+            Instantiater instantiater = instantiaters[number.value() & 0xFF];
             if (instantiater != null) {
+                if (!instantiater.fits(rawData, offset, length)) {
+                    return GnMalformedHeader.newInstance(rawData, offset, length);
+                }
                 return instantiater.newInstance(rawData, offset, length);
             }
         } catch (IllegalRawDataException e) {
@@ -65,9 +96,30 @@ public final class GnHeaderTypeFactory implements PacketFactory<GnHeader, GnHead
         return GnEmptyHeader.newInstance(rawData, offset, length);
     }
 
+    @Override
+    public GnHeader newInstance(ByteBuffer buffer, int offset, int length, GnHeaderType number) {
+        try {
+            Instantiater instantiater = instantiaters[number.value() & 0xFF];
+            if (instantiater != null) {
+                if (!instantiater.fits(buffer, offset, length)) {
+                    return GnMalformedHeader.newInstance(buffer, offset, length);
+                }
+                return instantiater.newInstance(buffer, offset, length);
+            }
+        } catch (IllegalRawDataException e) {
+            return GnMalformedHeader.newInstance(buffer, offset, length);
+        }
+        return newInstance(buffer, offset, length);
+    }
+
+    @Override
+    public GnHeader newInstance(ByteBuffer buffer, int offset, int length) {
+        return GnEmptyHeader.newInstance(buffer, offset, length);
+    }
+
     @Override
     public Class<? extends GnHeader> getTargetClass(GnHeaderType number) {
-        Instantiater instantiater = instantiaters.get(number);
+        Instantiater instantiater = instantiaters[number.value() & 0xFF];
         return instantiater == null ? getTargetClass() : instantiater.getTargetClass();
     }
 
@@ -80,6 +132,12 @@ public final class GnHeaderTypeFactory implements PacketFactory<GnHeader, GnHead
 
         public GnHeader newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException;
 
+        public boolean fits(byte[] rawData, int offset, int length);
+
+        public GnHeader newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException;
+
+        public boolean fits(ByteBuffer buffer, int offset, int length);
+
         public Class<? extends GnHeader> getTargetClass();
 
     }
@@ -2,6 +2,7 @@ package cuenen.raymond.gn.packet.factory;
 
 import cuenen.raymond.gn.packet.BtpPacket;
 import cuenen.raymond.gn.packet.namednumber.GnTransportType;
+import java.nio.ByteBuffer;
 import org.pcap4j.packet.IllegalRawDataException;
 import org.pcap4j.packet.Packet;
 
@@ -10,25 +11,35 @@ public class GnTransportTypePacketFactory extends AbstractGnPacketFactory<GnTran
     private static final GnTransportTypePacketFactory INSTANCE = new GnTransportTypePacketFactory();
 
     private GnTransportTypePacketFactory() {
-        instantiaters.put(GnTransportType.BTP_A, new PacketInstantiater() {
+        register(GnTransportType.BTP_A, BtpPacket.HEADER_SIZE_IN_BYTES, new BufferPacketInstantiater() {
 
             @Override
             public Packet newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
                 return BtpPacket.newPacket(GnTransportType.BTP_A, rawData, offset, length);
             }
 
+            @Override
+            public Packet newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+                return BtpPacket.newPacket(GnTransportType.BTP_A, buffer, offset, length);
+            }
+
             @Override
             public Class<? extends Packet> getTargetClass() {
                 return BtpPacket.class;
             }
         });
-        instantiaters.put(GnTransportType.BTP_B, new PacketInstantiater() {
+        register(GnTransportType.BTP_B, BtpPacket.HEADER_SIZE_IN_BYTES, new BufferPacketInstantiater() {
 
             @Override
             public Packet newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
                 return BtpPacket.newPacket(GnTransportType.BTP_B, rawData, offset, length);
             }
 
+            @Override
+            public Packet newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+                return BtpPacket.newPacket(GnTransportType.BTP_B, buffer, offset, length);
+            }
+
             @Override
             public Class<? extends Packet> getTargetClass() {
                 return BtpPacket.class;
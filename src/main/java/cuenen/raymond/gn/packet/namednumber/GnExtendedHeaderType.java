@@ -4,11 +4,42 @@ import org.pcap4j.packet.namednumber.NamedNumber;
 
 public final class GnExtendedHeaderType extends NamedNumber<Byte, GnExtendedHeaderType> {
 
+    private static final GnExtendedHeaderType[] interned = new GnExtendedHeaderType[1 << Byte.SIZE];
+
     private final GnPacketHeaderType headerType;
     private final GnPacketHeaderSubtype headerSubtype;
 
+    /**
+     * Returns the extended header type of a combined header type and subtype
+     * byte, as found in the Common header.
+     *
+     * @param value
+     * @return an interned GnExtendedHeaderType object.
+     */
+    public static GnExtendedHeaderType getInstance(byte value) {
+        final GnPacketHeaderType headerType = GnPacketHeaderType.getInstance((byte) ((value >> 4) & 0x0F));
+        return newInstance(headerType, GnPacketHeaderSubtype.getInstance(headerType, (byte) (value & 0x0F)));
+    }
+
+    /**
+     * @param headerType
+     * @param headerSubtype
+     * @return an interned GnExtendedHeaderType object when both values fit in
+     * a nibble, a new one otherwise.
+     */
     public static GnExtendedHeaderType newInstance(GnPacketHeaderType headerType, GnPacketHeaderSubtype headerSubtype) {
-        return new GnExtendedHeaderType(headerType, headerSubtype);
+        final int type = headerType.value() & 0xFF;
+        final int subtype = headerSubtype.value() & 0xFF;
+        if (type > 0x0F || subtype > 0x0F) {
+            return new GnExtendedHeaderType(headerType, headerSubtype);
+        }
+        final int index = (type << 4) | subtype;
+        GnExtendedHeaderType extendedType = interned[index];
+        if (extendedType == null || extendedType.headerType != headerType || extendedType.headerSubtype != headerSubtype) {
+            extendedType = new GnExtendedHeaderType(headerType, headerSubtype);
+            interned[index] = extendedType;
+        }
+        return extendedType;
     }
 
     public GnExtendedHeaderType(GnPacketHeaderType headerType, GnPacketHeaderSubtype headerSubtype) {
@@ -1,7 +1,5 @@
 package cuenen.raymond.gn.packet.namednumber;
 
-import java.util.HashMap;
-import java.util.Map;
 import org.pcap4j.packet.namednumber.NamedNumber;
 
 public final class GnHeaderType extends NamedNumber<Byte, GnHeaderType> {
@@ -10,12 +8,21 @@ public final class GnHeaderType extends NamedNumber<Byte, GnHeaderType> {
     public static final GnHeaderType COMMON_HEADER = new GnHeaderType((byte) 1, "Common");
     public static final GnHeaderType SECURE_HEADER = new GnHeaderType((byte) 2, "Secured");
 
-    private static final Map<Byte, GnHeaderType> registry = new HashMap<>();
+    /**
+     * Registered types indexed by value. A registration publishes a new copy
+     * of the table, so a lookup reads a table that never changes and needs
+     * no lock.
+     */
+    private static volatile GnHeaderType[] registry = new GnHeaderType[1 << Byte.SIZE];
+    private static final GnHeaderType[] unknowns = new GnHeaderType[1 << Byte.SIZE];
 
     static {
-        registry.put(ANY.value(), ANY);
-        registry.put(COMMON_HEADER.value(), COMMON_HEADER);
-        registry.put(SECURE_HEADER.value(), SECURE_HEADER);
+        for (int i = 0; i < unknowns.length; i++) {
+            unknowns[i] = new GnHeaderType((byte) i, "Unknown");
+        }
+        register(ANY);
+        register(COMMON_HEADER);
+        register(SECURE_HEADER);
     }
 
     public GnHeaderType(Byte value, String name) {
@@ -23,14 +30,18 @@ public final class GnHeaderType extends NamedNumber<Byte, GnHeaderType> {
     }
 
     public static GnHeaderType getInstance(Byte value) {
-        if (registry.containsKey(value)) {
-            return registry.get(value);
-        }
-        return new GnHeaderType(value, "Unknown");
+        final int index = value & 0xFF;
+        final GnHeaderType type = registry[index];
+        return type == null ? unknowns[index] : type;
     }
 
-    public static GnHeaderType register(GnHeaderType type) {
-        return registry.put(type.value(), type);
+    public static synchronized GnHeaderType register(GnHeaderType type) {
+        final int index = type.value() & 0xFF;
+        final GnHeaderType[] table = registry.clone();
+        final GnHeaderType previous = table[index];
+        table[index] = type;
+        registry = table;
+        return previous;
     }
 
     @Override
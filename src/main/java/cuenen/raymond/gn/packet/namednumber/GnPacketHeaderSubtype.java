@@ -1,7 +1,5 @@
 package cuenen.raymond.gn.packet.namednumber;
 
-import java.util.HashMap;
-import java.util.Map;
 import org.pcap4j.packet.namednumber.NamedNumber;
 
 public final class GnPacketHeaderSubtype extends NamedNumber<Byte, GnPacketHeaderSubtype> {
@@ -15,50 +13,31 @@ public final class GnPacketHeaderSubtype extends NamedNumber<Byte, GnPacketHeade
     public static final GnPacketHeaderSubtype REQUEST = new GnPacketHeaderSubtype((byte) 0, "Request");
     public static final GnPacketHeaderSubtype REPLY = new GnPacketHeaderSubtype((byte) 1, "Reply");
 
-    private static final Map<GnPacketHeaderType, Map<Byte, GnPacketHeaderSubtype>> registry = new HashMap<>();
+    /**
+     * Registered subtypes indexed by header type and value. A registration
+     * publishes a new outer table with a new row for its header type, so a
+     * lookup reads tables that never change and needs no lock.
+     */
+    private static volatile GnPacketHeaderSubtype[][] registry = new GnPacketHeaderSubtype[1 << Byte.SIZE][];
+    private static final GnPacketHeaderSubtype[] unknowns = new GnPacketHeaderSubtype[1 << Byte.SIZE];
 
     static {
-        registry.put(GnPacketHeaderType.ANY, new HashMap<Byte, GnPacketHeaderSubtype>() {
-            {
-                put(UNSPECIFIED.value(), UNSPECIFIED);
-            }
-        });
-        registry.put(GnPacketHeaderType.BEACON, new HashMap<Byte, GnPacketHeaderSubtype>() {
-            {
-                put(UNSPECIFIED.value(), UNSPECIFIED);
-            }
-        });
-        registry.put(GnPacketHeaderType.GEOUNICAST, new HashMap<Byte, GnPacketHeaderSubtype>() {
-            {
-                put(UNSPECIFIED.value(), UNSPECIFIED);
-            }
-        });
-        registry.put(GnPacketHeaderType.GEOANYCAST, new HashMap<Byte, GnPacketHeaderSubtype>() {
-            {
-                put(CIRCLE.value(), CIRCLE);
-                put(RECTANGLE.value(), RECTANGLE);
-                put(ELLIPSE.value(), ELLIPSE);
-            }
-        });
-        registry.put(GnPacketHeaderType.GEOBROADCAST, new HashMap<Byte, GnPacketHeaderSubtype>() {
-            {
-                put(CIRCLE.value(), CIRCLE);
-                put(RECTANGLE.value(), RECTANGLE);
-                put(ELLIPSE.value(), ELLIPSE);
-            }
-        });
-        registry.put(GnPacketHeaderType.TSB, new HashMap<Byte, GnPacketHeaderSubtype>() {
-            {
-                put(SINGLE_HOP.value(), SINGLE_HOP);
-                put(MULTI_HOP.value(), MULTI_HOP);
-            }
-        });
-        registry.put(GnPacketHeaderType.LS, new HashMap<Byte, GnPacketHeaderSubtype>() {
-            {
-                put(REQUEST.value(), REQUEST);
-                put(REPLY.value(), REPLY);
-            }
-        });
+        for (int i = 0; i < unknowns.length; i++) {
+            unknowns[i] = new GnPacketHeaderSubtype((byte) i, "Unknown");
+        }
+        register(GnPacketHeaderType.ANY, UNSPECIFIED);
+        register(GnPacketHeaderType.BEACON, UNSPECIFIED);
+        register(GnPacketHeaderType.GEOUNICAST, UNSPECIFIED);
+        register(GnPacketHeaderType.GEOANYCAST, CIRCLE);
+        register(GnPacketHeaderType.GEOANYCAST, RECTANGLE);
+        register(GnPacketHeaderType.GEOANYCAST, ELLIPSE);
+        register(GnPacketHeaderType.GEOBROADCAST, CIRCLE);
+        register(GnPacketHeaderType.GEOBROADCAST, RECTANGLE);
+        register(GnPacketHeaderType.GEOBROADCAST, ELLIPSE);
+        register(GnPacketHeaderType.TSB, SINGLE_HOP);
+        register(GnPacketHeaderType.TSB, MULTI_HOP);
+        register(GnPacketHeaderType.LS, REQUEST);
+        register(GnPacketHeaderType.LS, REPLY);
     }
 
     public GnPacketHeaderSubtype(Byte value, String name) {
@@ -66,26 +45,23 @@ public final class GnPacketHeaderSubtype extends NamedNumber<Byte, GnPacketHeade
     }
 
     public static GnPacketHeaderSubtype getInstance(GnPacketHeaderType type, Byte value) {
-        if (registry.containsKey(type)) {
-            return getInstance(registry.get(type), value);
-        }
-        return new GnPacketHeaderSubtype(value, "Unknown");
-    }
-
-    private static GnPacketHeaderSubtype getInstance(Map<Byte, GnPacketHeaderSubtype> map, Byte value) {
-        if (map.containsKey(value)) {
-            return map.get(value);
-        }
-        return new GnPacketHeaderSubtype(value, "Unknown");
+        final int index = value & 0xFF;
+        final GnPacketHeaderSubtype[] subtypes = registry[type.value() & 0xFF];
+        final GnPacketHeaderSubtype subtype = subtypes == null ? null : subtypes[index];
+        return subtype == null ? unknowns[index] : subtype;
     }
 
-    public static GnPacketHeaderSubtype register(GnPacketHeaderType type, GnPacketHeaderSubtype subtype) {
-        Map<Byte, GnPacketHeaderSubtype> map = registry.get(type);
-        if (map == null) {
-            map = new HashMap<>();
-            registry.put(type, map);
-        }
-        return map.put(subtype.value(), subtype);
+    public static synchronized GnPacketHeaderSubtype register(GnPacketHeaderType type, GnPacketHeaderSubtype subtype) {
+        final int row = type.value() & 0xFF;
+        final int index = subtype.value() & 0xFF;
+        final GnPacketHeaderSubtype[][] table = registry.clone();
+        final GnPacketHeaderSubtype[] subtypes = table[row] == null
+                ? new GnPacketHeaderSubtype[1 << Byte.SIZE] : table[row].clone();
+        final GnPacketHeaderSubtype previous = subtypes[index];
+        subtypes[index] = subtype;
+        table[row] = subtypes;
+        registry = table;
+        return previous;
     }
 
     @Override
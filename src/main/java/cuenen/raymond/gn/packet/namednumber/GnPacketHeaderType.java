@@ -1,7 +1,5 @@
 package cuenen.raymond.gn.packet.namednumber;
 
-import java.util.HashMap;
-import java.util.Map;
 import org.pcap4j.packet.namednumber.NamedNumber;
 
 public final class GnPacketHeaderType extends NamedNumber<Byte, GnPacketHeaderType> {
@@ -14,16 +12,24 @@ public final class GnPacketHeaderType extends NamedNumber<Byte, GnPacketHeaderTy
     public static final GnPacketHeaderType TSB = new GnPacketHeaderType((byte) 5, "TSB");
     public static final GnPacketHeaderType LS = new GnPacketHeaderType((byte) 6, "LS");
 
-    private static final Map<Byte, GnPacketHeaderType> registry = new HashMap<>();
+    /**
+     * Registered types indexed by value. The table is copied on write: a
+     * published table is never changed, only replaced.
+     */
+    private static volatile GnPacketHeaderType[] registry = new GnPacketHeaderType[1 << Byte.SIZE];
+    private static final GnPacketHeaderType[] unknowns = new GnPacketHeaderType[1 << Byte.SIZE];
 
     static {
-        registry.put(ANY.value(), ANY);
-        registry.put(BEACON.value(), BEACON);
-        registry.put(GEOUNICAST.value(), GEOUNICAST);
-        registry.put(GEOANYCAST.value(), GEOANYCAST);
-        registry.put(GEOBROADCAST.value(), GEOBROADCAST);
-        registry.put(TSB.value(), TSB);
-        registry.put(LS.value(), LS);
+        for (int i = 0; i < unknowns.length; i++) {
+            unknowns[i] = new GnPacketHeaderType((byte) i, "Unspecified");
+        }
+        register(ANY);
+        register(BEACON);
+        register(GEOUNICAST);
+        register(GEOANYCAST);
+        register(GEOBROADCAST);
+        register(TSB);
+        register(LS);
     }
 
     public GnPacketHeaderType(Byte value, String name) {
@@ -31,14 +37,18 @@ public final class GnPacketHeaderType extends NamedNumber<Byte, GnPacketHeaderTy
     }
 
     public static GnPacketHeaderType getInstance(Byte value) {
-        if (registry.containsKey(value)) {
-            return registry.get(value);
-        }
-        return new GnPacketHeaderType(value, "Unspecified");
+        final int index = value & 0xFF;
+        final GnPacketHeaderType type = registry[index];
+        return type == null ? unknowns[index] : type;
     }
 
-    public static GnPacketHeaderType register(GnPacketHeaderType type) {
-        return registry.put(type.value(), type);
+    public static synchronized GnPacketHeaderType register(GnPacketHeaderType type) {
+        final int index = type.value() & 0xFF;
+        final GnPacketHeaderType[] table = registry.clone();
+        final GnPacketHeaderType previous = table[index];
+        table[index] = type;
+        registry = table;
+        return previous;
     }
 
     @Override
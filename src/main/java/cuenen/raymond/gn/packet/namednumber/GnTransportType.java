@@ -1,7 +1,5 @@
 package cuenen.raymond.gn.packet.namednumber;
 
-import java.util.HashMap;
-import java.util.Map;
 import org.pcap4j.packet.namednumber.NamedNumber;
 
 public final class GnTransportType extends NamedNumber<Byte, GnTransportType> {
@@ -11,13 +9,20 @@ public final class GnTransportType extends NamedNumber<Byte, GnTransportType> {
     public static final GnTransportType BTP_B = new GnTransportType((byte) 2, "BTP-B");
     public static final GnTransportType IPV6 = new GnTransportType((byte) 3, "IPv6");
 
-    private static final Map<Byte, GnTransportType> registry = new HashMap<>();
+    /**
+     * Copy-on-write table of registered types, indexed by value.
+     */
+    private static volatile GnTransportType[] registry = new GnTransportType[1 << Byte.SIZE];
+    private static final GnTransportType[] unknowns = new GnTransportType[1 << Byte.SIZE];
 
     static {
-        registry.put(ANY.value(), ANY);
-        registry.put(BTP_A.value(), BTP_A);
-        registry.put(BTP_B.value(), BTP_B);
-        registry.put(IPV6.value(), IPV6);
+        for (int i = 0; i < unknowns.length; i++) {
+            unknowns[i] = new GnTransportType((byte) i, "unknown");
+        }
+        register(ANY);
+        register(BTP_A);
+        register(BTP_B);
+        register(IPV6);
     }
 
     public GnTransportType(Byte value, String name) {
@@ -25,14 +30,18 @@ public final class GnTransportType extends NamedNumber<Byte, GnTransportType> {
     }
 
     public static GnTransportType getInstance(Byte value) {
-        if (registry.containsKey(value)) {
-            return registry.get(value);
-        }
-        return new GnTransportType(value, "unknown");
+        final int index = value & 0xFF;
+        final GnTransportType type = registry[index];
+        return type == null ? unknowns[index] : type;
     }
 
-    public static GnTransportType register(GnTransportType type) {
-        return registry.put(type.value(), type);
+    public static synchronized GnTransportType register(GnTransportType type) {
+        final int index = type.value() & 0xFF;
+        final GnTransportType[] table = registry.clone();
+        final GnTransportType previous = table[index];
+        table[index] = type;
+        registry = table;
+        return previous;
     }
 
     @Override
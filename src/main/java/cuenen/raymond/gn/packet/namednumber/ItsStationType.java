@@ -1,5 +1,6 @@
 package cuenen.raymond.gn.packet.namednumber;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import org.pcap4j.packet.namednumber.NamedNumber;
@@ -20,22 +21,27 @@ public final class ItsStationType extends NamedNumber<Integer, ItsStationType> {
     public static final ItsStationType TRAM = new ItsStationType(11, "Tram");
     public static final ItsStationType ROAD_SIDE_UNIT = new ItsStationType(15, "Road Side Unit");
 
-    private static final Map<Integer, ItsStationType> registry = new HashMap<>();
+    /**
+     * Registered types by value. A registration publishes a new unmodifiable
+     * copy of the map, so a lookup reads a map that never changes and needs no
+     * lock.
+     */
+    private static volatile Map<Integer, ItsStationType> registry = Collections.emptyMap();
 
     static {
-        registry.put(UNKNOWN.value(), UNKNOWN);
-        registry.put(PEDESTRIAN.value(), PEDESTRIAN);
-        registry.put(CYCLIST.value(), CYCLIST);
-        registry.put(MOPED.value(), MOPED);
-        registry.put(MOTERCYCLE.value(), MOTERCYCLE);
-        registry.put(PASSENGER_CAR.value(), PASSENGER_CAR);
-        registry.put(BUS.value(), BUS);
-        registry.put(LIGHT_TRUCK.value(), LIGHT_TRUCK);
-        registry.put(HEAVY_TRUCK.value(), HEAVY_TRUCK);
-        registry.put(TRAILER.value(), TRAILER);
-        registry.put(SPECIAL_VEHICLE.value(), SPECIAL_VEHICLE);
-        registry.put(TRAM.value(), TRAM);
-        registry.put(ROAD_SIDE_UNIT.value(), ROAD_SIDE_UNIT);
+        register(UNKNOWN);
+        register(PEDESTRIAN);
+        register(CYCLIST);
+        register(MOPED);
+        register(MOTERCYCLE);
+        register(PASSENGER_CAR);
+        register(BUS);
+        register(LIGHT_TRUCK);
+        register(HEAVY_TRUCK);
+        register(TRAILER);
+        register(SPECIAL_VEHICLE);
+        register(TRAM);
+        register(ROAD_SIDE_UNIT);
     }
 
     public ItsStationType(Integer value, String name) {
@@ -43,14 +49,15 @@ public final class ItsStationType extends NamedNumber<Integer, ItsStationType> {
     }
 
     public static ItsStationType getInstance(Integer value) {
-        if (registry.containsKey(value)) {
-            return registry.get(value);
-        }
-        return new ItsStationType(value, "Unknown");
+        final ItsStationType type = registry.get(value);
+        return type == null ? new ItsStationType(value, "Unknown") : type;
     }
 
-    public static ItsStationType register(ItsStationType type) {
-        return registry.put(type.value(), type);
+    public static synchronized ItsStationType register(ItsStationType type) {
+        final Map<Integer, ItsStationType> map = new HashMap<>(registry);
+        final ItsStationType previous = map.put(type.value(), type);
+        registry = Collections.unmodifiableMap(map);
+        return previous;
     }
 
     @Override
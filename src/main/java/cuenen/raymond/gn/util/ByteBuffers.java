@@ -0,0 +1,219 @@
+package cuenen.raymond.gn.util;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The {@link ByteBuffer} counterparts of the {@code ByteArrays} methods used
+ * to decode and encode headers. Indexes are absolute, so the position and
+ * limit of a buffer are left alone, and values are read and written in
+ * network byte order whatever the order of the buffer, unless another order
+ * is given.
+ */
+public final class ByteBuffers {
+
+    private static final ThreadLocal<ByteBuffer> VIEW = new ThreadLocal<>();
+
+    private ByteBuffers() {
+        throw new AssertionError();
+    }
+
+    /**
+     * Returns a buffer over the whole array. The buffer handed out last on
+     * the calling thread is reused while it is over the same array, so the
+     * headers decoded from one frame share a buffer instead of wrapping the
+     * frame each. Since the buffer is shared, use only absolute indexes on it
+     * and leave its order alone.
+     * <p>
+     * The buffer is only meant for decoding or encoding within one call and
+     * must not be kept beyond it: a later caller may change its order or
+     * position, and the thread holds on to the last array it was asked for.
+     * An object that keeps its bytes wraps the array itself.
+     * </p>
+     *
+     * @param array
+     * @return a buffer over the array.
+     */
+    public static ByteBuffer view(byte[] array) {
+        ByteBuffer view = VIEW.get();
+        if (view == null || view.array() != array) {
+            view = ByteBuffer.wrap(array);
+            VIEW.set(view);
+        }
+        return view;
+    }
+
+    public static byte getByte(ByteBuffer buffer, int index) {
+        return buffer.get(index);
+    }
+
+    public static short getShort(ByteBuffer buffer, int index) {
+        final short value = buffer.getShort(index);
+        return buffer.order() == ByteOrder.BIG_ENDIAN ? value : Short.reverseBytes(value);
+    }
+
+    public static int getInt(ByteBuffer buffer, int index) {
+        final int value = buffer.getInt(index);
+        return buffer.order() == ByteOrder.BIG_ENDIAN ? value : Integer.reverseBytes(value);
+    }
+
+    public static long getLong(ByteBuffer buffer, int index) {
+        final long value = buffer.getLong(index);
+        return buffer.order() == ByteOrder.BIG_ENDIAN ? value : Long.reverseBytes(value);
+    }
+
+    public static short getShort(ByteBuffer buffer, int index, ByteOrder order) {
+        final short value = buffer.getShort(index);
+        return buffer.order() == order ? value : Short.reverseBytes(value);
+    }
+
+    public static int getInt(ByteBuffer buffer, int index, ByteOrder order) {
+        final int value = buffer.getInt(index);
+        return buffer.order() == order ? value : Integer.reverseBytes(value);
+    }
+
+    /**
+     * Reads an unsigned integer of {@code size} bytes, at most
+     * four, in the given order.
+     *
+     * @param buffer
+     * @param index
+     * @param size
+     * @param order
+     * @return the value.
+     */
+    public static int getInt(ByteBuffer buffer, int index, int size, ByteOrder order) {
+        int value = 0;
+        for (int i = 0; i < size; i++) {
+            final int shift = order == ByteOrder.BIG_ENDIAN ? (size - 1 - i) * Byte.SIZE : i * Byte.SIZE;
+            value |= (buffer.get(index + i) & 0xFF) << shift;
+        }
+        return value;
+    }
+
+    public static long getLong(ByteBuffer buffer, int index, ByteOrder order) {
+        final long value = buffer.getLong(index);
+        return buffer.order() == order ? value : Long.reverseBytes(value);
+    }
+
+    public static void putByte(ByteBuffer buffer, int index, byte value) {
+        buffer.put(index, value);
+    }
+
+    public static void putShort(ByteBuffer buffer, int index, short value) {
+        putShort(buffer, index, value, ByteOrder.BIG_ENDIAN);
+    }
+
+    public static void putShort(ByteBuffer buffer, int index, short value, ByteOrder order) {
+        buffer.putShort(index, buffer.order() == order ? value : Short.reverseBytes(value));
+    }
+
+    public static void putInt(ByteBuffer buffer, int index, int value) {
+        putInt(buffer, index, value, ByteOrder.BIG_ENDIAN);
+    }
+
+    public static void putInt(ByteBuffer buffer, int index, int value, ByteOrder order) {
+        buffer.putInt(index, buffer.order() == order ? value : Integer.reverseBytes(value));
+    }
+
+    public static void putLong(ByteBuffer buffer, int index, long value) {
+        putLong(buffer, index, value, ByteOrder.BIG_ENDIAN);
+    }
+
+    public static void putLong(ByteBuffer buffer, int index, long value, ByteOrder order) {
+        buffer.putLong(index, buffer.order() == order ? value : Long.reverseBytes(value));
+    }
+
+    /**
+     * Copies all of {@code data} into the buffer, starting at {@code index}.
+     *
+     * @param buffer
+     * @param index
+     * @param data
+     */
+    public static void putBytes(ByteBuffer buffer, int index, byte[] data) {
+        putBytes(buffer, index, data, 0, data.length);
+    }
+
+    /**
+     * Copies {@code length} bytes of {@code data}, starting at
+     * {@code offset}, into the buffer, starting at {@code index}.
+     *
+     * @param buffer
+     * @param index
+     * @param data
+     * @param offset
+     * @param length
+     */
+    public static void putBytes(ByteBuffer buffer, int index, byte[] data, int offset, int length) {
+        if (buffer.hasArray()) {
+            System.arraycopy(data, offset, buffer.array(), buffer.arrayOffset() + index, length);
+        } else {
+            final ByteBuffer target = buffer.duplicate();
+            target.position(index);
+            target.put(data, offset, length);
+        }
+    }
+
+    /**
+     * Copies {@code length} bytes of {@code data}, starting at absolute index
+     * {@code offset}, into the buffer, starting at {@code index}. The
+     * positions and limits of both buffers are left alone.
+     *
+     * @param buffer
+     * @param index
+     * @param data
+     * @param offset
+     * @param length
+     */
+    public static void putBytes(ByteBuffer buffer, int index, ByteBuffer data, int offset, int length) {
+        if (data.hasArray()) {
+            putBytes(buffer, index, data.array(), data.arrayOffset() + offset, length);
+        } else {
+            final ByteBuffer source = data.duplicate();
+            source.limit(offset + length).position(offset);
+            final ByteBuffer target = buffer.duplicate();
+            target.position(index);
+            target.put(source);
+        }
+    }
+
+    /**
+     * @param buffer
+     * @param index
+     * @param length
+     * @return a copy of {@code length} bytes of the buffer, starting at
+     * {@code index}.
+     */
+    public static byte[] getSubArray(ByteBuffer buffer, int index, int length) {
+        final byte[] array = new byte[length];
+        if (buffer.hasArray()) {
+            System.arraycopy(buffer.array(), buffer.arrayOffset() + index, array, 0, length);
+        } else {
+            final ByteBuffer source = buffer.duplicate();
+            source.position(index);
+            source.get(array);
+        }
+        return array;
+    }
+
+    /**
+     * Validates the arguments the way {@code ByteArrays.validateBounds}
+     * does, against the limit of the buffer.
+     *
+     * @param buffer
+     * @param offset
+     * @param length
+     */
+    public static void validateBounds(ByteBuffer buffer, int offset, int length) {
+        if (buffer == null) {
+            throw new NullPointerException("buffer must not be null.");
+        }
+        if (length == 0) {
+            throw new IllegalArgumentException("length is zero.");
+        }
+        if (offset < 0 || length < 0 || offset + length > buffer.limit()) {
+            throw new IndexOutOfBoundsException("buffer.limit: " + buffer.limit() + ", offset: " + offset + ", len: " + length);
+        }
+    }
+}
@@ -1,16 +1,19 @@
 package cuenen.raymond.gn.util;
 
+import java.nio.ByteBuffer;
 import org.pcap4j.packet.IllegalRawDataException;
 import org.pcap4j.util.ByteArrays;
 import static org.pcap4j.util.ByteArrays.INT_SIZE_IN_BYTES;
 
 public final class GeoPosition {
 
-    private static final int LAT_OFFSET = 0;
-    private static final int LAT_SIZE = INT_SIZE_IN_BYTES;
-    private static final int LONG_OFFSET = LAT_OFFSET + LAT_SIZE;
-    private static final int LONG_SIZE = INT_SIZE_IN_BYTES;
-    public static final int SIZE_IN_BYTES = LONG_OFFSET + LONG_SIZE;
+    public static final HeaderLayout LAYOUT = HeaderLayout.builder("Geo Position")
+            .field("Latitude", INT_SIZE_IN_BYTES)
+            .field("Longitude", INT_SIZE_IN_BYTES)
+            .build();
+    private static final int LAT_OFFSET = LAYOUT.offsetOf("Latitude");
+    private static final int LONG_OFFSET = LAYOUT.offsetOf("Longitude");
+    public static final int SIZE_IN_BYTES = LAYOUT.length();
 
     private final int latitude;
     private final int longitude;
@@ -28,15 +31,47 @@ public final class GeoPosition {
      */
     public static GeoPosition newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
         ByteArrays.validateBounds(rawData, offset, length);
-        return new GeoPosition(rawData, offset, length);
+        return new GeoPosition(ByteBuffers.view(rawData), offset, length);
     }
 
-    private GeoPosition(byte[] rawData, int offset, int length) throws IllegalRawDataException {
+    /**
+     * A static factory method that decodes from a buffer, which may be direct
+     * or mapped. The offset is an absolute index in the buffer. This method
+     * validates the arguments by
+     * {@link ByteBuffers#validateBounds(ByteBuffer, int, int)}, which may throw
+     * exceptions undocumented here.
+     *
+     * @param buffer
+     * @param offset
+     * @param length
+     * @return a new GeoPosition object.
+     * @throws org.pcap4j.packet.IllegalRawDataException
+     */
+    public static GeoPosition newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+        ByteBuffers.validateBounds(buffer, offset, length);
+        return new GeoPosition(buffer, offset, length);
+    }
+
+    /**
+     * @param latitude in 1/10 micro degree.
+     * @param longitude in 1/10 micro degree.
+     * @return a new GeoPosition object.
+     */
+    public static GeoPosition valueOf(int latitude, int longitude) {
+        return new GeoPosition(latitude, longitude);
+    }
+
+    private GeoPosition(int latitude, int longitude) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    private GeoPosition(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
         if (length < SIZE_IN_BYTES) {
             throw new IllegalRawDataException("The data is too short to build a GeoPosition");
         }
-        latitude = ByteArrays.getInt(rawData, LAT_OFFSET + offset);
-        longitude = ByteArrays.getInt(rawData, LONG_OFFSET + offset);
+        latitude = ByteBuffers.getInt(buffer, LAT_OFFSET + offset);
+        longitude = ByteBuffers.getInt(buffer, LONG_OFFSET + offset);
     }
 
     public int getLatitude() {
@@ -49,14 +84,18 @@ public final class GeoPosition {
 
     public void writeTo(byte[] rawData, int offset) {
         ByteArrays.validateBounds(rawData, offset, SIZE_IN_BYTES);
-        rawData[LAT_OFFSET] = (byte) (latitude << 24);
-        rawData[LAT_OFFSET + 1] = (byte) (latitude << 16);
-        rawData[LAT_OFFSET + 2] = (byte) (latitude << 8);
-        rawData[LAT_OFFSET + 3] = (byte) latitude;
-        rawData[LONG_OFFSET] = (byte) (longitude << 24);
-        rawData[LONG_OFFSET + 1] = (byte) (longitude << 16);
-        rawData[LONG_OFFSET + 2] = (byte) (longitude << 8);
-        rawData[LONG_OFFSET + 3] = (byte) longitude;
+        writeTo(ByteBuffers.view(rawData), offset);
+    }
+
+    /**
+     * Writes this position at an absolute index of the buffer.
+     *
+     * @param buffer
+     * @param offset
+     */
+    public void writeTo(ByteBuffer buffer, int offset) {
+        ByteBuffers.putInt(buffer, LAT_OFFSET + offset, latitude);
+        ByteBuffers.putInt(buffer, LONG_OFFSET + offset, longitude);
     }
 
     public String buildString(String prefix) {
@@ -1,23 +1,39 @@
 package cuenen.raymond.gn.util;
 
 import cuenen.raymond.gn.packet.namednumber.ItsStationType;
+import java.io.Serializable;
 import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import org.pcap4j.util.ByteArrays;
 import org.pcap4j.util.LinkLayerAddress;
 
-public final class GnAddress extends LinkLayerAddress {
+/**
+ * A GeoNetworking address, held as the 64 bits of its wire format: the
+ * manual flag, the 5-bit station type, the 10-bit country code and the 48-bit
+ * MID, most significant first.
+ */
+public final class GnAddress implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    private static final Pattern HEX_SEPARATOR_PATTERN = Pattern.compile("([^0-9a-fA-F])");
 
     public static final int SIZE_IN_BYTES = 8;
 
-    private GnAddress(byte[] address) {
-        super(address);
+    private final long value;
+
+    private GnAddress(long value) {
+        this.value = value;
     }
 
     public static GnAddress getByAddress(byte[] address) {
         if (address.length != SIZE_IN_BYTES) {
             throw new IllegalArgumentException();
         }
-        return new GnAddress(ByteArrays.clone(address));
+        return new GnAddress(ByteArrays.getLong(address, 0));
+    }
+
+    public static GnAddress getByValue(long value) {
+        return new GnAddress(value);
     }
 
     public static GnAddress getByName(String name) {
@@ -30,19 +46,61 @@ public final class GnAddress extends LinkLayerAddress {
         return getByAddress(ByteArrays.parseByteArray(name, separator));
     }
 
+    /**
+     * @return the address as a long, the first byte on the wire being the
+     * most significant.
+     */
+    public long getValue() {
+        return value;
+    }
+
+    public byte[] getAddress() {
+        return ByteArrays.toByteArray(value);
+    }
+
+    public int length() {
+        return SIZE_IN_BYTES;
+    }
+
     public boolean isManuallyConfigured() {
-        return (getAddress()[0] & 0x80) != 0;
+        return value < 0;
     }
 
     public ItsStationType getStationType() {
-        return ItsStationType.getInstance((getAddress()[0] & 0x7C) >> 2);
+        return ItsStationType.getInstance((int) (value >>> 58) & 0x1F);
     }
 
     public int getCountryCode() {
-        return ((getAddress()[0] & 0x03) << 8) | (getAddress()[1] & 0xFF);
+        return (int) (value >>> 48) & 0x3FF;
+    }
+
+    /**
+     * @return the MID, the link-layer address, as the low 48 bits of a long.
+     */
+    public long getMid() {
+        return value & 0xFFFFFFFFFFFFL;
     }
 
     public LinkLayerAddress getLinkLayerAddress() {
         return LinkLayerAddress.getByAddress(ByteArrays.getSubArray(getAddress(), 2));
     }
+
+    @Override
+    public String toString() {
+        return ByteArrays.toHexString(getAddress(), ":");
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof GnAddress) {
+            GnAddress that = (GnAddress) obj;
+            return this.value == that.value;
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (value ^ (value >>> 32));
+    }
 }
@@ -0,0 +1,207 @@
+package cuenen.raymond.gn.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Describes the fixed-size fields of a header in wire order. Headers derive
+ * their field offsets and their length from a layout instead of chaining
+ * offset constants by hand, so a field can not be left out or counted twice,
+ * and tools can list the fields of any header.
+ * <p>
+ * A layout only places fields; it does not know how to read or compare them.
+ * The decoding, encoding, {@code equals} and {@code hashCode} of a header are
+ * still written by hand against the offsets, as a field may pack several
+ * values, such as the version and next header of the Basic header, or map to
+ * a named number.
+ * </p>
+ * <p>
+ * A field may itself be a layout, such as a position vector in an extended
+ * header; its offset is that of its first byte.
+ * </p>
+ */
+public final class HeaderLayout {
+
+    private final String name;
+    private final String[] fields;
+    private final int[] offsets;
+    private final int[] sizes;
+    private final HeaderLayout[] layouts;
+    private final int length;
+
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    private HeaderLayout(Builder builder) {
+        name = builder.name;
+        final int count = builder.fields.size();
+        fields = builder.fields.toArray(new String[count]);
+        layouts = builder.layouts.toArray(new HeaderLayout[count]);
+        offsets = new int[count];
+        sizes = new int[count];
+        int offset = 0;
+        for (int i = 0; i < count; i++) {
+            offsets[i] = offset;
+            sizes[i] = builder.sizes.get(i);
+            offset += sizes[i];
+        }
+        length = offset;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the length of the header in bytes.
+     */
+    public int length() {
+        return length;
+    }
+
+    public List<String> getFieldNames() {
+        return Collections.unmodifiableList(Arrays.asList(fields));
+    }
+
+    /**
+     * @param field
+     * @return the offset of the field from the start of the header.
+     * @throws IllegalArgumentException if this layout has no such field.
+     */
+    public int offsetOf(String field) {
+        return offsets[indexOf(field)];
+    }
+
+    /**
+     * @param field
+     * @return the size of the field in bytes.
+     * @throws IllegalArgumentException if this layout has no such field.
+     */
+    public int sizeOf(String field) {
+        return sizes[indexOf(field)];
+    }
+
+    /**
+     * @param field
+     * @return the layout of the field, or {@code null} if the field is a
+     * plain value.
+     * @throws IllegalArgumentException if this layout has no such field.
+     */
+    public HeaderLayout layoutOf(String field) {
+        return layouts[indexOf(field)];
+    }
+
+    private int indexOf(String field) {
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].equals(field)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No field " + field + " in " + name);
+    }
+
+    @Override
+    public String toString() {
+        return buildString("");
+    }
+
+    private String buildString(String prefix) {
+        final StringBuilder sb = new StringBuilder();
+        final String ls = System.getProperty("line.separator");
+        sb.append(prefix).append('[').append(name).append(" (").append(length).append(" bytes)]").append(ls);
+        for (int i = 0; i < fields.length; i++) {
+            sb.append(prefix).append("  ").append(offsets[i]).append('+').append(sizes[i]);
+            sb.append(": ").append(fields[i]).append(ls);
+            if (layouts[i] != null) {
+                sb.append(layouts[i].buildString(prefix + "    "));
+            }
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof HeaderLayout) {
+            HeaderLayout that = (HeaderLayout) obj;
+            return this.name.equals(that.name)
+                    && Arrays.equals(this.fields, that.fields)
+                    && Arrays.equals(this.sizes, that.sizes);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        hash = hash * 41 + name.hashCode();
+        hash = hash * 41 + Arrays.hashCode(fields);
+        hash = hash * 41 + Arrays.hashCode(sizes);
+        return hash;
+    }
+
+    public static final class Builder {
+
+        private final String name;
+        private final List<String> fields = new ArrayList<>();
+        private final List<Integer> sizes = new ArrayList<>();
+        private final List<HeaderLayout> layouts = new ArrayList<>();
+
+        private Builder(String name) {
+            if (name == null) {
+                throw new NullPointerException("name may not be null");
+            }
+            this.name = name;
+        }
+
+        /**
+         * Appends a field.
+         *
+         * @param field
+         * @param size the size of the field in bytes.
+         * @return this builder.
+         * @throws IllegalArgumentException if the size is not positive or the
+         * name is already taken.
+         */
+        public Builder field(String field, int size) {
+            return add(field, size, null);
+        }
+
+        /**
+         * Appends a field that is laid out by another layout.
+         *
+         * @param field
+         * @param layout
+         * @return this builder.
+         * @throws IllegalArgumentException if the name is already taken.
+         */
+        public Builder field(String field, HeaderLayout layout) {
+            if (layout == null) {
+                throw new NullPointerException("layout may not be null");
+            }
+            return add(field, layout.length(), layout);
+        }
+
+        private Builder add(String field, int size, HeaderLayout layout) {
+            if (field == null) {
+                throw new NullPointerException("field may not be null");
+            }
+            if (size <= 0) {
+                throw new IllegalArgumentException("Field " + field + " of " + name + " has size " + size);
+            }
+            if (fields.contains(field)) {
+                throw new IllegalArgumentException("Duplicate field " + field + " in " + name);
+            }
+            fields.add(field);
+            sizes.add(size);
+            layouts.add(layout);
+            return this;
+        }
+
+        public HeaderLayout build() {
+            return new HeaderLayout(this);
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package cuenen.raymond.gn.util;
 
+import java.nio.ByteBuffer;
 import java.text.NumberFormat;
 import org.pcap4j.packet.IllegalRawDataException;
 import org.pcap4j.util.ByteArrays;
@@ -7,11 +8,14 @@ import static org.pcap4j.util.ByteArrays.*;
 
 public final class LongPositionVector extends ShortPositionVector {
 
-    private static final int PAI_S_OFFSET = ShortPositionVector.SIZE_IN_BYTES;
-    private static final int PAI_S_SIZE = SHORT_SIZE_IN_BYTES;
-    private static final int H_OFFSET = PAI_S_OFFSET + PAI_S_SIZE;
-    private static final int H_SIZE = SHORT_SIZE_IN_BYTES;
-    public static final int SIZE_IN_BYTES = H_OFFSET + H_SIZE;
+    public static final HeaderLayout LAYOUT = HeaderLayout.builder("Long Position Vector")
+            .field("Short Position Vector", ShortPositionVector.LAYOUT)
+            .field("PAI and Speed", SHORT_SIZE_IN_BYTES)
+            .field("Heading", SHORT_SIZE_IN_BYTES)
+            .build();
+    private static final int PAI_S_OFFSET = LAYOUT.offsetOf("PAI and Speed");
+    private static final int H_OFFSET = LAYOUT.offsetOf("Heading");
+    public static final int SIZE_IN_BYTES = LAYOUT.length();
 
     private final byte pai;
     private final short speed;
@@ -30,18 +34,43 @@ public final class LongPositionVector extends ShortPositionVector {
      */
     public static LongPositionVector newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
         ByteArrays.validateBounds(rawData, offset, length);
-        return new LongPositionVector(rawData, offset, length);
+        return new LongPositionVector(ByteBuffers.view(rawData), offset, length);
     }
 
-    private LongPositionVector(byte[] rawData, int offset, int length) throws IllegalRawDataException {
-        super(rawData, offset, length);
+    /**
+     * A static factory method that decodes from a buffer, which may be direct
+     * or mapped. The offset is an absolute index in the buffer. This method
+     * validates the arguments by
+     * {@link ByteBuffers#validateBounds(ByteBuffer, int, int)}, which may throw
+     * exceptions undocumented here.
+     *
+     * @param buffer
+     * @param offset
+     * @param length
+     * @return a new LongPositionVector object.
+     * @throws org.pcap4j.packet.IllegalRawDataException
+     */
+    public static LongPositionVector newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+        ByteBuffers.validateBounds(buffer, offset, length);
+        return new LongPositionVector(buffer, offset, length);
+    }
+
+    private LongPositionVector(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+        super(buffer, offset, length);
         if (length < SIZE_IN_BYTES) {
             throw new IllegalRawDataException("The data is too short to build a Long Position Vector");
         }
-        final short val = ByteArrays.getShort(rawData, PAI_S_OFFSET + offset);
+        final short val = ByteBuffers.getShort(buffer, PAI_S_OFFSET + offset);
         pai = (byte) ((val & 0x8000) >> 15);
         speed = (short) (val & 0x7FFF);
-        heading = ByteArrays.getShort(rawData, H_OFFSET + offset);
+        heading = ByteBuffers.getShort(buffer, H_OFFSET + offset);
+    }
+
+    private LongPositionVector(Builder builder) {
+        super(builder.gnAddress.getValue(), builder.tst, builder.latitude, builder.longitude);
+        pai = builder.pai;
+        speed = builder.speed;
+        heading = builder.heading;
     }
 
     public byte getPai() {
@@ -59,12 +88,14 @@ public final class LongPositionVector extends ShortPositionVector {
     @Override
     public void writeTo(byte[] rawData, int offset) {
         ByteArrays.validateBounds(rawData, offset, SIZE_IN_BYTES);
-        super.writeTo(rawData, offset);
-        final short ps = (short) ((pai << 15) | speed);
-        rawData[PAI_S_OFFSET] = (byte) (ps << 8);
-        rawData[PAI_S_OFFSET + 1] = (byte) ps;
-        rawData[H_OFFSET] = (byte) (heading << 8);
-        rawData[H_OFFSET + 1] = (byte) heading;
+        writeTo(ByteBuffers.view(rawData), offset);
+    }
+
+    @Override
+    public void writeTo(ByteBuffer buffer, int offset) {
+        super.writeTo(buffer, offset);
+        ByteBuffers.putShort(buffer, PAI_S_OFFSET + offset, (short) ((pai << 15) | speed));
+        ByteBuffers.putShort(buffer, H_OFFSET + offset, heading);
     }
 
     @Override
@@ -111,4 +142,88 @@ public final class LongPositionVector extends ShortPositionVector {
         hash = hash * 41 + heading;
         return hash;
     }
+
+    public static final class Builder {
+
+        private GnAddress gnAddress;
+        private int tst;
+        private int latitude;
+        private int longitude;
+        private byte pai;
+        private short speed;
+        private short heading;
+
+        public Builder() {
+        }
+
+        public Builder(LongPositionVector vector) {
+            gnAddress = vector.getGnAddress();
+            tst = vector.getTst();
+            latitude = vector.getLatitude();
+            longitude = vector.getLongitude();
+            pai = vector.pai;
+            speed = vector.speed;
+            heading = vector.heading;
+        }
+
+        public Builder gnAddress(GnAddress gnAddress) {
+            this.gnAddress = gnAddress;
+            return this;
+        }
+
+        public Builder tst(int tst) {
+            this.tst = tst;
+            return this;
+        }
+
+        public Builder position(GeoPosition position) {
+            latitude = position.getLatitude();
+            longitude = position.getLongitude();
+            return this;
+        }
+
+        public Builder latitude(int latitude) {
+            this.latitude = latitude;
+            return this;
+        }
+
+        public Builder longitude(int longitude) {
+            this.longitude = longitude;
+            return this;
+        }
+
+        public Builder pai(byte pai) {
+            this.pai = pai;
+            return this;
+        }
+
+        public Builder speed(short speed) {
+            this.speed = speed;
+            return this;
+        }
+
+        public Builder heading(short heading) {
+            this.heading = heading;
+            return this;
+        }
+
+        /**
+         * @return a new LongPositionVector object.
+         * @throws NullPointerException if no GN address is set.
+         * @throws IllegalArgumentException if the PAI is not a single bit or
+         * the speed does not fit in 15 bits.
+         */
+        public LongPositionVector build() {
+            if (gnAddress == null) {
+                throw new NullPointerException("gnAddress may not be null");
+            }
+            if ((pai & ~1) != 0) {
+                throw new IllegalArgumentException("pai must be 0 or 1, not " + pai);
+            }
+            if ((speed & 0x8000) != 0) {
+                throw new IllegalArgumentException("speed does not fit in 15 bits: " + speed);
+            }
+            return new LongPositionVector(this);
+        }
+    }
 }
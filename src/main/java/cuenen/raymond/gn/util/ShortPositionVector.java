@@ -1,21 +1,29 @@
 package cuenen.raymond.gn.util;
 
 import cuenen.raymond.gn.packet.namednumber.ItsStationType;
+import java.nio.ByteBuffer;
 import org.pcap4j.packet.IllegalRawDataException;
 import org.pcap4j.util.ByteArrays;
 import static org.pcap4j.util.ByteArrays.INT_SIZE_IN_BYTES;
 
 public class ShortPositionVector {
 
-    private static final int GN_ADDR_OFFSET = 0;
-    private static final int TST_OFFSET = GN_ADDR_OFFSET + GnAddress.SIZE_IN_BYTES;
-    private static final int TST_SIZE = INT_SIZE_IN_BYTES;
-    private static final int GEO_POSITION_OFFSET = TST_OFFSET + TST_SIZE;
-    public static final int SIZE_IN_BYTES = GEO_POSITION_OFFSET + GeoPosition.SIZE_IN_BYTES;
+    public static final HeaderLayout LAYOUT = HeaderLayout.builder("Short Position Vector")
+            .field("GN Address", GnAddress.SIZE_IN_BYTES)
+            .field("Timestamp", INT_SIZE_IN_BYTES)
+            .field("Position", GeoPosition.LAYOUT)
+            .build();
+    private static final int GN_ADDR_OFFSET = LAYOUT.offsetOf("GN Address");
+    private static final int TST_OFFSET = LAYOUT.offsetOf("Timestamp");
+    private static final int GEO_POSITION_OFFSET = LAYOUT.offsetOf("Position");
+    private static final int LAT_OFFSET = GeoPosition.LAYOUT.offsetOf("Latitude");
+    private static final int LONG_OFFSET = GeoPosition.LAYOUT.offsetOf("Longitude");
+    public static final int SIZE_IN_BYTES = LAYOUT.length();
 
-    private final GnAddress gnAddress;
+    private final long gnAddress;
     private final int tst;
-    private final GeoPosition position;
+    private final int latitude;
+    private final int longitude;
 
     /**
      * A static factory method. This method validates the arguments by
@@ -30,19 +38,60 @@ public class ShortPositionVector {
      */
     public static ShortPositionVector newInstance(byte[] rawData, int offset, int length) throws IllegalRawDataException {
         ByteArrays.validateBounds(rawData, offset, length);
-        return new ShortPositionVector(rawData, offset, length);
+        return new ShortPositionVector(ByteBuffers.view(rawData), offset, length);
     }
 
-    protected ShortPositionVector(byte[] rawData, int offset, int length) throws IllegalRawDataException {
+    /**
+     * A static factory method that decodes from a buffer, which may be direct
+     * or mapped. The offset is an absolute index in the buffer. This method
+     * validates the arguments by
+     * {@link ByteBuffers#validateBounds(ByteBuffer, int, int)}, which may throw
+     * exceptions undocumented here.
+     *
+     * @param buffer
+     * @param offset
+     * @param length
+     * @return a new ShortPositionVector object.
+     * @throws org.pcap4j.packet.IllegalRawDataException
+     */
+    public static ShortPositionVector newInstance(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
+        ByteBuffers.validateBounds(buffer, offset, length);
+        return new ShortPositionVector(buffer, offset, length);
+    }
+
+    protected ShortPositionVector(ByteBuffer buffer, int offset, int length) throws IllegalRawDataException {
         if (length < SIZE_IN_BYTES) {
             throw new IllegalRawDataException("The data is too short to build a Short Position Vector");
         }
-        gnAddress = GnAddress.getByAddress(ByteArrays.getSubArray(rawData, GN_ADDR_OFFSET + offset, GnAddress.SIZE_IN_BYTES));
-        tst = ByteArrays.getInt(rawData, TST_OFFSET + offset);
-        position = GeoPosition.newInstance(rawData, GEO_POSITION_OFFSET + offset, length - GEO_POSITION_OFFSET);
+        gnAddress = ByteBuffers.getLong(buffer, GN_ADDR_OFFSET + offset);
+        tst = ByteBuffers.getInt(buffer, TST_OFFSET + offset);
+        latitude = ByteBuffers.getInt(buffer, GEO_POSITION_OFFSET + LAT_OFFSET + offset);
+        longitude = ByteBuffers.getInt(buffer, GEO_POSITION_OFFSET + LONG_OFFSET + offset);
+    }
+
+    protected ShortPositionVector(long gnAddress, int tst, int latitude, int longitude) {
+        this.gnAddress = gnAddress;
+        this.tst = tst;
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    private ShortPositionVector(Builder builder) {
+        this(builder.gnAddress.getValue(), builder.tst, builder.latitude, builder.longitude);
     }
 
+    /**
+     * @return a new GnAddress object; {@link #getGnAddressValue()} reads the
+     * address without creating one.
+     */
     public GnAddress getGnAddress() {
+        return GnAddress.getByValue(gnAddress);
+    }
+
+    /**
+     * @return the GN address as a long, as by {@link GnAddress#getValue()}.
+     */
+    public long getGnAddressValue() {
         return gnAddress;
     }
 
@@ -50,37 +99,58 @@ public class ShortPositionVector {
         return tst;
     }
 
+    /**
+     * @return a new GeoPosition object; {@link #getLatitude()} and
+     * {@link #getLongitude()} read the position without creating one.
+     */
     public GeoPosition getPosition() {
-        return position;
+        return GeoPosition.valueOf(latitude, longitude);
+    }
+
+    public int getLatitude() {
+        return latitude;
+    }
+
+    public int getLongitude() {
+        return longitude;
     }
 
     public void writeTo(byte[] rawData, int offset) {
         ByteArrays.validateBounds(rawData, offset, SIZE_IN_BYTES);
-        System.arraycopy(gnAddress.getAddress(), 0, rawData, GN_ADDR_OFFSET + offset, GnAddress.SIZE_IN_BYTES);
-        rawData[TST_OFFSET] = (byte) (tst << 24);
-        rawData[TST_OFFSET + 1] = (byte) (tst << 16);
-        rawData[TST_OFFSET + 2] = (byte) (tst << 8);
-        rawData[TST_OFFSET + 3] = (byte) tst;
-        position.writeTo(rawData, GEO_POSITION_OFFSET);
+        writeTo(ByteBuffers.view(rawData), offset);
+    }
+
+    /**
+     * Writes this position vector at an absolute index of the buffer.
+     *
+     * @param buffer
+     * @param offset
+     */
+    public void writeTo(ByteBuffer buffer, int offset) {
+        ByteBuffers.putLong(buffer, GN_ADDR_OFFSET + offset, gnAddress);
+        ByteBuffers.putInt(buffer, TST_OFFSET + offset, tst);
+        ByteBuffers.putInt(buffer, GEO_POSITION_OFFSET + LAT_OFFSET + offset, latitude);
+        ByteBuffers.putInt(buffer, GEO_POSITION_OFFSET + LONG_OFFSET + offset, longitude);
     }
 
     public String buildString(String prefix) {
         final StringBuilder sb = new StringBuilder();
         final String ls = System.getProperty("line.separator");
-        sb.append(prefix).append("GN Adress: 0x").append(ByteArrays.toHexString(gnAddress.getAddress(), "")).append(ls);
-        final boolean manual = gnAddress.isManuallyConfigured();
+        final GnAddress address = getGnAddress();
+        sb.append(prefix).append("GN Adress: 0x").append(ByteArrays.toHexString(address.getAddress(), "")).append(ls);
+        final boolean manual = address.isManuallyConfigured();
         sb.append(prefix).append("  ").append(manual ? "1" : "0");
         sb.append("............... = Assignment: ").append(manual ? "Manual" : "Automatic");
         sb.append(" (").append(manual ? "1)" : "0)").append(ls);
-        final ItsStationType stationType = gnAddress.getStationType();
+        final ItsStationType stationType = address.getStationType();
         sb.append(prefix).append("  .").append(BitValues.toBinaryString(stationType.value(), 5));
         sb.append(".......... = Station Type: ").append(stationType).append(ls);
-        final int countryCode = gnAddress.getCountryCode();
+        final int countryCode = address.getCountryCode();
         sb.append(prefix).append("  ......").append(BitValues.toBinaryString(countryCode, 10));
         sb.append(" = Country Code: ").append(countryCode).append(ls);
-        sb.append(prefix).append("  Link-Layer Address: ").append(gnAddress.getLinkLayerAddress()).append(ls);
+        sb.append(prefix).append("  Link-Layer Address: ").append(address.getLinkLayerAddress()).append(ls);
         sb.append(prefix).append("Timestamp: ").append(tst & 0xFFFFFFFFL).append(ls);
-        sb.append(position.buildString(prefix));
+        sb.append(getPosition().buildString(prefix));
         return sb.toString();
     }
 
@@ -95,7 +165,8 @@ public class ShortPositionVector {
             ShortPositionVector that = (ShortPositionVector) obj;
             return this.gnAddress == that.gnAddress
                     && this.tst == that.tst
-                    && this.position.equals(that.position);
+                    && this.latitude == that.latitude
+                    && this.longitude == that.longitude;
         }
         return false;
     }
@@ -103,9 +174,65 @@ public class ShortPositionVector {
     @Override
     public int hashCode() {
         int hash = 1;
-        hash = hash * 41 + gnAddress.hashCode();
+        hash = hash * 41 + (int) (gnAddress ^ (gnAddress >>> 32));
         hash = hash * 41 + tst;
-        hash = hash * 41 + position.hashCode();
+        hash = hash * 41 + latitude;
+        hash = hash * 41 + longitude;
         return hash;
     }
+
+    public static final class Builder {
+
+        private GnAddress gnAddress;
+        private int tst;
+        private int latitude;
+        private int longitude;
+
+        public Builder() {
+        }
+
+        public Builder(ShortPositionVector vector) {
+            gnAddress = vector.getGnAddress();
+            tst = vector.tst;
+            latitude = vector.latitude;
+            longitude = vector.longitude;
+        }
+
+        public Builder gnAddress(GnAddress gnAddress) {
+            this.gnAddress = gnAddress;
+            return this;
+        }
+
+        public Builder tst(int tst) {
+            this.tst = tst;
+            return this;
+        }
+
+        public Builder position(GeoPosition position) {
+            latitude = position.getLatitude();
+            longitude = position.getLongitude();
+            return this;
+        }
+
+        public Builder latitude(int latitude) {
+            this.latitude = latitude;
+            return this;
+        }
+
+        public Builder longitude(int longitude) {
+            this.longitude = longitude;
+            return this;
+        }
+
+        /**
+         * @return a new ShortPositionVector object.
+         * @throws NullPointerException if no GN address is set.
+         */
+        public ShortPositionVector build() {
+            if (gnAddress == null) {
+                throw new NullPointerException("gnAddress may not be null");
+            }
+            return new ShortPositionVector(this);
+        }
+    }
 }
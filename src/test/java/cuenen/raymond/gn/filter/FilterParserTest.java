@@ -0,0 +1,121 @@
+package cuenen.raymond.gn.filter;
+
+import cuenen.raymond.gn.io.CapturedPacket;
+import cuenen.raymond.gn.io.PcapReader;
+import cuenen.raymond.gn.packet.GnPacketView;
+import java.io.IOException;
+import java.math.BigDecimal;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class FilterParserTest {
+
+    private static String parse(String expression) {
+        return new FilterParser(expression).parse().toString();
+    }
+
+    @Test
+    public void keepsExactConstants() {
+        assertEquals("lat > 514000000", parse("lat > 51.4"));
+        assertEquals("speed == 1390", parse("speed == 13.9"));
+        assertEquals("heading < 3600", parse("heading < 360"));
+        assertEquals("sn != 7", parse("sn != 7"));
+    }
+
+    @Test
+    public void roundsInexactLowerBoundsUp() {
+        assertEquals("lat >= 514333334", parse("lat > 51.43333333"));
+        assertEquals("speed >= 1390", parse("speed > 13.891"));
+        assertEquals("heading >= 3600", parse("heading >= 359.95"));
+        assertEquals("lat >= -514333333", parse("lat > -51.43333333"));
+    }
+
+    @Test
+    public void roundsInexactUpperBoundsDown() {
+        assertEquals("lat <= 514333333", parse("lat < 51.43333333"));
+        assertEquals("speed <= 1389", parse("speed <= 13.891"));
+        assertEquals("lat <= -514333334", parse("lat <= -51.43333333"));
+    }
+
+    @Test
+    public void roundsRangesInwards() {
+        assertEquals("lat in [514333334, 515666666]", parse("lat in [51.43333333, 51.56666666]"));
+        assertEquals("speed in [1390, 1389]", parse("speed in [13.891, 13.899]"));
+    }
+
+    @Test
+    public void matchesEveryValueForInexactInequality() {
+        assertEquals("speed in [" + Long.MIN_VALUE + ", " + Long.MAX_VALUE + "]", parse("speed != 13.891"));
+    }
+
+    @Test
+    public void rejectsInexactEquality() {
+        try {
+            parse("speed == 13.891");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("'speed' cannot equal 13.891 at position 9"));
+        }
+    }
+
+    @Test
+    public void rejectsConstantsOutOfRange() {
+        try {
+            parse("lat > 1e30");
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith("'lat' cannot hold 1e30"));
+        }
+    }
+
+    @Test
+    public void scalesHexadecimalConstants() {
+        assertEquals(parse("lat > 16"), parse("lat > 0x10"));
+        assertEquals(parse("lat > -16"), parse("lat > -0x10"));
+        assertEquals("sn == 255", parse("sn == 0xFF"));
+    }
+
+    @Test
+    public void keepsSymbolicConstants() {
+        assertEquals("((ht == 4 && station_type == 6) || !nh == 2)",
+                parse("ht == GBC && station_type == BUS || !nh == BTP_B"));
+    }
+
+    @Test
+    public void testsRoundedConstantsAgainstTheHeader() throws IOException {
+        final GnPacketView view = firstPositionView("rx.pcap");
+        final BigDecimal latitude = BigDecimal.valueOf(view.getSourceLatitude()).movePointLeft(7);
+        final BigDecimal below = latitude.subtract(new BigDecimal("0.00000005"));
+        final BigDecimal above = latitude.add(new BigDecimal("0.00000005"));
+        assertTrue(FrameFilter.compile("lat > " + below.toPlainString()).matches(view));
+        assertTrue(FrameFilter.compile("lat >= " + below.toPlainString()).matches(view));
+        assertFalse(FrameFilter.compile("lat > " + above.toPlainString()).matches(view));
+        assertTrue(FrameFilter.compile("lat < " + above.toPlainString()).matches(view));
+        assertFalse(FrameFilter.compile("lat < " + below.toPlainString()).matches(view));
+        assertTrue(FrameFilter.compile("lat in [" + below.toPlainString() + ", " + above.toPlainString() + "]")
+                .matches(view));
+        assertTrue(FrameFilter.compile("lat == " + latitude.toPlainString()).matches(view));
+        assertTrue(FrameFilter.compile("lat != " + above.toPlainString()).matches(view));
+    }
+
+    private static GnPacketView firstPositionView(String capture) throws IOException {
+        final PcapReader reader = PcapReader.open(capture);
+        try {
+            CapturedPacket packet;
+            while ((packet = reader.next()) != null) {
+                final byte[] frame = packet.getPacket().getRawData();
+                final GnPacketView view = new GnPacketView();
+                if (view.wrapFrame(frame, 0, frame.length, reader.getDataLinkType()) && view.hasSourcePosition()) {
+                    return view;
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        throw new AssertionError("No packet with a source position in " + capture);
+    }
+}
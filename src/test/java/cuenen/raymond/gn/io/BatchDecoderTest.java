@@ -0,0 +1,46 @@
+package cuenen.raymond.gn.io;
+
+import cuenen.raymond.gn.io.BatchResult.FileResult;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class BatchDecoderTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void recordsRuntimeExceptionsPerFile() throws IOException, InterruptedException {
+        final Path root = folder.getRoot().toPath();
+        final Path tx = Files.copy(Paths.get("tx.pcap"), root.resolve("tx.pcap"));
+        final Path rx = Files.copy(Paths.get("rx.pcap"), root.resolve("rx.pcap"));
+        final BatchResult result = new BatchDecoder().decode(root, new CapturedPacketListener() {
+
+            @Override
+            public void gotPacket(CapturedPacket packet) {
+                if (packet.getSource().equals(rx.toString())) {
+                    throw new IllegalStateException("rejected");
+                }
+            }
+        });
+        final List<FileResult> files = result.getFiles();
+        assertEquals(2, files.size());
+        assertEquals(rx, files.get(0).getPath());
+        assertTrue(files.get(0).getFailure() instanceof IllegalStateException);
+        assertEquals(1, files.get(0).getPacketCount());
+        assertEquals(tx, files.get(1).getPath());
+        assertNull(files.get(1).getFailure());
+        assertTrue(files.get(1).getPacketCount() > 0);
+        assertEquals(1, result.getFailures().size());
+    }
+}
@@ -0,0 +1,99 @@
+package cuenen.raymond.gn.io;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PcapIndexTest {
+
+    private static final int GLOBAL_HEADER_SIZE = 24;
+    private static final int RECORD_HEADER_SIZE = 16;
+    private static final int FRAME_SIZE = 4;
+    private static final int RECORD_SIZE = RECORD_HEADER_SIZE + FRAME_SIZE;
+    private static final long SECOND = 1000000000L;
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void seeksToTheFirstRecordOfATimeSharedAcrossEntries() throws IOException {
+        final File capture = capture(1, 2, 2, 2, 2, 3);
+        final PcapIndex index = PcapIndex.build(capture, 2);
+        assertEquals(3, index.entryCount());
+        assertPosition(1, index.openAtTime(2 * SECOND));
+        assertPosition(5, index.openAtTime(3 * SECOND));
+        assertPosition(5, index.openAtTime(2 * SECOND + 1));
+    }
+
+    @Test
+    public void seeksToTheStartOrEndOfTheCapture() throws IOException {
+        final File capture = capture(2, 2, 2, 3, 4);
+        final PcapIndex index = PcapIndex.build(capture, 2);
+        assertPosition(0, index.openAtTime(SECOND));
+        assertPosition(0, index.openAtTime(2 * SECOND));
+        final PcapReader reader = index.openAtTime(5 * SECOND);
+        try {
+            assertFalse(reader.skip());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void seeksToARecordNumber() throws IOException {
+        final File capture = capture(1, 2, 3, 4, 5, 6, 7);
+        final PcapIndex index = PcapIndex.build(capture, 3);
+        for (int record = 0; record < 7; record++) {
+            assertPosition(record, index.openAt(record));
+        }
+    }
+
+    @Test
+    public void readsItsSidecarBack() throws IOException {
+        final File capture = capture(1, 2, 2, 3, 5);
+        final PcapIndex built = PcapIndex.forCapture(capture, 2);
+        assertTrue(PcapIndex.sidecarOf(capture).isFile());
+        final PcapIndex read = PcapIndex.forCapture(capture, 2);
+        assertEquals(built.getPacketCount(), read.getPacketCount());
+        assertEquals(built.entryCount(), read.entryCount());
+        for (int entry = 0; entry < built.entryCount(); entry++) {
+            assertEquals(built.offset(entry), read.offset(entry));
+        }
+        assertPosition(1, read.openAtTime(2 * SECOND));
+    }
+
+    private static void assertPosition(int record, PcapReader reader) throws IOException {
+        try {
+            assertEquals(GLOBAL_HEADER_SIZE + (long) record * RECORD_SIZE, reader.position());
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * @param seconds the capture time of each record.
+     * @return a microsecond pcap file with a small Ethernet frame per record.
+     */
+    private File capture(int... seconds) throws IOException {
+        final ByteBuffer buffer = ByteBuffer.allocate(GLOBAL_HEADER_SIZE + seconds.length * RECORD_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0xA1B2C3D4).putShort((short) 2).putShort((short) 4).putInt(0).putInt(0)
+                .putInt(65535).putInt(1);
+        for (int i = 0; i < seconds.length; i++) {
+            buffer.putInt(seconds[i]).putInt(0).putInt(FRAME_SIZE).putInt(FRAME_SIZE);
+            buffer.putInt(i);
+        }
+        final File capture = folder.newFile("capture.pcap");
+        Files.write(capture.toPath(), buffer.array());
+        return capture;
+    }
+}
@@ -0,0 +1,102 @@
+package cuenen.raymond.gn.io;
+
+import cuenen.raymond.gn.packet.GnColumns;
+import cuenen.raymond.gn.packet.namednumber.NamedNumberTypes;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.pcap4j.packet.Packet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class UdpPacketReaderTest {
+
+    private static final int FRAME_COUNT = 32;
+
+    private UdpPacketReader reader;
+    private DatagramChannel sender;
+
+    @Before
+    public void setUp() throws IOException {
+        reader = UdpPacketReader.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+                NamedNumberTypes.COHDA_WIRELESS_RX, 4);
+        sender = DatagramChannel.open();
+        sender.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        sender.close();
+        reader.close();
+    }
+
+    @Test
+    public void decodesForwardedFrames() throws IOException {
+        final List<Packet> expected = readFrames("rx.pcap", FRAME_COUNT);
+        final SocketAddress target = reader.getLocalAddress();
+        for (Packet frame : expected) {
+            sender.send(ByteBuffer.wrap(frame.getRawData()), target);
+            final CapturedPacket received = reader.next();
+            assertNotNull(received);
+            assertEquals(NamedNumberTypes.COHDA_WIRELESS_RX, received.getDataLinkType());
+            assertEquals(sender.getLocalAddress().toString(), received.getSource());
+            assertEquals(frame.length(), received.getOriginalLength());
+            assertTrue(received.getTimestampNanos() > 0);
+            assertEquals(frame, received.getPacket());
+            assertArrayEquals(frame.getRawData(), received.getPacket().getRawData());
+        }
+    }
+
+    @Test
+    public void projectsForwardedFrames() throws IOException {
+        final List<Packet> expected = readFrames("rx.pcap", FRAME_COUNT);
+        final SocketAddress target = reader.getLocalAddress();
+        final GnColumns columns = new GnColumns(FRAME_COUNT);
+        final GnColumns reference = new GnColumns(FRAME_COUNT);
+        for (Packet frame : expected) {
+            final byte[] rawData = frame.getRawData();
+            sender.send(ByteBuffer.wrap(rawData), target);
+            reference.add(rawData, 0, rawData.length, NamedNumberTypes.COHDA_WIRELESS_RX, 0L);
+        }
+        while (columns.size() < reference.size()) {
+            assertTrue(reader.read(columns) > 0);
+        }
+        assertEquals(reference.size(), columns.size());
+        assertArrayEquals(reference.getSequenceNumbers(), columns.getSequenceNumbers());
+        assertArrayEquals(reference.getLatitudes(), columns.getLatitudes());
+    }
+
+    @Test
+    public void returnsNullOnceClosed() throws IOException {
+        reader.close();
+        assertNull(reader.next());
+        assertEquals(-1, reader.read(new GnColumns(1)));
+    }
+
+    private static List<Packet> readFrames(String capture, int count) throws IOException {
+        final List<Packet> frames = new ArrayList<>();
+        final PcapReader file = PcapReader.open(capture);
+        try {
+            CapturedPacket packet;
+            while (frames.size() < count && (packet = file.next()) != null) {
+                frames.add(packet.getPacket());
+            }
+        } finally {
+            file.close();
+        }
+        assertEquals(count, frames.size());
+        return frames;
+    }
+}
@@ -0,0 +1,63 @@
+package cuenen.raymond.gn.packet;
+
+import cuenen.raymond.gn.io.CapturedPacket;
+import cuenen.raymond.gn.io.PcapReader;
+import cuenen.raymond.gn.packet.factory.BufferPacketFactories;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import org.junit.Test;
+import org.pcap4j.packet.Packet;
+import org.pcap4j.packet.factory.PacketFactories;
+import org.pcap4j.packet.factory.PacketFactory;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class CohdaWirelessPacketTest {
+
+    private static final int FRAME_COUNT = 256;
+    private static final int PADDING = 5;
+
+    @Test
+    public void decodesTxFramesFromBuffers() throws IOException {
+        assertDecodesFromBuffers("tx.pcap", CohdaWirelessTxPacket.class);
+    }
+
+    @Test
+    public void decodesRxFramesFromBuffers() throws IOException {
+        assertDecodesFromBuffers("rx.pcap", CohdaWirelessRxPacket.class);
+    }
+
+    private static void assertDecodesFromBuffers(String capture, Class<? extends Packet> type) throws IOException {
+        final PacketFactory<Packet, DataLinkType> factory = PacketFactories.getFactory(Packet.class, DataLinkType.class);
+        final PcapReader reader = PcapReader.open(capture);
+        try {
+            CapturedPacket packet;
+            int count = 0;
+            while (count < FRAME_COUNT && (packet = reader.next()) != null) {
+                final Packet expected = packet.getPacket();
+                assertTrue(type.isInstance(expected));
+                final byte[] frame = expected.getRawData();
+                final ByteBuffer direct = ByteBuffer.allocateDirect(PADDING + frame.length).order(ByteOrder.LITTLE_ENDIAN);
+                direct.position(PADDING);
+                direct.put(frame);
+                final ByteBuffer heap = ByteBuffer.allocate(PADDING + frame.length);
+                heap.position(PADDING);
+                heap.put(frame);
+                for (ByteBuffer buffer : new ByteBuffer[]{direct, heap}) {
+                    final Packet decoded = BufferPacketFactories.newInstance(factory, buffer, PADDING, frame.length,
+                            reader.getDataLinkType());
+                    assertEquals(expected, decoded);
+                    assertArrayEquals(frame, decoded.getRawData());
+                }
+                count++;
+            }
+            assertEquals(FRAME_COUNT, count);
+        } finally {
+            reader.close();
+        }
+    }
+}
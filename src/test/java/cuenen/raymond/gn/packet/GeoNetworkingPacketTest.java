@@ -0,0 +1,120 @@
+package cuenen.raymond.gn.packet;
+
+import cuenen.raymond.gn.io.CapturedPacket;
+import cuenen.raymond.gn.io.PcapReader;
+import cuenen.raymond.gn.util.ByteBuffers;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.pcap4j.packet.IllegalRawDataException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class GeoNetworkingPacketTest {
+
+    private static final int PADDING = 3;
+
+    @Test
+    public void refersToTheCallerUnlessCopying() throws IOException, IllegalRawDataException {
+        final byte[] expected = firstGnPacket("rx.pcap");
+        final byte[] frame = padded(expected);
+        final GeoNetworkingPacket referring = GeoNetworkingPacket.newPacket(frame, PADDING, expected.length);
+        final GeoNetworkingPacket copying = GeoNetworkingPacket.newPacket(frame, PADDING, expected.length, true);
+        final GeoNetworkingPacket lazy = GeoNetworkingPacket.newLazyPacket(frame, PADDING, expected.length, true);
+        frame[frame.length - 1]++;
+        assertArrayEquals(expected, copying.getRawData());
+        assertArrayEquals(expected, lazy.getRawData());
+        assertFalse(expected[expected.length - 1] == referring.getRawData()[expected.length - 1]);
+    }
+
+    @Test
+    public void keepsItsOwnBufferOverTheCallersArray() throws IOException, IllegalRawDataException {
+        final byte[] expected = firstGnPacket("tx.pcap");
+        final byte[] frame = padded(expected);
+        final GeoNetworkingPacket packet = GeoNetworkingPacket.newPacket(frame, PADDING, expected.length);
+        final GeoNetworkingPacket lazy = GeoNetworkingPacket.newLazyPacket(frame, PADDING, expected.length);
+        ByteBuffers.view(frame).order(ByteOrder.LITTLE_ENDIAN).limit(0);
+        for (GeoNetworkingPacket decoded : new GeoNetworkingPacket[]{packet, lazy}) {
+            assertArrayEquals(expected, decoded.getRawData());
+            assertEquals(GeoNetworkingPacket.newPacket(expected, 0, expected.length, true), decoded);
+        }
+    }
+
+    @Test
+    public void decodesBuffersInPlace() throws IOException, IllegalRawDataException {
+        final byte[] expected = firstGnPacket("tx.pcap");
+        final GeoNetworkingPacket reference = GeoNetworkingPacket.newPacket(expected, 0, expected.length);
+        final ByteBuffer direct = ByteBuffer.allocateDirect(PADDING + expected.length);
+        direct.position(PADDING);
+        direct.put(expected);
+        for (GeoNetworkingPacket packet : new GeoNetworkingPacket[]{
+            GeoNetworkingPacket.newPacket(direct, PADDING, expected.length),
+            GeoNetworkingPacket.newLazyPacket(direct, PADDING, expected.length)}) {
+            assertEquals(reference, packet);
+            assertEquals(reference.hashCode(), packet.hashCode());
+            assertEquals(reference.getHeader().hashCode(), packet.getHeader().hashCode());
+            assertArrayEquals(expected, packet.getRawData());
+        }
+    }
+
+    @Test
+    public void keepsPacketsOfReusedFrameBuffers() throws IOException {
+        final List<byte[]> expected = new ArrayList<>();
+        PcapReader reader = PcapReader.open("tx.pcap");
+        try {
+            CapturedPacket packet;
+            while ((packet = reader.next()) != null) {
+                final GeoNetworkingPacket gn = packet.getPacket().get(GeoNetworkingPacket.class);
+                if (gn != null) {
+                    expected.add(gn.getRawData());
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        final List<GeoNetworkingPacket> kept = new ArrayList<>();
+        reader = PcapReader.open("tx.pcap");
+        try {
+            CapturedPacket packet;
+            while ((packet = reader.next()) != null) {
+                final GeoNetworkingPacket gn = packet.getPacket().get(GeoNetworkingPacket.class);
+                if (gn != null) {
+                    kept.add(gn);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        assertEquals(expected.size(), kept.size());
+        for (int i = 0; i < kept.size(); i++) {
+            assertArrayEquals(expected.get(i), kept.get(i).getRawData());
+        }
+    }
+
+    private static byte[] padded(byte[] data) {
+        final byte[] frame = new byte[PADDING + data.length];
+        System.arraycopy(data, 0, frame, PADDING, data.length);
+        return frame;
+    }
+
+    private static byte[] firstGnPacket(String capture) throws IOException {
+        final PcapReader reader = PcapReader.open(capture);
+        try {
+            CapturedPacket packet;
+            while ((packet = reader.next()) != null) {
+                final GeoNetworkingPacket gn = packet.getPacket().get(GeoNetworkingPacket.class);
+                if (gn != null) {
+                    return gn.getRawData();
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        throw new AssertionError("No GeoNetworking packet in " + capture);
+    }
+}
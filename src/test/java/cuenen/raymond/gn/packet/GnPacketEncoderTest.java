@@ -0,0 +1,99 @@
+package cuenen.raymond.gn.packet;
+
+import cuenen.raymond.gn.io.CapturedPacket;
+import cuenen.raymond.gn.io.PcapReader;
+import cuenen.raymond.gn.util.LongPositionVector;
+import java.io.IOException;
+import org.junit.Test;
+import org.pcap4j.packet.Packet;
+import org.pcap4j.packet.factory.PacketFactories;
+import org.pcap4j.packet.factory.PacketFactory;
+import org.pcap4j.packet.namednumber.DataLinkType;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class GnPacketEncoderTest {
+
+    @Test
+    public void encodesTxFramesAsDecoded() throws IOException {
+        assertRoundTrip("tx.pcap");
+    }
+
+    @Test
+    public void encodesRxFramesAsDecoded() throws IOException {
+        assertRoundTrip("rx.pcap");
+    }
+
+    private static void assertRoundTrip(String capture) throws IOException {
+        final PacketFactory<Packet, DataLinkType> factory = PacketFactories.getFactory(Packet.class, DataLinkType.class);
+        final GnPacketView view = new GnPacketView();
+        final PcapReader reader = PcapReader.open(capture);
+        try {
+            CapturedPacket packet;
+            int count = 0;
+            while ((packet = reader.next()) != null) {
+                final Packet expected = packet.getPacket();
+                final byte[] frame = new byte[expected.length()];
+                assertEquals(frame.length, GnPacketEncoder.encode(expected, frame, 0));
+                assertArrayEquals(expected.getRawData(), frame);
+                final Packet decoded = factory.newInstance(frame, 0, frame.length, reader.getDataLinkType());
+                assertEquals(expected, decoded);
+                final GeoNetworkingPacket gn = decoded.get(GeoNetworkingPacket.class);
+                if (gn != null) {
+                    assertTrue(view.wrapFrame(frame, 0, frame.length, reader.getDataLinkType()));
+                    assertViewOf(gn, view);
+                    count++;
+                }
+            }
+            assertTrue(count > 0);
+        } finally {
+            reader.close();
+        }
+    }
+
+    private static void assertViewOf(GeoNetworkingPacket packet, GnPacketView view) {
+        final GnBasicHeader basic = packet.getBasicHeader();
+        assertEquals(basic.getVersion(), view.getVersion());
+        assertEquals(basic.getNextHeader().value().byteValue(), view.getBasicNextHeader());
+        assertEquals(basic.getLifetime(), view.getLifetime());
+        assertEquals(basic.getRouterHopLimit(), view.getRemainingHopLimit());
+        final GnCommonHeader common = packet.getCommonHeader();
+        assertEquals(common.getNextHeader().value().byteValue(), view.getNextHeader());
+        assertEquals(common.getTrafficClass(), view.getTrafficClass());
+        assertEquals(common.getFlags(), view.getFlags());
+        assertEquals(common.getPayloadLength(), view.getPayloadLength());
+        assertEquals(common.getMaximumHopLimit(), view.getMaximumHopLimit());
+        assertEquals(common.getReserved2(), view.getCommonReserved2());
+        assertEquals(packet.getHeader().length(), view.getHeaderLength());
+        final LongPositionVector source = packet.getSourcePosition();
+        assertEquals(source != null, view.hasSourcePosition());
+        if (source != null) {
+            assertEquals(source.getGnAddressValue(), view.getSourceGnAddress());
+            assertEquals(source.getTst(), view.getSourceTst());
+            assertEquals(source.getLatitude(), view.getSourceLatitude());
+            assertEquals(source.getLongitude(), view.getSourceLongitude());
+            assertEquals(source.getPai(), view.getSourcePai());
+            assertEquals(source.getSpeed(), view.getSourceSpeed());
+            assertEquals(source.getHeading(), view.getSourceHeading());
+        }
+        final GeoNetworkingPacket.GnPacketHeader extended = packet.getExtendedHeader();
+        if (extended instanceof GnGBCPacketHeader) {
+            final GnGBCPacketHeader area = (GnGBCPacketHeader) extended;
+            assertTrue(view.hasArea());
+            assertEquals(area.getSequenceNumber(), view.getSequenceNumber());
+            assertEquals(area.getPosition().getLatitude(), view.getAreaLatitude());
+            assertEquals(area.getPosition().getLongitude(), view.getAreaLongitude());
+            assertEquals(area.getDistanceA(), view.getDistanceA());
+            assertEquals(area.getDistanceB(), view.getDistanceB());
+            assertEquals(area.getAngle(), view.getAngle());
+        } else if (extended instanceof GnGUCPacketHeader) {
+            final GnGUCPacketHeader unicast = (GnGUCPacketHeader) extended;
+            assertEquals(unicast.getSequenceNumber(), view.getSequenceNumber());
+            assertEquals(unicast.getDestination().getGnAddressValue(), view.getDestinationGnAddress());
+            assertEquals(unicast.getDestination().getLatitude(), view.getDestinationLatitude());
+            assertEquals(unicast.getDestination().getLongitude(), view.getDestinationLongitude());
+        }
+    }
+}
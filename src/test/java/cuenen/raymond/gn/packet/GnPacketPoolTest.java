@@ -0,0 +1,45 @@
+package cuenen.raymond.gn.packet;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class GnPacketPoolTest {
+
+    private static final int PACKET_COUNT = 16;
+
+    @Test
+    public void takesBackPacketsReleasedOnOtherThreads() throws InterruptedException {
+        final GnPacketPool pool = GnPacketPool.current();
+        final List<PooledGnPacket> packets = new ArrayList<>();
+        for (int i = 0; i < PACKET_COUNT; i++) {
+            packets.add(pool.acquire());
+        }
+        final long created = pool.getCreatedCount();
+        final int[] consumerPoolSize = new int[1];
+        final Thread consumer = new Thread(new Runnable() {
+
+            @Override
+            public void run() {
+                for (PooledGnPacket packet : packets) {
+                    packet.release();
+                }
+                consumerPoolSize[0] = GnPacketPool.current().size();
+            }
+        });
+        consumer.start();
+        consumer.join();
+        assertEquals(0, consumerPoolSize[0]);
+        assertEquals(PACKET_COUNT, pool.size());
+        packets.clear();
+        for (int i = 0; i < PACKET_COUNT; i++) {
+            packets.add(pool.acquire());
+        }
+        assertEquals(created, pool.getCreatedCount());
+        for (PooledGnPacket packet : packets) {
+            packet.release();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package cuenen.raymond.gn.packet;
+
+import cuenen.raymond.gn.io.CapturedPacket;
+import cuenen.raymond.gn.io.PcapReader;
+import java.io.IOException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class GnPacketViewTest {
+
+    @Test
+    public void wrapsWhatValidates() throws IOException {
+        final byte[] data = firstGnPacket("rx.pcap");
+        final GnPacketView view = new GnPacketView();
+        for (int nextHeader = 0; nextHeader < 16; nextHeader++) {
+            data[0] = (byte) ((data[0] & 0xF0) | nextHeader);
+            final GnStatus status = GeoNetworkingPacket.validate(data, 0, data.length);
+            assertEquals("Next header " + nextHeader, status == GnStatus.OK, view.wrap(data, 0, data.length));
+        }
+    }
+
+    private static byte[] firstGnPacket(String capture) throws IOException {
+        final PcapReader reader = PcapReader.open(capture);
+        try {
+            CapturedPacket packet;
+            while ((packet = reader.next()) != null) {
+                final GeoNetworkingPacket gn = packet.getPacket().get(GeoNetworkingPacket.class);
+                if (gn != null) {
+                    return gn.getRawData();
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        throw new AssertionError("No GeoNetworking packet in " + capture);
+    }
+}
@@ -0,0 +1,85 @@
+package cuenen.raymond.gn.packet.factory;
+
+import cuenen.raymond.gn.packet.GeoNetworkingPacket.GnPacketHeader;
+import cuenen.raymond.gn.packet.GnBeaconPacketHeader;
+import cuenen.raymond.gn.packet.GnEmptyHeader;
+import cuenen.raymond.gn.packet.GnGBCPacketHeader;
+import cuenen.raymond.gn.packet.GnGUCPacketHeader;
+import cuenen.raymond.gn.packet.GnLSReplyPacketHeader;
+import cuenen.raymond.gn.packet.GnLSRequestPacketHeader;
+import cuenen.raymond.gn.packet.GnMalformedHeader;
+import cuenen.raymond.gn.packet.GnSHBPacketHeader;
+import cuenen.raymond.gn.packet.GnTSBPacketHeader;
+import cuenen.raymond.gn.packet.namednumber.GnExtendedHeaderType;
+import java.nio.ByteBuffer;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class GnExtendedHeaderTypeFactoryTest {
+
+    private static final int MAX_HEADER_SIZE = 64;
+
+    private final GnExtendedHeaderTypeFactory factory = GnExtendedHeaderTypeFactory.getInstance();
+
+    /**
+     * The header class of every header type and subtype, as in the Common
+     * header definition of EN 302 636-4-1.
+     */
+    private static Class<? extends GnPacketHeader> expectedClass(int type, int subtype) {
+        switch (type) {
+            case 1:
+                return GnBeaconPacketHeader.class;
+            case 2:
+                return GnGUCPacketHeader.class;
+            case 3:
+            case 4:
+                return GnGBCPacketHeader.class;
+            case 5:
+                return subtype == 0 ? GnSHBPacketHeader.class : GnTSBPacketHeader.class;
+            case 6:
+                if (subtype == 0) {
+                    return GnLSRequestPacketHeader.class;
+                }
+                return subtype == 1 ? GnLSReplyPacketHeader.class : GnEmptyHeader.class;
+            default:
+                return GnEmptyHeader.class;
+        }
+    }
+
+    @Test
+    public void mapsEveryTypeToItsHeaderClass() {
+        for (int type = 0; type <= 0x0F; type++) {
+            for (int subtype = 0; subtype <= 0x0F; subtype++) {
+                final GnExtendedHeaderType number = GnExtendedHeaderType.getInstance((byte) (type << 4 | subtype));
+                assertSame(number.toString(), expectedClass(type, subtype), factory.getTargetClass(number));
+            }
+        }
+    }
+
+    @Test
+    public void decodesEveryTypeToItsHeaderClass() {
+        final byte[] rawData = new byte[MAX_HEADER_SIZE];
+        final ByteBuffer buffer = ByteBuffer.wrap(rawData);
+        for (int type = 0; type <= 0x0F; type++) {
+            for (int subtype = 0; subtype <= 0x0F; subtype++) {
+                final GnExtendedHeaderType number = GnExtendedHeaderType.getInstance((byte) (type << 4 | subtype));
+                final Class<? extends GnPacketHeader> expected = expectedClass(type, subtype);
+                assertSame(number.toString(), expected,
+                        factory.newInstance(rawData, 0, rawData.length, number).getClass());
+                assertSame(number.toString(), expected,
+                        factory.newInstance(buffer, 0, rawData.length, number).getClass());
+            }
+        }
+    }
+
+    @Test
+    public void decodesShortDataAsMalformed() {
+        final GnExtendedHeaderType number = GnExtendedHeaderType.getInstance((byte) 0x40);
+        final byte[] rawData = new byte[GnGBCPacketHeader.SIZE_IN_BYTES - 1];
+        final GnPacketHeader header = factory.newInstance(rawData, 0, rawData.length, number);
+        assertSame(GnMalformedHeader.class, header.getClass());
+        assertEquals(rawData.length, header.length());
+    }
+}